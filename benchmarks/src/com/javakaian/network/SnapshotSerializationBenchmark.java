@@ -0,0 +1,110 @@
+package com.javakaian.network;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.javakaian.network.messages.SnapshotMessage;
+import com.javakaian.network.snapshot.Snapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding a world snapshot for a client and turning the message into bytes
+ * and back with the server's kryo setup. {@link SnapshotMessage} is what
+ * clients are sent every tick since it replaced the GameWorldMessage.
+ * <p>
+ * The world holds as many enemies and bullets as given and a player per ten
+ * enemies. A full message carries all of it. A delta is relative to the
+ * previous tick, in which every bullet and a tenth of the enemies were
+ * somewhere else. Like for any client, a delta is cut down to
+ * {@link NetworkRegistry#DATAGRAM_BUDGET}, so for the larger worlds
+ * {@code encode} includes the trimming and the delta stops growing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnapshotSerializationBenchmark {
+
+    private static final int CONNECTION = 1;
+
+    @Param({"10", "100", "1000", "10000"})
+    int entities;
+
+    @Param({"true", "false"})
+    boolean delta;
+
+    private SnapshotSystem system;
+    private SnapshotMessage message;
+    private Kryo kryo;
+    private Output output;
+    private Input input;
+
+    @Setup
+    public void setUp() {
+        Snapshot previous = world(0, 0);
+        Snapshot current = world(1, 0.1f);
+
+        system = new SnapshotSystem();
+        system.addClient(CONNECTION, 1);
+        system.update(previous);
+        system.encodeWorldFor(CONNECTION);
+        if (delta) {
+            system.ack(CONNECTION, previous.getSequence());
+        }
+        system.update(current);
+        message = system.encodeWorldFor(CONNECTION);
+
+        kryo = new Kryo();
+        NetworkRegistry.registerClasses(kryo);
+        output = new Output(64 * 1024, -1);
+        kryo.writeClassAndObject(output, message);
+        input = new Input(output.toBytes());
+    }
+
+    @Benchmark
+    public SnapshotMessage encode() {
+        return system.encodeWorldFor(CONNECTION);
+    }
+
+    @Benchmark
+    public int serialize() {
+        output.reset();
+        kryo.writeClassAndObject(output, message);
+        return output.position();
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        input.setPosition(0);
+        return kryo.readClassAndObject(input);
+    }
+
+    /**
+     * Same seed every time, so two worlds only differ by what was moved.
+     *
+     * @param moved share of the enemies that are somewhere else
+     */
+    private Snapshot world(int sequence, float moved) {
+        Random random = new Random(42);
+        Random movement = new Random(sequence);
+        Snapshot world = new Snapshot();
+        world.clear(sequence);
+        for (int i = 0; i < entities; i++) {
+            float x = random.nextFloat() * 1000;
+            float y = random.nextFloat() * 1000;
+            if (movement.nextFloat() < moved) {
+                x += 5;
+            }
+            world.addEnemy(i, x, y);
+        }
+        for (int i = 0; i < entities / 10 + 1; i++) {
+            world.addPlayer(i + 1, random.nextFloat() * 1000, random.nextFloat() * 1000, 100, false, 0, 0);
+        }
+        for (int i = 0; i < entities; i++) {
+            world.addBullet(i, random.nextFloat() * 1000 + sequence * 8, random.nextFloat() * 1000, 10);
+        }
+        return world;
+    }
+}
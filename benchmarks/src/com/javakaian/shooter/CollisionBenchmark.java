@@ -0,0 +1,69 @@
+package com.javakaian.shooter;
+
+import com.javakaian.shooter.factory.BulletType;
+import com.javakaian.shooter.shapes.Enemy;
+import com.javakaian.shooter.shapes.GameObjectComposite;
+import com.javakaian.shooter.shapes.Player;
+import com.javakaian.shooter.shapes.Spike;
+import com.javakaian.shooter.strategy.AggressiveBehavior;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ServerWorld#checkCollision()} with as many enemies and bullets as
+ * given, a player per ten enemies and a few spike pickups.
+ * <p>
+ * Everything is spread over an area that grows with the count, so the
+ * density stays about that of a normal match. The first invocation resolves
+ * whatever overlaps after setup. The measured ones see the state every tick
+ * is in most of the time: lots of objects close to each other and nothing
+ * hitting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CollisionBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int entities;
+
+    private ServerWorld world;
+
+    @Setup
+    public void setUp() {
+        world = new ServerWorld(100, 42);
+        GameObjectComposite objects = world.getWorldObjects();
+        Random random = new Random(42);
+        float side = 1000 * (float) Math.max(1, Math.sqrt(entities / 100.0));
+
+        AggressiveBehavior behavior = new AggressiveBehavior();
+        for (int i = 0; i < entities; i++) {
+            objects.add(new Enemy(random.nextFloat() * side, random.nextFloat() * side, 10, behavior));
+        }
+        for (int i = 0; i < entities / 10 + 1; i++) {
+            objects.add(new Player(random.nextFloat() * side, random.nextFloat() * side, 50, i + 1));
+        }
+        for (int i = 0; i < 5; i++) {
+            objects.add(new Spike(random.nextFloat() * side, random.nextFloat() * side, 30));
+        }
+
+        // shot by nobody in the world, so any player can be hit
+        Player shooter = new Player(0, 0, 50, -1);
+        for (int i = 0; i < entities; i++) {
+            shooter.getPosition().set(random.nextFloat() * side, random.nextFloat() * side);
+            world.createBullet(BulletType.STANDARD, shooter, random.nextFloat() * 6.28f);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        world.dispose();
+    }
+
+    @Benchmark
+    public void checkCollision() {
+        world.checkCollision();
+    }
+}
@@ -0,0 +1,71 @@
+package com.javakaian.shooter.shapes;
+
+import com.javakaian.shooter.strategy.AggressiveBehavior;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Type and id lookups of {@link GameObjectComposite}, which the world does
+ * several times per tick, in a composite holding as many enemies as given, a
+ * player per ten enemies and a few spikes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameObjectCompositeBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int entities;
+
+    private GameObjectComposite objects;
+    private int players;
+    private int nextPlayer;
+
+    @Setup
+    public void setUp() {
+        objects = new GameObjectComposite();
+        Random random = new Random(42);
+        AggressiveBehavior behavior = new AggressiveBehavior();
+        players = entities / 10 + 1;
+        for (int i = 0; i < entities; i++) {
+            objects.add(new Enemy(random.nextFloat() * 1000, random.nextFloat() * 1000, 10, behavior));
+            if (i % 10 == 0) {
+                objects.add(new Player(random.nextFloat() * 1000, random.nextFloat() * 1000, 50, i / 10 + 1));
+            }
+        }
+        for (int i = 0; i < 5; i++) {
+            objects.add(new Spike(random.nextFloat() * 1000, random.nextFloat() * 1000, 30));
+        }
+    }
+
+    @Benchmark
+    public List<Enemy> getAllEnemies() {
+        return objects.getAll(Enemy.class);
+    }
+
+    @Benchmark
+    public List<Player> getAllPlayers() {
+        return objects.getAll(Player.class);
+    }
+
+    /**
+     * Fetches the enemy list and walks it, as the world's systems do.
+     */
+    @Benchmark
+    public void iterateEnemies(Blackhole blackhole) {
+        List<Enemy> enemies = objects.getAll(Enemy.class);
+        for (int i = 0; i < enemies.size(); i++) {
+            blackhole.consume(enemies.get(i).isVisible());
+        }
+    }
+
+    @Benchmark
+    public Player getPlayer() {
+        nextPlayer = nextPlayer % players + 1;
+        return objects.getPlayer(nextPlayer);
+    }
+}
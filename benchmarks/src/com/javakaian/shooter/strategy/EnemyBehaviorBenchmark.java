@@ -0,0 +1,80 @@
+package com.javakaian.shooter.strategy;
+
+import com.badlogic.gdx.math.Vector2;
+import com.javakaian.shooter.shapes.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One tick of a behavior strategy for as many enemies as given, chasing a
+ * player per ten enemies. Enemies do not actually move, every tick starts
+ * from the same positions, but their states carry over, as they do in game.
+ * <p>
+ * Measures the strategies alone on one thread, see EnemyAi for how the
+ * world spreads them over several.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EnemyBehaviorBenchmark {
+
+    @Param({"Aggressive", "Defensive", "Flanking", "Erratic"})
+    String strategy;
+
+    @Param({"10", "100", "1000", "10000"})
+    int entities;
+
+    private EnemyBehaviorStrategy behavior;
+    private final SteeringContext context = new SteeringContext();
+    private final Vector2 position = new Vector2();
+    private float[] x;
+    private float[] y;
+    private int[] slots;
+
+    @Setup
+    public void setUp() {
+        behavior = switch (strategy) {
+            case "Aggressive" -> new AggressiveBehavior();
+            case "Defensive" -> new DefensiveBehavior();
+            case "Flanking" -> new FlankingBehavior();
+            case "Erratic" -> new ErraticBehavior();
+            default -> throw new IllegalArgumentException(strategy);
+        };
+
+        Random random = new Random(42);
+        float side = 1000 * (float) Math.max(1, Math.sqrt(entities / 100.0));
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < entities / 10 + 1; i++) {
+            players.add(new Player(random.nextFloat() * side, random.nextFloat() * side, 50, i + 1));
+        }
+        PlayerTargets targets = new PlayerTargets();
+        targets.rebuild(players);
+
+        EnemyStates states = new EnemyStates();
+        x = new float[entities];
+        y = new float[entities];
+        slots = new int[entities];
+        for (int i = 0; i < entities; i++) {
+            x[i] = random.nextFloat() * side;
+            y[i] = random.nextFloat() * side;
+            slots[i] = states.allocate(random.nextLong());
+            behavior.initState(slots[i], states);
+        }
+        context.begin(targets, states, 1 / 60f);
+    }
+
+    @Benchmark
+    public float tick() {
+        float sum = 0;
+        for (int i = 0; i < x.length; i++) {
+            position.set(x[i], y[i]);
+            behavior.behaveDifferently(position, slots[i], context);
+            sum += position.x + position.y;
+        }
+        return sum;
+    }
+}
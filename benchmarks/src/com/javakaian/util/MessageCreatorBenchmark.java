@@ -0,0 +1,76 @@
+package com.javakaian.util;
+
+import com.javakaian.network.snapshot.Snapshot;
+import com.javakaian.shooter.factory.BulletFactory;
+import com.javakaian.shooter.factory.BulletType;
+import com.javakaian.shooter.factory.ConcreteBulletFactory;
+import com.javakaian.shooter.iterator.PowerUpArray;
+import com.javakaian.shooter.iterator.PowerUpCollection;
+import com.javakaian.shooter.shapes.*;
+import com.javakaian.shooter.simulation.BulletEngine;
+import com.javakaian.shooter.strategy.AggressiveBehavior;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MessageCreator#captureSnapshot}, which copies the world into the
+ * snapshot the encoder works from, with as many enemies and bullets as
+ * given, a player per ten enemies and a few spikes and power-ups. It took
+ * the place of building a GameWorldMessage per tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageCreatorBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int entities;
+
+    private final List<Enemy> enemies = new ArrayList<>();
+    private final List<Player> players = new ArrayList<>();
+    private final List<Spike> spikes = new ArrayList<>();
+    private final List<PlacedSpike> placedSpikes = new ArrayList<>();
+    private final PowerUpCollection powerUps = new PowerUpArray();
+    private final BulletEngine bullets = new BulletEngine();
+    private final Snapshot snapshot = new Snapshot();
+    private int sequence;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        AggressiveBehavior behavior = new AggressiveBehavior();
+        for (int i = 0; i < entities; i++) {
+            Enemy enemy = new Enemy(random.nextFloat() * 1000, random.nextFloat() * 1000, 10, behavior);
+            enemy.setNetId(i);
+            enemies.add(enemy);
+        }
+        for (int i = 0; i < entities / 10 + 1; i++) {
+            players.add(new Player(random.nextFloat() * 1000, random.nextFloat() * 1000, 50, i + 1));
+        }
+        BulletFactory factory = new ConcreteBulletFactory();
+        for (int i = 0; i < entities; i++) {
+            Bullet spec = factory.createBullet(BulletType.STANDARD,
+                    random.nextFloat() * 1000, random.nextFloat() * 1000, random.nextFloat() * 6.28f, 1);
+            bullets.spawn(BulletType.STANDARD, spec);
+            factory.recycle(spec);
+        }
+        PowerUp.PowerUpType[] types = PowerUp.PowerUpType.values();
+        for (int i = 0; i < 5; i++) {
+            Spike spike = new Spike(random.nextFloat() * 1000, random.nextFloat() * 1000, 30);
+            spike.setNetId(entities + i);
+            spikes.add(spike);
+            powerUps.add(new PowerUp(i, random.nextFloat() * 1000, random.nextFloat() * 1000, types[i % types.length], 8f));
+        }
+    }
+
+    @Benchmark
+    public Snapshot captureSnapshot() {
+        snapshot.clear(sequence++);
+        MessageCreator.captureSnapshot(snapshot, enemies, bullets, players, spikes, placedSpikes, powerUps);
+        return snapshot;
+    }
+}
@@ -5,7 +5,9 @@ import com.esotericsoftware.kryonet.Client;
 import com.esotericsoftware.kryonet.Connection;
 import com.esotericsoftware.kryonet.Listener;
 import com.javakaian.network.messages.*;
+import com.javakaian.network.snapshot.Snapshot;
 import com.javakaian.shooter.OMessageListener;
+import com.javakaian.shooter.utils.SnapshotDecoder;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
@@ -19,14 +21,19 @@ public class OClient {
 
     private String inetAddress;
 
+    /**
+     * Only used on the network thread.
+     */
+    private final SnapshotDecoder snapshotDecoder = new SnapshotDecoder();
+
     private Logger logger = Logger.getLogger(OClient.class);
 
     public OClient(String inetAddress, OMessageListener game) {
 
         this.game = game;
         this.inetAddress = inetAddress;
-        client = new Client();
-        registerClasses();
+        client = new Client(8192, NetworkRegistry.OBJECT_BUFFER);
+        NetworkRegistry.registerClasses(client.getKryo());
         addListeners();
 
     }
@@ -48,6 +55,11 @@ public class OClient {
             @Override
             public void received(Connection connection, Object object) {
 
+                if (object instanceof SnapshotMessage m) {
+                    snapshotReceived(m);
+                    return;
+                }
+
                 Gdx.app.postRunnable(() -> {
 
                     if (object instanceof LoginMessage m) {
@@ -81,38 +93,21 @@ public class OClient {
     }
 
     /**
-     * This function register every class that will be sent back and forth between
-     * client and server.
+     * Decodes a snapshot right away on the network thread, so the ack goes out
+     * without waiting for the next frame and the arrival time is exact, then
+     * hands a copy to the game.
      */
-    private void registerClasses() {
-        // messages
-        this.client.getKryo().register(LoginMessage.class);
-        this.client.getKryo().register(LogoutMessage.class);
-        this.client.getKryo().register(GameWorldMessage.class);
-        this.client.getKryo().register(PositionMessage.class);
-        this.client.getKryo().register(PositionMessage.Direction.class);
-        this.client.getKryo().register(ShootMessage.class);
-        this.client.getKryo().register(PlayerDiedMessage.class);
-
-        this.client.getKryo().register(WeaponChangeMessage.class);
-        this.client.getKryo().register(WeaponInfoMessage.class);
-        this.client.getKryo().register(AmmoUpdateMessage.class);
-        this.client.getKryo().register(ReloadMessage.class);
-
-        this.client.getKryo().register(PlaceSpikeMessage.class);
-        this.client.getKryo().register(UndoSpikeMessage.class);
-        this.client.getKryo().register(InventoryUpdateMessage.class);
-        
-        // Team chat messages - Mediator pattern
-        this.client.getKryo().register(ChatMessage.class);
-        this.client.getKryo().register(TeamAssignmentMessage.class);
-
-        // primitive arrays
-        this.client.getKryo().register(float[].class);
-
-        //memento rewind
-        this.client.getKryo().register(RewindMessage.class);
+    private void snapshotReceived(SnapshotMessage m) {
+        double arrival = System.nanoTime() / 1e9;
+        Snapshot snapshot = snapshotDecoder.decode(m);
+        if (snapshot == null) {
+            return;
+        }
+        client.sendUDP(new SnapshotAckMessage(snapshot.getSequence()));
 
+        Snapshot copy = new Snapshot();
+        copy.copyFrom(snapshot);
+        Gdx.app.postRunnable(() -> OClient.this.game.snapshotReceived(copy, m.getLastInput(), arrival));
     }
 
     public void close() {
@@ -1,6 +1,7 @@
 package com.javakaian.shooter;
 
 import com.javakaian.network.messages.*;
+import com.javakaian.network.snapshot.Snapshot;
 
 /**
  * Listener class. A class who wants to listen events like, login,logout etc.
@@ -33,6 +34,16 @@ public interface OMessageListener {
      */
     void gwmReceived(GameWorldMessage m);
 
+    /**
+     * Should be invoked when a world snapshot was decoded.
+     *
+     * @param snapshot  a copy the listener may keep
+     * @param lastInput last input command of the player the server applied
+     * @param arrival   when the snapshot arrived, in seconds of
+     *                  {@link System#nanoTime()}
+     */
+    void snapshotReceived(Snapshot snapshot, int lastInput, double arrival);
+
     /**
      * Should be invoked when player died message received. Things that are going to
      * happen after player is dead, should be done under the implementation of this
@@ -1,9 +1,31 @@
 package com.javakaian.shooter.utils;
 
+import com.javakaian.shooter.ViewLimits;
+
 public class GameConstants {
 
-    public static final int SCREEN_WIDTH = 1000;
-    public static final int SCREEN_HEIGHT = 1000;
+    public static final int SCREEN_WIDTH = ViewLimits.VIEW_WIDTH;
+    public static final int SCREEN_HEIGHT = ViewLimits.VIEW_HEIGHT;
+
+    /**
+     * How far in the past other entities are drawn, in seconds. Should cover
+     * the time between two snapshots plus some jitter. Can be set with the
+     * {@code killthemall.interpolationDelayMs} system property.
+     */
+    public static final float INTERPOLATION_DELAY =
+            Integer.getInteger("killthemall.interpolationDelayMs", 100) / 1000f;
+    /**
+     * How long entities keep moving when snapshots stop coming, in seconds.
+     * Can be set with the {@code killthemall.maxExtrapolationMs} system
+     * property.
+     */
+    public static final float MAX_EXTRAPOLATION =
+            Integer.getInteger("killthemall.maxExtrapolationMs", 100) / 1000f;
+    /**
+     * Room to join, set with the {@code killthemall.room} system property.
+     * Null lets the server pick one.
+     */
+    public static final String ROOM = System.getProperty("killthemall.room");
 
     private GameConstants() {
     }
@@ -0,0 +1,126 @@
+package com.javakaian.shooter.utils;
+
+import com.badlogic.gdx.math.Vector2;
+import com.javakaian.network.messages.InputCommandMessage;
+import com.javakaian.shooter.PlayerMovement;
+
+/**
+ * Turns the movement keys into input commands and predicts the own player's
+ * movement from them.
+ * <p>
+ * Frame time is cut into steps of {@link PlayerMovement#STEP}, the same steps
+ * the server applies commands in, and every step with a movement key held
+ * becomes a command with the next sequence number. The player moves right
+ * away, without waiting for the server.
+ * <p>
+ * Commands are kept until a snapshot tells the last one the server applied.
+ * The player is then put on the server's position and the commands the
+ * server has not applied yet are run again on top of it. When both sides
+ * agree, which is nearly always, the player does not move at all.
+ * <p>
+ * Every message repeats the last few commands, so a lost packet is made up
+ * for by the next one. When no next one comes, e.g. the keys were released,
+ * the commands the server has not applied are sent again after each
+ * snapshot that still misses them.
+ */
+public class InputPredictor {
+
+    /** Commands kept for replaying, about two seconds. */
+    private static final int HISTORY = 128;
+    /** Commands repeated in every message, to ride out lost packets. */
+    private static final int REDUNDANCY = 4;
+    /** Most commands in one message, a longer frame takes several. */
+    static final int MAX_COMMANDS = 16;
+    /** Longest frame turned into commands, longer hitches are dropped. */
+    private static final float MAX_FRAME = 0.25f;
+
+    private final byte[] buttons = new byte[HISTORY];
+
+    private int nextSequence = 1;
+    private int lastApplied;
+    private int lastSent;
+    private boolean resendDue;
+    private float accumulator;
+
+    /**
+     * Takes commands for the frame time and moves the player by them.
+     *
+     * @param held  movement keys held, see {@link PlayerMovement}
+     * @param speed world units per second
+     */
+    public void update(float deltaTime, int held, Vector2 position, float speed) {
+        accumulator = Math.min(accumulator + deltaTime, MAX_FRAME);
+        while (accumulator >= PlayerMovement.STEP) {
+            accumulator -= PlayerMovement.STEP;
+            if (held == 0) {
+                continue;
+            }
+            buttons[nextSequence % HISTORY] = (byte) held;
+            nextSequence++;
+            position.x += PlayerMovement.dx(held, speed);
+            position.y += PlayerMovement.dy(held, speed);
+        }
+    }
+
+    /**
+     * Message with the commands not sent yet, together with the last few that
+     * were. Without new commands, the last few the server has not applied are
+     * sent again once per snapshot that misses them, otherwise this is null.
+     * A long frame takes more commands than fit in one message, call this
+     * until it returns null to send all of them.
+     */
+    public InputCommandMessage createMessage(int playerId, float aimAngle) {
+        int newest = nextSequence - 1;
+        if (newest == lastSent && !resendDue) {
+            return null;
+        }
+        resendDue = false;
+        // every unsent command goes out, repeats only fill up to REDUNDANCY
+        int first = Math.max(Math.max(lastApplied + 1, Math.min(lastSent + 1, newest - REDUNDANCY + 1)), 1);
+        // commands older than the history are gone, nothing can resend them
+        first = Math.max(first, nextSequence - HISTORY);
+        int last = Math.min(newest, first + MAX_COMMANDS - 1);
+        byte[] commands = new byte[last - first + 1];
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = buttons[(first + i) % HISTORY];
+        }
+        lastSent = Math.max(lastSent, last);
+
+        InputCommandMessage m = new InputCommandMessage();
+        m.setPlayerId(playerId);
+        m.setFirstSequence(first);
+        m.setButtons(commands);
+        m.setAimAngle(aimAngle);
+        return m;
+    }
+
+    /**
+     * Puts the player on the position from a snapshot and replays the commands
+     * the server had not applied yet.
+     *
+     * @param applied  last command the server applied before the snapshot
+     * @param position position from the snapshot, moved in place
+     * @param speed    world units per second
+     */
+    public void reconcile(int applied, Vector2 position, float speed) {
+        lastApplied = Math.max(lastApplied, Math.min(applied, nextSequence - 1));
+        resendDue = lastApplied < lastSent;
+        int first = Math.max(lastApplied + 1, nextSequence - HISTORY);
+        for (int sequence = first; sequence < nextSequence; sequence++) {
+            int b = buttons[sequence % HISTORY];
+            position.x += PlayerMovement.dx(b, speed);
+            position.y += PlayerMovement.dy(b, speed);
+        }
+    }
+
+    /**
+     * Forgets every command, e.g. after logging in again.
+     */
+    public void reset() {
+        nextSequence = 1;
+        lastApplied = 0;
+        lastSent = 0;
+        resendDue = false;
+        accumulator = 0;
+    }
+}
@@ -0,0 +1,138 @@
+package com.javakaian.shooter.utils;
+
+import com.javakaian.network.snapshot.Snapshot;
+
+/**
+ * Keeps the latest snapshots with the time they arrived and blends them into
+ * the world state for a point in time, so entities move smoothly no matter
+ * how often or how regularly snapshots come in.
+ * <p>
+ * The world is drawn {@code delay} seconds in the past. As long as the next
+ * snapshot arrives within that delay, there are two snapshots around the
+ * drawn time and entity positions are interpolated between them. When
+ * snapshots stop coming, entities keep moving the way they did for at most
+ * {@code maxExtrapolation} seconds and then stop.
+ * <p>
+ * Arrival times are smoothed: each snapshot is expected the average time per
+ * sequence number after the previous one, so lost snapshots are accounted
+ * for, and only moved part of the way towards when it actually arrived.
+ * Network jitter then barely changes the speed things are drawn at.
+ * <p>
+ * Should only be used from one thread.
+ */
+public class SnapshotBuffer {
+
+    private static final int CAPACITY = 32;
+    /** How much of the difference to the real arrival time a timestamp takes. */
+    private static final double TIME_CORRECTION = 0.1;
+    private static final double INTERVAL_SMOOTHING = 0.1;
+    /** Arrival times this far off the expected one are taken as they are. */
+    private static final double RESYNC_SECONDS = 0.25;
+
+    private final double delay;
+    private final double maxExtrapolation;
+
+    private final Snapshot[] snapshots = new Snapshot[CAPACITY];
+    private final double[] times = new double[CAPACITY];
+    private int newest = -1;
+    private int size;
+
+    private double lastArrival;
+    // smoothed time between two consecutive sequence numbers
+    private double interval;
+
+    /**
+     * @param delay            how far in the past the world is drawn, in seconds
+     * @param maxExtrapolation how long entities keep moving without new
+     *                         snapshots, in seconds
+     */
+    public SnapshotBuffer(double delay, double maxExtrapolation) {
+        this.delay = delay;
+        this.maxExtrapolation = maxExtrapolation;
+        for (int i = 0; i < CAPACITY; i++) {
+            snapshots[i] = new Snapshot();
+        }
+    }
+
+    /**
+     * Stores a copy of a snapshot. Snapshots must be added in sequence order.
+     *
+     * @param arrival when the snapshot arrived, in seconds
+     */
+    public void add(Snapshot snapshot, double arrival) {
+        double time;
+        if (size == 0) {
+            time = arrival;
+            interval = 0;
+        } else {
+            double previous = times[newest];
+            int steps = Math.max(1, snapshot.getSequence() - snapshots[newest].getSequence());
+            double observed = (arrival - lastArrival) / steps;
+            interval = interval == 0 ? observed : interval + (observed - interval) * INTERVAL_SMOOTHING;
+            double expected = previous + interval * steps;
+            time = expected + (arrival - expected) * TIME_CORRECTION;
+            if (Math.abs(arrival - time) > RESYNC_SECONDS) {
+                time = arrival;
+            }
+            // keep times strictly increasing
+            time = Math.max(time, previous + 1e-4);
+        }
+        lastArrival = arrival;
+
+        newest = (newest + 1) % CAPACITY;
+        snapshots[newest].copyFrom(snapshot);
+        times[newest] = time;
+        size = Math.min(size + 1, CAPACITY);
+    }
+
+    /**
+     * Fills {@code out} with the world as it is drawn at the given time, i.e.
+     * the snapshots around {@code now} minus the delay.
+     *
+     * @param now current time, in seconds, same clock as {@link #add}
+     * @return false if there is no snapshot yet
+     */
+    public boolean sample(double now, Snapshot out) {
+        if (size == 0) {
+            return false;
+        }
+        double renderTime = now - delay;
+
+        if (size == 1 || renderTime <= times[oldest()]) {
+            out.copyFrom(snapshots[size == 1 ? newest : oldest()]);
+            return true;
+        }
+
+        int previous = (newest - 1 + CAPACITY) % CAPACITY;
+        if (renderTime >= times[newest]) {
+            // nothing newer yet, continue the last movement for a while
+            double ahead = Math.min(renderTime - times[newest], maxExtrapolation);
+            float t = (float) (1 + ahead / (times[newest] - times[previous]));
+            out.interpolate(snapshots[previous], snapshots[newest], t);
+            return true;
+        }
+
+        // newest snapshot at or after the render time, walk back to the one before it
+        int after = newest;
+        int before = previous;
+        for (int k = 1; k < size - 1 && times[before] > renderTime; k++) {
+            after = before;
+            before = (before - 1 + CAPACITY) % CAPACITY;
+        }
+        float t = (float) ((renderTime - times[before]) / (times[after] - times[before]));
+        out.interpolate(snapshots[before], snapshots[after], t);
+        return true;
+    }
+
+    /**
+     * Forgets every snapshot, e.g. after logging in again.
+     */
+    public void clear() {
+        newest = -1;
+        size = 0;
+    }
+
+    private int oldest() {
+        return (newest - size + 1 + CAPACITY) % CAPACITY;
+    }
+}
@@ -0,0 +1,168 @@
+package com.javakaian.shooter.utils;
+
+import com.javakaian.network.messages.GameWorldMessage;
+import com.javakaian.network.messages.SnapshotMessage;
+import com.javakaian.network.snapshot.Snapshot;
+import com.javakaian.network.snapshot.SnapshotCodec;
+
+/**
+ * Rebuilds world snapshots from the deltas sent by the server and turns them
+ * into the GameWorldMessage the game states already understand.
+ * <p>
+ * The decoder keeps the snapshots it decoded recently, since the server may
+ * use any of them it got an ack for as the baseline. Snapshots older than the
+ * newest one decoded are dropped, UDP does not keep order. A delta whose
+ * baseline is not known anymore is dropped too, the server notices the
+ * missing acks and falls back to a full snapshot.
+ * <p>
+ * Should only be used from one thread.
+ */
+public class SnapshotDecoder {
+
+    /** Same size as the server's history. */
+    private static final int HISTORY = 64;
+
+    private final Snapshot[] ring = new Snapshot[HISTORY];
+    private int latestSequence = -1;
+
+    private long decoded;
+    private long dropped;
+
+    public SnapshotDecoder() {
+        for (int i = 0; i < HISTORY; i++) {
+            ring[i] = new Snapshot();
+        }
+    }
+
+    /**
+     * Applies a snapshot message.
+     *
+     * @return the decoded snapshot, or null if the message is stale or could
+     * not be decoded. Valid until {@link #HISTORY} more snapshots are decoded.
+     */
+    public Snapshot decode(SnapshotMessage m) {
+        if (m.getSequence() <= latestSequence) {
+            dropped++;
+            return null;
+        }
+
+        Snapshot baseline = null;
+        if (!m.isFull()) {
+            baseline = find(m.getBaseline());
+            if (baseline == null) {
+                dropped++;
+                return null;
+            }
+        }
+
+        Snapshot out = ring[m.getSequence() % HISTORY];
+        if (out == baseline) {
+            // only possible if the baseline is a whole ring old, treat as lost
+            dropped++;
+            return null;
+        }
+        if (!SnapshotCodec.decode(baseline, m, out)) {
+            out.clear(-1);
+            dropped++;
+            return null;
+        }
+
+        latestSequence = m.getSequence();
+        decoded++;
+        return out;
+    }
+
+    /**
+     * Converts a snapshot into the float array layout of GameWorldMessage.
+     */
+    public static GameWorldMessage toGameWorldMessage(Snapshot s) {
+        GameWorldMessage gwm = new GameWorldMessage();
+
+        int n = s.count(Snapshot.ENEMY);
+        float[] enemies = new float[n * 2];
+        for (int i = 0; i < n; i++) {
+            enemies[i * 2] = Snapshot.dequantize(s.field(Snapshot.ENEMY, i, 0));
+            enemies[i * 2 + 1] = Snapshot.dequantize(s.field(Snapshot.ENEMY, i, 1));
+        }
+        gwm.setEnemies(enemies);
+
+        n = s.count(Snapshot.PLAYER);
+        float[] players = new float[n * 7];
+        for (int i = 0; i < n; i++) {
+            players[i * 7] = Snapshot.dequantize(s.field(Snapshot.PLAYER, i, 0));
+            players[i * 7 + 1] = Snapshot.dequantize(s.field(Snapshot.PLAYER, i, 1));
+            players[i * 7 + 2] = s.id(Snapshot.PLAYER, i);
+            players[i * 7 + 3] = s.field(Snapshot.PLAYER, i, 2);
+            players[i * 7 + 4] = s.field(Snapshot.PLAYER, i, 3);
+            players[i * 7 + 5] = s.field(Snapshot.PLAYER, i, 4);
+            players[i * 7 + 6] = s.field(Snapshot.PLAYER, i, 5);
+        }
+        gwm.setPlayers(players);
+
+        n = s.count(Snapshot.BULLET);
+        float[] bullets = new float[n * 3];
+        for (int i = 0; i < n; i++) {
+            bullets[i * 3] = Snapshot.dequantize(s.field(Snapshot.BULLET, i, 0));
+            bullets[i * 3 + 1] = Snapshot.dequantize(s.field(Snapshot.BULLET, i, 1));
+            bullets[i * 3 + 2] = Snapshot.dequantize(s.field(Snapshot.BULLET, i, 2));
+        }
+        gwm.setBullets(bullets);
+
+        n = s.count(Snapshot.SPIKE);
+        float[] spikes = new float[n * 3];
+        for (int i = 0; i < n; i++) {
+            spikes[i * 3] = Snapshot.dequantize(s.field(Snapshot.SPIKE, i, 0));
+            spikes[i * 3 + 1] = Snapshot.dequantize(s.field(Snapshot.SPIKE, i, 1));
+            spikes[i * 3 + 2] = Snapshot.dequantize(s.field(Snapshot.SPIKE, i, 2));
+        }
+        gwm.setSpikes(spikes);
+
+        n = s.count(Snapshot.PLACED_SPIKE);
+        float[] placedSpikes = new float[n * 4];
+        for (int i = 0; i < n; i++) {
+            placedSpikes[i * 4] = Snapshot.dequantize(s.field(Snapshot.PLACED_SPIKE, i, 0));
+            placedSpikes[i * 4 + 1] = Snapshot.dequantize(s.field(Snapshot.PLACED_SPIKE, i, 1));
+            placedSpikes[i * 4 + 2] = Snapshot.dequantize(s.field(Snapshot.PLACED_SPIKE, i, 2));
+            placedSpikes[i * 4 + 3] = Snapshot.dequantize(s.field(Snapshot.PLACED_SPIKE, i, 3));
+        }
+        gwm.setPlacedSpikes(placedSpikes);
+
+        n = s.count(Snapshot.POWER_UP);
+        float[] powerUps = new float[n * 4];
+        for (int i = 0; i < n; i++) {
+            powerUps[i * 4] = Snapshot.dequantize(s.field(Snapshot.POWER_UP, i, 0));
+            powerUps[i * 4 + 1] = Snapshot.dequantize(s.field(Snapshot.POWER_UP, i, 1));
+            powerUps[i * 4 + 2] = Snapshot.dequantize(s.field(Snapshot.POWER_UP, i, 2));
+            powerUps[i * 4 + 3] = s.field(Snapshot.POWER_UP, i, 3);
+        }
+        gwm.setPowerUps(powerUps);
+
+        return gwm;
+    }
+
+    /**
+     * Forgets every snapshot, e.g. after reconnecting.
+     */
+    public void reset() {
+        for (Snapshot snapshot : ring) {
+            snapshot.clear(-1);
+        }
+        latestSequence = -1;
+    }
+
+    public long getDecoded() {
+        return decoded;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    private Snapshot find(int sequence) {
+        if (sequence < 0) {
+            return null;
+        }
+        Snapshot snapshot = ring[sequence % HISTORY];
+        return snapshot.getSequence() == sequence ? snapshot : null;
+    }
+}
@@ -9,8 +9,10 @@ import com.badlogic.gdx.utils.ScreenUtils;
 import com.javakaian.models.Notification;
 import com.javakaian.network.OClient;
 import com.javakaian.network.messages.*;
-import com.javakaian.network.messages.PositionMessage.Direction;
+import com.javakaian.network.snapshot.Snapshot;
 import com.javakaian.shooter.OMessageListener;
+import com.javakaian.shooter.PlayerMovement;
+import com.javakaian.shooter.ViewLimits;
 import com.javakaian.shooter.ThemeFactory.Theme;
 import com.javakaian.shooter.ThemeFactory.ThemeFactory;
 import com.javakaian.shooter.achievements.Achievement;
@@ -23,7 +25,10 @@ import com.javakaian.shooter.logger.SimpleLogDisplay;
 import com.javakaian.shooter.shapes.*;
 import com.javakaian.shooter.utils.GameConstants;
 import com.javakaian.shooter.utils.GameManagerFacade;
+import com.javakaian.shooter.utils.InputPredictor;
 import com.javakaian.shooter.utils.OMessageParser;
+import com.javakaian.shooter.utils.SnapshotBuffer;
+import com.javakaian.shooter.utils.SnapshotDecoder;
 import com.javakaian.shooter.utils.Subsystems.StatAction;
 import com.javakaian.shooter.utils.Subsystems.StatType;
 import com.javakaian.shooter.utils.Subsystems.TextAlignment;
@@ -61,6 +66,12 @@ public class PlayState extends State implements OMessageListener, AchievementObs
     private OClient client;
     //private BitmapFont healthFont;
     private float lastX, lastY;
+    // own movement, predicted ahead of the server
+    private final InputPredictor inputPredictor = new InputPredictor();
+    // other entities, drawn a little in the past between two snapshots
+    private final SnapshotBuffer snapshotBuffer =
+            new SnapshotBuffer(GameConstants.INTERPOLATION_DELAY, GameConstants.MAX_EXTRAPOLATION);
+    private final Snapshot drawnWorld = new Snapshot();
     //private BitmapFont notifFont;
     private String currentWeaponInfo = "Assault rifle";
     private String currentWeaponComponents = "";
@@ -415,6 +426,7 @@ public class PlayState extends State implements OMessageListener, AchievementObs
         m.setX(new SecureRandom().nextInt(GameConstants.SCREEN_WIDTH));
         m.setY(new SecureRandom().nextInt(GameConstants.SCREEN_HEIGHT));
         m.setSelectedTeam(selectedTeam != null ? selectedTeam : "RED");
+        m.setRoom(GameConstants.ROOM);
         client.sendTCP(m);
     }
 
@@ -552,6 +564,7 @@ public class PlayState extends State implements OMessageListener, AchievementObs
     public void update(float deltaTime) {
         if (player == null)
             return;
+        interpolateWorld();
         aimLine.setBegin(player.getCenter());
         aimLine.update(deltaTime);
         // track distance traveled
@@ -592,7 +605,7 @@ public class PlayState extends State implements OMessageListener, AchievementObs
             }
         }
 
-        processInputs();
+        processInputs(deltaTime);
 
         clearNotifications(deltaTime);
 
@@ -611,11 +624,15 @@ public class PlayState extends State implements OMessageListener, AchievementObs
         }
     }
 
+    /**
+     * Zoom is kept within ViewLimits, the server only sends what fits in the
+     * widest allowed view.
+     */
     public void scrolled(float amountY) {
         if (amountY > 0) {
-            camera.zoom += 0.2F;
-        } else if (camera.zoom >= 0.4) {
-            camera.zoom -= 0.2F;
+            camera.zoom = Math.min(camera.zoom + ViewLimits.ZOOM_STEP, ViewLimits.MAX_ZOOM);
+        } else {
+            camera.zoom = Math.max(camera.zoom - ViewLimits.ZOOM_STEP, ViewLimits.MIN_ZOOM);
         }
     }
 
@@ -763,29 +780,29 @@ public class PlayState extends State implements OMessageListener, AchievementObs
         return 0f;
     }
 
-    private void processInputs() {
+    private void processInputs(float deltaTime) {
+        int held = 0;
         // Block player movement when typing in chat
-        if (chatInputActive) {
-            return;
-        }
-        
-        PositionMessage p = new PositionMessage();
-        p.setPlayerId(player.getId());
-        if (Gdx.input.isKeyPressed(Keys.S)) {
-            p.setDirection(Direction.DOWN);
-            client.sendUDP(p);
-        }
-        if (Gdx.input.isKeyPressed(Keys.W)) {
-            p.setDirection(Direction.UP);
-            client.sendUDP(p);
-        }
-        if (Gdx.input.isKeyPressed(Keys.A)) {
-            p.setDirection(Direction.LEFT);
-            client.sendUDP(p);
+        if (!chatInputActive) {
+            if (Gdx.input.isKeyPressed(Keys.W)) {
+                held |= PlayerMovement.UP;
+            }
+            if (Gdx.input.isKeyPressed(Keys.S)) {
+                held |= PlayerMovement.DOWN;
+            }
+            if (Gdx.input.isKeyPressed(Keys.A)) {
+                held |= PlayerMovement.LEFT;
+            }
+            if (Gdx.input.isKeyPressed(Keys.D)) {
+                held |= PlayerMovement.RIGHT;
+            }
         }
-        if (Gdx.input.isKeyPressed(Keys.D)) {
-            p.setDirection(Direction.RIGHT);
-            client.sendUDP(p);
+
+        inputPredictor.update(deltaTime, held, player.getPosition(), PlayerMovement.BASE_SPEED);
+        // a long frame may take more than one message
+        InputCommandMessage m;
+        while ((m = inputPredictor.createMessage(player.getId(), aimLine.getAngle())) != null) {
+            client.sendUDP(m);
         }
     }
 
@@ -793,6 +810,8 @@ public class PlayState extends State implements OMessageListener, AchievementObs
     public void loginReceived(LoginMessage m) {
         player = new Player(m.getX(), m.getY(), 50);
         player.setId(m.getPlayerId());
+        inputPredictor.reset();
+        snapshotBuffer.clear();
         lastX = player.getPosition().x;
         lastY = player.getPosition().y;
         stats.startSession();
@@ -839,28 +858,74 @@ public class PlayState extends State implements OMessageListener, AchievementObs
             setThemeFactory(themeFactory);
         }
 
+        setWorldObjects(m);
+
+        if (player == null)
+            return;
+
+        updateOwnPlayer(players, m.getLastInput());
+        players.removeIf(p -> p.getId() == player.getId());
+    }
+
+    /**
+     * Other entities are drawn from the snapshot buffer, see
+     * {@link #interpolateWorld()}. Only the own player is taken from the
+     * snapshot right away.
+     */
+    @Override
+    public void snapshotReceived(Snapshot snapshot, int lastInput, double arrival) {
+        if (themeFactory == null) {
+            themeFactory = ThemeFactory.getFactory(true);
+            setThemeFactory(themeFactory);
+        }
+
+        snapshotBuffer.add(snapshot, arrival);
+
+        if (player == null)
+            return;
+
+        GameWorldMessage m = SnapshotDecoder.toGameWorldMessage(snapshot);
+        updateOwnPlayer(OMessageParser.getPlayersFromGWM(m), lastInput);
+    }
+
+    /**
+     * Replaces the other entities with the ones of the snapshot buffer at the
+     * current time.
+     */
+    private void interpolateWorld() {
+        if (themeFactory == null || !snapshotBuffer.sample(System.nanoTime() / 1e9, drawnWorld))
+            return;
+
+        setWorldObjects(SnapshotDecoder.toGameWorldMessage(drawnWorld));
+        players.removeIf(p -> p.getId() == player.getId());
+    }
+
+    private void setWorldObjects(GameWorldMessage m) {
         enemies = themeFactory.createEnemiesFromGWM(m);
         bullets = OMessageParser.getBulletsFromGWM(m);
         players = OMessageParser.getPlayersFromGWM(m);
         spikes = OMessageParser.getSpikesFromGWM(m);
         placedSpikes = OMessageParser.getPlacedSpikesFromGWM(m);
         powerUps = OMessageParser.getPowerUpsFromGWM(m);
+    }
 
-        if (player == null)
-            return;
-
+    /**
+     * Takes the own player's state from the server and puts the predicted
+     * movement the server did not see yet on top of it.
+     */
+    private void updateOwnPlayer(List<Player> all, int lastInput) {
         float oldHealth = player.getHealth();
-        players.stream().filter(p -> p.getId() == player.getId())
+        all.stream().filter(p -> p.getId() == player.getId())
                 .findFirst()
                 .ifPresent(p -> {
                     player = p;
+                    inputPredictor.reconcile(lastInput, player.getPosition(), PlayerMovement.BASE_SPEED);
                     hasShield = player.hasShield();
                     float newHealth = player.getHealth();
                     if (newHealth < oldHealth) {
                         stats.stats(StatAction.SET, StatType.TOTAL_DAMAGE, oldHealth - newHealth);
                     }
                 });
-        players.removeIf(p -> p.getId() == player.getId());
     }
 
     @Override
@@ -0,0 +1,159 @@
+package com.javakaian.shooter.utils;
+
+import com.badlogic.gdx.math.Vector2;
+import com.javakaian.network.messages.InputCommandMessage;
+import com.javakaian.shooter.PlayerMovement;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InputPredictorTest {
+
+    // a unit per step keeps the positions easy to check
+    private static final float SPEED = 1 / PlayerMovement.STEP;
+
+    private final InputPredictor predictor = new InputPredictor();
+    private final Vector2 position = new Vector2();
+
+    @Test
+    void commandsMoveThePlayerRightAway() {
+        steps(5, PlayerMovement.RIGHT);
+        steps(3, 0);
+
+        assertEquals(5, position.x, 1e-3f);
+        InputCommandMessage m = predictor.createMessage(1, 0);
+        assertEquals(1, m.getFirstSequence());
+        assertEquals(5, m.getButtons().length);
+    }
+
+    @Test
+    void lostLastMessageIsSentAgainAfterASnapshot() {
+        assertNull(predictor.createMessage(1, 0));
+
+        steps(6, PlayerMovement.RIGHT);
+        predictor.createMessage(1, 0);
+        steps(3, 0);
+        // the keys are released and the last message is lost
+        steps(2, PlayerMovement.RIGHT);
+        predictor.createMessage(1, 0);
+        steps(5, 0);
+        assertNull(predictor.createMessage(1, 0));
+
+        // the snapshot shows only the first six applied
+        Vector2 server = new Vector2(6, 0);
+        predictor.reconcile(6, server, SPEED);
+        assertEquals(8, server.x, 1e-3f);
+
+        InputCommandMessage m = predictor.createMessage(1, 0);
+        assertEquals(7, m.getFirstSequence());
+        assertEquals(2, m.getButtons().length);
+        // once per snapshot, not in a loop
+        assertNull(predictor.createMessage(1, 0));
+
+        // lost again, the next snapshot brings it back once more
+        predictor.reconcile(6, new Vector2(6, 0), SPEED);
+        assertNotNull(predictor.createMessage(1, 0));
+
+        // applied, nothing left to send
+        predictor.reconcile(8, new Vector2(8, 0), SPEED);
+        assertNull(predictor.createMessage(1, 0));
+    }
+
+    @Test
+    void resendCarriesAtMostTheLastFewCommands() {
+        steps(20, PlayerMovement.RIGHT);
+        predictor.createMessage(1, 0);
+
+        predictor.reconcile(5, new Vector2(5, 0), SPEED);
+        InputCommandMessage m = predictor.createMessage(1, 0);
+
+        // the server skips the older ones once these arrive
+        assertEquals(17, m.getFirstSequence());
+        assertEquals(4, m.getButtons().length);
+    }
+
+    @Test
+    void messagesRepeatTheLastCommandsSent() {
+        steps(10, PlayerMovement.RIGHT);
+        predictor.createMessage(1, 0);
+
+        steps(1, PlayerMovement.LEFT);
+        InputCommandMessage m = predictor.createMessage(1, 0);
+
+        assertEquals(8, m.getFirstSequence());
+        assertEquals(4, m.getButtons().length);
+        assertEquals(PlayerMovement.LEFT, m.getButtons()[3]);
+    }
+
+    @Test
+    void longFrameIsSentInSeveralMessages() {
+        steps(5, PlayerMovement.RIGHT);
+        predictor.createMessage(1, 0);
+        steps(40, PlayerMovement.DOWN);
+
+        List<InputCommandMessage> messages = new ArrayList<>();
+        InputCommandMessage m;
+        while ((m = predictor.createMessage(1, 0)) != null) {
+            messages.add(m);
+        }
+
+        assertTrue(messages.size() > 1);
+        int next = 6;
+        for (InputCommandMessage message : messages) {
+            assertTrue(message.getButtons().length <= InputPredictor.MAX_COMMANDS);
+            // no gap between one message and the next
+            assertTrue(message.getFirstSequence() <= next);
+            next = message.getFirstSequence() + message.getButtons().length;
+        }
+        assertEquals(46, next);
+    }
+
+    @Test
+    void appliedCommandsAreNotSentAgain() {
+        steps(10, PlayerMovement.RIGHT);
+        predictor.createMessage(1, 0);
+        predictor.reconcile(10, new Vector2(10, 0), SPEED);
+
+        steps(1, PlayerMovement.RIGHT);
+        InputCommandMessage m = predictor.createMessage(1, 0);
+
+        assertEquals(11, m.getFirstSequence());
+        assertEquals(1, m.getButtons().length);
+    }
+
+    @Test
+    void reconcileReplaysUnappliedCommands() {
+        steps(10, PlayerMovement.RIGHT);
+
+        // the server agrees on the first six
+        Vector2 server = new Vector2(6, 0);
+        predictor.reconcile(6, server, SPEED);
+        assertEquals(10, server.x, 1e-3f);
+
+        // the server stopped the player after the seventh
+        server.set(4, 0);
+        predictor.reconcile(7, server, SPEED);
+        assertEquals(7, server.x, 1e-3f);
+    }
+
+    @Test
+    void olderAcknowledgementIsIgnored() {
+        steps(10, PlayerMovement.RIGHT);
+        predictor.reconcile(8, new Vector2(8, 0), SPEED);
+
+        // a snapshot that arrived late
+        Vector2 server = new Vector2(8, 0);
+        predictor.reconcile(5, server, SPEED);
+
+        assertEquals(10, server.x, 1e-3f);
+    }
+
+    private void steps(int count, int held) {
+        for (int i = 0; i < count; i++) {
+            predictor.update(PlayerMovement.STEP, held, position, SPEED);
+        }
+    }
+}
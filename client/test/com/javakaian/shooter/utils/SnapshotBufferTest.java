@@ -0,0 +1,115 @@
+package com.javakaian.shooter.utils;
+
+import com.javakaian.network.snapshot.Snapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotBufferTest {
+
+    private static final double DELAY = 0.1;
+    private static final double MAX_EXTRAPOLATION = 0.05;
+
+    private final SnapshotBuffer buffer = new SnapshotBuffer(DELAY, MAX_EXTRAPOLATION);
+    private final Snapshot out = new Snapshot();
+
+    @Test
+    void nothingToSampleWhenEmpty() {
+        assertFalse(buffer.sample(1, out));
+    }
+
+    @Test
+    void interpolatesBetweenTheSnapshotsAroundTheRenderTime() {
+        buffer.add(enemyAt(1, 0), 0);
+        buffer.add(enemyAt(2, 100), 0.05);
+
+        assertTrue(buffer.sample(0.125, out));
+
+        assertEquals(50, enemyX(out), 0.5f);
+        assertEquals(2, out.getSequence());
+    }
+
+    @Test
+    void holdsTheOldestSnapshotBeforeItsTime() {
+        buffer.add(enemyAt(1, 0), 0);
+        buffer.add(enemyAt(2, 100), 0.05);
+
+        assertTrue(buffer.sample(0.05, out));
+
+        assertEquals(0, enemyX(out), 0.5f);
+    }
+
+    @Test
+    void extrapolatesForAtMostTheLimit() {
+        buffer.add(enemyAt(1, 0), 0);
+        buffer.add(enemyAt(2, 100), 0.05);
+
+        // a little past the newest snapshot, movement goes on
+        buffer.sample(0.175, out);
+        assertEquals(150, enemyX(out), 0.5f);
+
+        // long after, it stopped where the limit is
+        buffer.sample(5, out);
+        assertEquals(100 + 100 * MAX_EXTRAPOLATION / 0.05, enemyX(out), 0.5f);
+    }
+
+    @Test
+    void entitiesWithoutAPreviousPositionAreNotMoved() {
+        buffer.add(enemyAt(1, 0), 0);
+        Snapshot second = enemyAt(2, 100);
+        second.addPlayer(7, 300, 300, 100, false, 0, 1);
+        buffer.add(second, 0.05);
+
+        buffer.sample(0.125, out);
+
+        assertEquals(1, out.count(Snapshot.PLAYER));
+        assertEquals(300, Snapshot.dequantize(out.field(Snapshot.PLAYER, 0, 0)), 0.5f);
+    }
+
+    @Test
+    void jitteredArrivalsStillMoveSmoothly() {
+        Random random = new Random(7);
+        // an enemy moving 10 units per snapshot, 20 snapshots a second
+        double previousX = -1;
+        double frame = 1 / 60.0;
+        int sequence = 0;
+        double nextSnapshot = 0;
+        for (double now = 0; now < 5; now += frame) {
+            while (nextSnapshot <= now) {
+                double jitter = (random.nextDouble() - 0.5) * 0.02;
+                buffer.add(enemyAt(sequence, sequence * 10), nextSnapshot + jitter);
+                sequence++;
+                nextSnapshot += 0.05;
+            }
+            buffer.sample(now, out);
+            double x = enemyX(out);
+            if (now > 1) {
+                assertTrue(x >= previousX, "went back from " + previousX + " to " + x + " at " + now);
+                // 10 units per 0.05 s are about 3.3 per frame
+                assertTrue(x - previousX < 6, "jumped from " + previousX + " to " + x + " at " + now);
+            }
+            previousX = x;
+        }
+    }
+
+    @Test
+    void clearForgetsEverySnapshot() {
+        buffer.add(enemyAt(1, 0), 0);
+        buffer.clear();
+
+        assertFalse(buffer.sample(1, out));
+    }
+
+    private static Snapshot enemyAt(int sequence, float x) {
+        Snapshot s = new Snapshot();
+        s.clear(sequence);
+        s.addEnemy(1, x, 0);
+        return s;
+    }
+
+    private static float enemyX(Snapshot s) {
+        return Snapshot.dequantize(s.field(Snapshot.ENEMY, 0, 0));
+    }
+}
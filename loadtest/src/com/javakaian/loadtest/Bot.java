@@ -0,0 +1,289 @@
+package com.javakaian.loadtest;
+
+import com.esotericsoftware.kryonet.Client;
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.KryoNetException;
+import com.esotericsoftware.kryonet.Listener;
+import com.javakaian.network.NetworkRegistry;
+import com.javakaian.network.messages.*;
+import com.javakaian.shooter.PlayerMovement;
+import com.javakaian.shooter.ViewLimits;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * A headless player. Logs in, then sends input commands at 60 Hz like the
+ * game client does, plus whatever its {@link BotBehavior} adds, and acks
+ * every snapshot. After dying it logs in again two seconds later.
+ * <p>
+ * The bot runs on its own virtual thread and never blocks in the selector:
+ * it polls its kryo client without waiting, then sleeps until the next poll.
+ * A virtual thread blocked in {@code select} pins its carrier, and the JDK
+ * makes up for that with a new carrier per bot, which hundreds of bots would
+ * turn into hundreds of platform threads.
+ * <p>
+ * Input latency is measured the way a player feels it, from sending a
+ * command until the first snapshot that says the server applied it.
+ */
+class Bot implements Runnable {
+
+    private static final long STEP_NANOS = (long) (PlayerMovement.STEP * 1_000_000_000L);
+    // the client repeats as many commands, a lost packet costs nothing
+    private static final int REDUNDANCY = 4;
+    private static final int HISTORY = 256;
+    private static final long RESPAWN_NANOS = 2_000_000_000L;
+    // at most this many steps are made up after the thread was late
+    private static final int MAX_CATCH_UP_STEPS = 5;
+
+    private static final String[] TEAMS = {"RED", "BLUE", "GREEN"};
+    private static final int[] DIRECTIONS = {
+            0,
+            PlayerMovement.UP, PlayerMovement.DOWN, PlayerMovement.LEFT, PlayerMovement.RIGHT,
+            PlayerMovement.UP | PlayerMovement.LEFT, PlayerMovement.UP | PlayerMovement.RIGHT,
+            PlayerMovement.DOWN | PlayerMovement.LEFT, PlayerMovement.DOWN | PlayerMovement.RIGHT};
+
+    private final int index;
+    private final BotBehavior behavior;
+    private final BotSwarm.Settings settings;
+    private final SwarmStats stats;
+    private final SplittableRandom random;
+    private final String team;
+    private final Client client;
+
+    private volatile boolean running = true;
+    private volatile boolean connecting;
+
+    // everything below is used on the bot's thread only, listeners run there
+    // too since it is the one calling update
+    private int playerId = -1;
+    private boolean playing;
+    private long respawnAt;
+    private long received;
+
+    private long step;
+    private int direction;
+    private float aimAngle;
+    private int spikesPlaced;
+
+    private int nextSequence;
+    private int lastApplied;
+    private final byte[] buttons = new byte[HISTORY];
+    private final long[] sentAt = new long[HISTORY];
+
+    Bot(int index, BotBehavior behavior, BotSwarm.Settings settings, SwarmStats stats, long seed) {
+        this.index = index;
+        this.behavior = behavior;
+        this.settings = settings;
+        this.stats = stats;
+        this.random = new SplittableRandom(seed);
+        this.team = TEAMS[random.nextInt(TEAMS.length)];
+        // spread timed actions, bots started together would act in the same tick
+        this.step = random.nextInt(3600);
+        this.client = new Client(8192, NetworkRegistry.OBJECT_BUFFER, new CountingSerialization(stats));
+        client.addListener(new Listener() {
+
+            @Override
+            public void received(Connection connection, Object object) {
+                Bot.this.received(object);
+            }
+        });
+    }
+
+    @Override
+    public void run() {
+        try {
+            connect();
+        } catch (IOException e) {
+            stats.connectFailures.increment();
+            client.close();
+            return;
+        }
+        stats.connected.incrementAndGet();
+        try {
+            login();
+            long nextStep = System.nanoTime();
+            while (running && client.isConnected()) {
+                poll();
+                long now = System.nanoTime();
+                if (now - nextStep > MAX_CATCH_UP_STEPS * STEP_NANOS) {
+                    nextStep = now;
+                }
+                while (now - nextStep >= 0) {
+                    step(now);
+                    nextStep += STEP_NANOS;
+                }
+                Thread.sleep(settings.pollMillis());
+            }
+        } catch (IOException | KryoNetException e) {
+            // the connection is gone, counted below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (playing) {
+                stats.playing.decrementAndGet();
+            }
+            if (running) {
+                stats.disconnects.increment();
+            }
+            stats.connected.decrementAndGet();
+            client.close();
+        }
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    /**
+     * {@link Client#connect} waits for another thread to run the client
+     * until both TCP and UDP are registered, a helper thread does that here.
+     */
+    private void connect() throws IOException {
+        connecting = true;
+        Thread pump = Thread.ofVirtual().name("bot-" + index + "-connect").start(() -> {
+            try {
+                while (connecting) {
+                    client.update(0);
+                    Thread.sleep(settings.pollMillis());
+                }
+            } catch (IOException | InterruptedException e) {
+                // connect fails by itself then
+            }
+        });
+        try {
+            client.connect(settings.connectTimeoutMillis(), settings.host(), settings.tcpPort(), settings.udpPort());
+        } finally {
+            connecting = false;
+            try {
+                pump.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reads everything that arrived, one update reads at most one datagram.
+     */
+    private void poll() throws IOException {
+        long before;
+        do {
+            before = received;
+            client.update(0);
+        } while (received != before && client.isConnected());
+    }
+
+    private void login() {
+        nextSequence = 1;
+        lastApplied = 0;
+        respawnAt = 0;
+
+        LoginMessage m = new LoginMessage();
+        m.setX(random.nextInt(ViewLimits.VIEW_WIDTH));
+        m.setY(random.nextInt(ViewLimits.VIEW_HEIGHT));
+        m.setSelectedTeam(team);
+        m.setRoom(settings.room());
+        client.sendTCP(m);
+    }
+
+    private void received(Object object) {
+        received++;
+        stats.received.increment();
+        if (object instanceof SnapshotMessage m) {
+            client.sendUDP(new SnapshotAckMessage(m.getSequence()));
+            inputApplied(m.getLastInput());
+        } else if (object instanceof LoginMessage m) {
+            playerId = m.getPlayerId();
+            if (!playing) {
+                playing = true;
+                stats.playing.incrementAndGet();
+            }
+            stats.logins.increment();
+        } else if (object instanceof PlayerDiedMessage m && m.getPlayerId() == playerId && playing) {
+            playing = false;
+            stats.playing.decrementAndGet();
+            stats.deaths.increment();
+            respawnAt = System.nanoTime() + RESPAWN_NANOS;
+        }
+    }
+
+    private void inputApplied(int sequence) {
+        // older snapshots, or ones from before the last login
+        if (!playing || sequence <= lastApplied || sequence >= nextSequence || nextSequence - sequence >= HISTORY) {
+            return;
+        }
+        lastApplied = sequence;
+        stats.inputLatency.record(System.nanoTime() - sentAt[sequence % HISTORY]);
+    }
+
+    private void step(long now) {
+        if (!playing) {
+            if (respawnAt != 0 && now - respawnAt >= 0) {
+                login();
+            }
+            return;
+        }
+        step++;
+
+        if (BotBehavior.due(behavior.getTurnEvery(), step)) {
+            direction = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+            aimAngle = (float) (random.nextDouble() * Math.PI * 2);
+        }
+        sendInput(now);
+
+        if (BotBehavior.due(behavior.getShootEvery(), step)) {
+            ShootMessage m = new ShootMessage();
+            m.setPlayerId(playerId);
+            m.setAngleDeg(aimAngle);
+            client.sendUDP(m);
+            stats.shots.increment();
+        }
+        if (BotBehavior.due(behavior.getSpikeEvery(), step)) {
+            placeOrUndoSpike();
+        }
+        if (BotBehavior.due(behavior.getChatEvery(), step)) {
+            ChatMessage m = new ChatMessage();
+            m.setSenderId(playerId);
+            m.setSenderName("Player" + playerId);
+            m.setMessage("bot " + index + " at step " + step);
+            m.setTeamName(team);
+            m.setTimestamp(System.currentTimeMillis());
+            client.sendUDP(m);
+            stats.chats.increment();
+        }
+    }
+
+    private void sendInput(long now) {
+        int sequence = nextSequence++;
+        buttons[sequence % HISTORY] = (byte) direction;
+        sentAt[sequence % HISTORY] = now;
+
+        int first = Math.max(Math.max(lastApplied + 1, sequence - REDUNDANCY + 1), 1);
+        byte[] commands = new byte[sequence - first + 1];
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = buttons[(first + i) % HISTORY];
+        }
+        InputCommandMessage m = new InputCommandMessage();
+        m.setPlayerId(playerId);
+        m.setFirstSequence(first);
+        m.setButtons(commands);
+        m.setAimAngle(aimAngle);
+        client.sendUDP(m);
+        stats.inputs.increment();
+    }
+
+    private void placeOrUndoSpike() {
+        if (spikesPlaced++ % 2 == 0) {
+            PlaceSpikeMessage m = new PlaceSpikeMessage();
+            m.setPlayerId(playerId);
+            m.setRotation((float) Math.toDegrees(aimAngle));
+            client.sendTCP(m);
+        } else {
+            UndoSpikeMessage m = new UndoSpikeMessage();
+            m.setPlayerId(playerId);
+            client.sendTCP(m);
+        }
+        stats.spikes.increment();
+    }
+}
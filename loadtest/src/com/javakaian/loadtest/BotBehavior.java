@@ -0,0 +1,55 @@
+package com.javakaian.loadtest;
+
+/**
+ * What a bot does once it is in the game. Every bot walks around, changing
+ * direction now and then, the behaviors differ in what they do besides.
+ * <p>
+ * Intervals are in input steps, 60 per second, 0 means never.
+ */
+public enum BotBehavior {
+
+    /** Shoots four times a second in the direction it walks. */
+    FIGHTER(60, 15, 0, 0),
+    /** Only walks, the cheapest kind of player. */
+    WANDERER(90, 0, 0, 0),
+    /** Places a spike every few seconds and takes every other one back. */
+    BUILDER(120, 0, 180, 0),
+    /** Talks to its team every two seconds. */
+    CHATTER(120, 0, 0, 120);
+
+    private final int turnEvery;
+    private final int shootEvery;
+    private final int spikeEvery;
+    private final int chatEvery;
+
+    BotBehavior(int turnEvery, int shootEvery, int spikeEvery, int chatEvery) {
+        this.turnEvery = turnEvery;
+        this.shootEvery = shootEvery;
+        this.spikeEvery = spikeEvery;
+        this.chatEvery = chatEvery;
+    }
+
+    public int getTurnEvery() {
+        return turnEvery;
+    }
+
+    public int getShootEvery() {
+        return shootEvery;
+    }
+
+    public int getSpikeEvery() {
+        return spikeEvery;
+    }
+
+    public int getChatEvery() {
+        return chatEvery;
+    }
+
+    /**
+     * Whether something done every {@code every} steps is due at this step.
+     * Bots start at different offsets, so they do not all act at once.
+     */
+    static boolean due(int every, long step) {
+        return every > 0 && step % every == 0;
+    }
+}
@@ -0,0 +1,320 @@
+package com.javakaian.loadtest;
+
+import com.esotericsoftware.minlog.Log;
+import com.javakaian.network.NetworkRegistry;
+import com.javakaian.shooter.KillThemAllServer;
+import com.javakaian.shooter.logging.RingBufferAppender;
+import com.javakaian.shooter.match.Room;
+import com.javakaian.shooter.tick.ServerTickLoop;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Load generator: hundreds of headless {@link Bot}s playing against a server
+ * on this machine, each on its own virtual thread.
+ * <p>
+ * By default the swarm starts the server in the same JVM, so next to what the
+ * bots measure it can report the server's average tick time, tick overruns,
+ * and the rate of messages entering and dropped by the rooms' inbound queues.
+ * With {@code --external} it plays against a server that is already running
+ * and only reports what the bots see.
+ * <p>
+ * Options, all optional:
+ * <ul>
+ * <li>{@code --bots 200}, number of bots</li>
+ * <li>{@code --duration 60}, seconds to play after the last bot started</li>
+ * <li>{@code --ramp 5}, seconds over which the bots are started</li>
+ * <li>{@code --mix fighter:60,wanderer:20,builder:10,chatter:10}, share of
+ * each {@link BotBehavior}</li>
+ * <li>{@code --room name}, room to join, the server picks one without it</li>
+ * <li>{@code --host 127.0.0.1}, with {@code --external}</li>
+ * <li>{@code --report 5}, seconds between two report lines</li>
+ * <li>{@code --poll-ms 4}, sleep between two polls of a bot</li>
+ * <li>{@code --seed n}, makes the bots' choices repeatable</li>
+ * </ul>
+ * Ports are read from the {@code killthemall.tcpPort} and
+ * {@code killthemall.udpPort} system properties like the server does. Every
+ * other server setting is a system property too, see MatchManager. The
+ * embedded server gets rooms big enough for all bots unless
+ * {@code killthemall.roomCapacity} says otherwise.
+ */
+public class BotSwarm {
+
+    record Settings(InetAddress host, int tcpPort, int udpPort, String room, int pollMillis,
+                    int connectTimeoutMillis) {
+    }
+
+    private final int bots;
+    private final int durationSeconds;
+    private final int rampSeconds;
+    private final int reportSeconds;
+    private final Map<BotBehavior, Integer> mix;
+    private final Settings settings;
+    private final long seed;
+    private final KillThemAllServer server;
+    private final PrintStream out;
+
+    private final SwarmStats stats = new SwarmStats();
+    private final List<Bot> running = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+
+    private SwarmStats.Sample lastSample;
+    private ServerSample lastServerSample;
+
+    BotSwarm(int bots, int durationSeconds, int rampSeconds, int reportSeconds, Map<BotBehavior, Integer> mix,
+             Settings settings, long seed, KillThemAllServer server, PrintStream out) {
+        this.bots = bots;
+        this.durationSeconds = durationSeconds;
+        this.rampSeconds = rampSeconds;
+        this.reportSeconds = reportSeconds;
+        this.mix = mix;
+        this.settings = settings;
+        this.seed = seed;
+        this.server = server;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = parseOptions(args);
+
+        int bots = Integer.parseInt(options.getOrDefault("bots", "200"));
+        boolean external = options.containsKey("external");
+        InetAddress host = external
+                ? InetAddress.getByName(options.getOrDefault("host", "127.0.0.1"))
+                : InetAddress.getLoopbackAddress();
+        Settings settings = new Settings(host,
+                Integer.getInteger("killthemall.tcpPort", 1234),
+                Integer.getInteger("killthemall.udpPort", 1235),
+                options.get("room"),
+                Integer.parseInt(options.getOrDefault("poll-ms", "4")),
+                5000);
+
+        // kryonet logs every connection at info, only the report goes to
+        // standard output
+        Log.set(Log.LEVEL_WARN);
+        PrintStream out = System.out;
+        KillThemAllServer server = null;
+        if (!external) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            if (System.getProperty("killthemall.roomCapacity") == null) {
+                System.setProperty("killthemall.roomCapacity", Integer.toString(Math.max(100, bots)));
+            }
+            RingBufferAppender.install();
+            server = new KillThemAllServer();
+            server.create();
+        }
+
+        BotSwarm swarm = new BotSwarm(bots,
+                Integer.parseInt(options.getOrDefault("duration", "60")),
+                Integer.parseInt(options.getOrDefault("ramp", "5")),
+                Integer.parseInt(options.getOrDefault("report", "5")),
+                parseMix(options.getOrDefault("mix", "fighter:60,wanderer:20,builder:10,chatter:10")),
+                settings,
+                Long.parseLong(options.getOrDefault("seed", Long.toString(System.nanoTime()))),
+                server, out);
+        try {
+            swarm.run();
+        } finally {
+            if (server != null) {
+                server.dispose();
+            }
+        }
+        System.exit(0);
+    }
+
+    void run() throws InterruptedException {
+        out.println("Starting " + bots + " bots " + mix + " against " + settings.host().getHostAddress()
+                + ":" + settings.tcpPort() + (server != null ? " (embedded server)" : "")
+                + ", seed " + seed);
+
+        lastSample = stats.sample();
+        lastServerSample = sampleServer();
+        SwarmStats.Sample first = lastSample;
+        ServerSample firstServer = lastServerSample;
+
+        long start = System.nanoTime();
+        long rampNanos = rampSeconds * 1_000_000_000L;
+        long end = start + rampNanos + durationSeconds * 1_000_000_000L;
+        long reportNanos = Math.max(1, reportSeconds) * 1_000_000_000L;
+        long nextReport = start + reportNanos;
+
+        List<BotBehavior> behaviors = assignBehaviors();
+        SplittableRandom seeds = new SplittableRandom(seed);
+        int started = 0;
+        while (true) {
+            long now = System.nanoTime();
+            if (now - end >= 0) {
+                break;
+            }
+            // start the bots that are due by now, spread evenly over the ramp
+            long due = rampNanos == 0 ? bots : Math.min(bots, (now - start) * bots / rampNanos + 1);
+            for (; started < due; started++) {
+                Bot bot = new Bot(started, behaviors.get(started), settings, stats, seeds.nextLong());
+                running.add(bot);
+                threads.add(Thread.ofVirtual().name("bot-" + started).start(bot));
+            }
+            if (now - nextReport >= 0) {
+                nextReport += reportNanos;
+                report(now - start);
+            }
+            Thread.sleep(50);
+        }
+
+        // the totals while everyone is still connected
+        out.println("Summary: " + line(first, stats.sample(), firstServer, sampleServer()));
+        for (Bot bot : running) {
+            bot.stop();
+        }
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        out.println("  logins " + stats.logins.sum() + ", deaths " + stats.deaths.sum()
+                + ", connect failures " + stats.connectFailures.sum()
+                + ", lost connections " + stats.disconnects.sum()
+                + ", largest snapshot " + stats.maxSnapshotBytes.get() + " B"
+                + ", largest delta " + stats.maxDeltaBytes.get() + " B"
+                + ", deltas over " + NetworkRegistry.DATAGRAM_BUDGET + " B " + stats.oversizedDeltas.sum()
+                + ", slowest input " + LatencyHistogram.millis(stats.inputLatency.getMaxNanos()) + " ms");
+        if (stats.maxSnapshotBytes.get() > NetworkRegistry.OBJECT_BUFFER) {
+            out.println("  snapshots were larger than the " + NetworkRegistry.OBJECT_BUFFER
+                    + " B a game client can read, it would have been disconnected");
+        }
+    }
+
+    /**
+     * Behaviors in the ratio of the mix, the first bots get a bit of
+     * everything, so a short ramp is representative too.
+     */
+    private List<BotBehavior> assignBehaviors() {
+        int total = 0;
+        for (int weight : mix.values()) {
+            total += weight;
+        }
+        List<BotBehavior> behaviors = new ArrayList<>(bots);
+        Map<BotBehavior, Integer> assigned = new EnumMap<>(BotBehavior.class);
+        for (int i = 0; i < bots; i++) {
+            // the behavior furthest below its share so far
+            BotBehavior next = null;
+            double largest = Double.NEGATIVE_INFINITY;
+            for (Map.Entry<BotBehavior, Integer> entry : mix.entrySet()) {
+                double missing = (i + 1.0) * entry.getValue() / total - assigned.getOrDefault(entry.getKey(), 0);
+                if (missing > largest) {
+                    largest = missing;
+                    next = entry.getKey();
+                }
+            }
+            assigned.merge(next, 1, Integer::sum);
+            behaviors.add(next);
+        }
+        return behaviors;
+    }
+
+    private void report(long elapsedNanos) {
+        SwarmStats.Sample sample = stats.sample();
+        ServerSample serverSample = sampleServer();
+        out.println(String.format(Locale.ROOT, "%4ds ", elapsedNanos / 1_000_000_000L)
+                + line(lastSample, sample, lastServerSample, serverSample));
+        lastSample = sample;
+        lastServerSample = serverSample;
+    }
+
+    private String line(SwarmStats.Sample from, SwarmStats.Sample to, ServerSample serverFrom, ServerSample serverTo) {
+        double seconds = Math.max(1, to.nanos() - from.nanos()) / 1e9;
+        long snapshots = to.snapshots() - from.snapshots();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT,
+                "bots %d/%d playing %d | sent %.0f inputs/s %.0f actions/s | received %.0f msg/s, %.0f snapshots/s avg %d B",
+                stats.connected.get(), bots, stats.playing.get(),
+                (to.inputs() - from.inputs()) / seconds, (to.actions() - from.actions()) / seconds,
+                (to.received() - from.received()) / seconds, snapshots / seconds,
+                snapshots == 0 ? 0 : (to.snapshotBytes() - from.snapshotBytes()) / snapshots));
+        sb.append(" | input latency ").append(to.latency().since(from.latency()).summary());
+        if (serverFrom != null && serverTo != null) {
+            long ticks = serverTo.ticks() - serverFrom.ticks();
+            sb.append(String.format(Locale.ROOT,
+                    " | server tick avg %.2f ms, %d overruns, inbound %.0f msg/s, %d dropped",
+                    ticks == 0 ? 0 : (serverTo.busyNanos() - serverFrom.busyNanos()) / ticks / 1e6,
+                    serverTo.overruns() - serverFrom.overruns(),
+                    (serverTo.inbound() - serverFrom.inbound()) / seconds,
+                    serverTo.dropped() - serverFrom.dropped()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Counters of every room of the embedded server, null without one. Rooms
+     * closed in between take their counts with them.
+     */
+    private ServerSample sampleServer() {
+        if (server == null) {
+            return null;
+        }
+        long ticks = 0;
+        long busy = 0;
+        long overruns = 0;
+        long inbound = 0;
+        long dropped = 0;
+        for (Room room : server.getMatches().getRooms()) {
+            ServerTickLoop loop = room.getTickLoop();
+            ticks += loop.getTickCount();
+            busy += loop.getBusyNanos();
+            overruns += loop.getOverruns();
+            inbound += room.getInboundQueue().getOffered();
+            dropped += room.getInboundQueue().getDropped();
+        }
+        return new ServerSample(ticks, busy, overruns, inbound, dropped);
+    }
+
+    private record ServerSample(long ticks, long busyNanos, long overruns, long inbound, long dropped) {
+    }
+
+    /**
+     * {@code --name value} pairs, a flag without a value maps to "true".
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+            String name = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(name, args[++i]);
+            } else {
+                options.put(name, "true");
+            }
+        }
+        return options;
+    }
+
+    /**
+     * {@code behavior:weight} pairs separated by commas.
+     */
+    static Map<BotBehavior, Integer> parseMix(String mix) {
+        Map<BotBehavior, Integer> weights = new EnumMap<>(BotBehavior.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            int weight = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1;
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in mix: " + part);
+            }
+            if (weight > 0) {
+                weights.put(BotBehavior.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Empty mix: " + mix);
+        }
+        return weights;
+    }
+}
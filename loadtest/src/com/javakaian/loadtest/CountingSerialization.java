@@ -0,0 +1,32 @@
+package com.javakaian.loadtest;
+
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.KryoSerialization;
+import com.javakaian.network.NetworkRegistry;
+import com.javakaian.network.messages.SnapshotMessage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The game's kryo setup, counting the bytes of every snapshot read. Each bot
+ * has its own, kryo instances are not thread safe.
+ */
+class CountingSerialization extends KryoSerialization {
+
+    private final SwarmStats stats;
+
+    CountingSerialization(SwarmStats stats) {
+        this.stats = stats;
+        NetworkRegistry.registerClasses(getKryo());
+    }
+
+    @Override
+    public synchronized Object read(Connection connection, ByteBuffer buffer) {
+        int start = buffer.position();
+        Object object = super.read(connection, buffer);
+        if (object instanceof SnapshotMessage m) {
+            stats.snapshotReceived(buffer.position() - start, m.isFull());
+        }
+        return object;
+    }
+}
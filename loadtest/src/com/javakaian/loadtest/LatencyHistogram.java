@@ -0,0 +1,105 @@
+package com.javakaian.loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Latencies in buckets of 100 microseconds up to ten seconds, anything
+ * longer goes into the last one. Recording is lock free, so every bot can
+ * record from its own thread.
+ * <p>
+ * Percentiles are read from a {@link Counts} copy. Subtracting an older copy
+ * gives the percentiles of the time in between.
+ */
+class LatencyHistogram {
+
+    private static final long BUCKET_NANOS = 100_000L;
+    private static final int BUCKETS = 100_000;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(long nanos) {
+        int bucket = (int) Math.min(Math.max(nanos, 0) / BUCKET_NANOS, BUCKETS - 1);
+        buckets.getAndIncrement(bucket);
+        max.accumulate(nanos);
+    }
+
+    long getMaxNanos() {
+        return max.get();
+    }
+
+    Counts copy() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Counts(counts);
+    }
+
+    static final class Counts {
+
+        private final long[] counts;
+        private final long total;
+
+        private Counts(long[] counts) {
+            this.counts = counts;
+            long sum = 0;
+            for (long count : counts) {
+                sum += count;
+            }
+            this.total = sum;
+        }
+
+        /**
+         * Counts recorded since {@code older} was copied.
+         */
+        Counts since(Counts older) {
+            long[] delta = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                delta[i] = counts[i] - older.counts[i];
+            }
+            return new Counts(delta);
+        }
+
+        long getTotal() {
+            return total;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given percentile, in
+         * nanoseconds, 0 without samples.
+         */
+        long percentileNanos(double percentile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return (i + 1) * BUCKET_NANOS;
+                }
+            }
+            return BUCKETS * BUCKET_NANOS;
+        }
+
+        /**
+         * p50, p90, p99 and p99.9 in milliseconds.
+         */
+        String summary() {
+            if (total == 0) {
+                return "no samples";
+            }
+            return "p50 " + millis(percentileNanos(50))
+                    + ", p90 " + millis(percentileNanos(90))
+                    + ", p99 " + millis(percentileNanos(99))
+                    + ", p99.9 " + millis(percentileNanos(99.9)) + " ms";
+        }
+    }
+
+    static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+}
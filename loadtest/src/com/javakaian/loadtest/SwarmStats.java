@@ -0,0 +1,64 @@
+package com.javakaian.loadtest;
+
+import com.javakaian.network.NetworkRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What the bots of a swarm sent, received and measured. Updated by every
+ * bot from its own thread, read by the reporter.
+ */
+class SwarmStats {
+
+    final AtomicInteger connected = new AtomicInteger();
+    final AtomicInteger playing = new AtomicInteger();
+    final LongAdder connectFailures = new LongAdder();
+    final LongAdder disconnects = new LongAdder();
+
+    final LongAdder logins = new LongAdder();
+    final LongAdder deaths = new LongAdder();
+    final LongAdder inputs = new LongAdder();
+    final LongAdder shots = new LongAdder();
+    final LongAdder spikes = new LongAdder();
+    final LongAdder chats = new LongAdder();
+
+    final LongAdder received = new LongAdder();
+    final LongAdder snapshots = new LongAdder();
+    final LongAdder snapshotBytes = new LongAdder();
+    final LongAccumulator maxSnapshotBytes = new LongAccumulator(Math::max, 0);
+    final LongAccumulator maxDeltaBytes = new LongAccumulator(Math::max, 0);
+    /** Deltas that did not fit a datagram, the server sends those over TCP. */
+    final LongAdder oversizedDeltas = new LongAdder();
+
+    /** From sending an input command to the first snapshot that applied it. */
+    final LatencyHistogram inputLatency = new LatencyHistogram();
+
+    /**
+     * @param bytes class id included
+     */
+    void snapshotReceived(int bytes, boolean full) {
+        snapshots.increment();
+        snapshotBytes.add(bytes);
+        maxSnapshotBytes.accumulate(bytes);
+        if (!full) {
+            maxDeltaBytes.accumulate(bytes);
+            if (bytes > NetworkRegistry.DATAGRAM_BUDGET) {
+                oversizedDeltas.increment();
+            }
+        }
+    }
+
+    Sample sample() {
+        return new Sample(System.nanoTime(), inputs.sum(), shots.sum() + spikes.sum() + chats.sum(),
+                received.sum(), snapshots.sum(), snapshotBytes.sum(), inputLatency.copy());
+    }
+
+    /**
+     * Counters at one point in time, two of them give the rates in between.
+     */
+    record Sample(long nanos, long inputs, long actions, long received, long snapshots, long snapshotBytes,
+                  LatencyHistogram.Counts latency) {
+    }
+}
@@ -5,6 +5,11 @@ import com.javakaian.network.messages.ChatMessage;
 import com.javakaian.shooter.OMessageListener;
 
 public class ChatMessageHandler extends MessageHandler {
+    @Override
+    public Class<?> getMessageType() {
+        return ChatMessage.class;
+    }
+
     @Override
     protected boolean process(Connection con, Object message, OMessageListener listener) {
         if (message instanceof ChatMessage m) {
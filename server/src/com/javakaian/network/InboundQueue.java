@@ -0,0 +1,268 @@
+package com.javakaian.network;
+
+import com.esotericsoftware.kryonet.Connection;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded queue that carries network events from KryoNet's threads to the
+ * game loop.
+ * <p>
+ * The queue is a ring of preallocated {@link Envelope}s, each holding a
+ * connection together with what happened on it, so a message can never be
+ * paired with the wrong connection and nothing is allocated per message. Any
+ * number of threads may offer, only the game loop drains. Every slot carries a
+ * sequence number telling producers and the consumer whose turn it is, as in
+ * Dmitry Vyukov's bounded MPMC queue, so neither side takes a lock.
+ * <p>
+ * When the ring is full, messages are handled according to the
+ * {@link OverflowPolicy}. Disconnects don't go through the ring: losing one
+ * would leave the player in the world forever, and waiting for room would
+ * stall the network thread for every connection. They are kept in an
+ * unbounded lane instead, there is at most one per connection. Each remembers
+ * how far the ring was filled when it came in, and is handed out right after
+ * the messages queued before it.
+ */
+public class InboundQueue {
+
+    public enum Kind {
+        MESSAGE,
+        DISCONNECT
+    }
+
+    public enum OverflowPolicy {
+        /** Reject the new message and count it as dropped. */
+        DROP_NEWEST,
+        /** Make the network thread wait until the game loop frees a slot. */
+        BLOCK
+    }
+
+    /**
+     * One slot of the ring. Only valid inside {@link Handler#handle(Envelope)},
+     * the slot is cleared and reused right after.
+     */
+    public static final class Envelope {
+        private Kind kind;
+        private Connection connection;
+        private Object message;
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        public Object getMessage() {
+            return message;
+        }
+    }
+
+    public interface Handler {
+        void handle(Envelope envelope);
+    }
+
+    private static final long BLOCK_PARK_NANOS = 50_000L;
+
+    /** A disconnect, due once the ring was drained up to {@code position}. */
+    private record PendingDisconnect(Connection connection, long position) {
+    }
+
+    private final Envelope[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final OverflowPolicy policy;
+
+    private final AtomicLong tail = new AtomicLong();
+    // only touched by the consumer, published to producers through sequences
+    private long head;
+
+    private final ConcurrentLinkedQueue<PendingDisconnect> disconnects = new ConcurrentLinkedQueue<>();
+    // consumer only, disconnects are handed out in this
+    private final Envelope disconnectEnvelope = new Envelope();
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private volatile int maxDepth;
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    public InboundQueue(int capacity, OverflowPolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Envelope[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Envelope();
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.policy = policy;
+    }
+
+    /**
+     * Queues a received message. Called from network threads.
+     *
+     * @return false if the queue was full and the message was dropped
+     */
+    public boolean offerMessage(Connection connection, Object message) {
+        if (policy == OverflowPolicy.BLOCK) {
+            offerBlocking(Kind.MESSAGE, connection, message);
+            return true;
+        }
+        if (tryOffer(Kind.MESSAGE, connection, message)) {
+            return true;
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Queues a disconnect. Never dropped and never waits, even if the ring is
+     * full.
+     */
+    public void offerDisconnect(Connection connection) {
+        disconnects.add(new PendingDisconnect(connection, tail.get()));
+    }
+
+    /**
+     * Hands at most {@code max} queued messages to the handler in arrival
+     * order, and the disconnects that came in between them. Only the game
+     * loop may call this.
+     *
+     * @return number of events handled
+     */
+    public int drain(Handler handler, int max) {
+        int depth = size();
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+
+        int handled = drainDisconnects(handler);
+        int messages = 0;
+        while (messages < max) {
+            int index = (int) (head & mask);
+            if (sequences.getAcquire(index) != head + 1) {
+                break;
+            }
+            Envelope envelope = slots[index];
+            try {
+                handler.handle(envelope);
+            } finally {
+                envelope.kind = null;
+                envelope.connection = null;
+                envelope.message = null;
+                sequences.setRelease(index, head + slots.length);
+                head++;
+            }
+            messages++;
+            handled += 1 + drainDisconnects(handler);
+        }
+        return handled;
+    }
+
+    /**
+     * Hands out the disconnects whose messages before them were all drained.
+     */
+    private int drainDisconnects(Handler handler) {
+        int handled = 0;
+        PendingDisconnect pending;
+        while ((pending = disconnects.peek()) != null && pending.position() <= head) {
+            disconnects.poll();
+            disconnectEnvelope.kind = Kind.DISCONNECT;
+            disconnectEnvelope.connection = pending.connection();
+            try {
+                handler.handle(disconnectEnvelope);
+            } finally {
+                disconnectEnvelope.kind = null;
+                disconnectEnvelope.connection = null;
+            }
+            handled++;
+        }
+        return handled;
+    }
+
+    /**
+     * Number of queued messages. Exact on the game loop, a snapshot elsewhere.
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, slots.length));
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /** Events offered so far, dropped ones not included. */
+    public long getOffered() {
+        return tail.get();
+    }
+
+    /** Messages rejected because the queue was full. */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /** Times a network thread had to wait for room. */
+    public long getBlocked() {
+        return blocked.get();
+    }
+
+    /** Highest depth seen by {@link #drain(Handler, int)}. */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /** Disconnects waiting to be handed out. */
+    public int pendingDisconnects() {
+        return disconnects.size();
+    }
+
+    private void offerBlocking(Kind kind, Connection connection, Object message) {
+        if (tryOffer(kind, connection, message)) {
+            return;
+        }
+        blocked.incrementAndGet();
+        while (!tryOffer(kind, connection, message)) {
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+    }
+
+    private boolean tryOffer(Kind kind, Connection connection, Object message) {
+        long position = tail.get();
+        int index;
+        for (;;) {
+            index = (int) (position & mask);
+            long diff = sequences.getAcquire(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                // the consumer has not freed this slot yet
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+        Envelope envelope = slots[index];
+        envelope.kind = kind;
+        envelope.connection = connection;
+        envelope.message = message;
+        sequences.setRelease(index, position + 1);
+        return true;
+    }
+}
@@ -0,0 +1,21 @@
+package com.javakaian.network;
+
+import com.esotericsoftware.kryonet.Connection;
+import com.javakaian.network.messages.InputCommandMessage;
+import com.javakaian.shooter.OMessageListener;
+
+public class InputCommandMessageHandler extends MessageHandler {
+    @Override
+    public Class<?> getMessageType() {
+        return InputCommandMessage.class;
+    }
+
+    @Override
+    protected boolean process(Connection con, Object message, OMessageListener listener) {
+        if (message instanceof InputCommandMessage m) {
+            listener.inputReceived(m);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,162 @@
+package com.javakaian.network;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.javakaian.network.snapshot.Snapshot;
+import com.javakaian.shooter.ViewLimits;
+import com.javakaian.shooter.spatial.SpatialGrid;
+
+import java.util.Arrays;
+
+/**
+ * Decides which entities of the world snapshot each client gets to see.
+ * <p>
+ * A client is sent the entities within the area its camera can show at the
+ * widest zoom allowed, plus a margin, centered on its player. See
+ * {@link ViewLimits}. No more than {@link ViewLimits#MAX_VIEW_ENTITIES} are
+ * sent, so the snapshot always fits the client's buffer, and the caller may
+ * ask for fewer. In a crowded area the entities farthest from the player are
+ * left out first.
+ * <p>
+ * The world snapshot is put into a uniform grid once per tick with
+ * {@link #index(Snapshot)}. Each client then costs one grid query over the
+ * cells around its player, so the work grows with the number of entities near
+ * players rather than with the size of the world.
+ */
+public class InterestManager {
+
+    private static final float CELL_SIZE = 256f;
+    private static final int BUCKETS = 1024;
+
+    private final SpatialGrid<Object> grid = new SpatialGrid<>(CELL_SIZE, BUCKETS);
+    private final IntArray candidates = new IntArray();
+    // grid items within the area, and their distance and index when sorting
+    private final IntArray inside = new IntArray();
+    private long[] byDistance = new long[256];
+    private boolean[] kept = new boolean[256];
+
+    // kind and snapshot index of every grid item, by insertion index
+    private int[] itemKind = new int[256];
+    private int[] itemIndex = new int[256];
+
+    private Snapshot world;
+
+    /**
+     * Indexes every entity of the world snapshot by position. Entities are
+     * inserted by kind, then by id, so query results come out in the order a
+     * snapshot keeps them in.
+     */
+    public void index(Snapshot world) {
+        this.world = world;
+        grid.clear();
+        for (int kind = 0; kind < Snapshot.KINDS; kind++) {
+            for (int i = 0, n = world.count(kind); i < n; i++) {
+                float x = Snapshot.dequantize(world.field(kind, i, 0));
+                float y = Snapshot.dequantize(world.field(kind, i, 1));
+                int item = grid.insert(null, x, y, 0, 0);
+                if (item == itemKind.length) {
+                    itemKind = Arrays.copyOf(itemKind, item * 2);
+                    itemIndex = Arrays.copyOf(itemIndex, item * 2);
+                }
+                itemKind[item] = kind;
+                itemIndex[item] = i;
+            }
+        }
+    }
+
+    /**
+     * Fills {@code view} with the entities around the given position, the
+     * nearest {@code limit} of them if there are more, and never more than
+     * {@link ViewLimits#MAX_VIEW_ENTITIES}. The player's own record is always
+     * included and not counted.
+     *
+     * @return entities added besides the player's own
+     */
+    public int filter(float centerX, float centerY, int playerId, int limit, Snapshot view) {
+        limit = Math.min(limit, ViewLimits.MAX_VIEW_ENTITIES);
+        float halfWidth = ViewLimits.INTEREST_HALF_WIDTH;
+        float halfHeight = ViewLimits.INTEREST_HALF_HEIGHT;
+        float minX = centerX - halfWidth;
+        float minY = centerY - halfHeight;
+        float maxX = centerX + halfWidth;
+        float maxY = centerY + halfHeight;
+
+        grid.query(minX, minY, halfWidth * 2, halfHeight * 2, candidates);
+
+        int own = -1;
+        inside.clear();
+        for (int c = 0; c < candidates.size; c++) {
+            int item = candidates.get(c);
+            int kind = itemKind[item];
+            int index = itemIndex[item];
+
+            // the grid works on cells, check the real bounds
+            float x = Snapshot.dequantize(world.field(kind, index, 0));
+            float y = Snapshot.dequantize(world.field(kind, index, 1));
+            if (x < minX || x > maxX || y < minY || y > maxY) {
+                continue;
+            }
+            if (kind == Snapshot.PLAYER && world.id(kind, index) == playerId) {
+                own = inside.size;
+            }
+            inside.add(item);
+        }
+
+        int others = own >= 0 ? inside.size - 1 : inside.size;
+        int added;
+        if (others <= limit) {
+            for (int i = 0; i < inside.size; i++) {
+                int item = inside.get(i);
+                view.addFrom(world, itemKind[item], itemIndex[item]);
+            }
+            added = others;
+        } else {
+            added = addNearest(centerX, centerY, Math.max(0, limit), own, view);
+        }
+
+        if (own < 0) {
+            int index = world.indexOf(Snapshot.PLAYER, playerId);
+            if (index >= 0) {
+                view.addFrom(world, Snapshot.PLAYER, index);
+                view.sortById();
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Adds the {@code limit} entities of {@link #inside} nearest to the
+     * position, and the own player at {@code own} if it is there, in the order
+     * they were found so the view stays sorted.
+     */
+    private int addNearest(float centerX, float centerY, int limit, int own, Snapshot view) {
+        int n = inside.size;
+        if (byDistance.length < n) {
+            byDistance = new long[n * 2];
+            kept = new boolean[n * 2];
+        }
+        int sorted = 0;
+        for (int i = 0; i < n; i++) {
+            kept[i] = i == own;
+            if (i == own) {
+                continue;
+            }
+            int item = inside.get(i);
+            float dx = Snapshot.dequantize(world.field(itemKind[item], itemIndex[item], 0)) - centerX;
+            float dy = Snapshot.dequantize(world.field(itemKind[item], itemIndex[item], 1)) - centerY;
+            // bits of a non-negative float sort like the float, ties go to the
+            // one found first
+            byDistance[sorted++] = (long) Float.floatToIntBits(dx * dx + dy * dy) << 32 | i;
+        }
+        Arrays.sort(byDistance, 0, sorted);
+        for (int k = 0; k < limit; k++) {
+            kept[(int) byDistance[k]] = true;
+        }
+        for (int i = 0; i < n; i++) {
+            if (kept[i]) {
+                int item = inside.get(i);
+                view.addFrom(world, itemKind[item], itemIndex[item]);
+            }
+        }
+        return limit;
+    }
+}
@@ -5,6 +5,11 @@ import com.javakaian.network.messages.LoginMessage;
 import com.javakaian.shooter.OMessageListener;
 
 public class LoginMessageHandler extends MessageHandler {
+    @Override
+    public Class<?> getMessageType() {
+        return LoginMessage.class;
+    }
+
     @Override
     protected boolean process(Connection con, Object message, OMessageListener listener) {
         if (message instanceof LoginMessage m) {
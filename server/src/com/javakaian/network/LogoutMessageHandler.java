@@ -5,6 +5,11 @@ import com.javakaian.network.messages.LogoutMessage;
 import com.javakaian.shooter.OMessageListener;
 
 public class LogoutMessageHandler extends MessageHandler {
+    @Override
+    public Class<?> getMessageType() {
+        return LogoutMessage.class;
+    }
+
     @Override
     protected boolean process(Connection con, Object message, OMessageListener listener) {
         if (message instanceof LogoutMessage m) {
@@ -0,0 +1,146 @@
+package com.javakaian.network;
+
+import com.esotericsoftware.kryonet.Connection;
+import com.javakaian.shooter.OMessageListener;
+import com.javakaian.shooter.metrics.Counter;
+import com.javakaian.shooter.metrics.RoomMetrics;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes every client message to the {@link MessageHandler} registered for
+ * its class with a single table lookup, no matter how many handlers exist.
+ * <p>
+ * For each message type the dispatcher counts how many messages were handled
+ * and how long their handlers took, so it is easy to see which inputs
+ * dominate message parsing. Messages of unregistered types, e.g. KryoNet's
+ * own keep alives, are counted and ignored. The counts also go to the
+ * room's {@link RoomMetrics}, which keep them for good instead of per
+ * report window.
+ * <p>
+ * Only meant to be used from the game loop thread.
+ */
+public class MessageDispatcher {
+
+    private final Map<Class<?>, Route> routes = new IdentityHashMap<>();
+    private final List<Route> routeList = new ArrayList<>();
+    private final RoomMetrics metrics;
+
+    private long unhandled;
+    private long windowStart = System.nanoTime();
+
+    public MessageDispatcher(RoomMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void register(MessageHandler handler) {
+        Class<?> type = handler.getMessageType();
+        if (routes.containsKey(type)) {
+            throw new IllegalStateException("Handler for " + type.getSimpleName() + " already registered");
+        }
+        Route route = new Route(type, handler, metrics.messageCounter(type));
+        routes.put(type, route);
+        routeList.add(route);
+    }
+
+    public void dispatch(Connection con, Object message, OMessageListener listener) {
+        Route route = routes.get(message.getClass());
+        if (route == null) {
+            unhandled++;
+            metrics.unhandledMessage();
+            return;
+        }
+
+        long start = System.nanoTime();
+        route.handler.process(con, message, listener);
+        long elapsed = System.nanoTime() - start;
+
+        route.count++;
+        route.received.increment();
+        route.totalNanos += elapsed;
+        if (elapsed > route.maxNanos) {
+            route.maxNanos = elapsed;
+        }
+    }
+
+    /**
+     * Whether messages of this type are handled by a registered handler.
+     */
+    public boolean handles(Class<?> type) {
+        return routes.containsKey(type);
+    }
+
+    public long getCount(Class<?> type) {
+        Route route = routes.get(type);
+        return route == null ? 0 : route.count;
+    }
+
+    public long getTotalNanos(Class<?> type) {
+        Route route = routes.get(type);
+        return route == null ? 0 : route.totalNanos;
+    }
+
+    public long getUnhandled() {
+        return unhandled;
+    }
+
+    /**
+     * Messages per second, average and max handler time per type since the
+     * last reset. Types that were not seen are left out. The busiest type
+     * comes first.
+     */
+    public String summary() {
+        double seconds = Math.max(1e-9, (System.nanoTime() - windowStart) / 1_000_000_000.0);
+        List<Route> sorted = new ArrayList<>(routeList);
+        sorted.sort((a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+
+        StringBuilder sb = new StringBuilder();
+        for (Route route : sorted) {
+            if (route.count == 0) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(route.type.getSimpleName())
+                    .append(' ').append(String.format("%.1f/s", route.count / seconds))
+                    .append(' ').append(String.format("%.3f", route.totalNanos / 1_000_000.0 / route.count))
+                    .append('/').append(String.format("%.3f ms", route.maxNanos / 1_000_000.0));
+        }
+        if (unhandled > 0) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append("unhandled ").append(unhandled);
+        }
+        return sb.length() == 0 ? "no messages" : sb.toString();
+    }
+
+    public void resetStats() {
+        for (Route route : routeList) {
+            route.count = 0;
+            route.totalNanos = 0;
+            route.maxNanos = 0;
+        }
+        unhandled = 0;
+        windowStart = System.nanoTime();
+    }
+
+    private static final class Route {
+        final Class<?> type;
+        final MessageHandler handler;
+        final Counter received;
+        long count;
+        long totalNanos;
+        long maxNanos;
+
+        Route(Class<?> type, MessageHandler handler, Counter received) {
+            this.type = type;
+            this.handler = handler;
+            this.received = received;
+        }
+    }
+}
@@ -3,18 +3,19 @@ package com.javakaian.network;
 import com.esotericsoftware.kryonet.Connection;
 import com.javakaian.shooter.OMessageListener;
 
+/**
+ * Handles one type of client message. Handlers are registered with a
+ * {@link MessageDispatcher}, which picks the handler by the message class.
+ */
 public abstract class MessageHandler {
-    protected MessageHandler next;
 
-    public void setNext(MessageHandler next) {
-        this.next = next;
-    }
-
-    public void handle(Connection con, Object message, OMessageListener listener) {
-        if (!process(con, message, listener) && next != null) {
-            next.handle(con, message, listener);
-        }
-    }
+    /**
+     * Class of the messages this handler takes care of.
+     */
+    public abstract Class<?> getMessageType();
 
+    /**
+     * @return true if the message was handled
+     */
     protected abstract boolean process(Connection con, Object message, OMessageListener listener);
 }
@@ -0,0 +1,105 @@
+package com.javakaian.network;
+
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.Listener;
+import com.esotericsoftware.kryonet.Server;
+import com.javakaian.network.messages.LoginMessage;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owns the kryo server every match shares and hands each connection's
+ * messages to the {@link OServer} of the room it plays in.
+ * <p>
+ * A connection belongs to no room until it logs in. Its login is given to
+ * the {@link RoomRouter}, which picks the room, and from then on everything
+ * the connection sends goes to that room's inbound queue. Messages from
+ * connections that did not log in yet are ignored.
+ * <p>
+ * Ports are read from the {@code killthemall.tcpPort} and
+ * {@code killthemall.udpPort} system properties, 1234 and 1235 by default.
+ */
+public class NetworkHost {
+
+    private static final int DEFAULT_TCP_PORT = 1234;
+    private static final int DEFAULT_UDP_PORT = 1235;
+
+    private final Logger logger = Logger.getLogger(NetworkHost.class);
+
+    private final Server server;
+    private final Map<Integer, OServer> rooms = new ConcurrentHashMap<>();
+    private RoomRouter router;
+
+    public NetworkHost() {
+        // room for a few of the largest snapshots waiting to go out
+        server = new Server(4 * NetworkRegistry.OBJECT_BUFFER, NetworkRegistry.OBJECT_BUFFER);
+        NetworkRegistry.registerClasses(server.getKryo());
+        server.addListener(new Listener() {
+
+            @Override
+            public void received(Connection connection, Object object) {
+                route(connection, object);
+            }
+
+            @Override
+            public void disconnected(Connection connection) {
+                OServer room = rooms.remove(connection.getID());
+                if (room != null) {
+                    room.leave(connection);
+                }
+            }
+        });
+    }
+
+    public void setRouter(RoomRouter router) {
+        this.router = router;
+    }
+
+    /**
+     * Starts the network thread and binds the ports.
+     */
+    public void start() throws IOException {
+        int tcpPort = Integer.getInteger("killthemall.tcpPort", DEFAULT_TCP_PORT);
+        int udpPort = Integer.getInteger("killthemall.udpPort", DEFAULT_UDP_PORT);
+        server.start();
+        server.bind(tcpPort, udpPort);
+        logger.debug("Server has ben started on TCP_PORT: " + tcpPort + " UDP_PORT: " + udpPort);
+    }
+
+    public void stop() {
+        server.stop();
+    }
+
+    /**
+     * Room the connection plays in, or null if it did not log in yet.
+     */
+    public OServer getRoom(int connectionId) {
+        return rooms.get(connectionId);
+    }
+
+    private void route(Connection connection, Object object) {
+        OServer room = rooms.get(connection.getID());
+        if (room == null) {
+            if (!(object instanceof LoginMessage login) || router == null) {
+                return;
+            }
+            room = router.route(connection, login);
+            if (room == null) {
+                logger.warn("No room for connection " + connection.getID() + ", closing it");
+                connection.close();
+                return;
+            }
+            // mapped before joining, a room closing meanwhile disconnects it again
+            rooms.put(connection.getID(), room);
+            if (!room.join(connection)) {
+                rooms.remove(connection.getID());
+                connection.close();
+                return;
+            }
+        }
+        room.offer(connection, object);
+    }
+}
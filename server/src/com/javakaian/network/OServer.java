@@ -1,192 +1,277 @@
 package com.javakaian.network;
 
+import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryonet.Connection;
-import com.esotericsoftware.kryonet.Listener;
-import com.esotericsoftware.kryonet.Server;
-import com.javakaian.network.messages.*;
+import com.esotericsoftware.kryonet.KryoSerialization;
+import com.javakaian.network.serialization.SharedPayload;
 import com.javakaian.shooter.OMessageListener;
-import org.apache.log4j.Level;
+import com.javakaian.shooter.metrics.RoomMetrics;
+import com.javakaian.shooter.replay.MatchJournal;
 import org.apache.log4j.Logger;
 
-import java.io.IOException;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * @author oguz
  * <p>
- * Server object which is responsible for creating kryo server and
- * managing it.
+ * Server side of one room. The kryo server itself is shared by every room
+ * and owned by {@link NetworkHost}, which passes this object the messages of
+ * the connections that joined the room. Messages sent from here only reach
+ * those connections.
  * <p>
  * Every message received by server queued by this object and get
- * processed 60 time per second. After processing messages, related
+ * processed once per tick. After processing messages, related
  * methods will be invoked by this class.
+ * <p>
+ * Queue size and overflow policy can be set with the
+ * {@code killthemall.inboundQueue.capacity} and
+ * {@code killthemall.inboundQueue.policy} system properties. Per message
+ * type statistics are logged every {@code killthemall.messageStatsSeconds}
+ * seconds, 0 turns them off. Messages received and bytes sent are counted
+ * in the world's {@link RoomMetrics}.
  */
 public class OServer {
 
-    private static final int TCP_PORT = 1234;
-    private static final int UDP_PORT = 1235;
-    /**
-     * Kyro server.
-     */
-    private Server server;
+    private static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
     private OMessageListener messageListener;
 
     /**
-     * Queue object to store messages.
+     * Connections in this room. Changed on the network thread, read by the
+     * room's own threads.
      */
-    private Queue<Object> messageQueue;
-    /**
-     * Connection queue to store connections
-     */
-    private Queue<Connection> connectionQueue;
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    // guards closed, so no connection joins or leaves a room being closed
+    private final Object lifecycle = new Object();
+    private volatile boolean closed;
+
     /**
-     * Queue to store disconnected connections to be processed on the game loop
-     * thread.
+     * Messages and disconnects coming from the network thread, processed on
+     * the game loop thread.
      */
-    private Queue<Connection> disconnectedQueue;
+    private InboundQueue inboundQueue;
+    private InboundQueue.Handler inboundHandler;
+    private long reportedDrops;
 
     private Logger logger = Logger.getLogger(OServer.class);
 
-    private MessageHandler chain;
+    private MessageDispatcher dispatcher;
+    private final RoomMetrics metrics;
 
-    public OServer(OMessageListener cmo) {
+    /**
+     * Serializes broadcasts once for all connections. Has its own Kryo, the
+     * server's one is used by the network thread.
+     */
+    private KryoSerialization broadcastSerialization;
+    private final Output broadcastOutput = new Output(1024, -1);
+    private final SharedPayload broadcastPayload = new SharedPayload();
+    private long statsReportNanos;
+    private long lastStatsReport;
+
+    // writes down every event handled, null unless the match is recorded
+    private MatchJournal journal;
+
+    public OServer(OMessageListener cmo, RoomMetrics metrics) {
         this.messageListener = cmo;
+        this.metrics = metrics;
         init();
-        buildChain();
+        registerHandlers();
     }
 
     private void init() {
 
-        server = new Server();
-        registerClasses();
-
-        messageQueue = new LinkedList<>();
-        connectionQueue = new LinkedList<>();
-        disconnectedQueue = new LinkedList<>();
+        broadcastSerialization = new KryoSerialization();
+        NetworkRegistry.registerClasses(broadcastSerialization.getKryo());
 
-        server.addListener(new Listener() {
-
-            @Override
-            public void received(Connection connection, Object object) {
-
-                messageQueue.add(object);
-                connectionQueue.add(connection);
+        inboundQueue = new InboundQueue(
+                Integer.getInteger("killthemall.inboundQueue.capacity", DEFAULT_QUEUE_CAPACITY),
+                InboundQueue.OverflowPolicy.valueOf(
+                        System.getProperty("killthemall.inboundQueue.policy", "DROP_NEWEST")));
+        inboundHandler = this::dispatch;
+    }
 
+    /**
+     * Adds a connection to the room. Called by {@link NetworkHost} on the
+     * network thread.
+     *
+     * @return false if the room is already closed
+     */
+    boolean join(Connection connection) {
+        synchronized (lifecycle) {
+            if (closed) {
+                return false;
             }
+            connections.add(connection);
+            return true;
+        }
+    }
 
-            @Override
-            public void disconnected(Connection connection) {
+    /**
+     * Removes a disconnected connection, the room is told on its next tick.
+     * Never waits for the game loop, this runs on the network thread.
+     */
+    void leave(Connection connection) {
+        synchronized (lifecycle) {
+            // nobody drains the queue of a closed room anymore
+            if (connections.remove(connection) && !closed) {
                 // Queue disconnections to be processed safely in parseMessage
-                disconnectedQueue.add(connection);
+                inboundQueue.offerDisconnect(connection);
             }
-        });
-        server.start();
-        try {
-            server.bind(TCP_PORT, UDP_PORT);
-            logger.debug("Server has ben started on TCP_PORT: " + TCP_PORT + " UDP_PORT: " + UDP_PORT);
-        } catch (IOException e) {
-            logger.log(Level.ALL, e);
         }
+    }
 
+    void offer(Connection connection, Object message) {
+        inboundQueue.offerMessage(connection, message);
     }
 
-    private void buildChain() {
-        MessageHandler login = new LoginMessageHandler();
-        MessageHandler logout = new LogoutMessageHandler();
-        MessageHandler position = new PositionMessageHandler();
-        MessageHandler shoot = new ShootMessageHandler();
-        MessageHandler reload = new ReloadMessageHandler();
-        MessageHandler weaponChange = new WeaponChangeMessageHandler();
-        MessageHandler placeSpike = new PlaceSpikeMessageHandler();
-        MessageHandler undoSpike = new UndoSpikeMessageHandler();
-        MessageHandler chat = new ChatMessageHandler();
-        MessageHandler rewind = new RewindMessageHandler();
+    /**
+     * Stops taking connections and closes the ones in the room.
+     */
+    public void close() {
+        synchronized (lifecycle) {
+            closed = true;
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
 
-        login.setNext(logout);
-        logout.setNext(position);
-        position.setNext(shoot);
-        shoot.setNext(reload);
-        reload.setNext(weaponChange);
-        weaponChange.setNext(placeSpike);
-        placeSpike.setNext(undoSpike);
-        undoSpike.setNext(chat);
-        chat.setNext(rewind);
+    public int getConnectionCount() {
+        return connections.size();
+    }
 
-        chain = login;
+    private void registerHandlers() {
+        dispatcher = new MessageDispatcher(metrics);
+        dispatcher.register(new InputCommandMessageHandler());
+        dispatcher.register(new SnapshotAckMessageHandler());
+        dispatcher.register(new ShootMessageHandler());
+        dispatcher.register(new LoginMessageHandler());
+        dispatcher.register(new LogoutMessageHandler());
+        dispatcher.register(new ReloadMessageHandler());
+        dispatcher.register(new WeaponChangeMessageHandler());
+        dispatcher.register(new PlaceSpikeMessageHandler());
+        dispatcher.register(new UndoSpikeMessageHandler());
+        dispatcher.register(new ChatMessageHandler());
+        dispatcher.register(new RewindMessageHandler());
+
+        statsReportNanos = Integer.getInteger("killthemall.messageStatsSeconds", 10) * 1_000_000_000L;
+        lastStatsReport = System.nanoTime();
     }
 
     /**
-     * Gets messages from connection and message queues,parse them and invokes
-     * necessary methods.
-     * <p>
-     * If one those queues is empty, it returns.
+     * Takes the messages and disconnects queued so far, in the order they
+     * arrived, and invokes necessary methods. Events arriving meanwhile are
+     * left for the next tick.
      * <p>
-     * This method will be called 60 per second.
+     * This method will be called once per tick.
      */
     public void parseMessage() {
 
-        if (connectionQueue.isEmpty() || messageQueue.isEmpty())
-            return;
-
-        for (int i = 0, n = messageQueue.size(); i < n; i++) {
+        inboundQueue.drain(inboundHandler, inboundQueue.size());
 
-            Connection con = connectionQueue.poll();
-            Object message = messageQueue.poll();
+        long drops = inboundQueue.getDropped();
+        if (drops != reportedDrops) {
+            logger.warn("Inbound queue full, dropped " + (drops - reportedDrops) + " messages (total " + drops + ")");
+            reportedDrops = drops;
+        }
 
-            if (message != null) {
-                chain.handle(con, message, messageListener);
+        if (statsReportNanos > 0) {
+            long now = System.nanoTime();
+            if (now - lastStatsReport >= statsReportNanos) {
+                lastStatsReport = now;
+                logger.debug("Messages: " + dispatcher.summary());
+                dispatcher.resetStats();
             }
-
         }
 
-        // Process disconnect events after messages to ensure consistent state updates
-        while (!disconnectedQueue.isEmpty()) {
-            Connection dc = disconnectedQueue.poll();
-            messageListener.disconnected(dc);
-        }
+    }
 
+    private void dispatch(InboundQueue.Envelope envelope) {
+        if (envelope.getKind() == InboundQueue.Kind.DISCONNECT) {
+            if (journal != null) {
+                journal.recordDisconnect(envelope.getConnection().getID());
+            }
+            messageListener.disconnected(envelope.getConnection());
+        } else if (envelope.getMessage() != null) {
+            // keep alives and other messages nobody handles do not change the world
+            if (journal != null && dispatcher.handles(envelope.getMessage().getClass())) {
+                journal.recordMessage(envelope.getConnection().getID(), envelope.getMessage());
+            }
+            dispatcher.dispatch(envelope.getConnection(), envelope.getMessage(), messageListener);
+        }
     }
 
     /**
-     * This function register every class that will be sent back and forth between
-     * client and server.
+     * Records every message and disconnect handled from now on, null stops
+     * recording. Only for the game loop thread.
      */
-    private void registerClasses() {
-        // messages
-        this.server.getKryo().register(LoginMessage.class);
-        this.server.getKryo().register(LogoutMessage.class);
-        this.server.getKryo().register(GameWorldMessage.class);
-        this.server.getKryo().register(PositionMessage.class);
-        this.server.getKryo().register(PositionMessage.Direction.class);
-        this.server.getKryo().register(ShootMessage.class);
-        this.server.getKryo().register(PlayerDiedMessage.class);
+    public void setJournal(MatchJournal journal) {
+        this.journal = journal;
+    }
 
-        this.server.getKryo().register(WeaponChangeMessage.class);
-        this.server.getKryo().register(WeaponInfoMessage.class);
-        this.server.getKryo().register(AmmoUpdateMessage.class);
-        this.server.getKryo().register(ReloadMessage.class);
+    public MessageDispatcher getDispatcher() {
+        return dispatcher;
+    }
 
-        this.server.getKryo().register(PlaceSpikeMessage.class);
-        this.server.getKryo().register(UndoSpikeMessage.class);
-        this.server.getKryo().register(InventoryUpdateMessage.class);
-        
-        // Team chat messages - Mediator pattern
-        this.server.getKryo().register(ChatMessage.class);
-        this.server.getKryo().register(TeamAssignmentMessage.class);
+    public InboundQueue getInboundQueue() {
+        return inboundQueue;
+    }
 
-        // primitive arrays
-        this.server.getKryo().register(float[].class);
+    /**
+     * Sends a message to every connection of the room over UDP. The message is serialized
+     * once and the same bytes go to every connection, instead of KryoNet
+     * serializing it again for each of them. Only for messages that are the
+     * same for everyone, use {@link #sendToUDP(int, Object)} otherwise.
+     */
+    public synchronized void sendToAllUDP(Object m) {
+        broadcastOutput.reset();
+        broadcastSerialization.getKryo().writeClassAndObject(broadcastOutput, m);
+        broadcastPayload.set(broadcastOutput.getBuffer(), broadcastOutput.position());
+        // every connection copies the bytes into its own buffer while sending
+        for (Connection connection : connections) {
+            metrics.sent(connection.sendUDP(broadcastPayload));
+        }
+    }
 
-        //memento rewind
-        this.server.getKryo().register(RewindMessage.class);
+    public void sendToUDP(int id, Object m) {
+        Connection connection = find(id);
+        if (connection != null) {
+            metrics.sent(connection.sendUDP(m));
+        }
     }
 
-    public void sendToAllUDP(Object m) {
-        server.sendToAllUDP(m);
+    public void sendToTCP(int id, Object m) {
+        Connection connection = find(id);
+        if (connection != null) {
+            metrics.sent(connection.sendTCP(m));
+        }
     }
 
-    public void sendToUDP(int id, Object m) {
-        server.sendToUDP(id, m);
+    /**
+     * Round trip time of a connection in milliseconds as of its last
+     * {@link #updateReturnTripTimes()}, or -1 if it is unknown.
+     */
+    public int getReturnTripTime(int id) {
+        Connection connection = find(id);
+        return connection == null ? -1 : connection.getReturnTripTime();
+    }
+
+    /**
+     * Pings every connection, the answers update their round trip times.
+     */
+    public void updateReturnTripTimes() {
+        for (Connection connection : connections) {
+            connection.updateReturnTripTime();
+        }
+    }
+
+    private Connection find(int id) {
+        for (Connection connection : connections) {
+            if (connection.getID() == id) {
+                return connection;
+            }
+        }
+        return null;
     }
 }
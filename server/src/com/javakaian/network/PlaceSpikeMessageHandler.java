@@ -5,6 +5,11 @@ import com.javakaian.network.messages.PlaceSpikeMessage;
 import com.javakaian.shooter.OMessageListener;
 
 public class PlaceSpikeMessageHandler extends MessageHandler {
+    @Override
+    public Class<?> getMessageType() {
+        return PlaceSpikeMessage.class;
+    }
+
     @Override
     protected boolean process(Connection con, Object message, OMessageListener listener) {
         if (message instanceof PlaceSpikeMessage m) {
@@ -5,6 +5,11 @@ import com.javakaian.network.messages.ReloadMessage;
 import com.javakaian.shooter.OMessageListener;
 
 public class ReloadMessageHandler extends MessageHandler {
+    @Override
+    public Class<?> getMessageType() {
+        return ReloadMessage.class;
+    }
+
     @Override
     protected boolean process(Connection con, Object message, OMessageListener listener) {
         if (message instanceof ReloadMessage m) {
@@ -5,6 +5,11 @@ import com.javakaian.network.messages.RewindMessage;
 import com.javakaian.shooter.OMessageListener;
 
 public class RewindMessageHandler extends MessageHandler {
+    @Override
+    public Class<?> getMessageType() {
+        return RewindMessage.class;
+    }
+
     @Override
     protected boolean process(Connection con, Object message, OMessageListener listener) {
         if (message instanceof RewindMessage m) {
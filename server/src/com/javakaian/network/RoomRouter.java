@@ -0,0 +1,18 @@
+package com.javakaian.network;
+
+import com.esotericsoftware.kryonet.Connection;
+import com.javakaian.network.messages.LoginMessage;
+
+/**
+ * Picks the room a connection plays in when it logs in.
+ * <p>
+ * Called on the network thread, once per connection.
+ */
+public interface RoomRouter {
+
+    /**
+     * @return the room to join, or null if the connection can not be taken
+     * anywhere
+     */
+    OServer route(Connection connection, LoginMessage login);
+}
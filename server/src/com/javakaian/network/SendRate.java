@@ -0,0 +1,72 @@
+package com.javakaian.network;
+
+/**
+ * How often one client is sent snapshots, as a divisor of the capture rate.
+ * <p>
+ * Every {@link SnapshotScheduler#ADAPT_SECONDS} the divisor is looked at
+ * again. A client that loses many snapshots or has a long round trip gets
+ * half as many, which leaves room on its link and costs little since the
+ * client interpolates anyway. Once the connection is fine again, the rate
+ * doubles back up one step at a time.
+ */
+class SendRate {
+
+    /** A power of two, the divisor only ever doubles or halves. */
+    static final int MAX_DIVISOR = 4;
+
+    private static final float HIGH_LOSS = 0.10f;
+    private static final float LOW_LOSS = 0.02f;
+    private static final int HIGH_RTT_MILLIS = 250;
+    private static final int LOW_RTT_MILLIS = 150;
+    /** Too few snapshots say nothing about loss. */
+    private static final int MIN_SAMPLES = 20;
+
+    private final int phase;
+    private int divisor = 1;
+    private int sent;
+    private int acked;
+
+    /**
+     * @param phase spreads the clients with the same divisor over different
+     *              captures, so they are not all encoded at once
+     */
+    SendRate(int phase) {
+        this.phase = phase;
+    }
+
+    boolean isDue(int sequence) {
+        return (sequence + phase) % divisor == 0;
+    }
+
+    void sent() {
+        sent++;
+    }
+
+    void acked() {
+        acked++;
+    }
+
+    /**
+     * Changes the divisor based on the loss since the last call.
+     *
+     * @param rttMillis last measured round trip time, negative if unknown
+     */
+    void adapt(int rttMillis) {
+        if (sent < MIN_SAMPLES) {
+            return;
+        }
+        float loss = Math.max(0f, 1f - acked / (float) sent);
+        sent = 0;
+        acked = 0;
+
+        if (loss > HIGH_LOSS || rttMillis > HIGH_RTT_MILLIS) {
+            divisor = Math.min(divisor * 2, MAX_DIVISOR);
+        } else if (loss < LOW_LOSS && rttMillis < LOW_RTT_MILLIS) {
+            divisor = Math.max(divisor / 2, 1);
+        }
+    }
+
+    int getDivisor() {
+        return divisor;
+    }
+}
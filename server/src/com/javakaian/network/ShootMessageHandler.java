@@ -5,6 +5,11 @@ import com.javakaian.network.messages.ShootMessage;
 import com.javakaian.shooter.OMessageListener;
 
 public class ShootMessageHandler extends MessageHandler {
+    @Override
+    public Class<?> getMessageType() {
+        return ShootMessage.class;
+    }
+
     @Override
     protected boolean process(Connection con, Object message, OMessageListener listener) {
         if (message instanceof ShootMessage m) {
@@ -0,0 +1,21 @@
+package com.javakaian.network;
+
+import com.esotericsoftware.kryonet.Connection;
+import com.javakaian.network.messages.SnapshotAckMessage;
+import com.javakaian.shooter.OMessageListener;
+
+public class SnapshotAckMessageHandler extends MessageHandler {
+    @Override
+    public Class<?> getMessageType() {
+        return SnapshotAckMessage.class;
+    }
+
+    @Override
+    protected boolean process(Connection con, Object message, OMessageListener listener) {
+        if (message instanceof SnapshotAckMessage m) {
+            listener.snapshotAckReceived(con, m);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,215 @@
+package com.javakaian.network;
+
+import com.badlogic.gdx.utils.IntMap;
+import com.javakaian.network.messages.SnapshotMessage;
+import com.javakaian.network.serialization.SnapshotMessageSerializer;
+import com.javakaian.shooter.ViewLimits;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decides when the world is sent to clients and does the sending on its own
+ * thread, so encoding never stretches a simulation tick.
+ * <p>
+ * The world is captured at {@code killthemall.snapshotRate} captures per
+ * second, 20 by default, however fast the simulation runs. The game loop
+ * fills a {@link WorldCapture} and hands it over with {@link #publish}. The
+ * encoder thread then builds and sends every client's delta from it. When
+ * {@code killthemall.adaptiveSnapshotRate} is on, the default, clients with
+ * a bad connection are only sent every few captures, see {@link SendRate}.
+ * <p>
+ * Deltas go over UDP. Full snapshots, and the rare delta that could not be
+ * cut down to {@link NetworkRegistry#DATAGRAM_BUDGET}, go over TCP, a larger
+ * datagram would be fragmented and lost whenever any of its fragments is.
+ * <p>
+ * A few captures are pooled. If the encoder still holds all of them when the
+ * next one is due, that capture is skipped rather than making the game loop
+ * wait.
+ * <p>
+ * All of {@link SnapshotSystem} lives on the encoder thread. Client changes
+ * and acks are passed to it as tasks, in the order they happen.
+ */
+public class SnapshotScheduler {
+
+    /** Seconds between two adjustments of the clients' send rates. */
+    static final float ADAPT_SECONDS = 2f;
+
+    private static final int CAPTURES = 3;
+    // ticks are not exact multiples of the capture interval in floats
+    private static final float EPSILON = 1e-4f;
+
+    private final Logger logger = Logger.getLogger(SnapshotScheduler.class);
+
+    private final OServer server;
+    private final SnapshotSystem snapshots = new SnapshotSystem();
+    private final ExecutorService encoder;
+    private final BlockingQueue<WorldCapture> free = new ArrayBlockingQueue<>(CAPTURES);
+
+    private final float captureInterval;
+    private final boolean adaptive;
+
+    // game loop thread
+    private float sinceCapture;
+    private int nextSequence;
+    private long skipped;
+    private long reportedSkipped;
+
+    // encoder thread
+    private long lastAdapt = System.nanoTime();
+    private long encodeNanos;
+    private int encodes;
+    private long reliableDeltas;
+
+    public SnapshotScheduler(OServer server) {
+        this.server = server;
+        this.captureInterval = 1f / Math.max(1, Integer.getInteger("killthemall.snapshotRate", 20));
+        this.adaptive = Boolean.parseBoolean(System.getProperty("killthemall.adaptiveSnapshotRate", "true"));
+        this.encoder = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "snapshot-encoder");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < CAPTURES; i++) {
+            free.add(new WorldCapture());
+        }
+    }
+
+    /**
+     * Called every tick. Tells whether the world should be captured now.
+     *
+     * @param broadcast false while the tick loop is catching up, captures due
+     *                  meanwhile wait for the next broadcasting tick
+     */
+    public boolean isCaptureDue(float deltaTime, boolean broadcast) {
+        sinceCapture += deltaTime;
+        if (!broadcast || sinceCapture + EPSILON < captureInterval) {
+            return false;
+        }
+        sinceCapture = Math.min(sinceCapture - captureInterval, captureInterval);
+        return true;
+    }
+
+    /**
+     * Returns an empty capture with the next sequence number, or null if the
+     * encoder is behind and this capture has to be skipped.
+     */
+    public WorldCapture beginCapture() {
+        WorldCapture capture = free.poll();
+        if (capture == null) {
+            skipped++;
+            return null;
+        }
+        capture.clear(nextSequence++);
+        return capture;
+    }
+
+    /**
+     * Hands a filled capture to the encoder. The caller must not touch it
+     * anymore.
+     */
+    public void publish(WorldCapture capture) {
+        if (skipped != reportedSkipped) {
+            logger.warn("Snapshot encoder fell behind, skipped " + (skipped - reportedSkipped) + " captures");
+            reportedSkipped = skipped;
+        }
+        encoder.execute(() -> encode(capture));
+    }
+
+    public void addClient(int connectionId, int playerId) {
+        encoder.execute(() -> snapshots.addClient(connectionId, playerId));
+    }
+
+    public void removeClient(int connectionId) {
+        encoder.execute(() -> snapshots.removeClient(connectionId));
+    }
+
+    public void ack(int connectionId, int sequence) {
+        encoder.execute(() -> snapshots.ack(connectionId, sequence));
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public void dispose() {
+        encoder.shutdownNow();
+    }
+
+    private void encode(WorldCapture capture) {
+        long start = System.nanoTime();
+        try {
+            snapshots.update(capture.getWorld());
+            for (IntMap.Keys ids = snapshots.clientIds(); ids.hasNext; ) {
+                int connectionId = ids.next();
+                if (snapshots.isDue(connectionId)) {
+                    send(connectionId, capture);
+                }
+            }
+            if (adaptive && start - lastAdapt >= ADAPT_SECONDS * 1_000_000_000L) {
+                adaptRates(start);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to send snapshot " + capture.getWorld().getSequence(), e);
+        } finally {
+            free.add(capture);
+        }
+        encodeNanos += System.nanoTime() - start;
+        encodes++;
+    }
+
+    private void send(int connectionId, WorldCapture capture) {
+        int view = capture.indexOf(snapshots.getPlayerId(connectionId));
+        SnapshotMessage m;
+        if (view >= 0) {
+            m = snapshots.encodeFor(connectionId, capture.getX(view), capture.getY(view));
+            m.setLastInput(capture.getLastInput(view));
+        } else {
+            m = snapshots.encodeWorldFor(connectionId);
+        }
+        // views are capped so this can't happen, but the client would drop
+        // the connection over a message it can't read
+        if (SnapshotMessageSerializer.maxBytes(m) > NetworkRegistry.OBJECT_BUFFER) {
+            logger.error("Snapshot " + m.getSequence() + " for connection " + connectionId
+                    + " may not fit the " + NetworkRegistry.OBJECT_BUFFER + " B object buffer, not sent");
+            return;
+        }
+        // full snapshots are rare and can be large, send them reliably
+        if (m.isFull()) {
+            server.sendToTCP(connectionId, m);
+        } else if (SnapshotMessageSerializer.size(m) > NetworkRegistry.DATAGRAM_BUDGET) {
+            reliableDeltas++;
+            server.sendToTCP(connectionId, m);
+        } else {
+            server.sendToUDP(connectionId, m);
+        }
+    }
+
+    private void adaptRates(long now) {
+        StringBuilder rates = new StringBuilder();
+        for (IntMap.Keys ids = snapshots.clientIds(); ids.hasNext; ) {
+            int connectionId = ids.next();
+            snapshots.adaptRate(connectionId, server.getReturnTripTime(connectionId));
+            rates.append(' ').append(connectionId).append(":1/").append(snapshots.getRateDivisor(connectionId));
+            int limit = snapshots.getViewLimit(connectionId);
+            if (limit < ViewLimits.MAX_VIEW_ENTITIES) {
+                rates.append('(').append(limit).append(')');
+            }
+        }
+        // fresh round trip times for the next round
+        server.updateReturnTripTimes();
+
+        if (logger.isDebugEnabled() && encodes > 0) {
+            logger.debug(String.format(
+                    "snapshots: %.3f ms per encode, full %d, delta %d, trimmed %d, over TCP %d, rates%s",
+                    encodeNanos / 1e6 / encodes, snapshots.getFullSent(), snapshots.getDeltaSent(),
+                    snapshots.getTrimmed(), reliableDeltas, rates));
+        }
+        encodeNanos = 0;
+        encodes = 0;
+        lastAdapt = now;
+    }
+}
@@ -0,0 +1,267 @@
+package com.javakaian.network;
+
+import com.badlogic.gdx.utils.IntMap;
+import com.javakaian.network.messages.SnapshotMessage;
+import com.javakaian.network.serialization.SnapshotMessageSerializer;
+import com.javakaian.network.snapshot.Snapshot;
+import com.javakaian.network.snapshot.SnapshotCodec;
+import com.javakaian.shooter.ViewLimits;
+
+/**
+ * Keeps what every client was sent and has acknowledged, and turns the
+ * world into a delta for each client.
+ * <p>
+ * The whole world is captured once per snapshot and passed to
+ * {@link #update(Snapshot)}. Each client then gets its own view of it, only the entities near its
+ * player (see {@link InterestManager}). Views are stored per client in a ring
+ * of the last {@link #HISTORY} ticks. A client is sent the difference between
+ * its current view and the newest view it acknowledged, so entities moving
+ * into or out of its area simply show up as added or removed.
+ * <p>
+ * A full snapshot only goes out when the client has not acknowledged anything
+ * yet, i.e. right after joining, or when its last acknowledged view already
+ * fell out of the ring.
+ * <p>
+ * A delta has to fit {@link NetworkRegistry#DATAGRAM_BUDGET}. When it does
+ * not, e.g. with a hundred players on screen, the client's view is cut down to
+ * the entities nearest to its player until it does. The limit is kept and
+ * only raised again step by step once deltas are well below the budget, so
+ * entities at the edge of a crowded view don't come and go every snapshot.
+ * <p>
+ * Clients may be sent only every second, third... capture, see
+ * {@link SendRate}. Ask {@link #isDue(int)} before encoding for a client.
+ * <p>
+ * Only meant to be used from one thread, the snapshot encoder of
+ * {@link SnapshotScheduler}.
+ */
+public class SnapshotSystem {
+
+    /** Views kept per client as possible baselines, about a second at 60 ticks. */
+    public static final int HISTORY = 64;
+
+    /** Attempts at cutting a delta down to the datagram budget. */
+    private static final int MAX_TRIMS = 3;
+    /** Entities a cut down view may grow by per snapshot. */
+    private static final int VIEW_LIMIT_STEP = 8;
+    /** Deltas below this let the view grow again. */
+    private static final int GROW_BELOW = NetworkRegistry.DATAGRAM_BUDGET * 3 / 4;
+
+    private Snapshot world = new Snapshot();
+    private final IntMap<ClientState> clients = new IntMap<>();
+    private final SnapshotCodec codec = new SnapshotCodec();
+    private final InterestManager interest = new InterestManager();
+
+    // one past the newest world sequence
+    private int nextSequence;
+
+    private long fullSent;
+    private long deltaSent;
+    private long trimmed;
+
+    /**
+     * Makes a newly captured world the one clients are sent views of. Sequence
+     * numbers of captures must increase. The snapshot is sorted and indexed,
+     * and must not change until the next update.
+     */
+    public void update(Snapshot world) {
+        this.world = world;
+        world.sortById();
+        interest.index(world);
+        nextSequence = world.getSequence() + 1;
+    }
+
+    /**
+     * Starts sending snapshots to a connection. The first one is full.
+     *
+     * @param playerId player whose surroundings the connection is sent
+     */
+    public void addClient(int connectionId, int playerId) {
+        clients.put(connectionId, new ClientState(playerId, new SendRate(connectionId)));
+    }
+
+    public void removeClient(int connectionId) {
+        clients.remove(connectionId);
+    }
+
+    public boolean hasClient(int connectionId) {
+        return clients.containsKey(connectionId);
+    }
+
+    /**
+     * Player the connection follows, or -1 if the connection is unknown.
+     */
+    public int getPlayerId(int connectionId) {
+        ClientState state = clients.get(connectionId);
+        return state == null ? -1 : state.playerId;
+    }
+
+    public void ack(int connectionId, int sequence) {
+        ClientState state = clients.get(connectionId);
+        // acks may arrive out of order, only ever move forward
+        if (state == null || sequence < 0 || sequence >= nextSequence) {
+            return;
+        }
+        state.rate.acked();
+        if (sequence > state.acked) {
+            state.acked = sequence;
+        }
+    }
+
+    /**
+     * Whether the client is sent the current world, based on its send rate.
+     */
+    public boolean isDue(int connectionId) {
+        ClientState state = clients.get(connectionId);
+        return state != null && state.rate.isDue(world.getSequence());
+    }
+
+    /**
+     * Adjusts how often the client is sent snapshots, see {@link SendRate}.
+     */
+    public void adaptRate(int connectionId, int rttMillis) {
+        ClientState state = clients.get(connectionId);
+        if (state != null) {
+            state.rate.adapt(rttMillis);
+        }
+    }
+
+    /**
+     * Every how many captures the client is sent one, 0 if it is unknown.
+     */
+    public int getRateDivisor(int connectionId) {
+        ClientState state = clients.get(connectionId);
+        return state == null ? 0 : state.rate.getDivisor();
+    }
+
+    /**
+     * Builds the client's view of the latest world snapshot, the area around
+     * the given position, and encodes it relative to the newest view the
+     * client acknowledged. A delta is cut down to fit the datagram budget,
+     * see the class description.
+     */
+    public SnapshotMessage encodeFor(int connectionId, float centerX, float centerY) {
+        return encode(clients.get(connectionId), true, centerX, centerY);
+    }
+
+    /**
+     * Sends the world to the client, for connections without a player to
+     * center on. Like any view it holds at most
+     * {@link ViewLimits#MAX_VIEW_ENTITIES} entities and a delta is cut down to
+     * the datagram budget, the kinds coming last are left out first.
+     */
+    public SnapshotMessage encodeWorldFor(int connectionId) {
+        return encode(clients.get(connectionId), false, 0, 0);
+    }
+
+    public IntMap.Keys clientIds() {
+        return clients.keys();
+    }
+
+    public Snapshot getWorld() {
+        return world;
+    }
+
+    public long getFullSent() {
+        return fullSent;
+    }
+
+    public long getDeltaSent() {
+        return deltaSent;
+    }
+
+    /**
+     * Deltas that had to be cut down to fit the datagram budget.
+     */
+    public long getTrimmed() {
+        return trimmed;
+    }
+
+    /**
+     * Entities the client's view is currently limited to, besides its own
+     * player, 0 if the client is unknown.
+     */
+    public int getViewLimit(int connectionId) {
+        ClientState state = clients.get(connectionId);
+        return state == null ? 0 : state.viewLimit;
+    }
+
+    private SnapshotMessage encode(ClientState state, boolean centered, float centerX, float centerY) {
+        Snapshot view = state.views[world.getSequence() % HISTORY];
+        Snapshot baseline = baselineFor(state, world.getSequence());
+        state.rate.sent();
+        if (baseline == null) {
+            fullSent++;
+        } else {
+            deltaSent++;
+        }
+
+        SnapshotMessage m;
+        for (int attempt = 0; ; attempt++) {
+            view.clear(world.getSequence());
+            int entities = centered
+                    ? interest.filter(centerX, centerY, state.playerId, state.viewLimit, view)
+                    : fillWorld(state.viewLimit, view);
+            m = codec.encode(baseline, view);
+            if (baseline == null) {
+                return m;
+            }
+            int size = SnapshotMessageSerializer.size(m);
+            if (size <= NetworkRegistry.DATAGRAM_BUDGET) {
+                if (attempt == 0 && size < GROW_BELOW) {
+                    state.viewLimit = Math.min(state.viewLimit + VIEW_LIMIT_STEP, ViewLimits.MAX_VIEW_ENTITIES);
+                }
+                return m;
+            }
+            if (attempt == MAX_TRIMS || entities == 0) {
+                // the caller sends it reliably
+                return m;
+            }
+            // entities take about the same room each, aim a bit lower
+            int fitting = (int) ((long) entities * NetworkRegistry.DATAGRAM_BUDGET * 9 / (10L * size));
+            state.viewLimit = Math.min(fitting, entities - 1);
+            if (attempt == 0) {
+                trimmed++;
+            }
+        }
+    }
+
+    /**
+     * Adds the first {@code limit} entities of the world, kind by kind.
+     */
+    private int fillWorld(int limit, Snapshot view) {
+        int left = limit;
+        for (int kind = 0; kind < Snapshot.KINDS; kind++) {
+            int n = Math.min(world.count(kind), left);
+            for (int i = 0; i < n; i++) {
+                view.addFrom(world, kind, i);
+            }
+            left -= n;
+        }
+        return limit - left;
+    }
+
+    private Snapshot baselineFor(ClientState state, int current) {
+        int sequence = state.acked;
+        if (sequence < 0 || sequence <= current - HISTORY) {
+            return null;
+        }
+        Snapshot snapshot = state.views[sequence % HISTORY];
+        return snapshot.getSequence() == sequence ? snapshot : null;
+    }
+
+    private static final class ClientState {
+        final int playerId;
+        final SendRate rate;
+        final Snapshot[] views = new Snapshot[HISTORY];
+        int acked = -1;
+        int viewLimit = ViewLimits.MAX_VIEW_ENTITIES;
+
+        ClientState(int playerId, SendRate rate) {
+            this.playerId = playerId;
+            this.rate = rate;
+            for (int i = 0; i < HISTORY; i++) {
+                views[i] = new Snapshot();
+            }
+        }
+    }
+}
@@ -5,6 +5,11 @@ import com.javakaian.network.messages.UndoSpikeMessage;
 import com.javakaian.shooter.OMessageListener;
 
 public class UndoSpikeMessageHandler extends MessageHandler {
+    @Override
+    public Class<?> getMessageType() {
+        return UndoSpikeMessage.class;
+    }
+
     @Override
     protected boolean process(Connection con, Object message, OMessageListener listener) {
         if (message instanceof UndoSpikeMessage m) {
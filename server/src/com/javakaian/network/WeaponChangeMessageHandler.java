@@ -5,6 +5,11 @@ import com.javakaian.network.messages.WeaponChangeMessage;
 import com.javakaian.shooter.OMessageListener;
 
 public class WeaponChangeMessageHandler extends MessageHandler {
+    @Override
+    public Class<?> getMessageType() {
+        return WeaponChangeMessage.class;
+    }
+
     @Override
     protected boolean process(Connection con, Object message, OMessageListener listener) {
         if (message instanceof WeaponChangeMessage m) {
@@ -0,0 +1,67 @@
+package com.javakaian.network;
+
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.javakaian.network.snapshot.Snapshot;
+
+/**
+ * Everything the snapshot encoder needs from one tick: the world snapshot and
+ * where each player is. Filled on the game loop thread, then handed to the
+ * encoder and not touched by the game loop again until the encoder gives it
+ * back. See {@link SnapshotScheduler}.
+ */
+public class WorldCapture {
+
+    private final Snapshot world = new Snapshot();
+
+    private final IntIntMap playerIndex = new IntIntMap();
+    private final FloatArray playerX = new FloatArray();
+    private final FloatArray playerY = new FloatArray();
+    private final IntArray lastInput = new IntArray();
+
+    void clear(int sequence) {
+        world.clear(sequence);
+        playerIndex.clear();
+        playerX.clear();
+        playerY.clear();
+        lastInput.clear();
+    }
+
+    /**
+     * Snapshot to fill with every entity of the world.
+     */
+    public Snapshot getWorld() {
+        return world;
+    }
+
+    /**
+     * Records a player's position, the center of its client's view, and the
+     * last input command applied for it.
+     */
+    public void addPlayer(int playerId, float x, float y, int lastInputApplied) {
+        playerIndex.put(playerId, playerX.size);
+        playerX.add(x);
+        playerY.add(y);
+        lastInput.add(lastInputApplied);
+    }
+
+    /**
+     * Index of a player added with {@link #addPlayer}, or -1.
+     */
+    int indexOf(int playerId) {
+        return playerIndex.get(playerId, -1);
+    }
+
+    float getX(int index) {
+        return playerX.get(index);
+    }
+
+    float getY(int index) {
+        return playerY.get(index);
+    }
+
+    int getLastInput(int index) {
+        return lastInput.get(index);
+    }
+}
@@ -1,53 +1,93 @@
 package com.javakaian.shooter;
 
-import com.badlogic.gdx.ApplicationAdapter;
-import com.badlogic.gdx.Gdx;
+import com.javakaian.network.NetworkHost;
+import com.javakaian.shooter.match.MatchManager;
+import com.javakaian.shooter.metrics.MetricsHttpServer;
+import com.javakaian.shooter.metrics.MetricsRegistry;
 import org.apache.log4j.Logger;
 
-public class KillThemAllServer extends ApplicationAdapter {
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
 
-    private float time;
-    private int updateCounter;
+/**
+ * The whole server: the network host, the rooms and the metrics.
+ * <p>
+ * Metrics are served for Prometheus at {@code /metrics} on the port given by
+ * the {@code killthemall.metricsPort} system property, 9400 by default, 0
+ * turns the endpoint off. It only listens on {@code killthemall.metricsHost},
+ * 127.0.0.1 unless set otherwise. With {@code killthemall.profileTicks} the
+ * slow ticks of every room are served at {@code /slowticks} as well.
+ */
+public class KillThemAllServer {
 
-    private ServerWorld serverWorld;
+    private NetworkHost host;
+    private MatchManager matches;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final MetricsHttpServer metricsServer = new MetricsHttpServer(metrics);
 
+    private final CountDownLatch stopped = new CountDownLatch(1);
 
     private Logger logger = Logger.getLogger(KillThemAllServer.class);
 
     public KillThemAllServer() {
 
-        time = 0;
-        updateCounter = 0;
-
-        serverWorld = new ServerWorld();
+        host = new NetworkHost();
+        matches = new MatchManager(metrics);
+        host.setRouter(matches);
+        metricsServer.addPage("/slowticks", matches::slowTicks);
 
     }
 
-    @Override
-    public void create() {
+    public void create() throws IOException {
 
+        // rooms first, the first login may come right after binding
+        matches.start();
+        host.start();
+        startMetrics();
         logger.debug("Server is up");
 
     }
 
-    @Override
-    public void render() {
+    /**
+     * Blocks until {@link #stop()} is called. Every room ticks on its own
+     * thread meanwhile.
+     */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
 
-        float deltaTime = Gdx.graphics.getDeltaTime();
-        time += deltaTime;
-        updateCounter++;
-        if (time >= 1) {
-            time = 0;
-            updateCounter = 0;
-        }
+    public void stop() {
+        stopped.countDown();
+    }
+
+    public MatchManager getMatches() {
+        return matches;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
 
-        serverWorld.update(deltaTime);
+    private void startMetrics() {
+        int port = Integer.getInteger("killthemall.metricsPort", 9400);
+        if (port <= 0) {
+            return;
+        }
+        String address = System.getProperty("killthemall.metricsHost", "127.0.0.1");
+        try {
+            metricsServer.start(address, port);
+        } catch (IOException e) {
+            // the game runs fine without
+            logger.warn("Could not serve metrics on " + address + ":" + port + ", " + e.getMessage());
+        }
     }
 
-    @Override
     public void dispose() {
         // this method will be called when the server disposed. Dispose here things that
         // you wanna.
+        host.stop();
+        matches.dispose();
+        metricsServer.stop();
     }
 
 }
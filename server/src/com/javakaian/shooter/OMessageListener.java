@@ -23,11 +23,9 @@ public interface OMessageListener {
     void logoutReceived(LogoutMessage m);
 
     /**
-     * PlayerID and direction should be received.
-     *
-     * @param m
+     * PlayerID and the latest movement commands should be received.
      */
-    void playerMovedReceived(PositionMessage m);
+    void inputReceived(InputCommandMessage m);
 
     /**
      * PlayerID and weapon configuration should be received.
@@ -63,4 +61,10 @@ public interface OMessageListener {
 
     void rewindReceived(RewindMessage m);
 
+    /**
+     * Client confirms it applied a world snapshot. Newer snapshots for that
+     * connection can be sent relative to it.
+     */
+    void snapshotAckReceived(Connection con, SnapshotAckMessage m);
+
 }
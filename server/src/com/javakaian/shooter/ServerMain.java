@@ -1,21 +1,44 @@
 package com.javakaian.shooter;
 
-import com.badlogic.gdx.backends.headless.HeadlessApplication;
-import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.javakaian.shooter.logging.RingBufferAppender;
+import org.apache.log4j.LogManager;
+
+import java.io.IOException;
 
 public class ServerMain {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
 
         /**
-         * Since we are not doing any rendering. Server should be headless application.
+         * Since we are not doing any rendering, every room runs its own fixed-step
+         * loop instead of a headless application. Tick rate and catch-up limit are
+         * read from system properties, see ServerTickLoop, rooms are managed by
+         * MatchManager.
          */
-        HeadlessApplicationConfiguration conf = new HeadlessApplicationConfiguration();
+        // the rooms must never wait for the console or the log file
+        RingBufferAppender.install();
+        KillThemAllServer game = new KillThemAllServer();
 
-        conf.updatesPerSecond = 60;
+        // the JVM exits once the hook returns, let the rooms finish first
+        Thread main = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            game.stop();
+            try {
+                main.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "server-shutdown"));
 
-        /** Create server. */
-        new HeadlessApplication(new KillThemAllServer(), conf);
+        try {
+            /** Create server. */
+            game.create();
+            game.awaitStop();
+        } finally {
+            game.dispose();
+            // writes out what is still buffered
+            LogManager.shutdown();
+        }
     }
 
 }
@@ -1,8 +1,12 @@
 package com.javakaian.shooter;
 
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.Pool;
 import com.esotericsoftware.kryonet.Connection;
 import com.javakaian.network.OServer;
+import com.javakaian.network.SnapshotScheduler;
+import com.javakaian.network.WorldCapture;
 import com.javakaian.network.messages.*;
 import com.javakaian.shooter.shapes.*;
 import com.javakaian.shooter.factory.BulletFactory;
@@ -27,14 +31,25 @@ import com.javakaian.shooter.weapons.decorators.ScopeAttachment;
 import com.javakaian.shooter.weapons.decorators.SilencerAttachment;
 import com.javakaian.shooter.iterator.*;
 import com.javakaian.shooter.iterator.Iterator;
+import com.javakaian.shooter.logging.Log;
 import com.javakaian.shooter.mediator.ChatMediator;
 import com.javakaian.shooter.mediator.TeamChatMediator;
 
 import com.javakaian.shooter.memento.IMemento;
 import com.javakaian.shooter.memento.PlayerCaretaker;
+import com.javakaian.shooter.metrics.RoomMetrics;
+import com.javakaian.shooter.replay.MatchJournal;
+import com.javakaian.shooter.replay.StateHash;
+import com.javakaian.shooter.simulation.BulletEngine;
+import com.javakaian.shooter.simulation.EnemyAi;
+import com.javakaian.shooter.simulation.InputBuffer;
+import com.javakaian.shooter.simulation.SimulationRandom;
+import com.javakaian.shooter.spatial.SpatialGrid;
+import com.javakaian.shooter.tick.TickSection;
+import com.javakaian.shooter.tick.TickTimings;
 
-import java.security.SecureRandom;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class ServerWorld implements OMessageListener {
 
@@ -52,6 +67,8 @@ public class ServerWorld implements OMessageListener {
     private Logger logger = Logger.getLogger(ServerWorld.class);
 
     private BulletFactory bulletFactory;
+    // every live bullet, simulated outside of the object tree
+    private BulletEngine bulletEngine;
 
     // weapon system
     private WeaponDirector weaponDirector;
@@ -61,7 +78,10 @@ public class ServerWorld implements OMessageListener {
     private EnemyBehaviorStrategy[] behaviorStrategies;
     private int strategyIndex = 0;
     private float strategySwitchTimer = 0f;
-    private SecureRandom rng = new SecureRandom();
+    // every random number of the world comes from its seed, one stream per kind of use
+    private SimulationRandom random;
+    private SimulationRandom enemyRandom;
+    private SimulationRandom itemRandom;
 
     // Command pattern for spike placement - stack to support multiple undos
     private Map<Integer, Stack<Command>> playerSpikeCommands;
@@ -87,17 +107,58 @@ public class ServerWorld implements OMessageListener {
     private Map<Integer, Integer> rewindUsesLeft;
     private static final int MAX_REWINDS = 3;
 
-    // Mediator pattern for collision handling
+    // Broad phase for collisions, rebuilt from entity bounds every tick
+    private static final float GRID_CELL_SIZE = 64f;
+    private static final int GRID_BUCKETS = 1024;
+    private SpatialGrid<Enemy> enemyGrid;
+    private SpatialGrid<Player> playerGrid;
+    private IntArray candidates;
+
+    // dead enemies are kept here and brought back by spawnRandomEnemy
+    private Pool<Enemy> enemyPool;
+    private Consumer<GameObject> reaper;
+
+    // captures the world at the snapshot rate, encoded and sent on another thread
+    private SnapshotScheduler snapshots;
+    // network ids of enemies, spikes and placed spikes
+    private int nextNetId;
+
+    // movement commands received from each player, applied at a fixed rate
+    private Map<Integer, InputBuffer> playerInputs;
+
+    // moves enemies by their strategies, in parallel when there are many
+    private EnemyAi enemyAi;
+    private final int maxEnemies = Integer.getInteger("killthemall.maxEnemies", 16);
+
+    // records the match for replays, null unless enabled
+    private MatchJournal journal;
+
+    private final RoomMetrics metrics = new RoomMetrics();
+
     public ServerWorld() {
+        this(100, SimulationRandom.newSeed());
+    }
 
-        server = new OServer(this);
+    /**
+     * @param maxPlayers players that can be in this world at the same time
+     * @param seed       seed of every random number in this world
+     */
+    // Mediator pattern for collision handling
+    public ServerWorld(int maxPlayers, long seed) {
+
+        server = new OServer(this, metrics);
+
+        random = new SimulationRandom(seed);
+        enemyRandom = random.split();
+        itemRandom = random.split();
 
         worldObjects = new GameObjectComposite();
 
 
-        idPool = new UserIdPool();
+        idPool = new UserIdPool(maxPlayers);
 
         bulletFactory = new ConcreteBulletFactory();
+        bulletEngine = new BulletEngine();
 
         // weapon system
         weaponDirector = new WeaponDirector();
@@ -120,6 +181,22 @@ public class ServerWorld implements OMessageListener {
         rewindUsesLeft = new HashMap<>();
         logger.debug("Checkpoint system initialized");
 
+        enemyGrid = new SpatialGrid<>(GRID_CELL_SIZE, GRID_BUCKETS);
+        playerGrid = new SpatialGrid<>(GRID_CELL_SIZE, GRID_BUCKETS);
+        candidates = new IntArray();
+
+        enemyPool = new Pool<>() {
+            @Override
+            protected Enemy newObject() {
+                return new Enemy(0, 0, 10, null);
+            }
+        };
+        reaper = this::onReaped;
+
+        snapshots = new SnapshotScheduler(server);
+        playerInputs = new HashMap<>();
+        enemyAi = new EnemyAi(random.split());
+
         behaviorStrategies = new EnemyBehaviorStrategy[]{
                 new AggressiveBehavior(),
                 new DefensiveBehavior(),
@@ -128,7 +205,13 @@ public class ServerWorld implements OMessageListener {
         };
     }
 
-    public void update(float deltaTime) {
+    /**
+     * Advances the world by one fixed step.
+     *
+     * @param broadcast whether the world snapshot of this step is sent. The
+     *                  tick loop turns it off while it is catching up.
+     */
+    public void update(float deltaTime, boolean broadcast, TickTimings timings) {
 
         this.deltaTime = deltaTime;
         this.enemyTime += deltaTime;
@@ -138,9 +221,19 @@ public class ServerWorld implements OMessageListener {
         this.powerUpSpawnTime += deltaTime;
         this.checkpointTimer += deltaTime;
 
+        timings.begin(TickSection.PARSE);
         server.parseMessage();
+
+        timings.begin(TickSection.INPUTS);
+        applyInputs();
+        timings.begin(TickSection.OBJECTS);
         worldObjects.update(new UpdateContext(deltaTime, worldObjects.getAll(Player.class)));
+        timings.begin(TickSection.ENEMY_AI);
+        enemyAi.update(worldObjects.getAll(Enemy.class), worldObjects.getAll(Player.class), deltaTime);
+        timings.begin(TickSection.BULLETS);
+        bulletEngine.update(deltaTime);
 
+        timings.begin(TickSection.POWER_UPS);
         Iterator<PowerUp> iter = powerUpsArray.createIterator();
         for (iter.first(); !iter.isDone(); iter.next()) {
             PowerUp p = iter.currentItem();
@@ -150,19 +243,26 @@ public class ServerWorld implements OMessageListener {
         }   
 
         // Autosave checkpoints
+        timings.begin(TickSection.CHECKPOINTS);
         if (checkpointTimer >= CHECKPOINT_INTERVAL) {
             checkpointTimer = 0f;
             autoSavePlayerCheckpoints();
         }
 
         // Collision checking is handled automatically via mediator notify() calls
+        timings.begin(TickSection.COLLISIONS);
         checkCollision();
+
+        timings.begin(TickSection.SPAWNS);
         spawnRandomEnemy();
         spawnRandomSpike();
         spawnRandomPowerUp();
 
+        timings.begin(TickSection.POWER_UP_PICKUPS);
         checkPowerUpCollisions();
 
+        timings.begin(TickSection.BEHAVIORS);
+
         // Periodically switch each enemy's behavior strategy randomly every 30 seconds
         if (strategySwitchTimer >= 30f) {
             strategySwitchTimer = 0f;
@@ -171,36 +271,158 @@ public class ServerWorld implements OMessageListener {
                 for (Enemy e : enemies) {
                     EnemyBehaviorStrategy next;
                     do {
-                        next = behaviorStrategies[rng.nextInt(behaviorStrategies.length)];
+                        next = behaviorStrategies[enemyRandom.nextInt(behaviorStrategies.length)];
                     } while (next == e.getBehaviorStrategy());
                     e.setBehaviorStrategy(next);
+                    enemyAi.attach(e);
                 }
                 logger.debug("Switched enemy behaviors randomly for all enemies");
             }
         }
 
-        GameWorldMessage m = MessageCreator.generateGWMMessage(
+        // drop everything that died this tick before it is sent to anyone
+        timings.begin(TickSection.REAP);
+        worldObjects.reap(reaper);
+        bulletEngine.compact();
+        countEntities();
+
+        // the state is final here, snapshots only read it
+        if (journal != null) {
+            timings.begin(TickSection.JOURNAL);
+            journal.endTick(this);
+        }
+
+        if (!snapshots.isCaptureDue(deltaTime, broadcast)) {
+            return;
+        }
+
+        timings.begin(TickSection.SNAPSHOT);
+        WorldCapture capture = snapshots.beginCapture();
+        if (capture == null) {
+            // encoder still busy with older captures
+            return;
+        }
+        MessageCreator.captureSnapshot(capture.getWorld(),
                 worldObjects.getAll(Enemy.class),
-                worldObjects.getAll(Bullet.class),
+                bulletEngine,
                 worldObjects.getAll(Player.class),
                 worldObjects.getAll(Spike.class),
                 worldObjects.getAll(PlacedSpike.class),
                 powerUpsMap
-
         );
+        // every client only gets the part of the world around its player
+        for (Player p : worldObjects.getAll(Player.class)) {
+            InputBuffer input = playerInputs.get(p.getId());
+            capture.addPlayer(p.getId(), p.getPosition().x, p.getPosition().y,
+                    input == null ? 0 : input.getLastApplied());
+        }
+        snapshots.publish(capture);
+    }
+
+    public void dispose() {
+        snapshots.dispose();
+    }
+
+    /**
+     * Seed the world's random numbers started from.
+     */
+    public long getSeed() {
+        return random.getSeed();
+    }
+
+    public int getMaxEnemies() {
+        return maxEnemies;
+    }
+
+    public RoomMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void countEntities() {
+        metrics.setEntities(RoomMetrics.Entity.PLAYERS, worldObjects.getAll(Player.class).size());
+        metrics.setEntities(RoomMetrics.Entity.ENEMIES, worldObjects.getAll(Enemy.class).size());
+        metrics.setEntities(RoomMetrics.Entity.BULLETS, bulletEngine.size());
+        metrics.setEntities(RoomMetrics.Entity.SPIKES, worldObjects.getAll(Spike.class).size());
+        metrics.setEntities(RoomMetrics.Entity.PLACED_SPIKES, worldObjects.getAll(PlacedSpike.class).size());
+        metrics.setEntities(RoomMetrics.Entity.POWER_UPS, powerUpsArray.size());
+    }
+
+    /**
+     * Starts recording everything the world handles from the next tick on.
+     * Has to be called before the world's first tick, a replay starts from
+     * the state the world was built with.
+     */
+    public void record(MatchJournal journal) {
+        this.journal = journal;
+        server.setJournal(journal);
+    }
+
+    /**
+     * Hash of everything the simulation keeps about the world: players,
+     * enemies, bullets, spikes, power-ups and counters. Two worlds built with
+     * the same seed and fed the same messages have the same hash after every
+     * tick.
+     */
+    public long stateHash() {
+        StateHash hash = new StateHash();
+        hash.add(nextNetId).add(powerUpIdCounter).add(strategyIndex)
+                .add(enemyTime).add(spikeSpawnTime).add(powerUpSpawnTime).add(strategySwitchTimer);
+        for (Player p : worldObjects.getAll(Player.class)) {
+            hash.add(p.getId()).add(p.getPosition().x).add(p.getPosition().y)
+                    .add(p.getHealth()).add(p.getShieldHealth()).add(p.getSpikeCount())
+                    .add(p.getCurrentWeapon() == null ? -1 : p.getCurrentWeapon().getCurrentAmmo());
+        }
+        for (Enemy e : worldObjects.getAll(Enemy.class)) {
+            hash.add(e.getNetId()).add(e.getPosition().x).add(e.getPosition().y).add(e.isVisible())
+                    .add(e.getBehaviorStrategy() == null ? 0 : e.getBehaviorStrategy().getStrategyName().hashCode());
+        }
+        for (int b = 0; b < bulletEngine.size(); b++) {
+            hash.add(bulletEngine.getNetId(b)).add(bulletEngine.getX(b)).add(bulletEngine.getY(b))
+                    .add(bulletEngine.getOwner(b)).add(bulletEngine.isAlive(b));
+        }
+        for (Spike s : worldObjects.getAll(Spike.class)) {
+            hash.add(s.getNetId()).add(s.getPosition().x).add(s.getPosition().y).add(s.isVisible());
+        }
+        for (PlacedSpike s : worldObjects.getAll(PlacedSpike.class)) {
+            hash.add(s.getNetId()).add(s.getPosition().x).add(s.getPosition().y).add(s.isConsumed());
+        }
+        Iterator<PowerUp> iter = powerUpsArray.createIterator();
+        for (iter.first(); !iter.isDone(); iter.next()) {
+            PowerUp p = iter.currentItem();
+            if (p != null) {
+                hash.add(p.getId()).add(p.getPosition().x).add(p.getPosition().y).add(p.getType().ordinal());
+            }
+        }
+        return hash.get();
+    }
+
+    /**
+     * Every object in the world but bullets, for benchmarks that set up a
+     * world directly.
+     */
+    GameObjectComposite getWorldObjects() {
+        return worldObjects;
+    }
 
-        server.sendToAllUDP(m);
+    /**
+     * Network side of this world, the connections playing in it.
+     */
+    public OServer getServer() {
+        return server;
+    }
+
+    @Override
+    public void snapshotAckReceived(Connection con, SnapshotAckMessage m) {
+        snapshots.ack(con.getID(), m.getSequence());
     }
 
     @Override
     public void reloadReceived(ReloadMessage m) {
         logger.debug("reloading");
-        worldObjects.getAll(Player.class).stream().filter(p -> p.getId() == m.getPlayerId()).findFirst()
-                .ifPresent(p -> {
-                    if (p.getCurrentWeapon() != null) {
-                        p.getCurrentWeapon().requestReload();
-                    }
-                });
+        Player player = worldObjects.getPlayer(m.getPlayerId());
+        if (player != null && player.getCurrentWeapon() != null) {
+            player.getCurrentWeapon().requestReload();
+        }
         for (Player p : worldObjects.getAll(Player.class)) {
             if (p.getCurrentWeapon() != null) {
                 p.getCurrentWeapon().update(deltaTime);
@@ -218,12 +440,12 @@ public class ServerWorld implements OMessageListener {
             powerUpSpawnTime = 0;
             
             PowerUp.PowerUpType[] types = PowerUp.PowerUpType.values();
-            PowerUp.PowerUpType randomType = types[rng.nextInt(types.length)];
+            PowerUp.PowerUpType randomType = types[itemRandom.nextInt(types.length)];
             
             PowerUp powerUp = new PowerUp(
                 powerUpIdCounter++,
-                rng.nextInt(1000),
-                rng.nextInt(1000),
+                itemRandom.nextInt(1000),
+                itemRandom.nextInt(1000),
                 randomType,
                 8.0f // effect duration
             );
@@ -232,7 +454,7 @@ public class ServerWorld implements OMessageListener {
             powerUpsList.add(powerUp);
             powerUpsMap.add(powerUp);
             
-            logger.debug("Spawned " + randomType + " power-up. Total: " + powerUpsArray.size());
+            Log.debug(logger, "Spawned {} power-up. Total: {}", randomType, powerUpsArray.size());
         }
     }
 
@@ -244,11 +466,16 @@ public class ServerWorld implements OMessageListener {
         Iterator<PowerUp> iter = powerUpsArray.createIterator();
         List<PowerUp> toRemove = new ArrayList<>();
 
+        // players may have died during checkCollision, so index the current ones
+        indexPlayers(worldObjects.getAll(Player.class));
+
         for (iter.first(); !iter.isDone(); iter.next()) {
             PowerUp powerUp = iter.currentItem();
             if (powerUp == null || !powerUp.isVisible()) continue;
 
-            for (Player player : worldObjects.getAll(Player.class)) {
+            playerGrid.query(powerUp.getBoundRect(), candidates);
+            for (int i = 0; i < candidates.size; i++) {
+                Player player = playerGrid.get(candidates.get(i));
                 if (player.getBoundRect().overlaps(powerUp.getBoundRect())) {
                     applyPowerUpEffect(player, powerUp);
                     powerUp.setVisible(false);
@@ -269,25 +496,25 @@ public class ServerWorld implements OMessageListener {
         switch (powerUp.getType()) {
         case SPEED_BOOST:
             player.applySpeedBoost(gameTime, powerUp.getDuration());
-            logger.debug("Player " + player.getId() + " collected SPEED_BOOST (x2.0 speed for " +
-                        powerUp.getDuration() + "s)");
+            Log.debug(logger, "Player {} collected SPEED_BOOST (x2.0 speed for {}s)", player.getId(),
+                    powerUp.getDuration());
             break;
 
         case DAMAGE_BOOST:
             player.applyDamageBoost(gameTime, powerUp.getDuration());
-            logger.debug("Player " + player.getId() + " collected DAMAGE_BOOST (x1.5 damage for " +
-                        powerUp.getDuration() + "s)");
+            Log.debug(logger, "Player {} collected DAMAGE_BOOST (x1.5 damage for {}s)", player.getId(),
+                    powerUp.getDuration());
             break;
 
         case SHIELD:
             player.applyShield(gameTime, powerUp.getDuration());
-            logger.debug("Player " + player.getId() + " collected SHIELD (50 HP shield for " +
-                        powerUp.getDuration() + "s)");
+            Log.debug(logger, "Player {} collected SHIELD (50 HP shield for {}s)", player.getId(),
+                    powerUp.getDuration());
             break;
 
         case AMMO_REFILL:
             player.applyAmmoRefill(gameTime);
-            logger.debug("Player " + player.getId() + " collected AMMO_REFILL (instant reload)");
+            Log.debug(logger, "Player {} collected AMMO_REFILL (instant reload)", player.getId());
 
             InventoryUpdateMessage reloadMsg = new InventoryUpdateMessage();
             reloadMsg.setPlayerId(player.getId());
@@ -301,88 +528,115 @@ public class ServerWorld implements OMessageListener {
 
 
     /**
-     * Spawns an enemy to the random location. In 0.4 second if enemy list size is
-     * lessthan 15.
+     * Spawns an enemy to the random location. In 0.4 second if there are less
+     * than {@code killthemall.maxEnemies} visible enemies, 16 by default.
      */
     private void spawnRandomEnemy() {
         List<Enemy> enemies = worldObjects.getAll(Enemy.class);
-        if (enemyTime >= 0.4 && enemies.stream().filter(Enemy::isVisible).count() <= 15) {
+        int visibleEnemies = 0;
+        for (int i = 0; i < enemies.size(); i++) {
+            if (enemies.get(i).isVisible()) visibleEnemies++;
+        }
+        if (enemyTime >= 0.4 && visibleEnemies < maxEnemies) {
             enemyTime = 0;
 
             EnemyBehaviorStrategy strategy = behaviorStrategies[strategyIndex];
             strategyIndex = (strategyIndex + 1) % behaviorStrategies.length;
 
-            boolean respawned = false;
-
-            for (int i = 0; i < enemies.size(); i++) {
-                Enemy e = enemies.get(i);
-                if (!e.isVisible()) {
-                    Enemy cloned = e.clone();
-                    cloned.setPosition(new Vector2(rng.nextInt(1000), rng.nextInt(1000)));
-                    cloned.setBehaviorStrategy(strategy);
-                    cloned.setVisible(true);
-
-                    enemies.set(i, cloned);
-                    respawned = true;
-                }
-            }
-
-
-            if (!respawned) {
-                Enemy newEnemy = new Enemy(
-                        new SecureRandom().nextInt(1000),
-                        new SecureRandom().nextInt(1000),
-                        10,
-                        strategy);
-                worldObjects.add(newEnemy);
-            }
-            logger.debug("Spawned enemy with " + strategy.getStrategyName() + " behavior");
+            // reuses an enemy reaped earlier if there is one
+            Enemy newEnemy = enemyPool.obtain();
+            newEnemy.init(enemyRandom.nextInt(1000), enemyRandom.nextInt(1000), strategy);
+            newEnemy.setNetId(nextNetId++);
+            enemyAi.attach(newEnemy);
+            worldObjects.add(newEnemy);
+            Log.debug(logger, "Spawned enemy with {} behavior", strategy.getStrategyName());
         }
     }
 
     private void spawnRandomSpike() {
         if (spikeSpawnTime >= 5.0f && worldObjects.getAll(Spike.class).size() < 5) {
             spikeSpawnTime = 0;
-            Spike spike = new Spike(new SecureRandom().nextInt(1000), new SecureRandom().nextInt(1000), 30);
+            Spike spike = new Spike(itemRandom.nextInt(1000), itemRandom.nextInt(1000), 30);
+            spike.setNetId(nextNetId++);
             worldObjects.add(spike);
-            logger.debug("Spawned spike pickup. Total spikes: " + worldObjects.getAll(Spike.class).size());
+            Log.debug(logger, "Spawned spike pickup. Total spikes: {}", worldObjects.getAll(Spike.class).size());
+        }
+    }
+
+    /**
+     * Rebuilds the player grid. Players are inserted in list order, so walking
+     * query results is equivalent to walking the list.
+     */
+    private void indexPlayers(List<Player> players) {
+        playerGrid.clear();
+        for (Player p : players) {
+            playerGrid.insert(p, p.getBoundRect());
         }
     }
 
-    private void checkCollision() {
-        List<Bullet> bullets = worldObjects.getAll(Bullet.class);
+    private void indexEnemies(List<Enemy> enemies) {
+        enemyGrid.clear();
+        for (Enemy e : enemies) {
+            enemyGrid.insert(e, e.getBoundRect());
+        }
+    }
+
+    /**
+     * Checks bullets, spike pickups and placed spikes against enemies and
+     * players. Enemies and players are put into uniform grids first, so every
+     * object is only tested against the ones in neighbouring cells. Grid
+     * candidates come back in list order, which keeps the outcome identical to
+     * testing every pair.
+     * <p>
+     * Entity lists are live views of the world, so objects that get hit are
+     * only marked dead here. They are removed by the reap at the end of the
+     * tick.
+     * <p>
+     * Package private for the collision benchmark.
+     */
+    void checkCollision() {
         List<Player> players = worldObjects.getAll(Player.class);
         List<Enemy> enemies = worldObjects.getAll(Enemy.class);
         List<Spike> spikes = worldObjects.getAll(Spike.class);
         List<PlacedSpike> placedSpikes = worldObjects.getAll(PlacedSpike.class);
 
-        for (Bullet b : new ArrayList<>(bullets)) {
-            if (!b.isVisible()) continue;
+        indexEnemies(enemies);
+        indexPlayers(players);
 
-            for (Enemy e : new ArrayList<>(enemies)) {
-                if (e.isVisible() && e.getBoundRect().overlaps(b.getBoundRect())) {
-                    worldObjects.remove(b);
-                    worldObjects.remove(e);
+        for (int b = 0; b < bulletEngine.size(); b++) {
+            if (!bulletEngine.isAlive(b)) continue;
+
+            float bx = bulletEngine.getX(b);
+            float by = bulletEngine.getY(b);
+            float bs = bulletEngine.getSize(b);
+            int owner = bulletEngine.getOwner(b);
+
+            enemyGrid.query(bx, by, bs, bs, candidates);
+            for (int i = 0; i < candidates.size; i++) {
+                Enemy e = enemyGrid.get(candidates.get(i));
+                if (e.isVisible() && bulletEngine.overlaps(b, e.getBoundRect())) {
+                    bulletEngine.kill(b);
+                    e.setVisible(false);
                     break;
                 }
             }
 
-            if (!b.isVisible()) continue;
-
-            for (Player p : players) {
-                if (b.isVisible() && p.getBoundRect().overlaps(b.getBoundRect()) && p.getId() != b.getId()) {
-                    b.setVisible(false);
-
-                    players.stream().filter(attacker -> attacker.getId() == b.getId()).findFirst()
-                            .ifPresent(attacker -> {
-                                if (attacker.getCurrentWeapon() != null) {
-                                    Weapon attackerWeapon = attacker.getCurrentWeapon();
-                                    float baseDamage = attackerWeapon.getDamage();
-                                    float damageMultiplier = attacker.getDamageMultiplier();
-                                    int finalDamage = (int) (baseDamage * damageMultiplier);
-                                    p.hit(finalDamage);
-                                }
-                            });
+            if (!bulletEngine.isAlive(b)) continue;
+
+            playerGrid.query(bx, by, bs, bs, candidates);
+            for (int i = 0; i < candidates.size; i++) {
+                Player p = playerGrid.get(candidates.get(i));
+                if (p.getId() != owner && bulletEngine.overlaps(b, p.getBoundRect())) {
+                    bulletEngine.kill(b);
+
+                    Player attacker = worldObjects.getPlayer(owner);
+                    if (attacker != null && attacker.getCurrentWeapon() != null) {
+                        Weapon attackerWeapon = attacker.getCurrentWeapon();
+                        float baseDamage = attackerWeapon.getDamage();
+                        float damageMultiplier = attacker.getDamageMultiplier();
+                        int finalDamage = (int) (baseDamage * damageMultiplier);
+                        p.hit(finalDamage);
+                    }
 
                     if (!p.isAlive()) {
                         handlePlayerDeath(p);
@@ -392,28 +646,34 @@ public class ServerWorld implements OMessageListener {
             }
         }
 
-        for (Spike spike : new ArrayList<>(spikes)) {
-            for (Player player : players) {
+        for (Spike spike : spikes) {
+            if (!spike.isVisible()) continue;
+
+            playerGrid.query(spike.getBoundRect(), candidates);
+            for (int i = 0; i < candidates.size; i++) {
+                Player player = playerGrid.get(candidates.get(i));
                 if (spike.getBoundRect().overlaps(player.getBoundRect())) {
                     player.addSpike();
-                    worldObjects.remove(spike);
+                    spike.setVisible(false);
                     InventoryUpdateMessage inventoryMsg = new InventoryUpdateMessage();
                     inventoryMsg.setPlayerId(player.getId());
                     inventoryMsg.setSpikeCount(player.getSpikeCount());
                     server.sendToAllUDP(inventoryMsg);
-                    logger.debug("Player " + player.getId() + " picked up spike. Total: " + player.getSpikeCount());
+                    Log.debug(logger, "Player {} picked up spike. Total: {}", player.getId(), player.getSpikeCount());
+                    break;
                 }
             }
         }
 
-        for (PlacedSpike spike : new ArrayList<>(placedSpikes)) {
+        for (PlacedSpike spike : placedSpikes) {
             if (!spike.isVisible() || spike.isConsumed()) continue;
 
-            for (Player player : players) {
+            playerGrid.query(spike.getBoundRect(), candidates);
+            for (int i = 0; i < candidates.size; i++) {
+                Player player = playerGrid.get(candidates.get(i));
                 if (player.getId() != spike.getPlayerId() && player.getBoundRect().overlaps(spike.getBoundRect())) {
                     player.hit(20);
                     spike.setConsumed(true);
-                    worldObjects.remove(spike);
 
                     if (!player.isAlive()) {
                         handlePlayerDeath(player);
@@ -429,6 +689,23 @@ public class ServerWorld implements OMessageListener {
         }
     }
 
+    /**
+     * Called for every object reaped from the world at the end of a tick.
+     * Enemies go back to their pool. Commands whose placed spike
+     * got consumed can no longer be undone, so they are dropped as well.
+     */
+    private void onReaped(GameObject obj) {
+        if (obj instanceof Enemy e) {
+            enemyAi.detach(e);
+            enemyPool.free(e);
+        } else if (obj instanceof PlacedSpike spike) {
+            Stack<Command> commands = playerSpikeCommands.get(spike.getPlayerId());
+            if (commands != null) {
+                commands.removeIf(c -> !c.canUndo());
+            }
+        }
+    }
+
     @Override
     public void loginReceived(Connection con, LoginMessage m) {
         if (con == null) {
@@ -440,8 +717,9 @@ public class ServerWorld implements OMessageListener {
         Player player = new Player(m.getX(), m.getY(), 50, id);
 
         worldObjects.add(player);
+        playerInputs.put(id, new InputBuffer());
 
-        logger.debug("Login Message received from : " + id);
+        Log.debug(logger, "Login Message received from : {}", id);
 
         // Create appropriate team player based on selection
         String selectedTeam = m.getSelectedTeam();
@@ -470,11 +748,11 @@ public class ServerWorld implements OMessageListener {
         // Register with team chat mediator
         teamChatMediator.registerTeamPlayer(id, teamPlayer);
 
-        logger.debug("Login Message recieved from : " + id + " - joined " + selectedTeam + " team");
+        Log.debug(logger, "Login Message recieved from : {} - joined {} team", id, selectedTeam);
 
         giveWeaponToPlayer(id, "pistol");
         sendWeaponInfoToPlayer(id);
-        logger.debug("Login Message received from : " + id + " with default weapon");
+        Log.debug(logger, "Login Message received from : {} with default weapon", id);
 
         m.setPlayerId(id);
         server.sendToUDP(con.getID(), m);
@@ -485,6 +763,9 @@ public class ServerWorld implements OMessageListener {
 
         // disconnect
         connectionToPlayerId.put(con.getID(), id);
+
+        // first snapshot after joining is a full one
+        snapshots.addClient(con.getID(), id);
     }
 
 
@@ -492,30 +773,29 @@ public class ServerWorld implements OMessageListener {
     public void logoutReceived(LogoutMessage m) {
 
         removePlayerById(m.getPlayerId());
-        logger.debug("Logout Message recieved from : " + m.getPlayerId() +
-                " Size: " + worldObjects.getAll(Player.class).size());
+        Log.debug(logger, "Logout Message recieved from : {} Size: {}", m.getPlayerId(),
+                worldObjects.getAll(Player.class).size());
     }
 
     @Override
     public void disconnected(Connection con) {
+        snapshots.removeClient(con.getID());
         Integer playerId = connectionToPlayerId.remove(con.getID());
         if (playerId != null) {
             removePlayerById(playerId);
-            logger.debug("Disconnected connection id: " + con.getID() + " mapped to player: " + playerId);
+            Log.debug(logger, "Disconnected connection id: {} mapped to player: {}", con.getID(), playerId);
         } else {
-            logger.debug("Disconnected connection id: " + con.getID() + " had no mapped player");
+            Log.debug(logger, "Disconnected connection id: {} had no mapped player", con.getID());
         }
     }
 
     private void removePlayerById(int playerId) {
-        worldObjects.getAll(Player.class).stream()
-                .filter(p -> p.getId() == playerId)
-                .findFirst()
-                .ifPresent(p -> {
-                    teamChatMediator.unregisterTeamPlayer(playerId);
-                    worldObjects.remove(p);
-                    idPool.putUserIDBack(p.getId());
-                });
+        Player p = worldObjects.getPlayer(playerId);
+        if (p != null) {
+            teamChatMediator.unregisterTeamPlayer(playerId);
+            worldObjects.remove(p);
+            idPool.putUserIDBack(p.getId());
+        }
         playerWeapons.remove(playerId);
         playerSpikeCommands.remove(playerId);
         connectionToPlayerId.values().removeIf(id -> id == playerId);
@@ -523,39 +803,35 @@ public class ServerWorld implements OMessageListener {
         playerCheckpoints.remove(playerId);
         rewindCooldowns.remove(playerId);
         rewindUsesLeft.remove(playerId);
+        playerInputs.remove(playerId);
     }
 
     @Override
-    public void playerMovedReceived(PositionMessage m) {
-        worldObjects.getAll(Player.class).stream()
-                .filter(p -> p.getId() == m.getPlayerId())
-                .findFirst()
-                .ifPresent(p -> {
-                    Vector2 pos = p.getPosition();
-                    float baseSpeed = 200f;
-                    float actualSpeed = baseSpeed * p.getSpeedMultiplier(); // apply speed boost
-
-                    switch (m.getDirection()) {
-                        case LEFT -> pos.x -= deltaTime * actualSpeed;
-                        case RIGHT -> pos.x += deltaTime * actualSpeed;
-                        case UP -> pos.y -= deltaTime * actualSpeed;
-                        case DOWN -> pos.y += deltaTime * actualSpeed;
-                    }
-                });
+    public void inputReceived(InputCommandMessage m) {
+        InputBuffer input = playerInputs.get(m.getPlayerId());
+        if (input != null) {
+            input.offer(m.getFirstSequence(), m.getButtons(), m.getAimAngle());
+        }
+    }
+
+    /**
+     * Moves every player by the input commands due this tick.
+     */
+    private void applyInputs() {
+        for (Player p : worldObjects.getAll(Player.class)) {
+            InputBuffer input = playerInputs.get(p.getId());
+            if (input != null) {
+                input.apply(p.getPosition(), PlayerMovement.BASE_SPEED * p.getSpeedMultiplier(), deltaTime);
+            }
+        }
     }
 
     @Override
     public void shootReceived(ShootMessage m) {
-           worldObjects.getAll(Player.class).stream()
-                .filter(p -> p.getId() == m.getPlayerId())
-                .findFirst()
-                .ifPresent(p -> {
-                    BulletType bulletType = BulletType.STANDARD;
-
-                    if (p.getCurrentWeapon() != null) {
-                        p.getCurrentWeapon().requestFire(this, p, m.getAngleDeg());
-                    }
-                });
+        Player p = worldObjects.getPlayer(m.getPlayerId());
+        if (p != null && p.getCurrentWeapon() != null) {
+            p.getCurrentWeapon().requestFire(this, p, m.getAngleDeg());
+        }
 
     }
 
@@ -574,33 +850,34 @@ public class ServerWorld implements OMessageListener {
      * Helper for weapons to spawn bullets consistently.
      */
     public void createBullet(BulletType type, Player owner, float angleRad) {
-        logger.debug("bullet created");
+        logger.trace("bullet created");
         Bullet b = bulletFactory.createBullet(
                 type,
                 owner.getPosition().x + owner.getBoundRect().width / 2,
                 owner.getPosition().y + owner.getBoundRect().height / 2,
                 angleRad,
                 owner.getId());
-        worldObjects.add(b);
+        // the factory bullet only describes the shot, the engine simulates it
+        bulletEngine.spawn(type, b);
+        metrics.projectileSpawned(type);
+        bulletFactory.recycle(b);
     }
 
     public void giveWeaponToPlayer(int playerId, String weaponConfig) {
-        worldObjects.getAll(Player.class).stream()
-                .filter(p -> p.getId() == playerId)
-                .findFirst()
-                .ifPresent(p -> {
-                    String baseConfig = extractBaseConfig(weaponConfig);
-                    Weapon weapon = createWeaponByConfig(baseConfig);
-                    weapon = decorateWeaponForConfig(weapon, weaponConfig);
+        Player p = worldObjects.getPlayer(playerId);
+        if (p == null) return;
 
-                    weapon.addListener(w -> sendAmmoUpdate(p));
-                    weapon.setCurrentAmmo(weapon.getAmmoCapacity());
+        String baseConfig = extractBaseConfig(weaponConfig);
+        Weapon weapon = createWeaponByConfig(baseConfig);
+        weapon = decorateWeaponForConfig(weapon, weaponConfig);
 
-                    System.out.println("Created weapon: " + weapon.getName() + " with damage: " + weapon.getDamage());
+        weapon.addListener(w -> sendAmmoUpdate(p));
+        weapon.setCurrentAmmo(weapon.getAmmoCapacity());
 
-                    p.equipWeapon(weapon);
-                    playerWeapons.put(playerId, weapon);
-                });
+        Log.debug(logger, "Created weapon: {} with damage: {}", weapon.getName(), weapon.getDamage());
+
+        p.equipWeapon(weapon);
+        playerWeapons.put(playerId, weapon);
     }
 
     private Weapon createWeaponByConfig(String config) {
@@ -713,33 +990,31 @@ public class ServerWorld implements OMessageListener {
     }
 
     private void sendWeaponInfoToPlayer(int playerId) {
-        worldObjects.getAll(Player.class).stream()
-                .filter(p -> p.getId() == playerId)
-                .findFirst()
-                .ifPresent(p -> {
-                    Weapon weapon = p.getCurrentWeapon();
-                    if (weapon == null) return;
+        Player p = worldObjects.getPlayer(playerId);
+        if (p == null) return;
+
+        Weapon weapon = p.getCurrentWeapon();
+        if (weapon == null) return;
 
-                    WeaponInfoMessage info = new WeaponInfoMessage();
-                    info.setPlayerId(playerId);
-                    info.setWeaponName(weapon.getName());
+        WeaponInfoMessage info = new WeaponInfoMessage();
+        info.setPlayerId(playerId);
+        info.setWeaponName(weapon.getName());
 
-                    StringBuilder components = new StringBuilder();
-                    if (weapon.getBarrel() != null) components.append(weapon.getBarrel()).append(", ");
-                    if (weapon.getScope() != null && !weapon.getScope().equals("null")) components.append(weapon.getScope()).append(", ");
-                    if (weapon.getStock() != null) components.append(weapon.getStock()).append(", ");
-                    if (weapon.getMagazine() != null && !weapon.getMagazine().equals("null")) components.append(weapon.getMagazine()).append(", ");
-                    if (weapon.getGrip() != null && !weapon.getGrip().equals("null")) components.append(weapon.getGrip());
+        StringBuilder components = new StringBuilder();
+        if (weapon.getBarrel() != null) components.append(weapon.getBarrel()).append(", ");
+        if (weapon.getScope() != null && !weapon.getScope().equals("null")) components.append(weapon.getScope()).append(", ");
+        if (weapon.getStock() != null) components.append(weapon.getStock()).append(", ");
+        if (weapon.getMagazine() != null && !weapon.getMagazine().equals("null")) components.append(weapon.getMagazine()).append(", ");
+        if (weapon.getGrip() != null && !weapon.getGrip().equals("null")) components.append(weapon.getGrip());
 
-                    String componentsStr = components.toString().replaceAll(", $", "");
-                    info.setComponents(componentsStr);
+        String componentsStr = components.toString().replaceAll(", $", "");
+        info.setComponents(componentsStr);
 
-                    String stats = String.format("Dmg:%.0f | Range:%.0f | Fire:%.1f | Ammo:%d",
-                            weapon.getDamage(), weapon.getRange(), weapon.getFireRate(), weapon.getAmmoCapacity());
-                    info.setStats(stats);
+        String stats = String.format("Dmg:%.0f | Range:%.0f | Fire:%.1f | Ammo:%d",
+                weapon.getDamage(), weapon.getRange(), weapon.getFireRate(), weapon.getAmmoCapacity());
+        info.setStats(stats);
 
-                    server.sendToAllUDP(info);
-                });
+        server.sendToAllUDP(info);
     }
 
     @Override
@@ -748,35 +1023,33 @@ public class ServerWorld implements OMessageListener {
 
         sendWeaponInfoToPlayer(m.getPlayerId());
 
-        logger.debug("Player " + m.getPlayerId() + " changed weapon to: " + m.getWeaponConfig());
+        Log.debug(logger, "Player {} changed weapon to: {}", m.getPlayerId(), m.getWeaponConfig());
     }
 
     @Override
     public void placeSpikeReceived(PlaceSpikeMessage m) {
-        worldObjects.getAll(Player.class).stream()
-                .filter(p -> p.getId() == m.getPlayerId())
-                .findFirst()
-                .ifPresent(player -> {
-                    if (!player.hasSpikes()) return;
-
-                    float distance = 60; // Place spike 60 units in front
-                    float angleRad = (float) Math.toRadians(m.getRotation());
-                    float x = player.getPosition().x + (float) Math.cos(angleRad) * distance;
-                    float y = player.getPosition().y - (float) Math.sin(angleRad) * distance;
-
-                    List<PlacedSpike> placedSpikesList = worldObjects.getAll(PlacedSpike.class);
-                    PlaceSpikeCommand command = new PlaceSpikeCommand(player, placedSpikesList, worldObjects, x, y, m.getRotation());
-                    command.execute();
+        Player player = worldObjects.getPlayer(m.getPlayerId());
+        if (player == null || !player.hasSpikes()) return;
+
+        float distance = 60; // Place spike 60 units in front
+        float angleRad = (float) Math.toRadians(m.getRotation());
+        float x = player.getPosition().x + (float) Math.cos(angleRad) * distance;
+        float y = player.getPosition().y - (float) Math.sin(angleRad) * distance;
+
+        PlaceSpikeCommand command = new PlaceSpikeCommand(player, worldObjects, x, y, m.getRotation());
+        command.execute();
+        if (command.getPlacedSpike() != null) {
+            command.getPlacedSpike().setNetId(nextNetId++);
+        }
 
-                    playerSpikeCommands.computeIfAbsent(player.getId(), k -> new Stack<>()).push(command);
+        playerSpikeCommands.computeIfAbsent(player.getId(), k -> new Stack<>()).push(command);
 
-                    InventoryUpdateMessage inventoryMsg = new InventoryUpdateMessage();
-                    inventoryMsg.setPlayerId(player.getId());
-                    inventoryMsg.setSpikeCount(player.getSpikeCount());
-                    server.sendToAllUDP(inventoryMsg);
+        InventoryUpdateMessage inventoryMsg = new InventoryUpdateMessage();
+        inventoryMsg.setPlayerId(player.getId());
+        inventoryMsg.setSpikeCount(player.getSpikeCount());
+        server.sendToAllUDP(inventoryMsg);
 
-                    logger.debug("Player " + player.getId() + " placed spike at (" + x + ", " + y + ") rotation: " + m.getRotation());
-                });
+        Log.debug(logger, "Player {} placed spike at ({}, {}) rotation: {}", player.getId(), x, y, m.getRotation());
     }
 
     @Override
@@ -789,32 +1062,27 @@ public class ServerWorld implements OMessageListener {
             if (lastCommand.canUndo()) {
                 lastCommand.undo();
 
-                worldObjects.getAll(Player.class).stream()
-                        .filter(p -> p.getId() == m.getPlayerId())
-                        .findFirst()
-                        .ifPresent(player -> {
-                            InventoryUpdateMessage inventoryMsg = new InventoryUpdateMessage();
-                            inventoryMsg.setPlayerId(player.getId());
-                            inventoryMsg.setSpikeCount(player.getSpikeCount());
-                            server.sendToAllUDP(inventoryMsg);
-                        });
-
-                logger.debug("Player " + m.getPlayerId() + " undid spike placement");
+                Player player = worldObjects.getPlayer(m.getPlayerId());
+                if (player != null) {
+                    InventoryUpdateMessage inventoryMsg = new InventoryUpdateMessage();
+                    inventoryMsg.setPlayerId(player.getId());
+                    inventoryMsg.setSpikeCount(player.getSpikeCount());
+                    server.sendToAllUDP(inventoryMsg);
+                }
+
+                Log.debug(logger, "Player {} undid spike placement", m.getPlayerId());
                 return;
             } else {
-                logger.debug("Player " + m.getPlayerId() + " spike was consumed, skipping to previous spike");
+                Log.debug(logger, "Player {} spike was consumed, skipping to previous spike", m.getPlayerId());
             }
         }
-        logger.debug("Player " + m.getPlayerId() + " has no spikes to undo");
+        Log.debug(logger, "Player {} has no spikes to undo", m.getPlayerId());
     }
 
     @Override
     public void chatMessageReceived(ChatMessage m) {
         // Validate sender exists
-        Player sender = worldObjects.getAll(Player.class).stream()
-                .filter(p -> p.getId() == m.getSenderId())
-                .findFirst()
-                .orElse(null);
+        Player sender = worldObjects.getPlayer(m.getSenderId());
 
         if (sender == null) {
             logger.warn("Received chat message from non-existent player: " + m.getSenderId());
@@ -832,11 +1100,9 @@ public class ServerWorld implements OMessageListener {
      * Called every X seconds to create restore points.
      */
     private void autoSavePlayerCheckpoints() {
-        List<Player> alivePlayers = worldObjects.getAll(Player.class).stream()
-                .filter(Player::isAlive)
-                .toList();
+        for (Player player : worldObjects.getAll(Player.class)) {
+            if (!player.isAlive()) continue;
 
-        for (Player player : alivePlayers) {
             PlayerCaretaker caretaker = playerCheckpoints.computeIfAbsent(
                 player.getId(),
                 PlayerCaretaker::new
@@ -846,10 +1112,12 @@ public class ServerWorld implements OMessageListener {
             rewindUsesLeft.put(player.getId(), MAX_REWINDS);
             playerCheckpoints.put(player.getId(), caretaker);
 
-            logger.info("MEMENTO: Saved checkpoint for Player " + player.getId() +
-                    " | Position: " + player.getPosition() +
-                    " | Health: " + player.getHealth() +
-                    " | Total checkpoints: " + caretaker.getCheckpointCount());
+            // once per player, with floats that would box before Log checks the level
+            if (logger.isDebugEnabled()) {
+                Log.debug(logger, "MEMENTO: Saved checkpoint for Player {} | Position: ({}, {}) | Health: {} | Total checkpoints: {}",
+                        player.getId(), player.getPosition().x, player.getPosition().y, player.getHealth(),
+                        caretaker.getCheckpointCount());
+            }
         }
     }
 
@@ -881,6 +1149,7 @@ public class ServerWorld implements OMessageListener {
         playerCheckpoints.remove(playerId);
         rewindCooldowns.remove(playerId);
         rewindUsesLeft.remove(playerId);
+        playerInputs.remove(playerId);
 
         logger.info("Player " + playerId + " removed; checkpoints cleared (death)");
     }
@@ -889,12 +1158,9 @@ public class ServerWorld implements OMessageListener {
     public void rewindReceived(RewindMessage m) {
         int playerId = m.getPlayerId();
         
-        Player player = worldObjects.getAll(Player.class).stream()
-                .filter(p -> p.getId() == playerId && p.isAlive())
-                .findFirst()
-                .orElse(null);
+        Player player = worldObjects.getPlayer(playerId);
         
-        if (player == null) return;
+        if (player == null || !player.isAlive()) return;
         
         PlayerCaretaker caretaker = playerCheckpoints.get(playerId);
         if (caretaker == null || !caretaker.canUndo()) {
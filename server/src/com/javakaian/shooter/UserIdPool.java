@@ -8,11 +8,15 @@ public class UserIdPool {
     private final Queue<Integer> idSet;
 
     public UserIdPool() {
+        // max 100 players allowed to play at the same time.
+        this(100);
+    }
+
+    public UserIdPool(int size) {
 
         idSet = new LinkedList<>();
 
-        // max 100 players allowed to play at the same time.
-        for (int i = 0; i < 100; i++) {
+        for (int i = 0; i < size; i++) {
             idSet.add(i + 1);
         }
     }
@@ -6,4 +6,11 @@ public abstract class BulletFactory {
 
     public abstract Bullet createBullet(BulletType type, float x, float y, float angle, int playerId);
 
-}
\ No newline at end of file
+    /**
+     * Hands back a bullet that has left the world. Factories that pool their
+     * bullets reuse it, the default does nothing.
+     */
+    public void recycle(Bullet bullet) {
+    }
+
+}
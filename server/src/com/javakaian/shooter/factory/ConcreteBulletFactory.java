@@ -1,21 +1,75 @@
 package com.javakaian.shooter.factory;
 
+import com.badlogic.gdx.utils.Pool;
 import com.javakaian.shooter.shapes.Bullet;
 import com.javakaian.shooter.shapes.FastBullet;
 import com.javakaian.shooter.shapes.HeavyBullet;
 import com.javakaian.shooter.shapes.StandardBullet;
 
 
+/**
+ * Creates bullets from per-type pools. Bullets handed back through
+ * {@link #recycle(Bullet)} are reused by later shots, so firing does not
+ * allocate once the pools are warm.
+ */
 public class ConcreteBulletFactory extends BulletFactory {
+
+    // upper bound of idle bullets kept per type
+    private static final int MAX_POOLED = 1024;
+
+    private final Pool<StandardBullet> standardPool = new Pool<>(64, MAX_POOLED) {
+        @Override
+        protected StandardBullet newObject() {
+            return new StandardBullet(0, 0, 10, 0, -1);
+        }
+    };
+
+    private final Pool<FastBullet> fastPool = new Pool<>(64, MAX_POOLED) {
+        @Override
+        protected FastBullet newObject() {
+            return new FastBullet(0, 0, 8, 0, -1);
+        }
+    };
+
+    private final Pool<HeavyBullet> heavyPool = new Pool<>(16, MAX_POOLED) {
+        @Override
+        protected HeavyBullet newObject() {
+            return new HeavyBullet(0, 0, 10, 0, -1);
+        }
+    };
+
     public ConcreteBulletFactory() {
     }
 
     @Override
     public Bullet createBullet(BulletType type, float x, float y, float angle, int playerId) {
         return switch (type) {
-            case STANDARD -> new StandardBullet(x, y, 10, angle, playerId);
-            case FAST -> new FastBullet(x, y, 8, angle, playerId);
-            case HEAVY -> new HeavyBullet(x, y, 10, angle, playerId);
+            case STANDARD -> {
+                StandardBullet b = standardPool.obtain();
+                b.init(x, y, 10, angle, playerId);
+                yield b;
+            }
+            case FAST -> {
+                FastBullet b = fastPool.obtain();
+                b.init(x, y, 8, angle, playerId);
+                yield b;
+            }
+            case HEAVY -> {
+                HeavyBullet b = heavyPool.obtain();
+                b.init(x, y, 10, angle, playerId);
+                yield b;
+            }
         };
     }
-}
\ No newline at end of file
+
+    @Override
+    public void recycle(Bullet bullet) {
+        if (bullet instanceof StandardBullet b) {
+            standardPool.free(b);
+        } else if (bullet instanceof FastBullet b) {
+            fastPool.free(b);
+        } else if (bullet instanceof HeavyBullet b) {
+            heavyPool.free(b);
+        }
+    }
+}
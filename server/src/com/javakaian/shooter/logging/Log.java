@@ -0,0 +1,113 @@
+package com.javakaian.shooter.logging;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Parameterized logging for log4j 1.2, for diagnostics on the game loop.
+ * <p>
+ * The level is checked before anything else and the message is only put
+ * together from its pattern when an appender renders it, on the writer
+ * thread of the {@link RingBufferAppender}. Each {@code {}} in the pattern is
+ * replaced by the next argument. Because rendering happens later, arguments
+ * should be values, e.g. a player's id or coordinates rather than the player
+ * or its position vector, which may have changed by then. Up to four
+ * arguments take no array until the level check passed, more go through the
+ * varargs overload, which allocates its array at the call site. Primitive
+ * arguments are always boxed at the call site, guard calls with many
+ * arguments or on the hottest paths with {@link Logger#isDebugEnabled()} as
+ * well.
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static void trace(Logger logger, String pattern, Object arg) {
+        if (logger.isTraceEnabled()) {
+            logger.trace(new Message(pattern, new Object[]{arg}));
+        }
+    }
+
+    public static void trace(Logger logger, String pattern, Object arg1, Object arg2) {
+        if (logger.isTraceEnabled()) {
+            logger.trace(new Message(pattern, new Object[]{arg1, arg2}));
+        }
+    }
+
+    public static void trace(Logger logger, String pattern, Object arg1, Object arg2, Object arg3) {
+        if (logger.isTraceEnabled()) {
+            logger.trace(new Message(pattern, new Object[]{arg1, arg2, arg3}));
+        }
+    }
+
+    public static void trace(Logger logger, String pattern, Object arg1, Object arg2, Object arg3, Object arg4) {
+        if (logger.isTraceEnabled()) {
+            logger.trace(new Message(pattern, new Object[]{arg1, arg2, arg3, arg4}));
+        }
+    }
+
+    public static void trace(Logger logger, String pattern, Object... args) {
+        if (logger.isTraceEnabled()) {
+            logger.trace(new Message(pattern, args));
+        }
+    }
+
+    public static void debug(Logger logger, String pattern, Object arg) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(new Message(pattern, new Object[]{arg}));
+        }
+    }
+
+    public static void debug(Logger logger, String pattern, Object arg1, Object arg2) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(new Message(pattern, new Object[]{arg1, arg2}));
+        }
+    }
+
+    public static void debug(Logger logger, String pattern, Object arg1, Object arg2, Object arg3) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(new Message(pattern, new Object[]{arg1, arg2, arg3}));
+        }
+    }
+
+    public static void debug(Logger logger, String pattern, Object arg1, Object arg2, Object arg3, Object arg4) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(new Message(pattern, new Object[]{arg1, arg2, arg3, arg4}));
+        }
+    }
+
+    public static void debug(Logger logger, String pattern, Object... args) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(new Message(pattern, args));
+        }
+    }
+
+    /**
+     * A pattern and its arguments, formatted by {@link #toString()}.
+     */
+    static final class Message {
+
+        private final String pattern;
+        private final Object[] args;
+
+        Message(String pattern, Object[] args) {
+            this.pattern = pattern;
+            this.args = args;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(pattern.length() + 16 * args.length);
+            int from = 0;
+            for (Object arg : args) {
+                int at = pattern.indexOf("{}", from);
+                if (at < 0) {
+                    break;
+                }
+                sb.append(pattern, from, at).append(arg);
+                from = at + 2;
+            }
+            return sb.append(pattern, from, pattern.length()).toString();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.javakaian.shooter.logging;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.helpers.AppenderAttachableImpl;
+import org.apache.log4j.spi.AppenderAttachable;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appender that hands events to a background thread through a ring of fixed
+ * size, so the thread logging never waits for the console or the log file.
+ * The writer passes every event on to the appenders attached to this one.
+ * <p>
+ * log4j calls {@link #append(LoggingEvent)} holding this appender's lock, so
+ * there is only ever one producer at a time and the ring needs no more than
+ * a sequence for each side. When the ring is full the event is dropped and
+ * counted, the writer logs how many were lost once it catches up. Messages
+ * are rendered by the writer, see {@link Log} for messages that are only
+ * formatted there. Location info is not captured, {@code %L} and friends in
+ * a layout print {@code ?}.
+ * <p>
+ * log4j 1.2 cannot attach appenders to an appender from a properties file,
+ * {@link #install()} moves the root logger's appenders behind one of these
+ * instead.
+ */
+public class RingBufferAppender extends AppenderSkeleton implements AppenderAttachable {
+
+    private static final long IDLE_PARK_NANOS = 10_000_000L;
+    private static final long CLOSE_WAIT_MILLIS = 5000;
+
+    private final LoggingEvent[] slots;
+    private final int mask;
+
+    // written under the appender's lock, read by the writer
+    private final AtomicLong tail = new AtomicLong();
+    // written by the writer only
+    private final AtomicLong head = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+    private long droppedReported;
+
+    private final AppenderAttachableImpl appenders = new AppenderAttachableImpl();
+    private final Thread writer;
+    private volatile boolean idle;
+    private volatile boolean closing;
+
+    /**
+     * @param capacity number of events the ring holds, rounded up to a power
+     *                 of two
+     */
+    public RingBufferAppender(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new LoggingEvent[size];
+        this.mask = size - 1;
+        this.writer = new Thread(this::drainLoop, "log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Puts a ring of {@code killthemall.logBufferSize} events, 8192 by
+     * default, in front of the root logger's appenders. Does nothing when
+     * {@code killthemall.asyncLogging} is false or the root logger has no
+     * appenders, and is safe to call more than once.
+     */
+    public static void install() {
+        if (!Boolean.parseBoolean(System.getProperty("killthemall.asyncLogging", "true"))) {
+            return;
+        }
+        Logger root = Logger.getRootLogger();
+        List<Appender> existing = new ArrayList<>();
+        for (Enumeration<?> e = root.getAllAppenders(); e.hasMoreElements(); ) {
+            Appender appender = (Appender) e.nextElement();
+            if (appender instanceof RingBufferAppender) {
+                return;
+            }
+            existing.add(appender);
+        }
+        if (existing.isEmpty()) {
+            return;
+        }
+
+        RingBufferAppender ring = new RingBufferAppender(Integer.getInteger("killthemall.logBufferSize", 8192));
+        ring.setName("ring");
+        for (Appender appender : existing) {
+            // one by one, removeAllAppenders would close them
+            root.removeAppender(appender);
+            ring.addAppender(appender);
+        }
+        root.addAppender(ring);
+    }
+
+    @Override
+    protected void append(LoggingEvent event) {
+        // whatever belongs to the calling thread has to be taken now
+        event.getNDC();
+        event.getThreadName();
+        event.getMDCCopy();
+
+        long t = tail.get();
+        if (t - head.getAcquire() >= slots.length) {
+            dropped.incrementAndGet();
+            return;
+        }
+        slots[(int) (t & mask)] = event;
+        tail.setRelease(t + 1);
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void drainLoop() {
+        while (true) {
+            long h = head.get();
+            if (h == tail.getAcquire()) {
+                reportDropped();
+                if (closing) {
+                    return;
+                }
+                idle = true;
+                // an event may have come in before idle was seen
+                if (h == tail.getAcquire()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle = false;
+                continue;
+            }
+
+            int index = (int) (h & mask);
+            LoggingEvent event = slots[index];
+            slots[index] = null;
+            head.setRelease(h + 1);
+            dispatch(event);
+        }
+    }
+
+    private void reportDropped() {
+        long total = dropped.get();
+        if (total == droppedReported) {
+            return;
+        }
+        long lost = total - droppedReported;
+        droppedReported = total;
+        Logger logger = Logger.getLogger(RingBufferAppender.class);
+        dispatch(new LoggingEvent(RingBufferAppender.class.getName(), logger, Level.WARN,
+                "Dropped " + lost + " log events, the ring of " + slots.length + " was full", null));
+    }
+
+    private void dispatch(LoggingEvent event) {
+        synchronized (appenders) {
+            appenders.appendLoopOnAppenders(event);
+        }
+    }
+
+    /**
+     * Events dropped because the ring was full.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Writes out whatever is still in the ring, then closes the attached
+     * appenders.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        closing = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(CLOSE_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (appenders) {
+            for (Enumeration<?> e = appenders.getAllAppenders(); e != null && e.hasMoreElements(); ) {
+                ((Appender) e.nextElement()).close();
+            }
+        }
+    }
+
+    @Override
+    public boolean requiresLayout() {
+        return false;
+    }
+
+    @Override
+    public void addAppender(Appender appender) {
+        synchronized (appenders) {
+            appenders.addAppender(appender);
+        }
+    }
+
+    @Override
+    public Enumeration getAllAppenders() {
+        synchronized (appenders) {
+            return appenders.getAllAppenders();
+        }
+    }
+
+    @Override
+    public Appender getAppender(String name) {
+        synchronized (appenders) {
+            return appenders.getAppender(name);
+        }
+    }
+
+    @Override
+    public boolean isAttached(Appender appender) {
+        synchronized (appenders) {
+            return appenders.isAttached(appender);
+        }
+    }
+
+    @Override
+    public void removeAllAppenders() {
+        synchronized (appenders) {
+            appenders.removeAllAppenders();
+        }
+    }
+
+    @Override
+    public void removeAppender(Appender appender) {
+        synchronized (appenders) {
+            appenders.removeAppender(appender);
+        }
+    }
+
+    @Override
+    public void removeAppender(String name) {
+        synchronized (appenders) {
+            appenders.removeAppender(name);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.javakaian.shooter.match;
+
+import com.esotericsoftware.kryonet.Connection;
+import com.javakaian.network.OServer;
+import com.javakaian.network.RoomRouter;
+import com.javakaian.network.messages.LoginMessage;
+import com.javakaian.shooter.metrics.MetricsRegistry;
+import com.javakaian.shooter.simulation.SimulationRandom;
+import com.javakaian.shooter.tick.ServerTickLoop;
+import com.javakaian.shooter.tick.TickProfiler;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Hosts any number of independent matches in one server, each in its own
+ * {@link Room}, and decides which room a player joins.
+ * <p>
+ * A login naming a room joins that room, creating it if it does not exist.
+ * A login without one joins the fullest room that still has space, so
+ * matches fill up before new ones are opened, and a new room is only created
+ * when all of them are full. Rooms created this way are closed again once
+ * they have been empty for a while.
+ * <p>
+ * A room's name ends up in thread names, logs, metrics labels and journal
+ * file names, so it may only be 1 to 32 letters, digits, {@code _} or
+ * {@code -}. A login naming anything else is refused.
+ * <p>
+ * Settings are read from system properties:
+ * <ul>
+ * <li>{@code killthemall.rooms}, rooms the server starts with and keeps,
+ * default 1</li>
+ * <li>{@code killthemall.maxRooms}, default the number of processors</li>
+ * <li>{@code killthemall.roomCapacity}, players per room, default 100</li>
+ * <li>{@code killthemall.roomIdleSeconds}, how long an extra room may stay
+ * empty, default 60</li>
+ * <li>{@code killthemall.roomThreads}, {@code platform} or {@code virtual},
+ * the kind of thread rooms tick on, default platform. The tick loop spins
+ * for the last fraction of a millisecond before each tick, which holds a
+ * carrier thread when it runs on a virtual one.</li>
+ * <li>{@code killthemall.roomReportSeconds}, interval of the per room
+ * summary and metrics lines in the log, default 10, 0 disables them</li>
+ * <li>{@code killthemall.seed}, makes matches reproducible: every room's
+ * random numbers are derived from this seed and the room's name. Without
+ * it every room gets a fresh seed, which is logged when the room starts.</li>
+ * </ul>
+ */
+public class MatchManager implements RoomRouter {
+
+    private static final String ROOM_PREFIX = "match-";
+    private static final Pattern ROOM_NAME = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+    private final Logger logger = Logger.getLogger(MatchManager.class);
+
+    private final int initialRooms;
+    private final int maxRooms;
+    private final int capacity;
+    private final long idleNanos;
+    private final long reportNanos;
+    private final Thread.Builder threads;
+    private final Long seed;
+    private final MetricsRegistry metrics;
+
+    private final Map<String, Room> rooms = new LinkedHashMap<>();
+    private final ScheduledExecutorService maintenance;
+    private int nextRoom = 1;
+    private long lastReport = System.nanoTime();
+
+    public MatchManager(MetricsRegistry metrics) {
+        this.metrics = metrics;
+        this.initialRooms = Math.max(1, Integer.getInteger("killthemall.rooms", 1));
+        this.maxRooms = Math.max(initialRooms,
+                Integer.getInteger("killthemall.maxRooms", Runtime.getRuntime().availableProcessors()));
+        this.capacity = Math.max(1, Integer.getInteger("killthemall.roomCapacity", 100));
+        this.idleNanos = Integer.getInteger("killthemall.roomIdleSeconds", 60) * 1_000_000_000L;
+        this.reportNanos = Math.max(0, Integer.getInteger("killthemall.roomReportSeconds", 10)) * 1_000_000_000L;
+        this.seed = Long.getLong("killthemall.seed");
+        this.threads = "virtual".equals(System.getProperty("killthemall.roomThreads"))
+                ? Thread.ofVirtual()
+                : Thread.ofPlatform();
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "match-manager");
+            t.setDaemon(true);
+            return t;
+        });
+        metrics.gauge("killthemall_rooms", "Rooms running.", this::roomCount, this);
+    }
+
+    /**
+     * Opens the initial rooms and starts watching them.
+     */
+    public synchronized void start() {
+        for (int i = 0; i < initialRooms; i++) {
+            createRoom(nextRoomName(), true);
+        }
+        maintenance.scheduleWithFixedDelay(this::maintain, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public synchronized OServer route(Connection connection, LoginMessage login) {
+        String requested = login.getRoom();
+        Room room;
+        if (requested != null && !requested.isEmpty()) {
+            if (!isValidRoomName(requested)) {
+                // not logged as is, it may be anything
+                logger.info("Connection " + connection.getID() + " named an invalid room of "
+                        + requested.length() + " characters, refused");
+                return null;
+            }
+            room = rooms.get(requested);
+            if (room == null && rooms.size() < maxRooms) {
+                room = createRoom(requested, false);
+            }
+            if (room == null || !room.hasSpace()) {
+                logger.info("Connection " + connection.getID() + " can not join room " + requested);
+                return null;
+            }
+        } else {
+            room = fullestWithSpace();
+            if (room == null && rooms.size() < maxRooms) {
+                room = createRoom(nextRoomName(), false);
+            }
+            if (room == null) {
+                logger.warn("All " + rooms.size() + " rooms are full, connection " + connection.getID() + " refused");
+                return null;
+            }
+        }
+        logger.debug("Connection " + connection.getID() + " joins room " + room.getName());
+        return room.getServer();
+    }
+
+    /**
+     * Opens a room that is kept until {@link #closeRoom(String)} is called.
+     *
+     * @return false if the name is invalid or taken, or there are too many
+     * rooms
+     */
+    public synchronized boolean openRoom(String name) {
+        if (!isValidRoomName(name) || rooms.containsKey(name) || rooms.size() >= maxRooms) {
+            return false;
+        }
+        createRoom(name, true);
+        return true;
+    }
+
+    /**
+     * Disconnects everyone in the room and stops it.
+     *
+     * @return false if there is no such room
+     */
+    public boolean closeRoom(String name) {
+        Room room;
+        synchronized (this) {
+            room = rooms.remove(name);
+        }
+        if (room == null) {
+            return false;
+        }
+        // outside the lock, logins for other rooms go on while this one stops
+        room.stop(STOP_TIMEOUT_MILLIS);
+        return true;
+    }
+
+    /**
+     * Whether the name may be used for a room, see the class description.
+     */
+    public static boolean isValidRoomName(String name) {
+        return name != null && ROOM_NAME.matcher(name).matches();
+    }
+
+    public synchronized List<Room> getRooms() {
+        return new ArrayList<>(rooms.values());
+    }
+
+    private synchronized long roomCount() {
+        return rooms.size();
+    }
+
+    /**
+     * The slow ticks every room's profiler kept, see
+     * {@link TickProfiler#slowTicks()}.
+     */
+    public String slowTicks() {
+        StringBuilder sb = new StringBuilder();
+        for (Room room : getRooms()) {
+            TickProfiler profiler = room.getTickLoop().getProfiler();
+            if (profiler == null) {
+                return "Ticks are not profiled, start the server with -D" + ServerTickLoop.PROFILE_PROPERTY + "=true\n";
+            }
+            sb.append("# ").append(room.getName()).append('\n').append(profiler.slowTicks());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stops every room.
+     */
+    public void dispose() {
+        maintenance.shutdownNow();
+        for (Room room : getRooms()) {
+            closeRoom(room.getName());
+        }
+    }
+
+    private Room createRoom(String name, boolean permanent) {
+        long roomSeed = seed == null ? SimulationRandom.newSeed() : SimulationRandom.derive(seed, name);
+        Room room = new Room(name, capacity, permanent, roomSeed, threads, metrics);
+        rooms.put(name, room);
+        room.start();
+        return room;
+    }
+
+    private Room fullestWithSpace() {
+        Room best = null;
+        for (Room room : rooms.values()) {
+            if (room.hasSpace() && (best == null || room.getPlayerCount() > best.getPlayerCount())) {
+                best = room;
+            }
+        }
+        return best;
+    }
+
+    private String nextRoomName() {
+        String name;
+        do {
+            name = ROOM_PREFIX + nextRoom++;
+        } while (rooms.containsKey(name));
+        return name;
+    }
+
+    private void maintain() {
+        long now = System.nanoTime();
+        List<Room> idle = new ArrayList<>();
+        synchronized (this) {
+            // removed under the lock so no login is routed to them anymore
+            rooms.values().removeIf(room -> {
+                long idleFor = room.idleNanos(now);
+                if (!room.isRunning() || (!room.isPermanent() && idleFor >= idleNanos)) {
+                    idle.add(room);
+                    return true;
+                }
+                return false;
+            });
+        }
+        for (Room room : idle) {
+            logger.info("Closing room " + room.getName());
+            room.stop(STOP_TIMEOUT_MILLIS);
+        }
+
+        if (reportNanos > 0 && now - lastReport >= reportNanos) {
+            lastReport = now;
+            for (Room room : getRooms()) {
+                logger.debug("Room " + room.summary());
+                logger.info("Metrics " + room.getName() + ": " + room.metricsSummary());
+                TickProfiler profiler = room.getTickLoop().getProfiler();
+                if (profiler != null) {
+                    logger.info("Tick profile " + room.getName() + ": " + profiler.summary());
+                }
+            }
+        }
+    }
+}
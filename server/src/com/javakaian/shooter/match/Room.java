@@ -0,0 +1,205 @@
+package com.javakaian.shooter.match;
+
+import com.javakaian.network.InboundQueue;
+import com.javakaian.network.OServer;
+import com.javakaian.shooter.ServerWorld;
+import com.javakaian.shooter.metrics.MetricsRegistry;
+import com.javakaian.shooter.replay.MatchJournal;
+import com.javakaian.shooter.tick.ServerTickLoop;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * One match: a {@link ServerWorld} with its own {@link ServerTickLoop},
+ * running on its own thread. Rooms share nothing but the network host, so
+ * they tick in parallel.
+ * <p>
+ * When the {@code killthemall.journalDir} system property names a directory,
+ * every room records its match there for {@code ReplayMain}, with a state
+ * hash every {@code killthemall.journalHashTicks} ticks, 60 by default.
+ * <p>
+ * The world's metrics are exported under the room's name while the room
+ * runs.
+ */
+public class Room {
+
+    private final Logger logger = Logger.getLogger(Room.class);
+
+    private final String name;
+    private final int capacity;
+    /** Rooms the server starts with are kept even when empty. */
+    private final boolean permanent;
+
+    private final ServerWorld world;
+    private final ServerTickLoop loop;
+    private final Thread thread;
+    private final MatchJournal journal;
+    private final MetricsRegistry metrics;
+
+    // when the last connection left, 0 while someone is in the room
+    private volatile long emptySince;
+
+    Room(String name, int capacity, boolean permanent, long seed, Thread.Builder threads, MetricsRegistry metrics) {
+        this.name = name;
+        this.capacity = capacity;
+        this.permanent = permanent;
+        this.world = new ServerWorld(capacity, seed);
+        this.loop = new ServerTickLoop(world::update);
+        this.metrics = metrics;
+        loop.setMetrics(world.getMetrics());
+        this.thread = threads.name("room-" + name).unstarted(this::run);
+        this.emptySince = System.nanoTime();
+        this.journal = openJournal();
+        if (journal != null) {
+            world.record(journal);
+        }
+    }
+
+    private MatchJournal openJournal() {
+        String dir = System.getProperty("killthemall.journalDir");
+        if (dir == null) {
+            return null;
+        }
+        Path root = Path.of(dir).toAbsolutePath().normalize();
+        // the name is checked by the manager, anything else is kept out of the directory
+        String fileName = name.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + System.currentTimeMillis() + ".journal";
+        Path file = root.resolve(fileName).normalize();
+        if (!root.equals(file.getParent())) {
+            logger.error("Room " + name + " cannot record outside " + root + ", playing without a journal");
+            return null;
+        }
+        try {
+            Files.createDirectories(root);
+            MatchJournal journal = new MatchJournal(file, world.getSeed(), capacity, loop.getTickRate(),
+                    world.getMaxEnemies(), Integer.getInteger("killthemall.journalHashTicks", 60));
+            logger.info("Room " + name + " records to " + file);
+            return journal;
+        } catch (IOException e) {
+            logger.error("Room " + name + " cannot record to " + file + ", playing without a journal", e);
+            return null;
+        }
+    }
+
+    void start() {
+        world.getMetrics().register(metrics, name, getInboundQueue());
+        thread.start();
+        logger.info("Room " + name + " started, up to " + capacity + " players, seed " + world.getSeed());
+    }
+
+    /**
+     * Closes the room's connections, stops its loop and waits for the last
+     * tick to finish.
+     */
+    void stop(long timeoutMillis) {
+        world.getServer().close();
+        loop.stop();
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            logger.warn("Room " + name + " did not stop within " + timeoutMillis + " ms");
+        } else {
+            logger.info("Room " + name + " stopped after " + loop.getTickCount() + " ticks");
+        }
+    }
+
+    private void run() {
+        try {
+            loop.run();
+        } catch (RuntimeException e) {
+            logger.error("Room " + name + " crashed", e);
+            world.getServer().close();
+        } finally {
+            world.getMetrics().unregister(metrics);
+            world.dispose();
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+
+    /**
+     * Updates how long the room has been empty, called by the match manager.
+     *
+     * @return nanoseconds the room has been empty, 0 if it is not
+     */
+    long idleNanos(long now) {
+        if (getPlayerCount() > 0) {
+            emptySince = 0;
+            return 0;
+        }
+        if (emptySince == 0) {
+            emptySince = now;
+        }
+        return now - emptySince;
+    }
+
+    public boolean hasSpace() {
+        return isRunning() && getPlayerCount() < capacity;
+    }
+
+    public boolean isRunning() {
+        return thread.isAlive();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSeed() {
+        return world.getSeed();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isPermanent() {
+        return permanent;
+    }
+
+    /**
+     * Connections in the room, dead players included.
+     */
+    public int getPlayerCount() {
+        return world.getServer().getConnectionCount();
+    }
+
+    OServer getServer() {
+        return world.getServer();
+    }
+
+    public ServerTickLoop getTickLoop() {
+        return loop;
+    }
+
+    public InboundQueue getInboundQueue() {
+        return world.getServer().getInboundQueue();
+    }
+
+    /**
+     * Compact line of the world's metrics since the previous call, see
+     * {@link com.javakaian.shooter.metrics.RoomMetrics#summary()}.
+     */
+    public String metricsSummary() {
+        return world.getMetrics().summary();
+    }
+
+    /**
+     * One line of metrics for the log. The loop's counters are read from
+     * another thread, they may lag a tick behind.
+     */
+    public String summary() {
+        return name + ": " + getPlayerCount() + "/" + capacity + " players"
+                + ", ticks " + loop.getTickCount()
+                + ", overruns " + loop.getOverruns()
+                + ", dropped ticks " + loop.getDroppedTicks()
+                + ", skipped snapshots " + loop.getSkippedBroadcasts()
+                + ", dropped messages " + getInboundQueue().getDropped();
+    }
+}
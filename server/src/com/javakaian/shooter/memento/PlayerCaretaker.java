@@ -1,5 +1,8 @@
 package com.javakaian.shooter.memento;
 
+import com.javakaian.shooter.logging.Log;
+import org.apache.log4j.Logger;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -13,6 +16,12 @@ import java.util.List;
  * 
  */
 public class PlayerCaretaker {
+
+    private static final Logger logger = Logger.getLogger(PlayerCaretaker.class);
+
+    // oldest checkpoints are dropped past this, autosave would grow the
+    // history forever otherwise
+    private static final int MAX_CHECKPOINTS = 32;
     
     private final List<IMemento> mementoList;
     private final int playerId;
@@ -35,9 +44,13 @@ public class PlayerCaretaker {
         
         mementoList.add(memento);
         currentIndex++;
+
+        if (mementoList.size() > MAX_CHECKPOINTS) {
+            mementoList.remove(0);
+            currentIndex--;
+        }
         
-        System.out.println("Checkpoint saved for Player " + playerId + 
-                         " (Total checkpoints: " + mementoList.size() + ")");
+        Log.debug(logger, "Checkpoint saved for Player {} (Total checkpoints: {})", playerId, mementoList.size());
     }
     
     /**
@@ -46,13 +59,12 @@ public class PlayerCaretaker {
      */
     public IMemento restoreToCheckpoint(int checkpointIndex) {
         if (checkpointIndex < 0 || checkpointIndex >= mementoList.size()) {
-            System.out.println("Invalid checkpoint index: " + checkpointIndex);
+            Log.debug(logger, "Invalid checkpoint index: {}", checkpointIndex);
             return null;
         }
         
         currentIndex = checkpointIndex;
-        System.out.println("Restoring Player " + playerId + 
-                         " to checkpoint " + checkpointIndex);
+        Log.debug(logger, "Restoring Player {} to checkpoint {}", playerId, checkpointIndex);
         
         return mementoList.get(checkpointIndex);
     }
@@ -63,13 +75,12 @@ public class PlayerCaretaker {
      */
     public IMemento undo() {
         if (currentIndex <= 0) {
-            System.out.println("Cannot undo - at first checkpoint");
+            logger.debug("Cannot undo - at first checkpoint");
             return null;
         }
         
         currentIndex--;
-        System.out.println("Undo: Player " + playerId + 
-                         " restored to checkpoint " + currentIndex);
+        Log.debug(logger, "Undo: Player {} restored to checkpoint {}", playerId, currentIndex);
         
         return mementoList.get(currentIndex);
     }
@@ -80,13 +91,12 @@ public class PlayerCaretaker {
      */
     public IMemento redo() {
         if (currentIndex >= mementoList.size() - 1) {
-            System.out.println("Cannot redo - at latest checkpoint");
+            logger.debug("Cannot redo - at latest checkpoint");
             return null;
         }
         
         currentIndex++;
-        System.out.println("Redo: Player " + playerId + 
-                         " restored to checkpoint " + currentIndex);
+        Log.debug(logger, "Redo: Player {} restored to checkpoint {}", playerId, currentIndex);
         
         return mementoList.get(currentIndex);
     }
@@ -107,7 +117,7 @@ public class PlayerCaretaker {
     public void clearHistory() {
         mementoList.clear();
         currentIndex = -1;
-        System.out.println("Cleared all checkpoints for Player " + playerId);
+        Log.debug(logger, "Cleared all checkpoints for Player {}", playerId);
     }
     
     /**
@@ -0,0 +1,24 @@
+package com.javakaian.shooter.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A value that only goes up. Any thread may add to it, without locking or
+ * allocating.
+ */
+public final class Counter {
+
+    private final AtomicLong value = new AtomicLong();
+
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    public void add(long amount) {
+        value.addAndGet(amount);
+    }
+
+    public long get() {
+        return value.get();
+    }
+}
@@ -0,0 +1,18 @@
+package com.javakaian.shooter.metrics;
+
+/**
+ * A value that is set rather than counted, like the number of enemies
+ * alive. Meant to have one writer, readers see the latest value.
+ */
+public final class Gauge {
+
+    private volatile long value;
+
+    public void set(long value) {
+        this.value = value;
+    }
+
+    public long get() {
+        return value;
+    }
+}
@@ -0,0 +1,169 @@
+package com.javakaian.shooter.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of non-negative long values, laid out like an HdrHistogram.
+ * Every power of two is split into 16 buckets of equal width, so a value is
+ * known to within 1/16 of itself whether it is a few nanoseconds or a few
+ * minutes, with under a thousand buckets for the whole range of long.
+ * <p>
+ * Recording is a few atomic increments, no locks and no allocation, and any
+ * thread may record. Reading goes through {@link #copy()}. The copy is not
+ * atomic, a value recorded meanwhile may be missing from the sum while its
+ * bucket already counts it.
+ * <p>
+ * The max of a copy is that of the whole lifetime. A reader that reports in
+ * windows, with {@link Counts#since(Counts)}, gets the max of its window from
+ * {@link #takeWindowMax()}.
+ */
+public final class Histogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    private final AtomicLong windowMax = new AtomicLong();
+
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.getAndIncrement(bucketOf(v));
+        sum.addAndGet(v);
+        raise(max, v);
+        raise(windowMax, v);
+    }
+
+    /**
+     * Largest value recorded since the previous call, 0 if none. Meant for a
+     * single reader, a value recorded while it takes a copy may count towards
+     * the next window.
+     */
+    public long takeWindowMax() {
+        return windowMax.getAndSet(0);
+    }
+
+    private static void raise(AtomicLong highest, long value) {
+        long seen = highest.get();
+        while (value > seen && !highest.compareAndSet(seen, value)) {
+            seen = highest.get();
+        }
+    }
+
+    public Counts copy() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Counts(copy, sum.get(), max.get());
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    static long lowestOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket >>> SUB_BITS) + SUB_BITS - 1;
+        return (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << (exponent - SUB_BITS);
+    }
+
+    static long highestOf(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : lowestOf(bucket + 1) - 1;
+    }
+
+    /**
+     * Bucket counts at one point in time.
+     */
+    public static final class Counts {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Counts(long[] counts, long sum, long max) {
+            this.counts = counts;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * What was recorded between {@code older} and this copy. The max is
+         * that of the whole lifetime, it cannot be taken apart, see
+         * {@link Histogram#takeWindowMax()}.
+         */
+        public Counts since(Counts older) {
+            long[] delta = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                delta[i] = counts[i] - older.counts[i];
+            }
+            return new Counts(delta, sum - older.sum, max);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Highest value of the bucket the percentile falls into, 0 without
+         * values.
+         */
+        public long valueAt(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * Values at or below the bound. A bucket the bound falls inside
+         * counts in proportion to the part of it below the bound, as if its
+         * values were spread evenly.
+         */
+        public long countAtOrBelow(long bound) {
+            if (bound < 0) {
+                return 0;
+            }
+            int last = bucketOf(bound);
+            long total = 0;
+            for (int i = 0; i < last; i++) {
+                total += counts[i];
+            }
+            long low = lowestOf(last);
+            double covered = (bound - low + 1) / ((double) highestOf(last) - low + 1);
+            return total + Math.round(counts[last] * covered);
+        }
+    }
+}
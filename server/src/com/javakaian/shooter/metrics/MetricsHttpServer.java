@@ -0,0 +1,84 @@
+package com.javakaian.shooter.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Serves the registry at {@code /metrics} in the Prometheus text format,
+ * with the JDK's built-in HTTP server on a single daemon thread. Scrapes
+ * only read the metrics, the game threads never wait for them.
+ */
+public class MetricsHttpServer {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String TEXT_TYPE = "text/plain; charset=utf-8";
+
+    private final Logger logger = Logger.getLogger(MetricsHttpServer.class);
+
+    private final MetricsRegistry registry;
+    private final Map<String, Supplier<String>> pages = new LinkedHashMap<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MetricsHttpServer(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Serves the text as plain text at the path as well. Call before
+     * {@link #start(String, int)}.
+     */
+    public void addPage(String path, Supplier<String> text) {
+        pages.put(path, text);
+    }
+
+    public void start(String host, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/metrics", exchange -> handle(exchange, CONTENT_TYPE, registry::scrape));
+        for (Map.Entry<String, Supplier<String>> page : pages.entrySet()) {
+            Supplier<String> text = page.getValue();
+            server.createContext(page.getKey(), exchange -> handle(exchange, TEXT_TYPE, text));
+        }
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metrics-http");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.start();
+        logger.info("Metrics are served at http://" + host + ":" + server.getAddress().getPort() + "/metrics");
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange, String contentType, Supplier<String> text) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = text.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
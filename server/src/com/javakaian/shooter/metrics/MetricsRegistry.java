@@ -0,0 +1,134 @@
+package com.javakaian.shooter.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * Every metric the server exports, by name and labels, written out in the
+ * Prometheus text format.
+ * <p>
+ * The registry only knows how to read metrics, recording goes straight to
+ * the {@link Counter}, {@link Gauge} or {@link Histogram} and never touches
+ * it. Metrics are registered together with an owner, e.g. a room, and
+ * removed together when the owner goes away. Registering and scraping may
+ * happen on any thread.
+ */
+public class MetricsRegistry {
+
+    private enum Type {
+        COUNTER, GAUGE, HISTOGRAM
+    }
+
+    private record Entry(String name, String help, Type type, String labels, Object owner,
+                         LongSupplier value, Histogram histogram, double scale, long[] bounds) {
+    }
+
+    private final List<Entry> entries = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param labels name and value pairs
+     */
+    public void counter(String name, String help, LongSupplier value, Object owner, String... labels) {
+        entries.add(new Entry(name, help, Type.COUNTER, labels(labels), owner, value, null, 1, null));
+    }
+
+    public void gauge(String name, String help, LongSupplier value, Object owner, String... labels) {
+        entries.add(new Entry(name, help, Type.GAUGE, labels(labels), owner, value, null, 1, null));
+    }
+
+    /**
+     * @param scale  factor from recorded values to the exported unit, e.g.
+     *               1e-9 for nanoseconds exported as seconds
+     * @param bounds upper bounds of the exported buckets, in recorded units
+     */
+    public void histogram(String name, String help, Histogram histogram, double scale, long[] bounds,
+                          Object owner, String... labels) {
+        entries.add(new Entry(name, help, Type.HISTOGRAM, labels(labels), owner, null, histogram, scale, bounds));
+    }
+
+    /**
+     * Removes every metric registered with this owner.
+     */
+    public void unregister(Object owner) {
+        entries.removeIf(entry -> entry.owner == owner);
+    }
+
+    /**
+     * Every metric in the Prometheus text exposition format, version 0.0.4.
+     */
+    public String scrape() {
+        // a family has to be written in one piece, whoever registered it
+        Map<String, List<Entry>> families = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            families.computeIfAbsent(entry.name, name -> new ArrayList<>()).add(entry);
+        }
+
+        StringBuilder out = new StringBuilder(8192);
+        for (List<Entry> family : families.values()) {
+            Entry first = family.get(0);
+            out.append("# HELP ").append(first.name).append(' ').append(first.help).append('\n');
+            out.append("# TYPE ").append(first.name).append(' ')
+                    .append(first.type.name().toLowerCase()).append('\n');
+            for (Entry entry : family) {
+                if (entry.type == Type.HISTOGRAM) {
+                    writeHistogram(out, entry);
+                } else {
+                    sample(out, entry.name, entry.labels, null, Long.toString(entry.value.getAsLong()));
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static void writeHistogram(StringBuilder out, Entry entry) {
+        Histogram.Counts counts = entry.histogram.copy();
+        for (long bound : entry.bounds) {
+            sample(out, entry.name + "_bucket", entry.labels, "le=\"" + number(bound * entry.scale) + "\"",
+                    Long.toString(counts.countAtOrBelow(bound)));
+        }
+        sample(out, entry.name + "_bucket", entry.labels, "le=\"+Inf\"", Long.toString(counts.getCount()));
+        sample(out, entry.name + "_sum", entry.labels, null, number(counts.getSum() * entry.scale));
+        sample(out, entry.name + "_count", entry.labels, null, Long.toString(counts.getCount()));
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String extra, String value) {
+        out.append(name);
+        if (!labels.isEmpty() || extra != null) {
+            out.append('{').append(labels);
+            if (extra != null) {
+                if (!labels.isEmpty()) {
+                    out.append(',');
+                }
+                out.append(extra);
+            }
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String number(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private static String labels(String[] pairs) {
+        if (pairs.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels come in name and value pairs");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(pairs[i]).append("=\"").append(escape(pairs[i + 1])).append('"');
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,239 @@
+package com.javakaian.shooter.metrics;
+
+import com.javakaian.network.InboundQueue;
+import com.javakaian.shooter.factory.BulletType;
+import com.javakaian.shooter.tick.TickPhase;
+import com.javakaian.shooter.tick.TickTimings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The metrics of one world: tick time in total and per phase, entities alive
+ * by type, messages received by type, bytes sent, inbound queue depth and
+ * weapon fires.
+ * <p>
+ * Every world records into its own, whether or not it is exported. A room
+ * registers them with the server's {@link MetricsRegistry} under its name
+ * while it runs. Recording never locks or allocates, the counters for message
+ * types are created up front when the handlers are registered.
+ */
+public class RoomMetrics {
+
+    /** Bucket bounds for tick and phase times, in nanoseconds. */
+    private static final long[] TIME_BOUNDS = {
+            50_000, 100_000, 250_000, 500_000, 1_000_000, 2_000_000, 4_000_000, 8_000_000,
+            16_666_667, 33_333_333, 100_000_000, 1_000_000_000};
+    private static final long[] BYTE_BOUNDS = {256, 1024, 4096, 16384, 65536, 262144, 1048576};
+
+    private static final TickPhase[] PHASES = TickPhase.values();
+    private static final BulletType[] BULLET_TYPES = BulletType.values();
+
+    /**
+     * Kinds of entities that are counted.
+     */
+    public enum Entity {
+        PLAYERS, ENEMIES, BULLETS, SPIKES, PLACED_SPIKES, POWER_UPS
+    }
+
+    private static final Entity[] ENTITIES = Entity.values();
+
+    private final Histogram tickNanos = new Histogram();
+    private final Histogram[] phaseNanos = new Histogram[PHASES.length];
+    private final Gauge[] entities = new Gauge[ENTITIES.length];
+
+    private final List<Class<?>> messageTypes = new ArrayList<>();
+    private final List<Counter> messageCounters = new ArrayList<>();
+    private final Counter unhandledMessages = new Counter();
+
+    private final Counter bytesSent = new Counter();
+    private final Counter messagesSent = new Counter();
+    private final Histogram bytesPerTick = new Histogram();
+    // tick thread only
+    private long bytesAtLastTick;
+
+    private final Counter weaponFires = new Counter();
+    private final Counter[] projectiles = new Counter[BULLET_TYPES.length];
+
+    private InboundQueue queue;
+
+    // state of the last summary, only for the thread writing them
+    private long summaryNanos = System.nanoTime();
+    private Histogram.Counts summaryTicks = tickNanos.copy();
+    private long summaryMessages;
+    private long summaryBytes;
+    private long summaryFires;
+
+    public RoomMetrics() {
+        for (int i = 0; i < PHASES.length; i++) {
+            phaseNanos[i] = new Histogram();
+        }
+        for (int i = 0; i < ENTITIES.length; i++) {
+            entities[i] = new Gauge();
+        }
+        for (int i = 0; i < BULLET_TYPES.length; i++) {
+            projectiles[i] = new Counter();
+        }
+    }
+
+    /**
+     * Counter of handled messages of this type. Called once per type while
+     * the handlers are registered.
+     */
+    public Counter messageCounter(Class<?> type) {
+        int index = messageTypes.indexOf(type);
+        if (index >= 0) {
+            return messageCounters.get(index);
+        }
+        Counter counter = new Counter();
+        messageTypes.add(type);
+        messageCounters.add(counter);
+        return counter;
+    }
+
+    public void unhandledMessage() {
+        unhandledMessages.increment();
+    }
+
+    /**
+     * A message of this size was handed to a connection.
+     */
+    public void sent(int bytes) {
+        bytesSent.add(bytes);
+        messagesSent.increment();
+    }
+
+    public void weaponFired() {
+        weaponFires.increment();
+    }
+
+    public void projectileSpawned(BulletType type) {
+        projectiles[type.ordinal()].increment();
+    }
+
+    public void setEntities(Entity entity, int count) {
+        entities[entity.ordinal()].set(count);
+    }
+
+    /**
+     * Entities of this kind alive at the end of the last tick.
+     */
+    public long getEntities(Entity entity) {
+        return entities[entity.ordinal()].get();
+    }
+
+    /**
+     * Records the tick the timings just finished, with the bytes sent since
+     * the previous one.
+     */
+    public void tickEnded(TickTimings timings) {
+        tickNanos.record(timings.getLastTickNanos());
+        for (int i = 0; i < PHASES.length; i++) {
+            phaseNanos[i].record(timings.getLastNanos(PHASES[i]));
+        }
+        long bytes = bytesSent.get();
+        bytesPerTick.record(bytes - bytesAtLastTick);
+        bytesAtLastTick = bytes;
+    }
+
+    /**
+     * Exports these metrics labelled with the room's name, together with the
+     * depth of its inbound queue.
+     */
+    public void register(MetricsRegistry registry, String room, InboundQueue inboundQueue) {
+        this.queue = inboundQueue;
+        registry.histogram("killthemall_tick_seconds", "Wall time of a tick.",
+                tickNanos, 1e-9, TIME_BOUNDS, this, "room", room);
+        for (int i = 0; i < PHASES.length; i++) {
+            registry.histogram("killthemall_tick_phase_seconds", "Wall time of a tick spent in each phase.",
+                    phaseNanos[i], 1e-9, TIME_BOUNDS, this, "room", room, "phase", label(PHASES[i]));
+        }
+        for (int i = 0; i < ENTITIES.length; i++) {
+            registry.gauge("killthemall_entities", "Entities alive at the end of the last tick.",
+                    entities[i]::get, this, "room", room, "type", label(ENTITIES[i]));
+        }
+        for (int i = 0; i < messageTypes.size(); i++) {
+            registry.counter("killthemall_messages_received_total", "Client messages handled, by type.",
+                    messageCounters.get(i)::get, this, "room", room, "type", messageTypes.get(i).getSimpleName());
+        }
+        registry.counter("killthemall_messages_unhandled_total", "Client messages no handler was registered for.",
+                unhandledMessages::get, this, "room", room);
+        registry.counter("killthemall_messages_sent_total", "Messages handed to connections.",
+                messagesSent::get, this, "room", room);
+        registry.counter("killthemall_bytes_sent_total", "Bytes handed to connections.",
+                bytesSent::get, this, "room", room);
+        registry.histogram("killthemall_tick_sent_bytes", "Bytes handed to connections per tick.",
+                bytesPerTick, 1, BYTE_BOUNDS, this, "room", room);
+        registry.gauge("killthemall_inbound_queue_depth", "Events waiting for the next tick.",
+                inboundQueue::size, this, "room", room);
+        registry.gauge("killthemall_inbound_queue_max_depth", "Deepest the inbound queue has been at a tick.",
+                inboundQueue::getMaxDepth, this, "room", room);
+        registry.counter("killthemall_inbound_dropped_total", "Messages dropped because the inbound queue was full.",
+                inboundQueue::getDropped, this, "room", room);
+        registry.counter("killthemall_weapon_fires_total", "Shots fired by players.",
+                weaponFires::get, this, "room", room);
+        for (int i = 0; i < BULLET_TYPES.length; i++) {
+            registry.counter("killthemall_projectiles_total", "Projectiles spawned, by bullet type.",
+                    projectiles[i]::get, this, "room", room, "type", label(BULLET_TYPES[i]));
+        }
+    }
+
+    public void unregister(MetricsRegistry registry) {
+        registry.unregister(this);
+    }
+
+    /**
+     * One compact line for the log covering the time since the previous
+     * call: tick percentiles, entities, message and byte rates, queue depth
+     * and fire rate.
+     */
+    public String summary() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - summaryNanos) / 1e9);
+        Histogram.Counts ticks = tickNanos.copy();
+        Histogram.Counts window = ticks.since(summaryTicks);
+        long messages = totalMessages();
+        long bytes = bytesSent.get();
+        long fires = weaponFires.get();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "tick p50/p99/max %.2f/%.2f/%.2f ms",
+                window.valueAt(50) / 1e6, window.valueAt(99) / 1e6, tickNanos.takeWindowMax() / 1e6));
+        for (int i = 0; i < ENTITIES.length; i++) {
+            sb.append(i == 0 ? ", " : " ").append(label(ENTITIES[i])).append(' ').append(entities[i].get());
+        }
+        sb.append(String.format(Locale.ROOT, ", in %.0f msg/s, out %.1f kB/s, queue %d, fires %.1f/s",
+                (messages - summaryMessages) / seconds,
+                (bytes - summaryBytes) / seconds / 1024,
+                queue == null ? 0 : queue.size(),
+                (fires - summaryFires) / seconds));
+
+        summaryNanos = now;
+        summaryTicks = ticks;
+        summaryMessages = messages;
+        summaryBytes = bytes;
+        summaryFires = fires;
+        return sb.toString();
+    }
+
+    public Histogram getTickNanos() {
+        return tickNanos;
+    }
+
+    public Histogram getPhaseNanos(TickPhase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    private long totalMessages() {
+        long total = 0;
+        for (Counter counter : messageCounters) {
+            total += counter.get();
+        }
+        return total;
+    }
+
+    private static String label(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
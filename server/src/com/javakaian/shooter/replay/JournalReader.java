@@ -0,0 +1,159 @@
+package com.javakaian.shooter.replay;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.javakaian.network.NetworkRegistry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads back a file written by {@link MatchJournal}, one record at a time.
+ * <p>
+ * A journal whose server crashed has no end record and may stop in the
+ * middle of one, {@link #next()} then simply reports the end.
+ */
+public class JournalReader implements AutoCloseable {
+
+    private final Input input;
+    private final Kryo kryo;
+
+    private final long seed;
+    private final int maxPlayers;
+    private final int tickRate;
+    private final int maxEnemies;
+    private final int hashInterval;
+
+    private long tick;
+    private boolean complete;
+
+    // the record read by the last call to next()
+    private int kind;
+    private int connectionId;
+    private Object message;
+    private long hash;
+
+    public JournalReader(Path file) throws IOException {
+        input = new Input(Files.newInputStream(file), 64 * 1024);
+        kryo = new Kryo();
+        NetworkRegistry.registerClasses(kryo);
+
+        try {
+            if (input.readInt() != MatchJournal.MAGIC) {
+                throw new IOException(file + " is not a journal");
+            }
+            int version = input.readVarInt(true);
+            if (version != MatchJournal.VERSION) {
+                throw new IOException(file + " has version " + version + ", expected " + MatchJournal.VERSION);
+            }
+            seed = input.readLong();
+            maxPlayers = input.readVarInt(true);
+            tickRate = input.readVarInt(true);
+            maxEnemies = input.readVarInt(true);
+            hashInterval = input.readVarInt(true);
+        } catch (KryoException e) {
+            input.close();
+            throw new IOException(file + " has no complete header", e);
+        }
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return false at the end of the journal
+     */
+    public boolean next() {
+        if (complete) {
+            return false;
+        }
+        try {
+            if (input.end()) {
+                return false;
+            }
+            kind = input.readByte();
+            tick += input.readVarLong(true);
+            message = null;
+            switch (kind) {
+                case MatchJournal.MESSAGE -> {
+                    connectionId = input.readVarInt(true);
+                    message = kryo.readClassAndObject(input);
+                }
+                case MatchJournal.DISCONNECT -> connectionId = input.readVarInt(true);
+                case MatchJournal.HASH -> hash = input.readLong();
+                case MatchJournal.END -> {
+                    complete = true;
+                    return false;
+                }
+                default -> throw new KryoException("Unknown record " + kind + " at tick " + tick);
+            }
+            return true;
+        } catch (KryoException e) {
+            // cut off by a crash
+            return false;
+        }
+    }
+
+    /** Tick of the current record. */
+    public long getTick() {
+        return tick;
+    }
+
+    public boolean isMessage() {
+        return kind == MatchJournal.MESSAGE;
+    }
+
+    public boolean isDisconnect() {
+        return kind == MatchJournal.DISCONNECT;
+    }
+
+    public boolean isHash() {
+        return kind == MatchJournal.HASH;
+    }
+
+    public int getConnectionId() {
+        return connectionId;
+    }
+
+    public Object getMessage() {
+        return message;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Whether the journal ended with its end record, i.e. was closed
+     * properly. Known once {@link #next()} returned false.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getMaxPlayers() {
+        return maxPlayers;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public int getMaxEnemies() {
+        return maxEnemies;
+    }
+
+    public int getHashInterval() {
+        return hashInterval;
+    }
+
+    @Override
+    public void close() {
+        input.close();
+    }
+}
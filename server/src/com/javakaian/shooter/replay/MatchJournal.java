@@ -0,0 +1,173 @@
+package com.javakaian.shooter.replay;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+import com.javakaian.network.NetworkRegistry;
+import com.javakaian.shooter.ServerWorld;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Records everything a world takes from the outside, so the match can be
+ * played again tick by tick with {@link ReplayMain}.
+ * <p>
+ * Given its seed and its settings, a world only changes through the messages
+ * and disconnects it handles at the start of each tick. The journal writes
+ * those down as they are handled, together with the number of the tick, and
+ * every {@code hashInterval} ticks a hash of the world's state, which the
+ * replay compares against its own.
+ * <p>
+ * The file is append only. It starts with a header holding the format
+ * version, the seed and the settings, then one record per event:
+ * <pre>
+ * MESSAGE    kind, ticks since the last record, connection id, message as kryo class and object
+ * DISCONNECT kind, ticks since the last record, connection id
+ * HASH       kind, ticks since the last record, state hash
+ * END        kind, ticks since the last record
+ * </pre>
+ * Numbers are kryo varints, a tick without events costs nothing. The output
+ * is buffered and flushed with every hash, a crashed server loses at most
+ * the last interval.
+ * <p>
+ * Only the world's tick thread may use a journal.
+ */
+public class MatchJournal implements AutoCloseable {
+
+    static final int MAGIC = 0x4B544D4A; // KTMJ
+    /** Bumped whenever the layout or the registered classes change. */
+    static final int VERSION = 1;
+
+    static final int END = 0;
+    static final int MESSAGE = 1;
+    static final int DISCONNECT = 2;
+    static final int HASH = 3;
+
+    private final Logger logger = Logger.getLogger(MatchJournal.class);
+
+    private final Path file;
+    private final Output output;
+    private final Kryo kryo;
+    private final int hashInterval;
+
+    private long tick;
+    private long lastRecordTick;
+    private boolean failed;
+
+    /**
+     * Creates the file and writes the header.
+     *
+     * @param hashInterval ticks between two state hashes
+     */
+    public MatchJournal(Path file, long seed, int maxPlayers, int tickRate, int maxEnemies, int hashInterval)
+            throws IOException {
+        if (hashInterval <= 0) {
+            throw new IllegalArgumentException("hashInterval must be positive: " + hashInterval);
+        }
+        this.file = file;
+        this.hashInterval = hashInterval;
+
+        kryo = new Kryo();
+        NetworkRegistry.registerClasses(kryo);
+
+        OutputStream stream = Files.newOutputStream(file);
+        output = new Output(stream, 64 * 1024);
+        output.writeInt(MAGIC);
+        output.writeVarInt(VERSION, true);
+        output.writeLong(seed);
+        output.writeVarInt(maxPlayers, true);
+        output.writeVarInt(tickRate, true);
+        output.writeVarInt(maxEnemies, true);
+        output.writeVarInt(hashInterval, true);
+        output.flush();
+    }
+
+    /**
+     * Records a message the world is about to handle.
+     */
+    public void recordMessage(int connectionId, Object message) {
+        if (failed) {
+            return;
+        }
+        try {
+            writeRecord(MESSAGE);
+            output.writeVarInt(connectionId, true);
+            kryo.writeClassAndObject(output, message);
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Records a disconnect the world is about to handle.
+     */
+    public void recordDisconnect(int connectionId) {
+        if (failed) {
+            return;
+        }
+        try {
+            writeRecord(DISCONNECT);
+            output.writeVarInt(connectionId, true);
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Ends the current tick, hashing the world if it is due.
+     */
+    public void endTick(ServerWorld world) {
+        if (!failed && (tick + 1) % hashInterval == 0) {
+            try {
+                writeRecord(HASH);
+                output.writeLong(world.stateHash());
+                output.flush();
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+        tick++;
+    }
+
+    /**
+     * Ticks recorded so far.
+     */
+    public long getTickCount() {
+        return tick;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the end record and closes the file.
+     */
+    @Override
+    public void close() {
+        try {
+            if (!failed) {
+                // the replay runs the ticks without events after the last record too
+                writeRecord(END);
+            }
+            output.close();
+        } catch (RuntimeException e) {
+            logger.error("Could not close journal " + file, e);
+        }
+    }
+
+    private void writeRecord(int kind) {
+        output.writeByte(kind);
+        output.writeVarLong(tick - lastRecordTick, true);
+        lastRecordTick = tick;
+    }
+
+    // a broken journal must not take the match down with it
+    private void fail(RuntimeException e) {
+        failed = true;
+        logger.error("Journal " + file + " stopped at tick " + tick, e);
+    }
+}
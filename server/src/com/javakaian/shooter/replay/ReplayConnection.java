@@ -0,0 +1,45 @@
+package com.javakaian.shooter.replay;
+
+import com.esotericsoftware.kryonet.Connection;
+
+/**
+ * Stands in for the connection a recorded message came from. Only has the
+ * id, everything sent to it is dropped.
+ */
+class ReplayConnection extends Connection {
+
+    private final int id;
+
+    ReplayConnection(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int getID() {
+        return id;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return false;
+    }
+
+    @Override
+    public int sendTCP(Object object) {
+        return 0;
+    }
+
+    @Override
+    public int sendUDP(Object object) {
+        return 0;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return "Replayed connection " + id;
+    }
+}
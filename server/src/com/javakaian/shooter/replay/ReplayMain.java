@@ -0,0 +1,112 @@
+package com.javakaian.shooter.replay;
+
+import com.esotericsoftware.kryonet.Connection;
+import com.javakaian.network.InboundQueue;
+import com.javakaian.shooter.ServerWorld;
+import com.javakaian.shooter.tick.ServerTickLoop;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Plays a recorded match again, headless and as fast as the world can tick.
+ * <p>
+ * A fresh {@link ServerWorld} is built with the journal's seed and settings.
+ * Before every tick the messages and disconnects recorded for it are put into
+ * the world's inbound queue, as the network thread would have done, then the
+ * tick runs. Wherever the journal holds a state hash, the world's own hash is
+ * compared with it. The first mismatch stops the replay, everything before it
+ * was reproduced exactly.
+ * <p>
+ * Nothing is sent anywhere, but snapshots are still captured and encoded, so
+ * the timings printed at the end are those of a real server fed the same
+ * traffic.
+ * <p>
+ * Usage: {@code ReplayMain <journal>}. Exits with 1 if the replay diverged,
+ * 2 if the journal could not be read.
+ */
+public class ReplayMain {
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: ReplayMain <journal>");
+            System.exit(2);
+        }
+        try {
+            System.exit(replay(Path.of(args[0])) ? 0 : 1);
+        } catch (IOException e) {
+            System.err.println("Could not read " + args[0] + ": " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    /**
+     * @return true if every state hash in the journal was reproduced
+     */
+    public static boolean replay(Path file) throws IOException {
+        try (JournalReader journal = new JournalReader(file)) {
+            // read by the world when it is built
+            System.setProperty("killthemall.maxEnemies", Integer.toString(journal.getMaxEnemies()));
+            ServerWorld world = new ServerWorld(journal.getMaxPlayers(), journal.getSeed());
+            ServerTickLoop loop = new ServerTickLoop(world::update, journal.getTickRate(), 1, 0);
+            InboundQueue queue = world.getServer().getInboundQueue();
+            Map<Integer, Connection> connections = new HashMap<>();
+
+            System.out.println("Replaying " + file + ", seed " + journal.getSeed()
+                    + ", " + journal.getTickRate() + " ticks per second");
+
+            long start = System.nanoTime();
+            long hashes = 0;
+            boolean diverged = false;
+            boolean more = journal.next();
+            try {
+                while (more) {
+                    long tick = loop.getTickCount();
+                    while (more && journal.getTick() == tick && !journal.isHash()) {
+                        Connection con = connections.computeIfAbsent(journal.getConnectionId(), ReplayConnection::new);
+                        if (journal.isMessage()) {
+                            queue.offerMessage(con, journal.getMessage());
+                        } else {
+                            queue.offerDisconnect(con);
+                            connections.remove(con.getID());
+                        }
+                        more = journal.next();
+                    }
+
+                    loop.step(true);
+
+                    if (more && journal.isHash() && journal.getTick() == tick) {
+                        long actual = world.stateHash();
+                        if (actual != journal.getHash()) {
+                            System.out.println("Diverged at tick " + tick + ": expected state "
+                                    + Long.toHexString(journal.getHash()) + ", got " + Long.toHexString(actual));
+                            diverged = true;
+                            break;
+                        }
+                        hashes++;
+                        more = journal.next();
+                    }
+                }
+                // ticks without events at the end of the match
+                if (!diverged && journal.isComplete()) {
+                    while (loop.getTickCount() < journal.getTick()) {
+                        loop.step(true);
+                    }
+                }
+            } finally {
+                world.dispose();
+            }
+
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.println((diverged ? "Stopped" : "Replayed") + " " + loop.getTickCount() + " ticks in "
+                    + String.format("%.2f", seconds) + " s (" + String.format("%.0f", loop.getTickCount() / seconds)
+                    + " ticks/s, " + String.format("%.1f", loop.getTickCount() / seconds / journal.getTickRate())
+                    + "x real time), " + hashes + " state hashes matched"
+                    + (diverged || journal.isComplete() ? "" : ", journal was cut off"));
+            System.out.println(loop.getTimings().summary());
+            return !diverged;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.javakaian.shooter.replay;
+
+/**
+ * Order dependent 64 bit hash of a world's state, fed one value at a time.
+ * Floats are hashed by their bits, any difference at all shows.
+ */
+public final class StateHash {
+
+    private long hash = 0x6A09E667F3BCC909L;
+
+    public StateHash add(long value) {
+        long z = hash ^ value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        hash = z ^ (z >>> 31);
+        return this;
+    }
+
+    public StateHash add(float value) {
+        return add(Float.floatToIntBits(value));
+    }
+
+    public StateHash add(boolean value) {
+        return add(value ? 1L : 0L);
+    }
+
+    public long get() {
+        return hash;
+    }
+}
@@ -11,6 +11,15 @@ public interface Bullet extends GameObject {
 
     float getSize();
 
+    /** Direction of travel in radians, y axis pointing down. */
+    float getAngle();
+
+    /** Units per second. */
+    float getSpeed();
+
+    /** Seconds before the bullet expires. */
+    float getTimeToLive();
+
     boolean isVisible();
 
     void setVisible(boolean visible);
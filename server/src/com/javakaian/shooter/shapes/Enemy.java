@@ -2,16 +2,19 @@ package com.javakaian.shooter.shapes;
 
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Pool;
 import com.javakaian.shooter.strategy.EnemyBehaviorStrategy;
 
-import java.util.List;
-
-public class Enemy implements Cloneable, GameObject {
+public class Enemy implements Cloneable, GameObject, Pool.Poolable {
 
     private Vector2 position;
     private boolean visible = true;
     private Rectangle boundRect;
     private EnemyBehaviorStrategy behaviorStrategy;
+    // identifies the object in network snapshots
+    private int netId;
+    // behavior state of this enemy in EnemyAi, -1 while it has none
+    private int slot = -1;
 
     public Enemy(float x, float y, float size, EnemyBehaviorStrategy strategy) {
         this.position = new Vector2(x, y);
@@ -19,18 +22,42 @@ public class Enemy implements Cloneable, GameObject {
         this.behaviorStrategy = strategy;
     }
 
+    /**
+     * Brings a pooled enemy back into play at the given position.
+     */
+    public void init(float x, float y, EnemyBehaviorStrategy strategy) {
+        this.position.set(x, y);
+        this.boundRect.setPosition(x, y);
+        this.behaviorStrategy = strategy;
+        this.visible = true;
+    }
+
+    @Override
+    public void reset() {
+        this.visible = false;
+        this.behaviorStrategy = null;
+    }
+
+    /**
+     * Enemies are moved by {@link com.javakaian.shooter.simulation.EnemyAi}
+     * after every object was updated, this only keeps the bounds in place.
+     */
     @Override
     public void update(UpdateContext context) {
         if (!visible) return;
 
-        if (behaviorStrategy != null && context.players != null && !context.players.isEmpty()) {
-            position = behaviorStrategy.behaveDifferently(position, context.players, context.deltaTime);
-        }
-
         this.boundRect.x = position.x;
         this.boundRect.y = position.y;
     }
 
+    /**
+     * Moves the enemy and its bounds to the given position.
+     */
+    public void moveTo(float x, float y) {
+        this.position.set(x, y);
+        this.boundRect.setPosition(x, y);
+    }
+
     @Override
     public boolean isAlive() {
         return isVisible();
@@ -66,6 +93,22 @@ public class Enemy implements Cloneable, GameObject {
         this.visible = visible;
     }
 
+    public int getNetId() {
+        return netId;
+    }
+
+    public void setNetId(int netId) {
+        this.netId = netId;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
     public Rectangle getBoundRect() {
         return boundRect;
     }
@@ -0,0 +1,127 @@
+package com.javakaian.shooter.shapes;
+
+import com.badlogic.gdx.utils.IntMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of game objects partitioned by type.
+ * <p>
+ * Every object is filed under its concrete class and under every superclass
+ * and interface that is itself a {@link GameObject}. Lookups by any of those
+ * types are a single map access and return a live, read-only view, so callers
+ * do not allocate or scan to find the objects of one type. Views keep the
+ * order in which objects were added.
+ * <p>
+ * Players are additionally indexed by id.
+ */
+public class EntityRegistry {
+
+    private final Map<Class<?>, TypeBucket> buckets = new HashMap<>();
+    private final Map<Class<?>, TypeBucket[]> bucketsByConcreteType = new HashMap<>();
+    private final IntMap<Player> playersById = new IntMap<>();
+
+    public void add(GameObject obj) {
+        for (TypeBucket bucket : bucketsFor(obj.getClass())) {
+            bucket.objects.add(obj);
+        }
+        if (obj instanceof Player player) {
+            playersById.put(player.getId(), player);
+        }
+    }
+
+    public void remove(GameObject obj) {
+        for (TypeBucket bucket : bucketsFor(obj.getClass())) {
+            bucket.objects.remove(obj);
+        }
+        if (obj instanceof Player player && playersById.get(player.getId()) == player) {
+            playersById.remove(player.getId());
+        }
+    }
+
+    /**
+     * Drops every object that is no longer alive in one pass per type, instead
+     * of one list scan per object. Composites are kept, an empty composite is
+     * not dead. {@code dead} lists the objects being dropped, it is only used
+     * to unmap players.
+     */
+    public void removeDead(List<GameObject> dead) {
+        for (TypeBucket bucket : buckets.values()) {
+            bucket.objects.removeIf(EntityRegistry::isDead);
+        }
+        for (int i = 0; i < dead.size(); i++) {
+            if (dead.get(i) instanceof Player player && playersById.get(player.getId()) == player) {
+                playersById.remove(player.getId());
+            }
+        }
+    }
+
+    static boolean isDead(GameObject obj) {
+        return !(obj instanceof GameObjectComposite) && !obj.isAlive();
+    }
+
+    /**
+     * Returns a live, read-only view of every registered object of the given
+     * type. The view reflects later adds and removes, so it must not be
+     * iterated while objects of that type are being added or removed.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends GameObject> List<T> getAll(Class<T> type) {
+        return (List<T>) bucket(type).view;
+    }
+
+    public Player getPlayer(int id) {
+        return playersById.get(id);
+    }
+
+    public int size(Class<? extends GameObject> type) {
+        return bucket(type).objects.size();
+    }
+
+    private TypeBucket bucket(Class<?> type) {
+        TypeBucket bucket = buckets.get(type);
+        if (bucket == null) {
+            bucket = new TypeBucket();
+            buckets.put(type, bucket);
+        }
+        return bucket;
+    }
+
+    /**
+     * Buckets an object of the given concrete class belongs to. Computed once
+     * per class.
+     */
+    private TypeBucket[] bucketsFor(Class<?> concreteType) {
+        TypeBucket[] result = bucketsByConcreteType.get(concreteType);
+        if (result == null) {
+            List<Class<?>> types = new ArrayList<>();
+            collectTypes(concreteType, types);
+            result = new TypeBucket[types.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = bucket(types.get(i));
+            }
+            bucketsByConcreteType.put(concreteType, result);
+        }
+        return result;
+    }
+
+    private static void collectTypes(Class<?> type, List<Class<?>> out) {
+        if (type == null || !GameObject.class.isAssignableFrom(type) || out.contains(type)) {
+            return;
+        }
+        out.add(type);
+        collectTypes(type.getSuperclass(), out);
+        for (Class<?> itf : type.getInterfaces()) {
+            collectTypes(itf, out);
+        }
+    }
+
+    private static class TypeBucket {
+        final List<GameObject> objects = new ArrayList<>();
+        final List<GameObject> view = Collections.unmodifiableList(objects);
+    }
+}
@@ -2,37 +2,112 @@ package com.javakaian.shooter.shapes;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class GameObjectComposite implements GameObject {
 
     private GameObjectComposite parent;
     private List<GameObject> children = new ArrayList<>();
 
+    // every object in this subtree, indexed by type
+    private final EntityRegistry registry = new EntityRegistry();
+
+    // scratch list for reap(), reused every tick
+    private final List<GameObject> reaped = new ArrayList<>();
+
     public void add(GameObject obj) {
         if (obj instanceof GameObjectComposite composite)
             composite.setParent(this);
 
         children.add(obj);
+
+        for (GameObjectComposite c = this; c != null; c = c.parent)
+            c.index(obj);
     }
 
     public void remove(GameObject obj) {
-        children.remove(obj);
+        if (!children.remove(obj))
+            return;
+
+        for (GameObjectComposite c = this; c != null; c = c.parent)
+            c.unindex(obj);
 
         if (obj instanceof GameObjectComposite composite)
             composite.setParent(null);
     }
 
+    /**
+     * Returns every object of the given type in this subtree. The list is a
+     * live, read-only view maintained on add/remove, so this does not scan or
+     * allocate. Do not add or remove objects of that type while iterating it.
+     */
     public <T extends GameObject> List<T> getAll(Class<T> type) {
-        List<T> result = new ArrayList<>();
+        return registry.getAll(type);
+    }
 
-        for (GameObject obj : children) {
-            if (type.isInstance(obj))
-                result.add(type.cast(obj));
+    /**
+     * Returns the player with the given id in this subtree, or null.
+     */
+    public Player getPlayer(int id) {
+        return registry.getPlayer(id);
+    }
+
+    /**
+     * Removes every object in this subtree that is no longer alive and hands
+     * each one to {@code onReaped}, e.g. to return it to a pool. Meant to run
+     * once at the end of a tick: lists are compacted in a single pass, so the
+     * cost does not depend on how many objects died.
+     * <p>
+     * The callback runs after the object is gone from every index, so it may
+     * reset the object freely.
+     */
+    public void reap(Consumer<GameObject> onReaped) {
+        compactDead(reaped);
+        if (reaped.isEmpty())
+            return;
+
+        for (GameObjectComposite c = parent; c != null; c = c.parent)
+            c.registry.removeDead(reaped);
+
+        for (int i = 0; i < reaped.size(); i++)
+            onReaped.accept(reaped.get(i));
+        reaped.clear();
+    }
+
+    private void compactDead(List<GameObject> out) {
+        int before = out.size();
+        int kept = 0;
+        for (int i = 0; i < children.size(); i++) {
+            GameObject obj = children.get(i);
+            if (obj instanceof GameObjectComposite composite) {
+                composite.compactDead(out);
+            } else if (!obj.isAlive()) {
+                out.add(obj);
+                continue;
+            }
+            children.set(kept++, obj);
+        }
+        for (int i = children.size() - 1; i >= kept; i--)
+            children.remove(i);
+
+        if (out.size() > before)
+            registry.removeDead(out);
+    }
+
+    private void index(GameObject obj) {
+        registry.add(obj);
+        if (obj instanceof GameObjectComposite composite) {
+            for (GameObject nested : composite.getAll(GameObject.class))
+                registry.add(nested);
+        }
+    }
 
-            if (obj instanceof GameObjectComposite composite)
-                result.addAll(composite.getAll(type));
+    private void unindex(GameObject obj) {
+        registry.remove(obj);
+        if (obj instanceof GameObjectComposite composite) {
+            for (GameObject nested : composite.getAll(GameObject.class))
+                registry.remove(nested);
         }
-        return result;
     }
 
     public void setParent(GameObjectComposite p) {
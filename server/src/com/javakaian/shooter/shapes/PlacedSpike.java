@@ -15,6 +15,8 @@ public class PlacedSpike implements GameObject {
     private boolean visible;
     private boolean consumed; // true if spike has damaged a player
     private Rectangle boundRect;
+    // identifies the object in network snapshots
+    private int netId;
 
     public PlacedSpike(float x, float y, float size, float rotation, int playerId) {
         this.position = new Vector2(x, y);
@@ -69,6 +71,14 @@ public class PlacedSpike implements GameObject {
         this.consumed = consumed;
     }
 
+    public int getNetId() {
+        return netId;
+    }
+
+    public void setNetId(int netId) {
+        this.netId = netId;
+    }
+
     public Rectangle getBoundRect() {
         return boundRect;
     }
@@ -6,9 +6,13 @@ import com.javakaian.shooter.weapons.Weapon;
 import com.javakaian.shooter.teams.TeamPlayer;
 import com.javakaian.shooter.memento.IMemento;
 import com.javakaian.shooter.memento.PlayerMemento;
+import com.javakaian.shooter.logging.Log;
+import org.apache.log4j.Logger;
 
 public class Player implements GameObject {
 
+    private static final Logger logger = Logger.getLogger(Player.class);
+
     private float size;
     private Vector2 position;
     private int id;
@@ -66,8 +70,7 @@ public class Player implements GameObject {
      * @return IMemento (narrow interface) - can be stored by Caretaker
      */
     public IMemento createMemento() {
-        System.out.println("Creating memento for Player " + id + 
-                        " (HP: " + health + ", Pos: " + position + ")");
+        Log.debug(logger, "Creating memento for Player {} (HP: {}, Pos: ({}, {}))", id, health, position.x, position.y);
         
         // Create and return a new memento with current state
         // Note: We return IMemento (narrow interface) but create PlayerMemento
@@ -99,7 +102,7 @@ public class Player implements GameObject {
         // Only Player can cast IMemento back to PlayerMemento
         // This is the security mechanism - other classes see only IMemento
         if (!(memento instanceof PlayerMemento)) {
-            System.out.println("Error: Invalid memento type");
+            logger.warn("Invalid memento type for Player " + id);
             return;
         }
         
@@ -131,8 +134,7 @@ public class Player implements GameObject {
         this.boundRect.x = position.x;
         this.boundRect.y = position.y;
         
-        System.out.println("Restored Player " + id + " from memento " +
-                        "(HP: " + health + ", Pos: " + position + ")");
+        Log.debug(logger, "Restored Player {} from memento (HP: {}, Pos: ({}, {}))", id, health, position.x, position.y);
     }
 
     /**
@@ -143,21 +145,21 @@ public class Player implements GameObject {
         if (hasSpeedBoost && currentTime >= speedBoostEndTime) {
             hasSpeedBoost = false;
             speedMultiplier = 1.0f;
-            System.out.println("Player " + id + " speed boost expired");
+            Log.debug(logger, "Player {} speed boost expired", id);
         }
         
         // check if damage boost expired
         if (hasDamageBoost && currentTime >= damageBoostEndTime) {
             hasDamageBoost = false;
             damageMultiplier = 1.0f;
-            System.out.println("Player " + id + " damage boost expired");
+            Log.debug(logger, "Player {} damage boost expired", id);
         }
         
         // check if shield expired
         if (hasShield && currentTime >= shieldEndTime) {
             hasShield = false;
             shieldHealth = 0;
-            System.out.println("Player " + id + " shield expired");
+            Log.debug(logger, "Player {} shield expired", id);
         }
     }
 
@@ -203,13 +205,12 @@ public class Player implements GameObject {
             shieldHealth -= damageToShield;
             damage -= damageToShield;
             
-            System.out.println("Player " + id + " shield absorbed " + damageToShield + 
-                            " damage. Shield remaining: " + shieldHealth);
+            Log.debug(logger, "Player {} shield absorbed {} damage. Shield remaining: {}", id, damageToShield, shieldHealth);
             
             if (shieldHealth <= 0) {
                 hasShield = false;
                 shieldHealth = 0;
-                System.out.println("Player " + id + " shield broken!");
+                Log.debug(logger, "Player {} shield broken!", id);
             }
         }
         
@@ -234,7 +235,7 @@ public class Player implements GameObject {
     public void equipWeapon(Weapon weapon) {
         this.currentWeapon = weapon;
         this.lastShotTime = 0;
-        System.out.println("Player " + id + " equipped: " + weapon.getDescription());
+        Log.debug(logger, "Player {} equipped: {}", id, weapon.getName());
     }
 
     public Weapon getCurrentWeapon() {
@@ -243,7 +244,10 @@ public class Player implements GameObject {
 
     public void recordShot(float currentTime) {
         this.lastShotTime = currentTime;
-        System.out.println("Player " + id + " shot recorded at time " + currentTime);
+        // every shot, and the float would box before Log checks the level
+        if (logger.isTraceEnabled()) {
+            Log.trace(logger, "Player {} shot recorded at time {}", id, currentTime);
+        }
     }
 
     //spike inventory system
@@ -274,7 +278,7 @@ public class Player implements GameObject {
         this.hasSpeedBoost = true;
         this.speedBoostEndTime = currentTime + duration;
         this.speedMultiplier = SPEED_BOOST_MULTIPLIER;
-        System.out.println("Player " + id + " activated SPEED BOOST (x" + SPEED_BOOST_MULTIPLIER + ") for " + duration + "s");
+        Log.debug(logger, "Player {} activated SPEED BOOST (x{}) for {}s", id, SPEED_BOOST_MULTIPLIER, duration);
     }
     
     /**
@@ -285,7 +289,7 @@ public class Player implements GameObject {
         this.hasDamageBoost = true;
         this.damageBoostEndTime = currentTime + duration;
         this.damageMultiplier = DAMAGE_BOOST_MULTIPLIER;
-        System.out.println("Player " + id + " activated DAMAGE BOOST (x" + DAMAGE_BOOST_MULTIPLIER + ") for " + duration + "s");
+        Log.debug(logger, "Player {} activated DAMAGE BOOST (x{}) for {}s", id, DAMAGE_BOOST_MULTIPLIER, duration);
     }
     
     /**
@@ -296,7 +300,7 @@ public class Player implements GameObject {
         this.hasShield = true;
         this.shieldEndTime = currentTime + duration;
         this.shieldHealth = SHIELD_MAX_HEALTH;
-        System.out.println("Player " + id + " activated SHIELD (" + SHIELD_MAX_HEALTH + " HP) for " + duration + "s");
+        Log.debug(logger, "Player {} activated SHIELD ({} HP) for {}s", id, SHIELD_MAX_HEALTH, duration);
     }
     
     /**
@@ -305,12 +309,12 @@ public class Player implements GameObject {
      */
     public void applyAmmoRefill(float currentTime) {
         if (currentWeapon == null) {
-            System.out.println("Player " + id + " has no weapon to refill");
+            Log.debug(logger, "Player {} has no weapon to refill", id);
             return;
         }
 
         currentWeapon.setAmmoCapacity(currentWeapon.getAmmoCapacity());
-        System.out.println("Player " + id + " AMMO REFILLED to " + currentWeapon.getAmmoCapacity());
+        Log.debug(logger, "Player {} AMMO REFILLED to {}", id, currentWeapon.getAmmoCapacity());
     }                                                                                                                           
     
     public float getSpeedMultiplier() {
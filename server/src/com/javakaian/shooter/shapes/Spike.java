@@ -11,6 +11,8 @@ public class Spike implements GameObject {
     private float size;
     private boolean visible;
     private Rectangle boundRect;
+    // identifies the object in network snapshots
+    private int netId;
 
     public Spike(float x, float y, float size) {
         this.position = new Vector2(x, y);
@@ -45,6 +47,14 @@ public class Spike implements GameObject {
         this.visible = visible;
     }
 
+    public int getNetId() {
+        return netId;
+    }
+
+    public void setNetId(int netId) {
+        this.netId = netId;
+    }
+
     public Rectangle getBoundRect() {
         return boundRect;
     }
@@ -2,9 +2,11 @@ package com.javakaian.shooter.shapes;
 
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Pool;
 
-public class StandardBullet implements Bullet, GameObject {
+public class StandardBullet implements Bullet, GameObject, Pool.Poolable {
     private static final int SPEED = 800;  // normal speed
+    private static final float TIME_TO_LIVE = 2f;
     private Vector2 position;
     private float size;
     private float angle;
@@ -14,11 +16,29 @@ public class StandardBullet implements Bullet, GameObject {
     private Rectangle boundRect;
 
     public StandardBullet(float x, float y, float size, float angle, int id) {
-        this.position = new Vector2(x, y);
+        this.position = new Vector2();
+        this.boundRect = new Rectangle();
+        init(x, y, size, angle, id);
+    }
+
+    /**
+     * Sets up this bullet for a new shot. Used by the factory when the bullet
+     * is taken from its pool.
+     */
+    public void init(float x, float y, float size, float angle, int id) {
+        this.position.set(x, y);
         this.size = size;
         this.angle = angle;
         this.id = id;
-        this.boundRect = new Rectangle(x, y, size, size);
+        this.visible = true;
+        this.ttlCounter = 0;
+        this.boundRect.set(x, y, this.size, this.size);
+    }
+
+    @Override
+    public void reset() {
+        this.visible = false;
+        this.ttlCounter = 0;
     }
 
     @Override
@@ -32,7 +52,7 @@ public class StandardBullet implements Bullet, GameObject {
         position.y -= speed * dy;
         position.x += speed * dx;
 
-        if (ttlCounter > 2) {
+        if (ttlCounter > TIME_TO_LIVE) {
             visible = false;
             ttlCounter = 0;
         }
@@ -56,6 +76,21 @@ public class StandardBullet implements Bullet, GameObject {
         return size;
     }
 
+    @Override
+    public float getAngle() {
+        return angle;
+    }
+
+    @Override
+    public float getSpeed() {
+        return SPEED;
+    }
+
+    @Override
+    public float getTimeToLive() {
+        return TIME_TO_LIVE;
+    }
+
     @Override
     public boolean isVisible() {
         return visible;
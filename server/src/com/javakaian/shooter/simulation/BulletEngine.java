@@ -0,0 +1,210 @@
+package com.javakaian.shooter.simulation;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.javakaian.shooter.factory.BulletType;
+import com.javakaian.shooter.shapes.Bullet;
+
+import java.util.Arrays;
+
+/**
+ * Simulates every live bullet in the world.
+ * <p>
+ * Bullets are kept as a structure of arrays: position, velocity, size, owner,
+ * remaining lifetime, type and network id each live in their own primitive array and a
+ * bullet is just an index into them. Velocity is computed once at spawn, so a
+ * tick is a couple of plain loops over float arrays without any trigonometry,
+ * object access or allocation, which the JIT can unroll and vectorize.
+ * <p>
+ * Bullet objects produced by a {@link com.javakaian.shooter.factory.BulletFactory}
+ * only describe a shot. {@link #spawn(BulletType, Bullet)} copies what it needs
+ * out of them, after which the object can go back to the factory.
+ * <p>
+ * Killed and expired bullets stay in the arrays until {@link #compact()}, which
+ * keeps the survivors in spawn order. Indices are therefore stable for the
+ * whole tick.
+ */
+public class BulletEngine {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final BulletType[] TYPES = BulletType.values();
+
+    private float[] x;
+    private float[] y;
+    private float[] vx;
+    private float[] vy;
+    private float[] size;
+    private float[] ttl;
+    private int[] owner;
+    private byte[] type;
+    private int[] netId;
+    private int count;
+    private int nextNetId;
+
+    public BulletEngine() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public BulletEngine(int capacity) {
+        capacity = Math.max(16, capacity);
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        size = new float[capacity];
+        ttl = new float[capacity];
+        owner = new int[capacity];
+        type = new byte[capacity];
+        netId = new int[capacity];
+    }
+
+    /**
+     * Adds a bullet described by {@code spec}. The spec is not kept.
+     *
+     * @return index of the new bullet, valid until the next {@link #compact()}
+     */
+    public int spawn(BulletType bulletType, Bullet spec) {
+        if (count == x.length) {
+            grow();
+        }
+        int i = count++;
+        float angle = spec.getAngle();
+        float speed = spec.getSpeed();
+
+        x[i] = spec.getPosition().x;
+        y[i] = spec.getPosition().y;
+        // screen space, y grows downwards
+        vx[i] = (float) Math.cos(angle) * speed;
+        vy[i] = -(float) Math.sin(angle) * speed;
+        size[i] = spec.getSize();
+        ttl[i] = spec.getTimeToLive();
+        owner[i] = spec.getId();
+        type[i] = (byte) bulletType.ordinal();
+        netId[i] = nextNetId++;
+        return i;
+    }
+
+    /**
+     * Moves every bullet and counts down its lifetime. Bullets whose lifetime
+     * ran out are dead afterwards but are only removed by {@link #compact()}.
+     */
+    public void update(float deltaTime) {
+        final int n = count;
+        final float[] x = this.x, y = this.y, vx = this.vx, vy = this.vy, ttl = this.ttl;
+
+        for (int i = 0; i < n; i++) {
+            x[i] += vx[i] * deltaTime;
+            y[i] += vy[i] * deltaTime;
+        }
+        for (int i = 0; i < n; i++) {
+            ttl[i] -= deltaTime;
+        }
+    }
+
+    /**
+     * Removes dead bullets, keeping the others in spawn order.
+     */
+    public void compact() {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (ttl[i] < 0) {
+                continue;
+            }
+            if (kept != i) {
+                x[kept] = x[i];
+                y[kept] = y[i];
+                vx[kept] = vx[i];
+                vy[kept] = vy[i];
+                size[kept] = size[i];
+                ttl[kept] = ttl[i];
+                owner[kept] = owner[i];
+                type[kept] = type[i];
+                netId[kept] = netId[i];
+            }
+            kept++;
+        }
+        count = kept;
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public void kill(int i) {
+        ttl[i] = -1f;
+    }
+
+    public boolean isAlive(int i) {
+        return ttl[i] >= 0;
+    }
+
+    /**
+     * Same test as {@link Rectangle#overlaps(Rectangle)} against the square
+     * bounds of bullet {@code i}.
+     */
+    public boolean overlaps(int i, Rectangle r) {
+        float bx = x[i];
+        float by = y[i];
+        float bs = size[i];
+        return bx < r.x + r.width && bx + bs > r.x && by < r.y + r.height && by + bs > r.y;
+    }
+
+    /**
+     * Writes {@code x, y, size} of every bullet into {@code dest}, starting at
+     * {@code offset}. This is the layout of the bullet array in the world
+     * message. Dead bullets are written as well, call after {@link #compact()}.
+     *
+     * @return number of floats written
+     */
+    public int writeTo(float[] dest, int offset) {
+        for (int i = 0, o = offset; i < count; i++, o += 3) {
+            dest[o] = x[i];
+            dest[o + 1] = y[i];
+            dest[o + 2] = size[i];
+        }
+        return count * 3;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public float getX(int i) {
+        return x[i];
+    }
+
+    public float getY(int i) {
+        return y[i];
+    }
+
+    public float getSize(int i) {
+        return size[i];
+    }
+
+    public int getOwner(int i) {
+        return owner[i];
+    }
+
+    /**
+     * Id of bullet {@code i} in network snapshots, fixed for its lifetime.
+     */
+    public int getNetId(int i) {
+        return netId[i];
+    }
+
+    public BulletType getType(int i) {
+        return TYPES[type[i]];
+    }
+
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        size = Arrays.copyOf(size, capacity);
+        ttl = Arrays.copyOf(ttl, capacity);
+        owner = Arrays.copyOf(owner, capacity);
+        type = Arrays.copyOf(type, capacity);
+        netId = Arrays.copyOf(netId, capacity);
+    }
+}
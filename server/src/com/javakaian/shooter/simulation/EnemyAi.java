@@ -0,0 +1,206 @@
+package com.javakaian.shooter.simulation;
+
+import com.badlogic.gdx.math.Vector2;
+import com.javakaian.shooter.shapes.Enemy;
+import com.javakaian.shooter.shapes.Player;
+import com.javakaian.shooter.strategy.EnemyBehaviorStrategy;
+import com.javakaian.shooter.strategy.EnemyStates;
+import com.javakaian.shooter.strategy.PlayerTargets;
+import com.javakaian.shooter.strategy.SteeringContext;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Moves every enemy by its behavior strategy, spread over several threads
+ * when there are many of them.
+ * <p>
+ * A tick is done in two passes. The players' positions are indexed once in
+ * a {@link PlayerTargets}, then the enemies are split into batches of
+ * {@link #BATCH} which are evaluated on a fork/join pool. Every strategy only
+ * reads the enemy's position and the players, which nobody changes during
+ * the pass, and its result goes into a per enemy slot of two float arrays.
+ * Then, back on the tick thread, the results are applied to the enemies in
+ * list order. The outcome is the same whatever the number of threads.
+ * <p>
+ * Strategies are shared and keep nothing themselves. What they remember about
+ * an enemy lives in its slot of {@link EnemyStates}, which a strategy only
+ * touches for the enemy it is steering. Enemies get a slot with
+ * {@link #attach(Enemy)} and give it back with {@link #detach(Enemy)}.
+ * <p>
+ * The pool is shared by every world in the server, its size can be set with
+ * the {@code killthemall.aiThreads} system property, the number of processors
+ * by default. Below {@code killthemall.aiParallelThreshold}
+ * enemies, 256 by default, everything runs on the tick thread, as handing
+ * out the batches would cost more than it saves.
+ * <p>
+ * Nothing is allocated per enemy. Each thread steers with its own
+ * {@link SteeringContext}, only the batch tasks themselves are created anew.
+ */
+public class EnemyAi {
+
+    /** Enemies evaluated by one task. */
+    public static final int BATCH = 64;
+
+    private static final ForkJoinPool POOL = createPool();
+    // scratch space of the pool's threads, kept for as long as they live
+    private static final ThreadLocal<Worker> WORKERS = ThreadLocal.withInitial(Worker::new);
+
+    private final int parallelThreshold;
+
+    private final PlayerTargets targets = new PlayerTargets();
+    private final EnemyStates states = new EnemyStates();
+    // seeds the random numbers of every new slot
+    private final SimulationRandom seeds;
+
+    // inputs and results of the running update, one slot per enemy
+    private List<Enemy> enemies;
+    private float deltaTime;
+    private float[] nextX = new float[256];
+    private float[] nextY = new float[256];
+    private boolean[] moved = new boolean[256];
+
+    // for the tick thread
+    private final SteeringContext context = new SteeringContext();
+    private final Vector2 position = new Vector2();
+
+    /**
+     * @param random where the enemies' random numbers come from
+     */
+    public EnemyAi(SimulationRandom random) {
+        this(random, Integer.getInteger("killthemall.aiParallelThreshold", 256));
+    }
+
+    public EnemyAi(SimulationRandom random, int parallelThreshold) {
+        this.seeds = random;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Prepares the state of an enemy for its current behavior. Called when
+     * it spawns and whenever its behavior changes.
+     */
+    public void attach(Enemy e) {
+        if (e.getSlot() < 0) {
+            e.setSlot(states.allocate(seeds.nextLong()));
+        }
+        if (e.getBehaviorStrategy() != null) {
+            e.getBehaviorStrategy().initState(e.getSlot(), states);
+        }
+    }
+
+    /**
+     * Gives the state of a dead enemy back.
+     */
+    public void detach(Enemy e) {
+        if (e.getSlot() >= 0) {
+            states.free(e.getSlot());
+            e.setSlot(-1);
+        }
+    }
+
+    /**
+     * Moves every visible enemy. Players must not change while this runs.
+     */
+    public void update(List<Enemy> enemies, List<Player> players, float deltaTime) {
+        int n = enemies.size();
+        if (n == 0 || players.isEmpty()) {
+            return;
+        }
+        ensureCapacity(n);
+        targets.rebuild(players);
+        context.begin(targets, states, deltaTime);
+        this.enemies = enemies;
+        this.deltaTime = deltaTime;
+        try {
+            if (n < parallelThreshold || POOL.getParallelism() < 2) {
+                evaluate(0, n, context, position);
+            } else {
+                POOL.invoke(new Batch(0, n));
+            }
+            apply(n);
+        } finally {
+            this.enemies = null;
+        }
+    }
+
+    /**
+     * Worker threads of the pool shared by every world.
+     */
+    public static int getParallelism() {
+        return POOL.getParallelism();
+    }
+
+    private void evaluate(int from, int to, SteeringContext context, Vector2 position) {
+        for (int i = from; i < to; i++) {
+            Enemy e = enemies.get(i);
+            EnemyBehaviorStrategy strategy = e.getBehaviorStrategy();
+            moved[i] = e.isVisible() && strategy != null && e.getSlot() >= 0;
+            if (moved[i]) {
+                position.set(e.getPosition());
+                strategy.behaveDifferently(position, e.getSlot(), context);
+                nextX[i] = position.x;
+                nextY[i] = position.y;
+            }
+        }
+    }
+
+    private void apply(int n) {
+        for (int i = 0; i < n; i++) {
+            if (moved[i]) {
+                enemies.get(i).moveTo(nextX[i], nextY[i]);
+            }
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (n > nextX.length) {
+            int capacity = Math.max(n, nextX.length * 2);
+            nextX = new float[capacity];
+            nextY = new float[capacity];
+            moved = new boolean[capacity];
+        }
+    }
+
+    private static ForkJoinPool createPool() {
+        int threads = Integer.getInteger("killthemall.aiThreads", Runtime.getRuntime().availableProcessors());
+        return new ForkJoinPool(Math.max(1, threads), pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("enemy-ai-" + t.getPoolIndex());
+            return t;
+        }, null, false);
+    }
+
+    /**
+     * Splits a range of enemies in halves until it is one batch long.
+     */
+    private final class Batch extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+
+        Batch(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH) {
+                Worker worker = WORKERS.get();
+                worker.context.begin(targets, states, deltaTime);
+                evaluate(from, to, worker.context, worker.position);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Batch(from, mid), new Batch(mid, to));
+        }
+    }
+
+    private static final class Worker {
+        final SteeringContext context = new SteeringContext();
+        final Vector2 position = new Vector2();
+    }
+}
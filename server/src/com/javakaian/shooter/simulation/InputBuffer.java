@@ -0,0 +1,110 @@
+package com.javakaian.shooter.simulation;
+
+import com.badlogic.gdx.math.Vector2;
+import com.javakaian.shooter.PlayerMovement;
+
+/**
+ * Input commands of one player that arrived but were not applied yet.
+ * <p>
+ * Commands are applied at the rate they were taken on the client, one per
+ * {@link PlayerMovement#STEP} of simulated time, no matter how they were
+ * spread over the packets. Every tick adds its simulated time to a budget and
+ * every command applied spends a step of it. Time passing while no commands
+ * wait is banked, up to {@link #MAX_BURST} steps, so commands held up by
+ * network jitter are caught up once they arrive. Over any stretch of time a
+ * player never moves more than that stretch plus the burst allows.
+ * <p>
+ * A player that sends faster than that gains no speed. Once the due commands
+ * are applied, no more than {@link #MAX_BACKLOG} may still wait, older ones
+ * are dropped without moving the player.
+ * <p>
+ * Only meant to be used from the game loop thread.
+ */
+public class InputBuffer {
+
+    private static final int CAPACITY = 32;
+    /** Steps of simulated time that can be banked while no commands wait. */
+    static final int MAX_BURST = 8;
+    /** Commands that may wait after a tick, about 130 ms. */
+    static final int MAX_BACKLOG = 8;
+    // ticks are not exact multiples of STEP in floats
+    private static final float EPSILON = 1e-4f;
+
+    private final byte[] buttons = new byte[CAPACITY];
+    private final int[] sequences = new int[CAPACITY];
+
+    private int lastReceived;
+    private int lastApplied;
+    private float budget;
+    private float aimAngle;
+    private long dropped;
+
+    /**
+     * Stores the commands of a message that are not known yet.
+     */
+    public void offer(int firstSequence, byte[] commands, float aimAngle) {
+        if (commands == null) {
+            return;
+        }
+        for (int i = 0; i < commands.length; i++) {
+            int sequence = firstSequence + i;
+            if (sequence <= lastReceived) {
+                continue;
+            }
+            sequences[sequence % CAPACITY] = sequence;
+            buttons[sequence % CAPACITY] = commands[i];
+            lastReceived = sequence;
+        }
+        if (lastReceived - lastApplied > CAPACITY) {
+            dropped += lastReceived - lastApplied - CAPACITY;
+            lastApplied = lastReceived - CAPACITY;
+        }
+        this.aimAngle = aimAngle;
+    }
+
+    /**
+     * Moves the player by the commands due in this tick.
+     *
+     * @param speed world units per second
+     */
+    public void apply(Vector2 position, float speed, float deltaTime) {
+        budget = Math.min(budget + deltaTime, MAX_BURST * PlayerMovement.STEP);
+
+        while (budget + EPSILON >= PlayerMovement.STEP && lastApplied < lastReceived) {
+            int sequence = ++lastApplied;
+            // commands lost on the way are simply skipped
+            if (sequences[sequence % CAPACITY] != sequence) {
+                continue;
+            }
+            int b = buttons[sequence % CAPACITY];
+            position.x += PlayerMovement.dx(b, speed);
+            position.y += PlayerMovement.dy(b, speed);
+            budget -= PlayerMovement.STEP;
+        }
+
+        // the client runs ahead of the simulation, it gets no time for these
+        int backlog = lastReceived - lastApplied;
+        if (backlog > MAX_BACKLOG) {
+            dropped += backlog - MAX_BACKLOG;
+            lastApplied = lastReceived - MAX_BACKLOG;
+        }
+    }
+
+    /**
+     * Commands dropped because too many were waiting.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Sequence number of the last command applied, 0 before the first one.
+     */
+    public int getLastApplied() {
+        return lastApplied;
+    }
+
+    public float getAimAngle() {
+        return aimAngle;
+    }
+}
@@ -0,0 +1,80 @@
+package com.javakaian.shooter.simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random numbers for the game simulation: fast, never blocking, and the same
+ * sequence every time for the same seed.
+ * <p>
+ * Backed by {@link SplittableRandom}, nothing here is meant to be
+ * unpredictable to players. Each part of the world that draws numbers gets
+ * its own stream with {@link #split()}, so how many numbers one part draws
+ * does not change what the others get. A match started with the same seed
+ * and fed the same inputs plays out the same way.
+ * <p>
+ * One instance belongs to one thread, split it to hand numbers to another.
+ */
+public class SimulationRandom {
+
+    private final long seed;
+    private final SplittableRandom random;
+
+    public SimulationRandom(long seed) {
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+    }
+
+    private SimulationRandom(SplittableRandom random) {
+        this.seed = random.nextLong();
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * A seed for a new match, different every time.
+     */
+    public static long newSeed() {
+        return new SplittableRandom().nextLong();
+    }
+
+    /**
+     * Derives a seed from a base seed and a name, e.g. one per room from
+     * the server's seed.
+     */
+    public static long derive(long seed, String name) {
+        return new SplittableRandom(seed ^ name.hashCode() * 0x9E3779B97F4A7C15L).nextLong();
+    }
+
+    /**
+     * A new independent stream, for another part of the world or another
+     * thread. Depends only on the numbers drawn from this one so far.
+     */
+    public SimulationRandom split() {
+        return new SimulationRandom(random);
+    }
+
+    /**
+     * The seed this stream started from.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    public long nextLong() {
+        return random.nextLong();
+    }
+
+    /**
+     * Uniform in [0, 1).
+     */
+    public float nextFloat() {
+        return random.nextFloat();
+    }
+
+    public boolean nextBoolean() {
+        return random.nextBoolean();
+    }
+}
@@ -0,0 +1,231 @@
+package com.javakaian.shooter.spatial;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid used as the broad phase for collision checks.
+ * <p>
+ * The world is split into square cells of {@code cellSize} units. Every item
+ * inserted with its bounding rectangle is linked into each cell it covers. Cells
+ * are hashed into a fixed bucket table, so the grid works for any world size
+ * without allocating per cell. A query only visits the cells covered by the
+ * query rectangle and returns the indices of the candidates found there.
+ * <p>
+ * Candidates are returned in insertion order. When the grid is filled from a
+ * list, the candidates can be walked exactly like the list itself, which keeps
+ * "first overlap wins" logic identical to a brute-force loop. The grid only
+ * narrows the search; callers still have to test the real overlap.
+ * <p>
+ * The grid is meant to be cleared and rebuilt every tick. All storage is
+ * reused between ticks and only grows when the entity count grows.
+ */
+public class SpatialGrid<T> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final float cellSize;
+    private final int bucketMask;
+
+    /** First entry index of every bucket, -1 if empty. */
+    private final int[] bucketHead;
+
+    /** Entry storage. One entry per (item, covered cell) pair. */
+    private int[] entryItem;
+    private int[] entryCellX;
+    private int[] entryCellY;
+    private int[] entryNext;
+    private int entryCount;
+
+    /** Item storage, indexed by insertion order. */
+    private Object[] items;
+    private int[] itemStamp;
+    private int itemCount;
+
+    private int queryStamp;
+
+    /**
+     * @param cellSize    cell edge length in world units. Should be close to the
+     *                    size of the largest common entity.
+     * @param bucketCount number of hash buckets, rounded up to a power of two.
+     */
+    public SpatialGrid(float cellSize, int bucketCount) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+
+        int buckets = Integer.highestOneBit(Math.max(16, bucketCount - 1)) << 1;
+        this.bucketMask = buckets - 1;
+        this.bucketHead = new int[buckets];
+        Arrays.fill(bucketHead, -1);
+
+        entryItem = new int[INITIAL_CAPACITY];
+        entryCellX = new int[INITIAL_CAPACITY];
+        entryCellY = new int[INITIAL_CAPACITY];
+        entryNext = new int[INITIAL_CAPACITY];
+
+        items = new Object[INITIAL_CAPACITY];
+        itemStamp = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Removes every item. Storage is kept for the next rebuild.
+     */
+    public void clear() {
+        for (int i = 0; i < entryCount; i++) {
+            bucketHead[bucket(entryCellX[i], entryCellY[i])] = -1;
+        }
+        Arrays.fill(items, 0, itemCount, null);
+        entryCount = 0;
+        itemCount = 0;
+    }
+
+    /**
+     * Adds an item with the given bounds. Bounds are copied, later changes to
+     * the rectangle are not seen by the grid.
+     *
+     * @return index of the item, equal to the number of items inserted before it
+     */
+    public int insert(T item, Rectangle bounds) {
+        return insert(item, bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    /**
+     * Adds an item with the given bounds.
+     *
+     * @return index of the item, equal to the number of items inserted before it
+     */
+    public int insert(T item, float x, float y, float width, float height) {
+        if (itemCount == items.length) {
+            growItems();
+        }
+        int index = itemCount++;
+        items[index] = item;
+        itemStamp[index] = 0;
+
+        int minX = cell(x);
+        int minY = cell(y);
+        int maxX = cell(x + width);
+        int maxY = cell(y + height);
+
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                link(index, cx, cy);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Collects the indices of all items sharing a cell with the given area.
+     * The result is cleared first and is sorted in insertion order without
+     * duplicates.
+     *
+     * @return number of candidates found
+     */
+    public int query(Rectangle area, IntArray result) {
+        return query(area.x, area.y, area.width, area.height, result);
+    }
+
+    /**
+     * Collects the indices of all items sharing a cell with the given area.
+     * The result is cleared first and is sorted in insertion order without
+     * duplicates.
+     *
+     * @return number of candidates found
+     */
+    public int query(float x, float y, float width, float height, IntArray result) {
+        result.clear();
+        if (itemCount == 0) {
+            return 0;
+        }
+
+        int stamp = nextStamp();
+        int minX = cell(x);
+        int minY = cell(y);
+        int maxX = cell(x + width);
+        int maxY = cell(y + height);
+
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                for (int e = bucketHead[bucket(cx, cy)]; e != -1; e = entryNext[e]) {
+                    if (entryCellX[e] != cx || entryCellY[e] != cy) {
+                        continue;
+                    }
+                    int item = entryItem[e];
+                    if (itemStamp[item] != stamp) {
+                        itemStamp[item] = stamp;
+                        result.add(item);
+                    }
+                }
+            }
+        }
+
+        if (result.size > 1) {
+            result.sort();
+        }
+        return result.size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) items[index];
+    }
+
+    public int size() {
+        return itemCount;
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    private void link(int item, int cx, int cy) {
+        if (entryCount == entryItem.length) {
+            growEntries();
+        }
+        int e = entryCount++;
+        int b = bucket(cx, cy);
+        entryItem[e] = item;
+        entryCellX[e] = cx;
+        entryCellY[e] = cy;
+        entryNext[e] = bucketHead[b];
+        bucketHead[b] = e;
+    }
+
+    private int nextStamp() {
+        queryStamp++;
+        if (queryStamp == 0) {
+            // Wrapped around, old stamps could collide with new ones.
+            Arrays.fill(itemStamp, 0);
+            queryStamp = 1;
+        }
+        return queryStamp;
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private int bucket(int cx, int cy) {
+        int h = cx * 0x9E3779B1 ^ cy * 0x85EBCA77;
+        return (h ^ (h >>> 16)) & bucketMask;
+    }
+
+    private void growEntries() {
+        int capacity = entryItem.length * 2;
+        entryItem = Arrays.copyOf(entryItem, capacity);
+        entryCellX = Arrays.copyOf(entryCellX, capacity);
+        entryCellY = Arrays.copyOf(entryCellY, capacity);
+        entryNext = Arrays.copyOf(entryNext, capacity);
+    }
+
+    private void growItems() {
+        int capacity = items.length * 2;
+        items = Arrays.copyOf(items, capacity);
+        itemStamp = Arrays.copyOf(itemStamp, capacity);
+    }
+}
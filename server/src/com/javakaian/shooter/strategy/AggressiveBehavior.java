@@ -1,9 +1,6 @@
 package com.javakaian.shooter.strategy;
 
 import com.badlogic.gdx.math.Vector2;
-import com.javakaian.shooter.shapes.Player;
-
-import java.util.List;
 
 /**
  * Aggressive behavior - chases the nearest player directly.
@@ -14,30 +11,21 @@ public class AggressiveBehavior implements EnemyBehaviorStrategy {
     private static final float SPEED = 150f;
 
     @Override
-    public Vector2 behaveDifferently(Vector2 currentPosition, List<Player> players, float deltaTime) {
-        if (players.isEmpty()) {
-            return currentPosition;
-        }
+    public void behaveDifferently(Vector2 position, int slot, SteeringContext context) {
+        PlayerTargets targets = context.getTargets();
 
         // Find nearest player
-        Player nearestPlayer = null;
-        float minDistance = Float.MAX_VALUE;
-
-        for (Player player : players) {
-            float distance = currentPosition.dst(player.getPosition());
-            if (distance < minDistance) {
-                minDistance = distance;
-                nearestPlayer = player;
-            }
-        }
-
-        if (nearestPlayer != null) {
-            // Move towards nearest player
-            Vector2 direction = new Vector2(nearestPlayer.getPosition()).sub(currentPosition).nor();
-            currentPosition.add(direction.scl(SPEED * deltaTime));
+        int nearest = targets.nearest(position.x, position.y);
+        if (nearest < 0) {
+            return;
         }
 
-        return currentPosition;
+        // Move towards nearest player
+        Vector2 direction = context.direction
+                .set(targets.getX(nearest), targets.getY(nearest))
+                .sub(position)
+                .nor();
+        position.add(direction.scl(SPEED * context.getDeltaTime()));
     }
 
     @Override
@@ -1,9 +1,7 @@
 package com.javakaian.shooter.strategy;
 
 import com.badlogic.gdx.math.Vector2;
-import com.javakaian.shooter.shapes.Player;
-
-import java.util.List;
+import com.badlogic.gdx.utils.IntArray;
 
 /**
  * Defensive behavior - tries to maintain distance from players.
@@ -15,31 +13,32 @@ public class DefensiveBehavior implements EnemyBehaviorStrategy {
     private static final float SAFE_DISTANCE = 300f;
 
     @Override
-    public Vector2 behaveDifferently(Vector2 currentPosition, List<Player> players, float deltaTime) {
-        if (players.isEmpty()) {
-            return currentPosition;
-        }
+    public void behaveDifferently(Vector2 position, int slot, SteeringContext context) {
+        PlayerTargets targets = context.getTargets();
 
         // Calculate repulsion vector from all nearby players
-        Vector2 repulsion = new Vector2(0, 0);
+        Vector2 repulsion = context.movement.setZero();
+        IntArray near = context.found;
+        targets.within(position.x, position.y, SAFE_DISTANCE, near);
 
-        for (Player player : players) {
-            float distance = currentPosition.dst(player.getPosition());
+        for (int k = 0; k < near.size; k++) {
+            int player = near.get(k);
+            Vector2 awayDirection = context.direction
+                    .set(position)
+                    .sub(targets.getX(player), targets.getY(player));
+            float distance = awayDirection.len();
 
             // If player is too close, move away
-            if (distance < SAFE_DISTANCE && distance > 0) {
-                Vector2 awayDirection = new Vector2(currentPosition).sub(player.getPosition()).nor();
+            if (distance > 0) {
                 float repulsionStrength = (SAFE_DISTANCE - distance) / SAFE_DISTANCE;
-                repulsion.add(awayDirection.scl(repulsionStrength));
+                repulsion.add(awayDirection.nor().scl(repulsionStrength));
             }
         }
 
         if (repulsion.len() > 0) {
             repulsion.nor();
-            currentPosition.add(repulsion.scl(SPEED * deltaTime));
+            position.add(repulsion.scl(SPEED * context.getDeltaTime()));
         }
-
-        return currentPosition;
     }
 
     @Override
@@ -1,25 +1,33 @@
 package com.javakaian.shooter.strategy;
 
 import com.badlogic.gdx.math.Vector2;
-import com.javakaian.shooter.shapes.Player;
-
-import java.util.List;
 
 /**
  * Strategy interface for enemy behavior.
  * Defines the contract for different enemy AI behaviors.
+ * <p>
+ * One instance is shared by every enemy using it, from several threads at
+ * once. Anything that has to be remembered about an enemy goes into its slot
+ * of {@link EnemyStates}, never into the strategy itself.
  */
 public interface EnemyBehaviorStrategy {
 
     /**
-     * Calculates the next position for the enemy based on its behavior strategy.
+     * Moves the enemy by one step according to this behavior. Should not
+     * allocate, the context has scratch vectors for the steering math.
      *
-     * @param currentPosition The current position of the enemy
-     * @param players         List of all active players
-     * @param deltaTime       Time elapsed since last update
-     * @return The new position vector for the enemy
+     * @param position The current position of the enemy, updated in place
+     * @param slot     The enemy's slot in {@link SteeringContext#getStates()}
+     * @param context  Players of this tick, step length and scratch space
+     */
+    void behaveDifferently(Vector2 position, int slot, SteeringContext context);
+
+    /**
+     * Sets up the state of an enemy that starts using this behavior, when it
+     * spawns or switches behaviors.
      */
-    Vector2 behaveDifferently(Vector2 currentPosition, List<Player> players, float deltaTime);
+    default void initState(int slot, EnemyStates states) {
+    }
 
     /**
      * Gets the name of this behavior strategy.
@@ -0,0 +1,121 @@
+package com.javakaian.shooter.strategy;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * Behavior state of every enemy, one slot per enemy, stored field by field in
+ * primitive arrays.
+ * <p>
+ * Strategies are shared by all enemies using them and keep nothing
+ * themselves. Whatever a strategy has to remember about an enemy between two
+ * ticks goes into the enemy's slot: a direction, a timer, a cooldown and a
+ * random number generator. Every enemy only touches its own slot, so enemies
+ * can be steered in parallel, and each one decides on its own instead of in
+ * lockstep with the others.
+ * <p>
+ * Slots are taken with {@link #allocate(long)} when an enemy spawns and given
+ * back with {@link #free(int)} when it dies. Freed slots are reused, so the
+ * arrays only grow with the number of enemies alive at the same time.
+ */
+public class EnemyStates {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private float[] directionX = new float[INITIAL_CAPACITY];
+    private float[] directionY = new float[INITIAL_CAPACITY];
+    private float[] timer = new float[INITIAL_CAPACITY];
+    private float[] cooldown = new float[INITIAL_CAPACITY];
+    private long[] random = new long[INITIAL_CAPACITY];
+
+    private int used;
+    private final IntArray freeSlots = new IntArray();
+
+    /**
+     * Takes a slot with every field cleared.
+     *
+     * @param seed seed of the slot's random numbers
+     */
+    public int allocate(long seed) {
+        int slot;
+        if (freeSlots.size > 0) {
+            slot = freeSlots.pop();
+        } else {
+            if (used == timer.length) {
+                grow();
+            }
+            slot = used++;
+        }
+        directionX[slot] = 0;
+        directionY[slot] = 0;
+        timer[slot] = 0;
+        cooldown[slot] = 0;
+        random[slot] = seed;
+        return slot;
+    }
+
+    public void free(int slot) {
+        freeSlots.add(slot);
+    }
+
+    public float getDirectionX(int slot) {
+        return directionX[slot];
+    }
+
+    public float getDirectionY(int slot) {
+        return directionY[slot];
+    }
+
+    public void setDirection(int slot, float x, float y) {
+        directionX[slot] = x;
+        directionY[slot] = y;
+    }
+
+    public float getTimer(int slot) {
+        return timer[slot];
+    }
+
+    public void setTimer(int slot, float value) {
+        timer[slot] = value;
+    }
+
+    public float getCooldown(int slot) {
+        return cooldown[slot];
+    }
+
+    public void setCooldown(int slot, float value) {
+        cooldown[slot] = value;
+    }
+
+    /**
+     * Next random float of the slot, in [0, 1).
+     */
+    public float nextFloat(int slot) {
+        return (nextLong(slot) >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * Next random int of the slot, in [0, bound).
+     */
+    public int nextInt(int slot, int bound) {
+        return (int) (((nextLong(slot) >>> 32) * bound) >>> 32);
+    }
+
+    // SplitMix64, a long of state and a few multiplications per number
+    private long nextLong(int slot) {
+        long z = (random[slot] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private void grow() {
+        int capacity = timer.length * 2;
+        directionX = Arrays.copyOf(directionX, capacity);
+        directionY = Arrays.copyOf(directionY, capacity);
+        timer = Arrays.copyOf(timer, capacity);
+        cooldown = Arrays.copyOf(cooldown, capacity);
+        random = Arrays.copyOf(random, capacity);
+    }
+}
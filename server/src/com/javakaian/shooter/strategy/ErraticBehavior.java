@@ -1,55 +1,59 @@
 package com.javakaian.shooter.strategy;
 
 import com.badlogic.gdx.math.Vector2;
-import com.javakaian.shooter.shapes.Player;
-
-import java.security.SecureRandom;
-import java.util.List;
 
 /**
  * Erratic behavior - random unpredictable movements.
  * This strategy makes enemies move in random directions, occasionally towards players.
+ * <p>
+ * Every enemy keeps its own direction, timer and random numbers in its
+ * {@link EnemyStates} slot, so each one changes course on its own.
  */
 public class ErraticBehavior implements EnemyBehaviorStrategy {
 
     private static final float SPEED = 80f;
-    private Vector2 currentDirection;
-    private float directionChangeTimer = 0f;
-    private float directionChangeCooldown = 1.5f; // Change direction every 1.5 seconds
-    private SecureRandom random;
-
-    public ErraticBehavior() {
-        this.random = new SecureRandom();
-        this.currentDirection = randomDirection();
+    private static final float FIRST_COOLDOWN = 1.5f; // Change direction after 1.5 seconds
+
+    @Override
+    public void initState(int slot, EnemyStates states) {
+        states.setTimer(slot, 0f);
+        states.setCooldown(slot, FIRST_COOLDOWN);
+        randomDirection(slot, states);
     }
 
     @Override
-    public Vector2 behaveDifferently(Vector2 currentPosition, List<Player> players, float deltaTime) {
-        directionChangeTimer += deltaTime;
+    public void behaveDifferently(Vector2 position, int slot, SteeringContext context) {
+        PlayerTargets targets = context.getTargets();
+        EnemyStates states = context.getStates();
+        float timer = states.getTimer(slot) + context.getDeltaTime();
 
         // Randomly change direction
-        if (directionChangeTimer >= directionChangeCooldown) {
-            directionChangeTimer = 0f;
-            directionChangeCooldown = 1f + random.nextFloat() * 2f; // Random between 1-3 seconds
+        if (timer >= states.getCooldown(slot)) {
+            timer = 0f;
+            states.setCooldown(slot, 1f + states.nextFloat(slot) * 2f); // Random between 1-3 seconds
 
             // 30% chance to move towards a player, 70% chance random
-            if (!players.isEmpty() && random.nextFloat() < 0.3f) {
-                Player randomPlayer = players.get(random.nextInt(players.size()));
-                currentDirection = new Vector2(randomPlayer.getPosition()).sub(currentPosition).nor();
+            if (!targets.isEmpty() && states.nextFloat(slot) < 0.3f) {
+                int randomPlayer = states.nextInt(slot, targets.size());
+                Vector2 direction = context.direction
+                        .set(targets.getX(randomPlayer), targets.getY(randomPlayer))
+                        .sub(position)
+                        .nor();
+                states.setDirection(slot, direction.x, direction.y);
             } else {
-                currentDirection = randomDirection();
+                randomDirection(slot, states);
             }
         }
+        states.setTimer(slot, timer);
 
         // Move in current direction
-        currentPosition.add(currentDirection.cpy().scl(SPEED * deltaTime));
-
-        return currentPosition;
+        float step = SPEED * context.getDeltaTime();
+        position.add(states.getDirectionX(slot) * step, states.getDirectionY(slot) * step);
     }
 
-    private Vector2 randomDirection() {
-        float angle = random.nextFloat() * (float) Math.PI * 2;
-        return new Vector2((float) Math.cos(angle), (float) Math.sin(angle));
+    private static void randomDirection(int slot, EnemyStates states) {
+        float angle = states.nextFloat(slot) * (float) Math.PI * 2;
+        states.setDirection(slot, (float) Math.cos(angle), (float) Math.sin(angle));
     }
 
     @Override
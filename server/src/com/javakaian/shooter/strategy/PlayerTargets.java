@@ -0,0 +1,230 @@
+package com.javakaian.shooter.strategy;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.javakaian.shooter.shapes.Player;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Positions of the players enemies can go after, indexed once per tick so
+ * strategies can ask for the nearest player or the players around a point
+ * without scanning all of them.
+ * <p>
+ * Players are bucketed into a dense grid over the area they cover. A nearest
+ * query walks rings of cells outward from the point and stops once no
+ * unvisited cell can hold anything closer. Players keep the index they had in
+ * the list given to {@link #rebuild(List)}, and ties are won by the lower
+ * index, so the answers are the same as those of a plain loop over the list.
+ * <p>
+ * Rebuilding reuses the arrays of the previous tick. Queries only read, any
+ * number of threads may run them at once between two rebuilds.
+ */
+public class PlayerTargets {
+
+    private static final float CELL_SIZE = 256f;
+    /** Cells are made larger when players are spread so far apart that more would be needed. */
+    private static final int MAX_CELLS = 4096;
+
+    private float[] x = new float[16];
+    private float[] y = new float[16];
+    private int count;
+
+    private float cellSize = CELL_SIZE;
+    private float originX;
+    private float originY;
+    private int columns;
+    private int rows;
+    // players of cell c are order[cellStart[c]] .. order[cellStart[c + 1] - 1], in index order
+    private int[] cellStart = new int[2];
+    private int[] order = new int[16];
+    private int[] cellOf = new int[16];
+
+    /**
+     * Takes the current positions of the players. Has to be called every
+     * tick before the strategies run.
+     */
+    public void rebuild(List<Player> players) {
+        count = players.size();
+        if (count > x.length) {
+            int capacity = Math.max(count, x.length * 2);
+            x = new float[capacity];
+            y = new float[capacity];
+            order = new int[capacity];
+            cellOf = new int[capacity];
+        }
+        if (count == 0) {
+            return;
+        }
+
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            Player p = players.get(i);
+            x[i] = p.getPosition().x;
+            y[i] = p.getPosition().y;
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+
+        cellSize = CELL_SIZE;
+        while ((long) cellsAlong(maxX - minX) * cellsAlong(maxY - minY) > MAX_CELLS) {
+            cellSize *= 2;
+        }
+        originX = minX;
+        originY = minY;
+        columns = cellsAlong(maxX - minX);
+        rows = cellsAlong(maxY - minY);
+
+        // counting sort by cell, stable so every cell lists its players in index order
+        int cells = columns * rows;
+        if (cells + 1 > cellStart.length) {
+            cellStart = new int[Math.max(cells + 1, cellStart.length * 2)];
+        }
+        Arrays.fill(cellStart, 0, cells + 1, 0);
+        for (int i = 0; i < count; i++) {
+            cellOf[i] = column(x[i]) + row(y[i]) * columns;
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        for (int i = 0; i < count; i++) {
+            order[cellStart[cellOf[i]]++] = i;
+        }
+        // the fill above moved every start to the next cell's, shift them back
+        for (int c = cells; c > 0; c--) {
+            cellStart[c] = cellStart[c - 1];
+        }
+        cellStart[0] = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public float getX(int player) {
+        return x[player];
+    }
+
+    public float getY(int player) {
+        return y[player];
+    }
+
+    /**
+     * Index of the player closest to the given point, -1 if there are none.
+     */
+    public int nearest(float px, float py) {
+        if (count == 0) {
+            return -1;
+        }
+        int cx = clamp(column(px), columns);
+        int cy = clamp(row(py), rows);
+        int best = -1;
+        float bestDistance = Float.MAX_VALUE;
+
+        for (int ring = 0; ; ring++) {
+            int minX = cx - ring;
+            int maxX = cx + ring;
+            int minY = cy - ring;
+            int maxY = cy + ring;
+            for (int row = Math.max(0, minY); row <= Math.min(rows - 1, maxY); row++) {
+                boolean edgeRow = row == minY || row == maxY;
+                for (int column = Math.max(0, minX); column <= Math.min(columns - 1, maxX); column++) {
+                    // only the cells on the ring, the inner ones were visited already
+                    if (!edgeRow && column != minX && column != maxX) {
+                        continue;
+                    }
+                    int cell = column + row * columns;
+                    for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                        int i = order[k];
+                        float dx = x[i] - px;
+                        float dy = y[i] - py;
+                        float d = dx * dx + dy * dy;
+                        if (d < bestDistance || (d == bestDistance && i < best)) {
+                            bestDistance = d;
+                            best = i;
+                        }
+                    }
+                }
+            }
+            // closest any cell beyond this ring can be
+            float beyond = Float.MAX_VALUE;
+            if (minX > 0) {
+                beyond = Math.min(beyond, px - (originX + minX * cellSize));
+            }
+            if (maxX < columns - 1) {
+                beyond = Math.min(beyond, originX + (maxX + 1) * cellSize - px);
+            }
+            if (minY > 0) {
+                beyond = Math.min(beyond, py - (originY + minY * cellSize));
+            }
+            if (maxY < rows - 1) {
+                beyond = Math.min(beyond, originY + (maxY + 1) * cellSize - py);
+            }
+            if (beyond == Float.MAX_VALUE) {
+                return best;
+            }
+            beyond = Math.max(0, beyond);
+            if (best >= 0 && beyond * beyond > bestDistance) {
+                return best;
+            }
+        }
+    }
+
+    /**
+     * Collects the players within {@code radius} of the given point, in index
+     * order. The result is cleared first.
+     */
+    public void within(float px, float py, float radius, IntArray result) {
+        result.clear();
+        if (count == 0) {
+            return;
+        }
+        float radius2 = radius * radius;
+        int minX = clamp(column(px - radius), columns);
+        int maxX = clamp(column(px + radius), columns);
+        int minY = clamp(row(py - radius), rows);
+        int maxY = clamp(row(py + radius), rows);
+        for (int row = minY; row <= maxY; row++) {
+            for (int column = minX; column <= maxX; column++) {
+                int cell = column + row * columns;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int i = order[k];
+                    float dx = x[i] - px;
+                    float dy = y[i] - py;
+                    if (dx * dx + dy * dy < radius2) {
+                        result.add(i);
+                    }
+                }
+            }
+        }
+        if (result.size > 1) {
+            result.sort();
+        }
+    }
+
+    private int cellsAlong(float extent) {
+        return (int) (extent / cellSize) + 1;
+    }
+
+    private int column(float px) {
+        return (int) Math.floor((px - originX) / cellSize);
+    }
+
+    private int row(float py) {
+        return (int) Math.floor((py - originY) / cellSize);
+    }
+
+    private static int clamp(int cell, int cells) {
+        return Math.max(0, Math.min(cells - 1, cell));
+    }
+}
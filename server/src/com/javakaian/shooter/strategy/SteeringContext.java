@@ -0,0 +1,48 @@
+package com.javakaian.shooter.strategy;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * What a strategy gets to move an enemy by one step: the players of this
+ * tick, the state of every enemy and scratch space for the steering math, so
+ * strategies never have to allocate.
+ * <p>
+ * Every thread that runs strategies has its own context. The scratch vectors
+ * and the list may be overwritten freely during a call, nothing in them
+ * survives to the next one.
+ */
+public class SteeringContext {
+
+    public final Vector2 direction = new Vector2();
+    public final Vector2 tangent = new Vector2();
+    public final Vector2 movement = new Vector2();
+    /** Result list for {@link PlayerTargets#within}. */
+    public final IntArray found = new IntArray();
+
+    private PlayerTargets targets;
+    private EnemyStates states;
+    private float deltaTime;
+
+    /**
+     * Points the context at the players, enemy states and step length of the
+     * running tick.
+     */
+    public void begin(PlayerTargets targets, EnemyStates states, float deltaTime) {
+        this.targets = targets;
+        this.states = states;
+        this.deltaTime = deltaTime;
+    }
+
+    public PlayerTargets getTargets() {
+        return targets;
+    }
+
+    public EnemyStates getStates() {
+        return states;
+    }
+
+    public float getDeltaTime() {
+        return deltaTime;
+    }
+}
@@ -0,0 +1,260 @@
+package com.javakaian.shooter.tick;
+
+import com.javakaian.shooter.metrics.RoomMetrics;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-timestep game loop of the server.
+ * <p>
+ * Every tick advances the game by exactly {@code 1 / tickRate} seconds,
+ * whatever the real time between two ticks was, so the simulation only
+ * depends on the number of ticks run and not on scheduler jitter. Real time
+ * is collected in an accumulator and paid off one step at a time.
+ * <p>
+ * When the server falls behind, up to {@code maxCatchUpTicks} steps are run
+ * back to back. Only the last of them sends a snapshot, the others just
+ * simulate. Anything beyond that limit is dropped and reported, the game then
+ * runs slower than real time instead of spiralling further behind. A tick
+ * that takes longer than its budget is reported too, and the following tick
+ * skips its snapshot to give the loop room to recover.
+ * <p>
+ * Settings are read from system properties:
+ * <ul>
+ * <li>{@code killthemall.tickRate}, ticks per second, default 60</li>
+ * <li>{@code killthemall.maxCatchUpTicks}, default 5</li>
+ * <li>{@code killthemall.tickReportSeconds}, interval of the timing summary
+ * in the log, default 10, 0 disables it</li>
+ * <li>{@code killthemall.profileTicks}, runs a {@link TickProfiler} when
+ * true, default false</li>
+ * <li>{@code killthemall.slowTickMillis}, ticks the profiler keeps, default
+ * the tick budget</li>
+ * </ul>
+ */
+public class ServerTickLoop implements Runnable {
+
+    public static final String TICK_RATE_PROPERTY = "killthemall.tickRate";
+    public static final String MAX_CATCH_UP_PROPERTY = "killthemall.maxCatchUpTicks";
+    public static final String REPORT_INTERVAL_PROPERTY = "killthemall.tickReportSeconds";
+    public static final String PROFILE_PROPERTY = "killthemall.profileTicks";
+    public static final String SLOW_TICK_PROPERTY = "killthemall.slowTickMillis";
+
+    // wake up a little early and spin the rest, parking is not that precise
+    private static final long SPIN_NANOS = 200_000L;
+
+    private final Logger logger = Logger.getLogger(ServerTickLoop.class);
+
+    private final TickListener listener;
+    private final int tickRate;
+    private final int maxCatchUpTicks;
+    private final long stepNanos;
+    private final float stepSeconds;
+    private final long reportIntervalNanos;
+
+    private final TickTimings timings = new TickTimings();
+
+    private volatile boolean running;
+
+    // written by the loop only, volatile so other threads can sample them
+    private volatile long tickCount;
+    private volatile long busyNanos;
+    private volatile long overruns;
+    private volatile long droppedTicks;
+    private volatile long skippedBroadcasts;
+    private boolean skipNextBroadcast;
+
+    // gets the timings of every tick, null if nobody is interested
+    private RoomMetrics metrics;
+    // null unless profiling
+    private final TickProfiler profiler;
+
+    public ServerTickLoop(TickListener listener) {
+        this(listener,
+                Integer.getInteger(TICK_RATE_PROPERTY, 60),
+                Integer.getInteger(MAX_CATCH_UP_PROPERTY, 5),
+                Integer.getInteger(REPORT_INTERVAL_PROPERTY, 10));
+    }
+
+    public ServerTickLoop(TickListener listener, int tickRate, int maxCatchUpTicks, int reportIntervalSeconds) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("tickRate must be positive: " + tickRate);
+        }
+        if (maxCatchUpTicks <= 0) {
+            throw new IllegalArgumentException("maxCatchUpTicks must be positive: " + maxCatchUpTicks);
+        }
+        this.listener = listener;
+        this.tickRate = tickRate;
+        this.maxCatchUpTicks = maxCatchUpTicks;
+        this.stepNanos = 1_000_000_000L / tickRate;
+        this.stepSeconds = 1f / tickRate;
+        this.reportIntervalNanos = Math.max(0, reportIntervalSeconds) * 1_000_000_000L;
+        this.profiler = Boolean.getBoolean(PROFILE_PROPERTY) ? new TickProfiler(slowTickNanos()) : null;
+        timings.setProfiler(profiler);
+    }
+
+    private long slowTickNanos() {
+        String millis = System.getProperty(SLOW_TICK_PROPERTY);
+        return millis == null ? stepNanos : (long) (Double.parseDouble(millis) * 1_000_000L);
+    }
+
+    /**
+     * Runs the loop on the calling thread until {@link #stop()} is called.
+     */
+    @Override
+    public void run() {
+        running = true;
+        logger.info("Tick loop started at " + tickRate + " ticks per second");
+
+        long previous = System.nanoTime();
+        long accumulator = stepNanos; // run the first tick right away
+        long lastReport = previous;
+
+        while (running) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            if (accumulator < stepNanos) {
+                waitNanos(stepNanos - accumulator);
+                continue;
+            }
+
+            int due = (int) Math.min(accumulator / stepNanos, Integer.MAX_VALUE);
+            int steps = Math.min(due, maxCatchUpTicks);
+            if (due > steps) {
+                // too far behind, give up on the rest instead of spiralling
+                droppedTicks += due - steps;
+                accumulator -= (due - steps) * stepNanos;
+                logger.warn("Server is " + due + " ticks behind, dropped " + (due - steps));
+            }
+
+            for (int i = 0; i < steps && running; i++) {
+                boolean broadcast = i == steps - 1 && !skipNextBroadcast;
+                if (!broadcast) {
+                    skippedBroadcasts++;
+                }
+                skipNextBroadcast = false;
+
+                long tickNanos = runTick(broadcast);
+                accumulator -= stepNanos;
+
+                if (tickNanos > stepNanos) {
+                    overruns++;
+                    skipNextBroadcast = true;
+                    logger.warn("Tick " + tickCount + " took " + tickNanos / 1_000_000.0
+                            + " ms, budget is " + stepNanos / 1_000_000.0 + " ms (" + timings.summaryOfLast() + ")");
+                }
+            }
+
+            if (reportIntervalNanos > 0 && now - lastReport >= reportIntervalNanos) {
+                lastReport = now;
+                logger.debug(timings.summary() + ", overruns " + overruns + ", dropped " + droppedTicks
+                        + ", skipped snapshots " + skippedBroadcasts);
+                timings.resetWindow();
+            }
+        }
+        logger.info("Tick loop stopped after " + tickCount + " ticks");
+    }
+
+    /**
+     * Runs a single step right away, without looking at the clock. Used by
+     * tools that drive the server faster than real time.
+     */
+    public void step(boolean broadcast) {
+        runTick(broadcast);
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Records the timings of every tick into these metrics. Call before the
+     * loop starts.
+     */
+    public void setMetrics(RoomMetrics metrics) {
+        this.metrics = metrics;
+        if (profiler != null) {
+            profiler.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * The profiler of this loop, null unless {@code killthemall.profileTicks}
+     * is set.
+     */
+    public TickProfiler getProfiler() {
+        return profiler;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public float getStepSeconds() {
+        return stepSeconds;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Wall time spent in ticks since the loop started, in nanoseconds. Two
+     * samples of this and of {@link #getTickCount()} give the average tick
+     * time in between.
+     */
+    public long getBusyNanos() {
+        return busyNanos;
+    }
+
+    public long getOverruns() {
+        return overruns;
+    }
+
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    public long getSkippedBroadcasts() {
+        return skippedBroadcasts;
+    }
+
+    public TickTimings getTimings() {
+        return timings;
+    }
+
+    private long runTick(boolean broadcast) {
+        timings.startTick();
+        if (profiler != null) {
+            profiler.startTick(tickCount + 1, broadcast);
+        }
+        try {
+            listener.tick(stepSeconds, broadcast, timings);
+        } finally {
+            tickCount++;
+        }
+        long nanos = timings.endTick();
+        busyNanos += nanos;
+        if (metrics != null) {
+            metrics.tickEnded(timings);
+        }
+        if (profiler != null) {
+            profiler.endTick(nanos);
+        }
+        return nanos;
+    }
+
+    private static void waitNanos(long nanos) {
+        if (nanos > SPIN_NANOS) {
+            LockSupport.parkNanos(nanos - SPIN_NANOS);
+        } else {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.javakaian.shooter.tick;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning one profiled tick, committed by the {@link TickProfiler}.
+ * The room is the event's thread.
+ */
+@Name("com.javakaian.Tick")
+@Label("Server Tick")
+@Category({"KillThemAll", "Server"})
+@StackTrace(false)
+@Description("One fixed step of a room's game loop")
+class TickEvent extends jdk.jfr.Event {
+
+    @Label("Tick")
+    long tick;
+
+    @Label("Snapshot Sent")
+    boolean broadcast;
+
+    @Label("Players")
+    long players;
+
+    @Label("Enemies")
+    long enemies;
+
+    @Label("Bullets")
+    long bullets;
+}
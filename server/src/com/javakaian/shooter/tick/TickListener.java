@@ -0,0 +1,17 @@
+package com.javakaian.shooter.tick;
+
+/**
+ * Receives the fixed steps of a {@link ServerTickLoop}.
+ */
+public interface TickListener {
+
+    /**
+     * Advances the game by one step.
+     *
+     * @param deltaTime length of the step in seconds, always the same value
+     * @param broadcast false when the loop is behind and the world snapshot
+     *                  of this tick should not be sent
+     * @param timings   per-phase timing of the running tick
+     */
+    void tick(float deltaTime, boolean broadcast, TickTimings timings);
+}
@@ -0,0 +1,15 @@
+package com.javakaian.shooter.tick;
+
+/**
+ * Parts of a server tick that are timed separately.
+ */
+public enum TickPhase {
+    /** Draining and handling queued client messages. */
+    PARSE,
+    /** Moving objects, spawning, reaping and everything else that advances the game. */
+    SIMULATE,
+    /** Collision checks. */
+    COLLIDE,
+    /** Building and sending the world snapshot. */
+    BROADCAST
+}
@@ -0,0 +1,333 @@
+package com.javakaian.shooter.tick;
+
+import com.javakaian.shooter.metrics.Histogram;
+import com.javakaian.shooter.metrics.RoomMetrics;
+import jdk.jfr.EventType;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Opt-in profiler that times every {@link TickSection} of every tick.
+ * <p>
+ * Section times go into histograms, {@link #summary()} turns what was
+ * recorded since its previous call into a flame style breakdown: each phase
+ * with its share of the tick time and percentiles, and the sections below
+ * it, biggest first. A tick slower than the threshold is copied with its
+ * sections and the entity counts into a ring of the last
+ * {@value #SLOW_TICKS}, see {@link #slowTicks()}.
+ * <p>
+ * While a JFR recording is running, every tick and every section is also
+ * committed as a {@link TickEvent} and {@link TickSectionEvent}, so a
+ * recording from a live server shows the ticks of each room thread on a
+ * timeline.
+ * <p>
+ * The tick thread drives the profiler through its {@link TickTimings}, the
+ * histograms and the ring may be read from any thread. Summaries are only
+ * meant to be written by one thread.
+ */
+public class TickProfiler {
+
+    private static final int SLOW_TICKS = 64;
+    private static final int BAR_WIDTH = 20;
+
+    private static final TickSection[] SECTIONS = TickSection.values();
+    private static final TickPhase[] PHASES = TickPhase.values();
+    private static final RoomMetrics.Entity[] ENTITIES = RoomMetrics.Entity.values();
+
+    private static final EventType TICK_EVENTS = EventType.getEventType(TickEvent.class);
+    private static final EventType SECTION_EVENTS = EventType.getEventType(TickSectionEvent.class);
+
+    private final long slowTickNanos;
+
+    private final Histogram tickNanos = new Histogram();
+    private final Histogram[] phaseNanos = new Histogram[PHASES.length];
+    private final Histogram[] sectionNanos = new Histogram[SECTIONS.length];
+
+    // tick thread only
+    private final long[] tickSectionNanos = new long[SECTIONS.length];
+    private final long[] tickPhaseNanos = new long[PHASES.length];
+    private TickSection current;
+    private long sectionStart;
+    private long tick;
+    private boolean broadcast;
+    private TickEvent tickEvent;
+    private TickSectionEvent sectionEvent;
+    private RoomMetrics metrics;
+
+    private final SlowTick[] slowTicks = new SlowTick[SLOW_TICKS];
+    // guarded by slowTicks
+    private long slowTickCount;
+
+    // state of the last summary, only for the thread writing them
+    private Histogram.Counts summaryTicks;
+    private final Histogram.Counts[] summaryPhases = new Histogram.Counts[PHASES.length];
+    private final Histogram.Counts[] summarySections = new Histogram.Counts[SECTIONS.length];
+
+    /**
+     * @param slowTickNanos ticks taking longer than this are kept in the ring
+     */
+    public TickProfiler(long slowTickNanos) {
+        this.slowTickNanos = slowTickNanos;
+        for (int i = 0; i < PHASES.length; i++) {
+            phaseNanos[i] = new Histogram();
+            summaryPhases[i] = phaseNanos[i].copy();
+        }
+        for (int i = 0; i < SECTIONS.length; i++) {
+            sectionNanos[i] = new Histogram();
+            summarySections[i] = sectionNanos[i].copy();
+        }
+        for (int i = 0; i < SLOW_TICKS; i++) {
+            slowTicks[i] = new SlowTick();
+        }
+        summaryTicks = tickNanos.copy();
+    }
+
+    /**
+     * Entity counts of slow ticks and tick events are read from these.
+     * Call before the loop starts.
+     */
+    public void setMetrics(RoomMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    void startTick(long tick, boolean broadcast) {
+        Arrays.fill(tickSectionNanos, 0);
+        this.tick = tick;
+        this.broadcast = broadcast;
+        current = null;
+        if (TICK_EVENTS.isEnabled()) {
+            tickEvent = new TickEvent();
+            tickEvent.begin();
+        }
+    }
+
+    void enter(TickSection section, long now) {
+        closeSection(now);
+        current = section;
+        sectionStart = now;
+        if (SECTION_EVENTS.isEnabled()) {
+            sectionEvent = new TickSectionEvent();
+            sectionEvent.begin();
+        }
+    }
+
+    /**
+     * Closes the running section, the tick's time is final after this.
+     */
+    void exit(long now) {
+        closeSection(now);
+        current = null;
+    }
+
+    void endTick(long nanos) {
+        tickNanos.record(nanos);
+        Arrays.fill(tickPhaseNanos, 0);
+        for (int i = 0; i < SECTIONS.length; i++) {
+            sectionNanos[i].record(tickSectionNanos[i]);
+            tickPhaseNanos[SECTIONS[i].getPhase().ordinal()] += tickSectionNanos[i];
+        }
+        for (int i = 0; i < PHASES.length; i++) {
+            phaseNanos[i].record(tickPhaseNanos[i]);
+        }
+
+        if (nanos > slowTickNanos) {
+            keepSlowTick(nanos);
+        }
+
+        TickEvent event = tickEvent;
+        tickEvent = null;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.tick = tick;
+                event.broadcast = broadcast;
+                event.players = entities(RoomMetrics.Entity.PLAYERS);
+                event.enemies = entities(RoomMetrics.Entity.ENEMIES);
+                event.bullets = entities(RoomMetrics.Entity.BULLETS);
+                event.commit();
+            }
+        }
+    }
+
+    private void closeSection(long now) {
+        if (current == null) {
+            return;
+        }
+        tickSectionNanos[current.ordinal()] += now - sectionStart;
+        TickSectionEvent event = sectionEvent;
+        sectionEvent = null;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.tick = tick;
+                event.section = current.getLabel();
+                event.phase = current.getPhase().name().toLowerCase(Locale.ROOT);
+                event.commit();
+            }
+        }
+    }
+
+    private void keepSlowTick(long nanos) {
+        synchronized (slowTicks) {
+            SlowTick slow = slowTicks[(int) (slowTickCount % SLOW_TICKS)];
+            slow.tick = tick;
+            slow.epochMillis = System.currentTimeMillis();
+            slow.nanos = nanos;
+            slow.broadcast = broadcast;
+            System.arraycopy(tickSectionNanos, 0, slow.sectionNanos, 0, SECTIONS.length);
+            for (int i = 0; i < ENTITIES.length; i++) {
+                slow.entities[i] = entities(ENTITIES[i]);
+            }
+            slowTickCount++;
+        }
+    }
+
+    private long entities(RoomMetrics.Entity entity) {
+        return metrics == null ? 0 : metrics.getEntities(entity);
+    }
+
+    public long getSlowTickNanos() {
+        return slowTickNanos;
+    }
+
+    /** Ticks that took longer than the threshold so far. */
+    public long getSlowTickCount() {
+        synchronized (slowTicks) {
+            return slowTickCount;
+        }
+    }
+
+    /** Time spent in the section, over every tick profiled. */
+    public Histogram getSectionNanos(TickSection section) {
+        return sectionNanos[section.ordinal()];
+    }
+
+    /**
+     * The ticks kept in the ring, oldest first, one per line: when, how
+     * long, the time of every section that ran and the entities alive.
+     */
+    public String slowTicks() {
+        // copied under the lock and formatted outside, the tick thread waits
+        // on it when it keeps a slow tick
+        SlowTick[] copies;
+        synchronized (slowTicks) {
+            long first = Math.max(0, slowTickCount - SLOW_TICKS);
+            copies = new SlowTick[(int) (slowTickCount - first)];
+            for (int i = 0; i < copies.length; i++) {
+                copies[i] = slowTicks[(int) ((first + i) % SLOW_TICKS)].copy();
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        if (copies.length == 0) {
+            sb.append(String.format(Locale.ROOT, "No tick took longer than %.2f ms%n", slowTickNanos / 1e6));
+        }
+        for (SlowTick slow : copies) {
+            sb.append(String.format(Locale.ROOT, "tick %d at %s took %.2f ms%s:", slow.tick,
+                    Instant.ofEpochMilli(slow.epochMillis), slow.nanos / 1e6,
+                    slow.broadcast ? "" : " (no snapshot)"));
+            for (int i = 0; i < SECTIONS.length; i++) {
+                if (slow.sectionNanos[i] > 0) {
+                    sb.append(String.format(Locale.ROOT, " %s %.2f", SECTIONS[i].getLabel(),
+                            slow.sectionNanos[i] / 1e6));
+                }
+            }
+            sb.append(" |");
+            for (int i = 0; i < ENTITIES.length; i++) {
+                sb.append(' ').append(ENTITIES[i].name().toLowerCase(Locale.ROOT))
+                        .append(' ').append(slow.entities[i]);
+            }
+            sb.append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Where the tick time went since the previous call, one line per phase
+     * and below it one per section, e.g.
+     * <pre>
+     * 600 ticks, tick p50/p99/max 0.81/3.20/5.12 ms, 12 slow
+     *   simulate          61.4% ############         p50 0.48  p99 1.90  max 2.75 ms
+     *     objects         30.2% ######               p50 0.25  p99 0.93  max 1.31 ms
+     * </pre>
+     */
+    public String summary() {
+        Histogram.Counts ticks = tickNanos.copy();
+        Histogram.Counts window = ticks.since(summaryTicks);
+        summaryTicks = ticks;
+        double total = Math.max(1, window.getSum());
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%d ticks, tick p50/p99/max %.2f/%.2f/%.2f ms, %d slow",
+                window.getCount(), window.valueAt(50) / 1e6, window.valueAt(99) / 1e6,
+                tickNanos.takeWindowMax() / 1e6, getSlowTickCount()));
+
+        Histogram.Counts[] sections = new Histogram.Counts[SECTIONS.length];
+        long[] sectionMax = new long[SECTIONS.length];
+        for (int i = 0; i < SECTIONS.length; i++) {
+            Histogram.Counts now = sectionNanos[i].copy();
+            sections[i] = now.since(summarySections[i]);
+            sectionMax[i] = sectionNanos[i].takeWindowMax();
+            summarySections[i] = now;
+        }
+        // biggest first, like the widest frames of a flame graph
+        Integer[] order = new Integer[SECTIONS.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> sections[i].getSum()).reversed());
+
+        for (int p = 0; p < PHASES.length; p++) {
+            Histogram.Counts now = phaseNanos[p].copy();
+            Histogram.Counts phase = now.since(summaryPhases[p]);
+            summaryPhases[p] = now;
+            String label = PHASES[p].name().toLowerCase(Locale.ROOT);
+            line(sb, 1, label, phase, phaseNanos[p].takeWindowMax(), total);
+            for (int i : order) {
+                // a section named like its phase is all of it
+                if (SECTIONS[i].getPhase() == PHASES[p] && !SECTIONS[i].getLabel().equals(label)) {
+                    line(sb, 2, SECTIONS[i].getLabel(), sections[i], sectionMax[i], total);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param max largest value of the window, the counts only know the
+     *            lifetime's
+     */
+    private static void line(StringBuilder sb, int depth, String label, Histogram.Counts counts, long max,
+                             double total) {
+        double share = counts.getSum() / total;
+        int bar = (int) Math.round(share * BAR_WIDTH);
+        sb.append(System.lineSeparator()).append("  ".repeat(depth));
+        sb.append(String.format(Locale.ROOT, "%-" + (20 - 2 * depth) + "s%5.1f%% %-" + BAR_WIDTH + "s"
+                        + " p50 %.2f  p99 %.2f  max %.2f ms",
+                label, share * 100, "#".repeat(Math.min(bar, BAR_WIDTH)),
+                counts.valueAt(50) / 1e6, counts.valueAt(99) / 1e6, max / 1e6));
+    }
+
+    private static final class SlowTick {
+        long tick;
+        long epochMillis;
+        long nanos;
+        boolean broadcast;
+        final long[] sectionNanos = new long[SECTIONS.length];
+        final long[] entities = new long[ENTITIES.length];
+
+        SlowTick copy() {
+            SlowTick copy = new SlowTick();
+            copy.tick = tick;
+            copy.epochMillis = epochMillis;
+            copy.nanos = nanos;
+            copy.broadcast = broadcast;
+            System.arraycopy(sectionNanos, 0, copy.sectionNanos, 0, sectionNanos.length);
+            System.arraycopy(entities, 0, copy.entities, 0, entities.length);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.javakaian.shooter.tick;
+
+import java.util.Locale;
+
+/**
+ * Steps of a server tick as the {@link TickProfiler} sees them. Every
+ * section belongs to one {@link TickPhase}, whose time is the sum of its
+ * sections.
+ */
+public enum TickSection {
+    /** Handling the queued client messages. */
+    PARSE(TickPhase.PARSE),
+    /** Applying buffered movement commands. */
+    INPUTS(TickPhase.SIMULATE),
+    /** Updating players, enemies and spikes. */
+    OBJECTS(TickPhase.SIMULATE),
+    /** Enemy behaviors. */
+    ENEMY_AI(TickPhase.SIMULATE),
+    /** Moving bullets. */
+    BULLETS(TickPhase.SIMULATE),
+    /** Power-up timers. */
+    POWER_UPS(TickPhase.SIMULATE),
+    /** Autosaving player checkpoints. */
+    CHECKPOINTS(TickPhase.SIMULATE),
+    /** Collisions between bullets, players, enemies and spikes. */
+    COLLISIONS(TickPhase.COLLIDE),
+    /** Spawning enemies, spikes and power-ups. */
+    SPAWNS(TickPhase.SIMULATE),
+    /** Players picking up power-ups. */
+    POWER_UP_PICKUPS(TickPhase.COLLIDE),
+    /** Switching enemy behaviors. */
+    BEHAVIORS(TickPhase.SIMULATE),
+    /** Removing dead objects and counting the rest. */
+    REAP(TickPhase.SIMULATE),
+    /** Writing the tick to the match journal. */
+    JOURNAL(TickPhase.SIMULATE),
+    /** Capturing the world snapshot for the encoder. */
+    SNAPSHOT(TickPhase.BROADCAST);
+
+    private final TickPhase phase;
+    private final String label;
+
+    TickSection(TickPhase phase) {
+        this.phase = phase;
+        this.label = name().toLowerCase(Locale.ROOT);
+    }
+
+    public TickPhase getPhase() {
+        return phase;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
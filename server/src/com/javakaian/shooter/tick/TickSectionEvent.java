@@ -0,0 +1,28 @@
+package com.javakaian.shooter.tick;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning one {@link TickSection} of a profiled tick. A section
+ * entered twice in a tick gives two events.
+ */
+@Name("com.javakaian.TickSection")
+@Label("Server Tick Section")
+@Category({"KillThemAll", "Server"})
+@StackTrace(false)
+@Description("One step of a room's tick, e.g. collisions or the snapshot")
+class TickSectionEvent extends jdk.jfr.Event {
+
+    @Label("Tick")
+    long tick;
+
+    @Label("Section")
+    String section;
+
+    @Label("Phase")
+    String phase;
+}
@@ -0,0 +1,164 @@
+package com.javakaian.shooter.tick;
+
+/**
+ * Per-phase timing of server ticks.
+ * <p>
+ * The tick code calls {@link #begin(TickPhase)} whenever it moves to another
+ * phase, time is charged to the phase that was active until then. A phase can
+ * be entered several times per tick. Totals and maxima are kept for the
+ * current reporting window until {@link #resetWindow()}.
+ * <p>
+ * Tick code may also mark the finer {@link TickSection}s. Without a
+ * {@link TickProfiler} only the phase they belong to is timed, with one the
+ * profiler gets every section as well.
+ * <p>
+ * Only meant to be used from the tick thread.
+ */
+public class TickTimings {
+
+    private static final TickPhase[] PHASES = TickPhase.values();
+
+    private final long[] tickNanos = new long[PHASES.length];
+    private final long[] totalNanos = new long[PHASES.length];
+    private final long[] maxNanos = new long[PHASES.length];
+
+    private TickPhase current;
+    private long phaseStart;
+    private long tickStart;
+    private long lastTickNanos;
+    private long maxTickNanos;
+    private int ticks;
+
+    // null unless profiling
+    private TickProfiler profiler;
+
+    public void startTick() {
+        for (int i = 0; i < tickNanos.length; i++) {
+            tickNanos[i] = 0;
+        }
+        current = null;
+        tickStart = System.nanoTime();
+    }
+
+    public void begin(TickPhase phase) {
+        begin(phase, System.nanoTime());
+    }
+
+    public void begin(TickSection section) {
+        if (profiler == null) {
+            if (section.getPhase() != current) {
+                begin(section.getPhase());
+            }
+            return;
+        }
+        long now = System.nanoTime();
+        profiler.enter(section, now);
+        if (section.getPhase() != current) {
+            begin(section.getPhase(), now);
+        }
+    }
+
+    private void begin(TickPhase phase, long now) {
+        if (current != null) {
+            tickNanos[current.ordinal()] += now - phaseStart;
+        }
+        current = phase;
+        phaseStart = now;
+    }
+
+    void setProfiler(TickProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Closes the running phase and adds this tick to the window.
+     *
+     * @return wall time of the tick in nanoseconds
+     */
+    public long endTick() {
+        long now = System.nanoTime();
+        if (profiler != null) {
+            profiler.exit(now);
+        }
+        if (current != null) {
+            tickNanos[current.ordinal()] += now - phaseStart;
+            current = null;
+        }
+        for (int i = 0; i < tickNanos.length; i++) {
+            totalNanos[i] += tickNanos[i];
+            maxNanos[i] = Math.max(maxNanos[i], tickNanos[i]);
+        }
+        lastTickNanos = now - tickStart;
+        maxTickNanos = Math.max(maxTickNanos, lastTickNanos);
+        ticks++;
+        return lastTickNanos;
+    }
+
+    /** Time spent in the phase during the last finished tick. */
+    public long getLastNanos(TickPhase phase) {
+        return tickNanos[phase.ordinal()];
+    }
+
+    public long getAverageNanos(TickPhase phase) {
+        return ticks == 0 ? 0 : totalNanos[phase.ordinal()] / ticks;
+    }
+
+    public long getMaxNanos(TickPhase phase) {
+        return maxNanos[phase.ordinal()];
+    }
+
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    public long getMaxTickNanos() {
+        return maxTickNanos;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public void resetWindow() {
+        for (int i = 0; i < PHASES.length; i++) {
+            totalNanos[i] = 0;
+            maxNanos[i] = 0;
+        }
+        maxTickNanos = 0;
+        ticks = 0;
+    }
+
+    /**
+     * One line summary of the window, average and max per phase in
+     * milliseconds.
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(ticks).append(" ticks");
+        for (TickPhase phase : PHASES) {
+            sb.append(", ").append(phase.name().toLowerCase())
+                    .append(' ').append(toMillis(getAverageNanos(phase)))
+                    .append('/').append(toMillis(getMaxNanos(phase)));
+        }
+        sb.append(", tick max ").append(toMillis(maxTickNanos)).append(" ms");
+        return sb.toString();
+    }
+
+    /**
+     * Milliseconds per phase of the last finished tick.
+     */
+    public String summaryOfLast() {
+        StringBuilder sb = new StringBuilder();
+        for (TickPhase phase : PHASES) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(phase.name().toLowerCase()).append(' ').append(toMillis(tickNanos[phase.ordinal()]));
+        }
+        return sb.toString();
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+}
@@ -3,8 +3,11 @@ package com.javakaian.shooter.weapons;
 import com.javakaian.shooter.ServerWorld;
 import com.javakaian.shooter.factory.BulletType;
 import com.javakaian.shooter.shapes.Player;
+import org.apache.log4j.Logger;
 
 public class Shotgun extends Weapon {
+    private static final Logger logger = Logger.getLogger(Shotgun.class);
+
     public Shotgun() {
         super("Shotgun");
     }
@@ -26,7 +29,7 @@ public class Shotgun extends Weapon {
 
     @Override
     protected void applyEffects() {
-        System.out.println("BOOM! Shotgun recoil effect applied.");
+        logger.trace("BOOM! Shotgun recoil effect applied.");
     }
 
     @Override
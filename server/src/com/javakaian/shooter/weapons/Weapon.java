@@ -2,15 +2,19 @@ package com.javakaian.shooter.weapons;
 
 import com.esotericsoftware.kryonet.Server;
 import com.javakaian.shooter.ServerWorld;
+import com.javakaian.shooter.logging.Log;
 import com.javakaian.shooter.shapes.Player;
 import com.javakaian.shooter.weapons.state.ReadyState;
 import com.javakaian.shooter.weapons.state.WeaponListener;
 import com.javakaian.shooter.weapons.state.WeaponState;
+import org.apache.log4j.Logger;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public abstract class Weapon {
+    private static final Logger logger = Logger.getLogger(Weapon.class);
+
         // Store cooldown timer here so it persists across state changes
     public float cooldownTimer = 0f;
     protected String barrel;
@@ -132,6 +136,7 @@ public abstract class Weapon {
      */
     public final void fireWeapon(ServerWorld world, Player owner, float angleRad) {
         consumeAmmo();
+        world.getMetrics().weaponFired();
 
         int projectileCount = getProjectileCount();
         float spreadRad = getSpreadAngleInRadians();
@@ -153,7 +158,7 @@ public abstract class Weapon {
     }
 
     public void requestFire(ServerWorld world, Player owner, float angleRad) {
-        System.out.println(state.getName());
+        Log.trace(logger, "{} fire requested in state {}", getName(), state.getName());
         state.attemptFire(this, world, owner, angleRad);
     }
 
@@ -168,7 +173,7 @@ public abstract class Weapon {
     protected void consumeAmmo() {
         if (currentAmmo > 0) {
             currentAmmo -= 1;
-            System.out.println(getName() + " consumed ammo. Remaining: " + currentAmmo + "/" + ammoCapacity);
+            Log.trace(logger, "{} consumed ammo. Remaining: {}/{}", getName(), currentAmmo, ammoCapacity);
             notifyListeners();
         }
     }
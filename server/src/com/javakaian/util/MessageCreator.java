@@ -1,7 +1,6 @@
 package com.javakaian.util;
 
-import com.javakaian.network.messages.GameWorldMessage;
-import com.javakaian.shooter.shapes.Bullet;
+import com.javakaian.network.snapshot.Snapshot;
 import com.javakaian.shooter.shapes.Enemy;
 import com.javakaian.shooter.shapes.Player;
 import com.javakaian.shooter.shapes.Spike;
@@ -9,9 +8,9 @@ import com.javakaian.shooter.shapes.PlacedSpike;
 import com.javakaian.shooter.shapes.PowerUp;
 import com.javakaian.shooter.iterator.Iterator;
 import com.javakaian.shooter.iterator.PowerUpCollection; 
+import com.javakaian.shooter.simulation.BulletEngine;
 
 import java.util.List;
-import java.util.ArrayList;
 
 public class MessageCreator {
 
@@ -20,107 +19,65 @@ public class MessageCreator {
     }
 
     /**
-     * Creates a GameWorldMessage. This message will be broadcasted to the all
-     * clients over UDP.
-     * <p>
-     * Every objects in server like Enemies,Players,Bullets will be converted to the
-     * float arrays and broadcasted.
+     * Fills a snapshot with the current state of the world. Every object is
+     * stored under its network id so that clients can be sent only what
+     * changed, see {@link com.javakaian.network.SnapshotSystem}.
      */
-    public static GameWorldMessage generateGWMMessage(List<Enemy> enemies, List<Bullet> bullets, List<Player> players, List<Spike> spikes, List<PlacedSpike> placedSpikes, PowerUpCollection powerUps) {
-
-        GameWorldMessage gwm = new GameWorldMessage();
-        float[] coordinates = new float[enemies.size() * 2];
+    public static void captureSnapshot(Snapshot snapshot, List<Enemy> enemies, BulletEngine bullets, List<Player> players, List<Spike> spikes, List<PlacedSpike> placedSpikes, PowerUpCollection powerUps) {
 
         for (int i = 0; i < enemies.size(); i++) {
-            var position = enemies.get(i).getPosition();
-
-            coordinates[i * 2] = position.x;
-            coordinates[i * 2 + 1] = position.y;
+            Enemy enemy = enemies.get(i);
+            snapshot.addEnemy(enemy.getNetId(), enemy.getPosition().x, enemy.getPosition().y);
         }
 
-        gwm.setEnemies(coordinates);
-
-        float[] pcord = new float[players.size() * 7]; // Changed from 6 to 7 to include team
         for (int i = 0; i < players.size(); i++) {
-            var player = players.get(i);
-            var position = player.getPosition();
-
-            pcord[i * 7] = position.x;
-            pcord[i * 7 + 1] = position.y;
-            pcord[i * 7 + 2] = player.getId();
-            pcord[i * 7 + 3] = player.getHealth();
-            pcord[i * 7 + 4] = player.hasShield() ? 1f : 0f;
-            pcord[i * 7 + 5] = player.getShieldHealth();
-            
-            // Encode team name as number: RED=0, BLUE=1, GREEN=2
-            String teamName = player.getTeamName();
-            float teamCode = 0f; // Default to RED
-            if ("BLUE".equals(teamName)) {
-                teamCode = 1f;
-            } else if ("GREEN".equals(teamName)) {
-                teamCode = 2f;
-            }
-            pcord[i * 7 + 6] = teamCode;
+            Player player = players.get(i);
+            snapshot.addPlayer(player.getId(),
+                    player.getPosition().x,
+                    player.getPosition().y,
+                    player.getHealth(),
+                    player.hasShield(),
+                    player.getShieldHealth(),
+                    teamCode(player.getTeamName()));
         }
 
-        gwm.setPlayers(pcord);
-
-        float[] barray = new float[bullets.size() * 3];
         for (int i = 0; i < bullets.size(); i++) {
-            var bullet = bullets.get(i);
-            var position = bullet.getPosition();
-
-            barray[i * 3] = position.x;
-            barray[i * 3 + 1] = position.y;
-            barray[i * 3 + 2] = bullet.getSize();
+            snapshot.addBullet(bullets.getNetId(i), bullets.getX(i), bullets.getY(i), bullets.getSize(i));
         }
-        gwm.setBullets(barray);
 
-        float[] spikeArray = new float[spikes.size() * 3];
         for (int i = 0; i < spikes.size(); i++) {
-            var spike = spikes.get(i);
-            var position = spike.getPosition();
-
-            spikeArray[i * 3] = position.x;
-            spikeArray[i * 3 + 1] = position.y;
-            spikeArray[i * 3 + 2] = spike.getSize();
+            Spike spike = spikes.get(i);
+            snapshot.addSpike(spike.getNetId(), spike.getPosition().x, spike.getPosition().y, spike.getSize());
         }
-        gwm.setSpikes(spikeArray);
 
-        float[] placedSpikeArray = new float[placedSpikes.size() * 4];
         for (int i = 0; i < placedSpikes.size(); i++) {
-            var placedSpike = placedSpikes.get(i);
-            var position = placedSpike.getPosition();
-
-            placedSpikeArray[i * 4] = position.x;
-            placedSpikeArray[i * 4 + 1] = position.y;
-            placedSpikeArray[i * 4 + 2] = placedSpike.getSize();
-            placedSpikeArray[i * 4 + 3] = placedSpike.getRotation();
+            PlacedSpike placedSpike = placedSpikes.get(i);
+            snapshot.addPlacedSpike(placedSpike.getNetId(),
+                    placedSpike.getPosition().x,
+                    placedSpike.getPosition().y,
+                    placedSpike.getSize(),
+                    placedSpike.getRotation());
         }
-        gwm.setPlacedSpikes(placedSpikeArray);
 
-        List<PowerUp> powerUpList = new ArrayList<>();
         Iterator<PowerUp> iter = powerUps.createIterator();
         for (iter.first(); !iter.isDone(); iter.next()) {
             PowerUp p = iter.currentItem();
             if (p != null && p.isVisible()) {
-                powerUpList.add(p);
+                snapshot.addPowerUp(p.getId(), p.getPosition().x, p.getPosition().y, p.getSize(), p.getType().ordinal());
             }
         }
-        
-        float[] powerUpArray = new float[powerUpList.size() * 4];
-        for (int i = 0; i < powerUpList.size(); i++) {
-            var powerUp = powerUpList.get(i);
-            var position = powerUp.getPosition();
-            
-            powerUpArray[i * 4] = position.x;
-            powerUpArray[i * 4 + 1] = position.y;
-            powerUpArray[i * 4 + 2] = powerUp.getSize();
-            powerUpArray[i * 4 + 3] = powerUp.getType().ordinal(); // Type as number
-        }
-        gwm.setPowerUps(powerUpArray);
+    }
 
-        return gwm;
+    /**
+     * Encodes team name as number: RED=0, BLUE=1, GREEN=2
+     */
+    private static int teamCode(String teamName) {
+        if ("BLUE".equals(teamName)) {
+            return 1;
+        } else if ("GREEN".equals(teamName)) {
+            return 2;
+        }
+        return 0; // Default to RED
     }
 
 }
@@ -0,0 +1,184 @@
+package com.javakaian.network;
+
+import com.esotericsoftware.kryonet.Connection;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InboundQueueTest {
+
+    private final Connection a = new Connection() {
+    };
+    private final Connection b = new Connection() {
+    };
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(8, new InboundQueue(5, InboundQueue.OverflowPolicy.DROP_NEWEST).capacity());
+        assertEquals(8, new InboundQueue(8, InboundQueue.OverflowPolicy.DROP_NEWEST).capacity());
+        assertThrows(IllegalArgumentException.class,
+                () -> new InboundQueue(0, InboundQueue.OverflowPolicy.DROP_NEWEST));
+    }
+
+    @Test
+    void fullQueueDropsNewestMessages() {
+        InboundQueue queue = new InboundQueue(4, InboundQueue.OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offerMessage(a, i));
+        }
+
+        assertFalse(queue.offerMessage(a, 4));
+        assertFalse(queue.offerMessage(b, 5));
+        assertEquals(2, queue.getDropped());
+        assertEquals(4, queue.size());
+
+        List<Object> drained = drainAll(queue);
+        assertEquals(List.of(0, 1, 2, 3), drained);
+        assertEquals(0, queue.size());
+        assertEquals(4, queue.getMaxDepth());
+
+        // room again once drained
+        assertTrue(queue.offerMessage(a, 6));
+    }
+
+    @Test
+    void drainStopsAtMax() {
+        InboundQueue queue = new InboundQueue(8, InboundQueue.OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < 5; i++) {
+            queue.offerMessage(a, i);
+        }
+        List<Object> drained = new ArrayList<>();
+
+        assertEquals(2, queue.drain(e -> drained.add(e.getMessage()), 2));
+        assertEquals(List.of(0, 1), drained);
+        assertEquals(3, queue.size());
+    }
+
+    @Test
+    void envelopesPairMessagesWithTheirConnection() {
+        InboundQueue queue = new InboundQueue(8, InboundQueue.OverflowPolicy.DROP_NEWEST);
+        queue.offerMessage(a, "from a");
+        queue.offerMessage(b, "from b");
+        List<Connection> connections = new ArrayList<>();
+
+        queue.drain(e -> {
+            assertEquals(InboundQueue.Kind.MESSAGE, e.getKind());
+            connections.add(e.getConnection());
+        }, 10);
+
+        assertEquals(List.of(a, b), connections);
+    }
+
+    @Test
+    void disconnectOfAFullQueueDoesNotWait() {
+        InboundQueue queue = new InboundQueue(4, InboundQueue.OverflowPolicy.BLOCK);
+        for (int i = 0; i < 4; i++) {
+            queue.offerMessage(a, i);
+        }
+
+        // would hang if it waited for a slot
+        queue.offerDisconnect(a);
+
+        assertEquals(1, queue.pendingDisconnects());
+        assertEquals(List.of(0, 1, 2, 3, "disconnect"), drainAll(queue));
+        assertEquals(0, queue.pendingDisconnects());
+    }
+
+    @Test
+    void disconnectComesAfterTheMessagesBeforeIt() {
+        InboundQueue queue = new InboundQueue(8, InboundQueue.OverflowPolicy.DROP_NEWEST);
+        queue.offerMessage(a, 0);
+        queue.offerMessage(b, 1);
+        queue.offerDisconnect(a);
+        queue.offerMessage(b, 2);
+
+        // only the first message this tick, the disconnect is not due yet
+        List<Object> first = new ArrayList<>();
+        queue.drain(e -> first.add(e.getMessage()), 1);
+        assertEquals(List.of(0), first);
+
+        assertEquals(List.of(1, "disconnect", 2), drainAll(queue));
+    }
+
+    @Test
+    void disconnectOfAnEmptyQueueIsHandedOutRightAway() {
+        InboundQueue queue = new InboundQueue(8, InboundQueue.OverflowPolicy.DROP_NEWEST);
+        queue.offerDisconnect(b);
+        List<Connection> disconnected = new ArrayList<>();
+
+        assertEquals(1, queue.drain(e -> disconnected.add(e.getConnection()), 0));
+        assertEquals(List.of(b), disconnected);
+    }
+
+    @Test
+    void blockingPolicyWaitsForRoom() throws Exception {
+        InboundQueue queue = new InboundQueue(4, InboundQueue.OverflowPolicy.BLOCK);
+        for (int i = 0; i < 4; i++) {
+            queue.offerMessage(a, i);
+        }
+
+        CountDownLatch offered = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            queue.offerMessage(a, 4);
+            offered.countDown();
+        });
+        producer.start();
+
+        assertFalse(offered.await(100, TimeUnit.MILLISECONDS));
+        List<Object> received = new ArrayList<>();
+        queue.drain(e -> received.add(e.getMessage()), 1);
+        assertTrue(offered.await(5, TimeUnit.SECONDS));
+        assertEquals(1, queue.getBlocked());
+        received.addAll(drainAll(queue));
+        assertEquals(List.of(0, 1, 2, 3, 4), received);
+        producer.join();
+    }
+
+    @Test
+    void concurrentProducersLoseNothingAndKeepTheirOrder() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        InboundQueue queue = new InboundQueue(64, InboundQueue.OverflowPolicy.BLOCK);
+        Connection[] connections = new Connection[producers];
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            Connection connection = new Connection() {
+            };
+            connections[p] = connection;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    queue.offerMessage(connection, i);
+                }
+            });
+            threads[p].start();
+        }
+
+        int[] next = new int[producers];
+        int received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received < producers * perProducer && System.nanoTime() < deadline) {
+            received += queue.drain(e -> {
+                int p = List.of(connections).indexOf(e.getConnection());
+                assertEquals(next[p]++, e.getMessage());
+            }, 1000);
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(producers * perProducer, received);
+        assertEquals(producers * perProducer, queue.getOffered());
+    }
+
+    private static List<Object> drainAll(InboundQueue queue) {
+        List<Object> drained = new ArrayList<>();
+        queue.drain(e -> drained.add(e.getKind() == InboundQueue.Kind.DISCONNECT ? "disconnect" : e.getMessage()),
+                Integer.MAX_VALUE);
+        return drained;
+    }
+}
@@ -0,0 +1,138 @@
+package com.javakaian.network;
+
+import com.javakaian.network.messages.SnapshotMessage;
+import com.javakaian.network.serialization.SnapshotMessageSerializer;
+import com.javakaian.network.snapshot.Snapshot;
+import com.javakaian.network.snapshot.SnapshotCodec;
+import com.javakaian.shooter.ViewLimits;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotSystemTest {
+
+    private static final int CONNECTION = 1;
+    private static final int PLAYER = 1;
+
+    private final SnapshotSystem system = new SnapshotSystem();
+    private final Random random = new Random(5);
+
+    @Test
+    void crowdedDeltasFitADatagram() {
+        system.addClient(CONNECTION, PLAYER);
+        Snapshot client = new Snapshot();
+        Snapshot decoded = new Snapshot();
+        float[] x = new float[250];
+        float[] y = new float[250];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextFloat() * 1000;
+            y[i] = random.nextFloat() * 1000;
+        }
+
+        for (int sequence = 0; sequence < 200; sequence++) {
+            // everyone on screen moves, and new bullets keep coming
+            Snapshot world = new Snapshot();
+            world.clear(sequence);
+            for (int i = 0; i < x.length; i++) {
+                x[i] += random.nextInt(21) - 10;
+                y[i] += random.nextInt(21) - 10;
+                world.addPlayer(i + 1, x[i], y[i], 100 - random.nextInt(3), false, 0, i % 2);
+            }
+            for (int i = 0; i < 120; i++) {
+                world.addBullet(sequence * 120 + i, random.nextFloat() * 1000, random.nextFloat() * 1000, 10);
+            }
+            system.update(world);
+
+            SnapshotMessage m = system.encodeFor(CONNECTION, x[0], y[0]);
+            if (!m.isFull()) {
+                assertTrue(SnapshotMessageSerializer.size(m) <= NetworkRegistry.DATAGRAM_BUDGET,
+                        "delta of " + SnapshotMessageSerializer.size(m) + " B");
+            }
+            assertTrue(SnapshotCodec.decode(client, m, decoded));
+            assertTrue(decoded.indexOf(Snapshot.PLAYER, PLAYER) >= 0, "own player left out");
+            Snapshot swap = client;
+            client = decoded;
+            decoded = swap;
+            system.ack(CONNECTION, sequence);
+        }
+
+        assertTrue(system.getTrimmed() > 0);
+        assertTrue(system.getViewLimit(CONNECTION) < ViewLimits.MAX_VIEW_ENTITIES);
+    }
+
+    @Test
+    void nearestEntitiesAreKept() {
+        system.addClient(CONNECTION, PLAYER);
+        Snapshot world = new Snapshot();
+        world.clear(0);
+        world.addPlayer(PLAYER, 0, 0, 100, false, 0, 0);
+        for (int i = 0; i < 300; i++) {
+            world.addEnemy(i, random.nextFloat() * 2000 - 1000, random.nextFloat() * 2000 - 1000);
+        }
+        system.update(world);
+        system.encodeFor(CONNECTION, 0, 0);
+        system.ack(CONNECTION, 0);
+
+        // all of them jump, far too much for one datagram
+        Snapshot moved = new Snapshot();
+        moved.clear(1);
+        moved.addPlayer(PLAYER, 0, 0, 100, false, 0, 0);
+        for (int i = 0; i < 300; i++) {
+            moved.addEnemy(i, random.nextFloat() * 2000 - 1000, random.nextFloat() * 2000 - 1000);
+        }
+        system.update(moved);
+        Snapshot baseline = new Snapshot();
+        SnapshotCodec.decode(null, new SnapshotCodec().encode(null, world), baseline);
+        Snapshot view = new Snapshot();
+        assertTrue(SnapshotCodec.decode(baseline, system.encodeFor(CONNECTION, 0, 0), view));
+
+        int kept = view.count(Snapshot.ENEMY);
+        assertTrue(kept > 0 && kept < 300, kept + " enemies kept");
+        float farthestKept = 0;
+        for (int i = 0; i < kept; i++) {
+            farthestKept = Math.max(farthestKept, distance(view, i));
+        }
+        for (int i = 0; i < moved.count(Snapshot.ENEMY); i++) {
+            if (view.indexOf(Snapshot.ENEMY, moved.id(Snapshot.ENEMY, i)) < 0) {
+                assertTrue(distance(moved, i) >= farthestKept, "nearer enemy left out");
+            }
+        }
+    }
+
+    @Test
+    void viewGrowsBackOnceTheCrowdIsGone() {
+        system.addClient(CONNECTION, PLAYER);
+        for (int sequence = 0; sequence < 10; sequence++) {
+            Snapshot world = new Snapshot();
+            world.clear(sequence);
+            world.addPlayer(PLAYER, 0, 0, 100, false, 0, 0);
+            for (int i = 0; i < 400; i++) {
+                world.addEnemy(i, random.nextFloat() * 2000 - 1000, random.nextFloat() * 2000 - 1000);
+            }
+            system.update(world);
+            system.encodeFor(CONNECTION, 0, 0);
+            system.ack(CONNECTION, sequence);
+        }
+        int crowded = system.getViewLimit(CONNECTION);
+        assertTrue(crowded < ViewLimits.MAX_VIEW_ENTITIES);
+
+        for (int sequence = 10; sequence < 200; sequence++) {
+            Snapshot world = new Snapshot();
+            world.clear(sequence);
+            world.addPlayer(PLAYER, 0, 0, 100, false, 0, 0);
+            system.update(world);
+            system.encodeFor(CONNECTION, 0, 0);
+            system.ack(CONNECTION, sequence);
+        }
+
+        assertEquals(ViewLimits.MAX_VIEW_ENTITIES, system.getViewLimit(CONNECTION));
+    }
+
+    private static float distance(Snapshot s, int enemy) {
+        float x = Snapshot.dequantize(s.field(Snapshot.ENEMY, enemy, 0));
+        float y = Snapshot.dequantize(s.field(Snapshot.ENEMY, enemy, 1));
+        return x * x + y * y;
+    }
+}
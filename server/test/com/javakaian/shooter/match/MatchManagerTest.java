@@ -0,0 +1,50 @@
+package com.javakaian.shooter.match;
+
+import com.esotericsoftware.kryonet.Connection;
+import com.javakaian.network.messages.LoginMessage;
+import com.javakaian.shooter.metrics.MetricsRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MatchManagerTest {
+
+    private final MatchManager matches = new MatchManager(new MetricsRegistry());
+
+    @AfterEach
+    void tearDown() {
+        matches.dispose();
+    }
+
+    @Test
+    void roomNamesAreLimitedToPlainCharacters() {
+        assertTrue(MatchManager.isValidRoomName("match-1"));
+        assertTrue(MatchManager.isValidRoomName("Blue_Team"));
+        assertTrue(MatchManager.isValidRoomName("a".repeat(32)));
+
+        assertFalse(MatchManager.isValidRoomName(null));
+        assertFalse(MatchManager.isValidRoomName(""));
+        assertFalse(MatchManager.isValidRoomName("a".repeat(33)));
+        assertFalse(MatchManager.isValidRoomName("../../x"));
+        assertFalse(MatchManager.isValidRoomName("a/b"));
+        assertFalse(MatchManager.isValidRoomName("a b"));
+        assertFalse(MatchManager.isValidRoomName("line\nbreak"));
+    }
+
+    @Test
+    void loginNamingAnInvalidRoomIsRefused() {
+        LoginMessage login = new LoginMessage();
+        login.setRoom("../../x");
+
+        assertNull(matches.route(new Connection() {
+        }, login));
+        assertTrue(matches.getRooms().isEmpty());
+    }
+
+    @Test
+    void invalidRoomIsNotOpened() {
+        assertFalse(matches.openRoom("room\u0000"));
+        assertTrue(matches.getRooms().isEmpty());
+    }
+}
@@ -0,0 +1,43 @@
+package com.javakaian.shooter.match;
+
+import com.javakaian.shooter.metrics.MetricsRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoomTest {
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty("killthemall.journalDir");
+    }
+
+    @Test
+    void journalStaysInTheJournalDirectory() throws IOException {
+        Path journals = dir.resolve("a").resolve("journals");
+        System.setProperty("killthemall.journalDir", journals.toString());
+
+        Room room = new Room("../../x", 4, false, 1, Thread.ofPlatform(), new MetricsRegistry());
+        room.start();
+        room.stop(5000);
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            files = walk.filter(Files::isRegularFile).toList();
+        }
+        assertEquals(1, files.size());
+        assertEquals(journals, files.get(0).getParent());
+        assertTrue(files.get(0).getFileName().toString().startsWith("______x-"));
+    }
+}
@@ -0,0 +1,109 @@
+package com.javakaian.shooter.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistogramTest {
+
+    @Test
+    void bucketsCoverEveryValueOnce() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 16_666_667, Long.MAX_VALUE}) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(Histogram.lowestOf(bucket) <= value, "value " + value);
+            assertTrue(value <= Histogram.highestOf(bucket), "value " + value);
+        }
+        for (int bucket = 1; bucket < Histogram.bucketOf(Long.MAX_VALUE); bucket++) {
+            assertEquals(Histogram.highestOf(bucket - 1) + 1, Histogram.lowestOf(bucket));
+        }
+    }
+
+    @Test
+    void percentilesAreWithinTheBucketResolution() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        Histogram.Counts counts = histogram.copy();
+
+        assertEquals(1000, counts.getCount());
+        assertEquals(1_000_000, counts.getMax());
+        assertEquals(500_000, counts.valueAt(50), 500_000 / 16.0);
+        assertEquals(990_000, counts.valueAt(99), 990_000 / 16.0);
+        assertEquals(1_000_000, counts.valueAt(100));
+    }
+
+    @Test
+    void boundAtABucketEdgeCountsExactly() {
+        Histogram histogram = new Histogram();
+        for (long value = 0; value < 1024; value++) {
+            histogram.record(value);
+        }
+        Histogram.Counts counts = histogram.copy();
+
+        long edge = Histogram.highestOf(Histogram.bucketOf(500));
+        assertEquals(edge + 1, counts.countAtOrBelow(edge));
+        assertEquals(0, counts.countAtOrBelow(-1));
+        assertEquals(1024, counts.countAtOrBelow(Long.MAX_VALUE));
+    }
+
+    @Test
+    void boundInsideABucketCountsItsShare() {
+        // a 60 Hz tick budget, which falls inside a bucket about half a
+        // millisecond wide
+        long bound = 16_666_667;
+        Histogram histogram = new Histogram();
+        for (long value = 16_000_000; value < 17_000_000; value += 1000) {
+            histogram.record(value);
+        }
+        Histogram.Counts counts = histogram.copy();
+
+        assertEquals(667, counts.countAtOrBelow(bound), 10);
+    }
+
+    @Test
+    void cumulativeCountsNeverGoDown() {
+        Histogram histogram = new Histogram();
+        for (long value = 0; value < 100_000; value += 7) {
+            histogram.record(value);
+        }
+        Histogram.Counts counts = histogram.copy();
+
+        long previous = 0;
+        for (long bound = 0; bound < 110_000; bound += 97) {
+            long count = counts.countAtOrBelow(bound);
+            assertTrue(count >= previous, "bound " + bound);
+            previous = count;
+        }
+    }
+
+    @Test
+    void windowMaxStartsOverAfterEveryTake() {
+        Histogram histogram = new Histogram();
+        histogram.record(900);
+        histogram.record(300);
+
+        assertEquals(900, histogram.takeWindowMax());
+        histogram.record(20);
+        histogram.record(50);
+        assertEquals(50, histogram.takeWindowMax());
+        assertEquals(0, histogram.takeWindowMax());
+        // the copies keep the lifetime's
+        assertEquals(900, histogram.copy().getMax());
+    }
+
+    @Test
+    void sinceLeavesOnlyTheNewValues() {
+        Histogram histogram = new Histogram();
+        histogram.record(10);
+        Histogram.Counts older = histogram.copy();
+        histogram.record(20);
+        histogram.record(30);
+
+        Histogram.Counts delta = histogram.copy().since(older);
+
+        assertEquals(2, delta.getCount());
+        assertEquals(50, delta.getSum());
+        assertEquals(0, delta.countAtOrBelow(10));
+    }
+}
@@ -0,0 +1,211 @@
+package com.javakaian.shooter.replay;
+
+import com.javakaian.network.InboundQueue;
+import com.javakaian.network.messages.InputCommandMessage;
+import com.javakaian.network.messages.LoginMessage;
+import com.javakaian.network.messages.ShootMessage;
+import com.javakaian.shooter.PlayerMovement;
+import com.javakaian.shooter.ServerWorld;
+import com.javakaian.shooter.tick.ServerTickLoop;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MatchJournalTest {
+
+    private static final long SEED = 1234;
+    private static final int TICK_RATE = 60;
+    private static final int HASH_INTERVAL = 30;
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        // set by the replay
+        System.clearProperty("killthemall.maxEnemies");
+    }
+
+    @Test
+    void readerReadsBackWhatWasWritten() throws IOException {
+        Path file = dir.resolve("records.journal");
+        ServerWorld world = new ServerWorld(4, SEED);
+        try (MatchJournal journal = new MatchJournal(file, SEED, 4, TICK_RATE, 7, HASH_INTERVAL)) {
+            journal.recordMessage(3, login("BLUE"));
+            journal.endTick(world);
+            journal.endTick(world);
+            journal.recordDisconnect(3);
+            for (int i = 2; i < HASH_INTERVAL; i++) {
+                journal.endTick(world);
+            }
+        } finally {
+            world.dispose();
+        }
+
+        try (JournalReader reader = new JournalReader(file)) {
+            assertEquals(SEED, reader.getSeed());
+            assertEquals(4, reader.getMaxPlayers());
+            assertEquals(TICK_RATE, reader.getTickRate());
+            assertEquals(7, reader.getMaxEnemies());
+            assertEquals(HASH_INTERVAL, reader.getHashInterval());
+
+            assertTrue(reader.next());
+            assertTrue(reader.isMessage());
+            assertEquals(0, reader.getTick());
+            assertEquals(3, reader.getConnectionId());
+            assertEquals("BLUE", ((LoginMessage) reader.getMessage()).getSelectedTeam());
+
+            assertTrue(reader.next());
+            assertTrue(reader.isDisconnect());
+            assertEquals(2, reader.getTick());
+            assertEquals(3, reader.getConnectionId());
+
+            assertTrue(reader.next());
+            assertTrue(reader.isHash());
+            assertEquals(HASH_INTERVAL - 1, reader.getTick());
+            assertEquals(world.stateHash(), reader.getHash());
+
+            assertFalse(reader.next());
+            assertTrue(reader.isComplete());
+        }
+    }
+
+    @Test
+    void recordedMatchReplaysWithMatchingHashes() throws IOException {
+        Path file = dir.resolve("match.journal");
+        record(file, 600);
+
+        assertTrue(ReplayMain.replay(file));
+    }
+
+    @Test
+    void changedHashIsReportedAsDivergence() throws IOException {
+        Path file = dir.resolve("match.journal");
+        record(file, 120);
+
+        // flip a bit of the first state hash
+        byte[] bytes = Files.readAllBytes(file);
+        long hash;
+        try (JournalReader reader = new JournalReader(file)) {
+            do {
+                assertTrue(reader.next());
+            } while (!reader.isHash());
+            hash = reader.getHash();
+        }
+        int at = indexOf(bytes, hash);
+        assertTrue(at > 0);
+        bytes[at] ^= 1;
+        Files.write(file, bytes);
+
+        assertFalse(ReplayMain.replay(file));
+    }
+
+    @Test
+    void cutOffJournalEndsQuietly() throws IOException {
+        Path file = dir.resolve("match.journal");
+        record(file, 120);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+
+        try (JournalReader reader = new JournalReader(file)) {
+            int records = 0;
+            while (reader.next()) {
+                records++;
+            }
+            assertTrue(records > 0);
+            assertFalse(reader.isComplete());
+        }
+    }
+
+    @Test
+    void otherFilesAreRejected() throws IOException {
+        Path file = dir.resolve("not.journal");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        assertThrows(IOException.class, () -> new JournalReader(file));
+    }
+
+    /**
+     * Plays a short match with two players that move and shoot, one of them
+     * leaving halfway, and records it.
+     */
+    private static void record(Path file, int ticks) throws IOException {
+        ServerWorld world = new ServerWorld(4, SEED);
+        ServerTickLoop loop = new ServerTickLoop(world::update, TICK_RATE, 1, 0);
+        InboundQueue queue = world.getServer().getInboundQueue();
+        ReplayConnection first = new ReplayConnection(1);
+        ReplayConnection second = new ReplayConnection(2);
+
+        try (MatchJournal journal = new MatchJournal(file, SEED, 4, TICK_RATE, world.getMaxEnemies(),
+                HASH_INTERVAL)) {
+            world.record(journal);
+
+            LoginMessage firstLogin = login("RED");
+            LoginMessage secondLogin = login("BLUE");
+            queue.offerMessage(first, firstLogin);
+            queue.offerMessage(second, secondLogin);
+            loop.step(true);
+            // the world tells the ids through the login messages
+            int firstId = firstLogin.getPlayerId();
+            int secondId = secondLogin.getPlayerId();
+
+            int sequence = 1;
+            for (int tick = 1; tick < ticks; tick++) {
+                queue.offerMessage(first, input(firstId, sequence, PlayerMovement.RIGHT | PlayerMovement.DOWN));
+                if (tick < ticks / 2) {
+                    queue.offerMessage(second, input(secondId, sequence, PlayerMovement.LEFT));
+                } else if (tick == ticks / 2) {
+                    queue.offerDisconnect(second);
+                }
+                sequence++;
+                if (tick % 20 == 0) {
+                    ShootMessage shoot = new ShootMessage();
+                    shoot.setPlayerId(firstId);
+                    shoot.setAngleDeg(tick * 7 % 360);
+                    queue.offerMessage(first, shoot);
+                }
+                loop.step(true);
+            }
+        } finally {
+            world.dispose();
+        }
+    }
+
+    private static LoginMessage login(String team) {
+        LoginMessage m = new LoginMessage();
+        m.setX(200);
+        m.setY(200);
+        m.setSelectedTeam(team);
+        return m;
+    }
+
+    private static InputCommandMessage input(int playerId, int sequence, int buttons) {
+        InputCommandMessage m = new InputCommandMessage();
+        m.setPlayerId(playerId);
+        m.setFirstSequence(sequence);
+        m.setButtons(new byte[]{(byte) buttons});
+        m.setAimAngle(45);
+        return m;
+    }
+
+    private static int indexOf(byte[] bytes, long value) {
+        outer:
+        for (int i = 0; i + 8 <= bytes.length; i++) {
+            for (int k = 0; k < 8; k++) {
+                // kryo writes longs little endian
+                if (bytes[i + k] != (byte) (value >>> (8 * k))) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,129 @@
+package com.javakaian.shooter.simulation;
+
+import com.badlogic.gdx.math.Vector2;
+import com.javakaian.shooter.PlayerMovement;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InputBufferTest {
+
+    // a unit per step keeps the positions easy to check
+    private static final float SPEED = 1 / PlayerMovement.STEP;
+    private static final byte RIGHT = PlayerMovement.RIGHT;
+
+    private final InputBuffer buffer = new InputBuffer();
+    private final Vector2 position = new Vector2();
+
+    @Test
+    void appliesOneCommandPerStep() {
+        buffer.offer(1, commands(3), 0);
+
+        tick();
+        assertEquals(1, buffer.getLastApplied());
+        assertEquals(1, position.x, 1e-3f);
+
+        tick();
+        tick();
+        tick();
+        assertEquals(3, buffer.getLastApplied());
+        assertEquals(3, position.x, 1e-3f);
+    }
+
+    @Test
+    void repeatedCommandsAreAppliedOnce() {
+        buffer.offer(1, commands(4), 0);
+        buffer.offer(2, commands(4), 0);
+        buffer.offer(3, commands(4), 0);
+
+        for (int i = 0; i < 10; i++) {
+            tick();
+        }
+
+        assertEquals(6, buffer.getLastApplied());
+        assertEquals(6, position.x, 1e-3f);
+    }
+
+    @Test
+    void lostCommandsAreSkipped() {
+        buffer.offer(1, commands(2), 0);
+        buffer.offer(5, commands(2), 0);
+
+        for (int i = 0; i < 10; i++) {
+            tick();
+        }
+
+        assertEquals(6, buffer.getLastApplied());
+        assertEquals(4, position.x, 1e-3f);
+    }
+
+    @Test
+    void lateCommandsAreCaughtUp() {
+        int sequence = 1;
+        for (int i = 0; i < 20; i++) {
+            buffer.offer(sequence++, commands(1), 0);
+            tick();
+        }
+        // nothing arrives for three ticks, then all of it at once
+        tick();
+        tick();
+        tick();
+        buffer.offer(sequence, commands(4), 0);
+        tick();
+
+        assertEquals(24, buffer.getLastApplied());
+        assertEquals(24, position.x, 1e-3f);
+    }
+
+    @Test
+    void bankedTimeIsCapped() {
+        for (int i = 0; i < 100; i++) {
+            tick();
+        }
+        buffer.offer(1, commands(30), 0);
+        tick();
+
+        assertEquals(InputBuffer.MAX_BURST, position.x, 1e-3f);
+        // what is left over is dropped down to the backlog
+        assertEquals(30 - InputBuffer.MAX_BACKLOG, buffer.getLastApplied());
+        assertEquals(30 - InputBuffer.MAX_BURST - InputBuffer.MAX_BACKLOG, buffer.getDropped());
+    }
+
+    @Test
+    void sendingFasterGainsNoSpeed() {
+        int ticks = 600;
+        int sequence = 1;
+        for (int i = 0; i < ticks; i++) {
+            // twice the commands the time allows
+            buffer.offer(sequence, commands(2), 0);
+            sequence += 2;
+            tick();
+        }
+
+        assertTrue(position.x <= ticks + InputBuffer.MAX_BURST + 1e-3f, "moved " + position.x);
+        assertTrue(buffer.getDropped() > 0);
+        assertTrue(sequence - 1 - buffer.getLastApplied() <= InputBuffer.MAX_BACKLOG);
+    }
+
+    @Test
+    void slowTicksApplySeveralCommands() {
+        buffer.offer(1, commands(6), 0);
+
+        buffer.apply(position, SPEED, 3 * PlayerMovement.STEP);
+
+        assertEquals(3, buffer.getLastApplied());
+        assertEquals(3, position.x, 1e-3f);
+    }
+
+    private void tick() {
+        buffer.apply(position, SPEED, PlayerMovement.STEP);
+    }
+
+    private static byte[] commands(int count) {
+        byte[] commands = new byte[count];
+        Arrays.fill(commands, RIGHT);
+        return commands;
+    }
+}
@@ -0,0 +1,99 @@
+package com.javakaian.shooter.spatial;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.IntArray;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpatialGridTest {
+
+    private static final float CELL = 64;
+
+    @Test
+    void queriesMatchABruteForceScan() {
+        Random random = new Random(1);
+        // few buckets, so cells share them and the cell check matters
+        SpatialGrid<Rectangle> grid = new SpatialGrid<>(CELL, 16);
+        IntArray result = new IntArray();
+
+        for (int round = 0; round < 5; round++) {
+            grid.clear();
+            List<Rectangle> rects = new ArrayList<>();
+            for (int i = 0; i < 300 + round * 100; i++) {
+                Rectangle r = randomRect(random);
+                rects.add(r);
+                assertEquals(i, grid.insert(r, r));
+            }
+
+            for (int q = 0; q < 200; q++) {
+                Rectangle area = randomRect(random);
+                grid.query(area, result);
+
+                for (int k = 1; k < result.size; k++) {
+                    assertTrue(result.get(k - 1) < result.get(k), "sorted without duplicates");
+                }
+                for (int i = 0; i < rects.size(); i++) {
+                    boolean candidate = result.contains(i);
+                    if (rects.get(i).overlaps(area)) {
+                        assertTrue(candidate, "overlapping item " + i + " missing");
+                    }
+                    assertEquals(sharesCell(rects.get(i), area), candidate, "item " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void itemsAreReturnedByIndex() {
+        SpatialGrid<String> grid = new SpatialGrid<>(CELL, 64);
+        grid.insert("a", 0, 0, 10, 10);
+        grid.insert("b", 500, 500, 10, 10);
+
+        IntArray result = new IntArray();
+        assertEquals(1, grid.query(490, 490, 5, 5, result));
+        assertEquals("b", grid.get(result.first()));
+        assertEquals(2, grid.size());
+    }
+
+    @Test
+    void clearRemovesEveryItem() {
+        SpatialGrid<String> grid = new SpatialGrid<>(CELL, 64);
+        for (int i = 0; i < 200; i++) {
+            grid.insert("x", i, i, 5, 5);
+        }
+        grid.clear();
+        grid.insert("y", 1000, 1000, 5, 5);
+
+        IntArray result = new IntArray();
+        assertEquals(0, grid.query(0, 0, 300, 300, result));
+        assertEquals(1, grid.query(990, 990, 20, 20, result));
+        assertEquals(1, grid.size());
+    }
+
+    @Test
+    void rejectsNonPositiveCellSize() {
+        assertThrows(IllegalArgumentException.class, () -> new SpatialGrid<>(0, 16));
+    }
+
+    private static Rectangle randomRect(Random random) {
+        // negative coordinates too, and now and then something spanning many cells
+        float x = random.nextFloat() * 2000 - 1000;
+        float y = random.nextFloat() * 2000 - 1000;
+        float size = random.nextInt(10) == 0 ? random.nextFloat() * 400 : random.nextFloat() * 40;
+        return new Rectangle(x, y, size, size * (0.5f + random.nextFloat()));
+    }
+
+    private static boolean sharesCell(Rectangle a, Rectangle b) {
+        return cell(a.x) <= cell(b.x + b.width) && cell(b.x) <= cell(a.x + a.width)
+                && cell(a.y) <= cell(b.y + b.height) && cell(b.y) <= cell(a.y + a.height);
+    }
+
+    private static int cell(float coordinate) {
+        return (int) Math.floor(coordinate / CELL);
+    }
+}
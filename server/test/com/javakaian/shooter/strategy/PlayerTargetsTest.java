@@ -0,0 +1,149 @@
+package com.javakaian.shooter.strategy;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.javakaian.shooter.shapes.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlayerTargetsTest {
+
+    private final PlayerTargets targets = new PlayerTargets();
+    private final IntArray result = new IntArray();
+
+    @Test
+    void queriesMatchALinearScan() {
+        Random random = new Random(2);
+        // a crowd, a map, and a spread that needs far more than MAX_CELLS cells
+        for (float spread : new float[]{50, 3000, 400_000}) {
+            for (int round = 0; round < 5; round++) {
+                List<Player> players = randomPlayers(random, 1 + random.nextInt(200), spread);
+                targets.rebuild(players);
+
+                for (int q = 0; q < 300; q++) {
+                    // well outside the players' bounding box too
+                    float px = random.nextFloat() * spread * 3 - spread;
+                    float py = random.nextFloat() * spread * 3 - spread;
+                    assertEquals(nearestByScan(players, px, py), targets.nearest(px, py),
+                            "nearest to " + px + ", " + py + " with spread " + spread);
+
+                    float radius = random.nextFloat() * spread / 2;
+                    targets.within(px, py, radius, result);
+                    assertArrayEquals(withinByScan(players, px, py, radius), result.toArray(),
+                            "within " + radius + " of " + px + ", " + py + " with spread " + spread);
+                }
+            }
+        }
+    }
+
+    @Test
+    void tiesGoToTheLowerIndex() {
+        List<Player> players = new ArrayList<>();
+        players.add(player(300, 300));
+        players.add(player(110, 100));
+        players.add(player(90, 100));
+        players.add(player(110, 100));
+        // same place, one cell further along
+        players.add(player(1000, 1000));
+        players.add(player(1000, 1000));
+        targets.rebuild(players);
+
+        assertEquals(1, targets.nearest(100, 100));
+        assertEquals(1, targets.nearest(110, 100));
+        assertEquals(4, targets.nearest(1000, 1000));
+        assertEquals(4, targets.nearest(5000, 5000));
+
+        Random random = new Random(4);
+        for (int q = 0; q < 1000; q++) {
+            // points on the grid of the positions make ties likely
+            float px = random.nextInt(12) * 100 - 50;
+            float py = random.nextInt(12) * 100 - 50;
+            assertEquals(nearestByScan(players, px, py), targets.nearest(px, py));
+        }
+    }
+
+    @Test
+    void singlePlayerIsAlwaysTheNearest() {
+        targets.rebuild(List.of(player(40, -70)));
+
+        assertEquals(0, targets.nearest(40, -70));
+        assertEquals(0, targets.nearest(-1e6f, 1e6f));
+        targets.within(0, 0, 100, result);
+        assertArrayEquals(new int[]{0}, result.toArray());
+        targets.within(1000, 0, 100, result);
+        assertEquals(0, result.size);
+    }
+
+    @Test
+    void noPlayersNoTargets() {
+        targets.rebuild(List.of());
+
+        assertTrue(targets.isEmpty());
+        assertEquals(-1, targets.nearest(0, 0));
+        targets.within(0, 0, 1000, result);
+        assertEquals(0, result.size);
+    }
+
+    @Test
+    void rebuildForgetsThePreviousTick() {
+        Random random = new Random(6);
+        targets.rebuild(randomPlayers(random, 300, 400_000));
+        List<Player> players = randomPlayers(random, 20, 500);
+        targets.rebuild(players);
+
+        assertEquals(20, targets.size());
+        for (int q = 0; q < 200; q++) {
+            float px = random.nextFloat() * 1500 - 500;
+            float py = random.nextFloat() * 1500 - 500;
+            assertEquals(nearestByScan(players, px, py), targets.nearest(px, py));
+            targets.within(px, py, 300, result);
+            assertArrayEquals(withinByScan(players, px, py, 300), result.toArray());
+        }
+    }
+
+    private static List<Player> randomPlayers(Random random, int count, float spread) {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            players.add(player(random.nextFloat() * spread, random.nextFloat() * spread));
+        }
+        return players;
+    }
+
+    private static Player player(float x, float y) {
+        return new Player(x, y, 50, 0);
+    }
+
+    /**
+     * The loop the index replaced, the first of equally near players wins.
+     */
+    private static int nearestByScan(List<Player> players, float px, float py) {
+        int best = -1;
+        float bestDistance = Float.MAX_VALUE;
+        for (int i = 0; i < players.size(); i++) {
+            float dx = players.get(i).getPosition().x - px;
+            float dy = players.get(i).getPosition().y - py;
+            float d = dx * dx + dy * dy;
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static int[] withinByScan(List<Player> players, float px, float py, float radius) {
+        IntArray within = new IntArray();
+        for (int i = 0; i < players.size(); i++) {
+            float dx = players.get(i).getPosition().x - px;
+            float dy = players.get(i).getPosition().y - py;
+            if (dx * dx + dy * dy < radius * radius) {
+                within.add(i);
+            }
+        }
+        return within.toArray();
+    }
+}
@@ -0,0 +1,79 @@
+package com.javakaian.network;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.javakaian.network.messages.*;
+import com.javakaian.network.serialization.SharedPayload;
+import com.javakaian.network.serialization.SharedPayloadSerializer;
+import com.javakaian.network.serialization.SnapshotMessageSerializer;
+import com.javakaian.shooter.ViewLimits;
+
+/**
+ * The classes client and server exchange, registered the same way by the
+ * game client, the server, the load test bots and the match journal.
+ */
+public final class NetworkRegistry {
+
+    /**
+     * Object buffer of every kryo endpoint, the largest object that can be
+     * read or written. Snapshots are the largest messages, this fits one of
+     * the most entities a client can be sent.
+     */
+    public static final int OBJECT_BUFFER = SnapshotMessageSerializer.maxBytes(ViewLimits.MAX_VIEW_ENTITIES + 1);
+
+    /**
+     * Most bytes of a snapshot sent as a UDP datagram, see
+     * {@link SnapshotMessageSerializer#size}. With the class id and the IP
+     * and UDP headers it stays below 1280 B, the least every IPv6 link
+     * carries, so the datagram is never fragmented. Larger snapshots go
+     * over TCP.
+     */
+    public static final int DATAGRAM_BUDGET = 1200;
+
+    private NetworkRegistry() {
+    }
+
+    /**
+     * This function register every class that will be sent back and forth between
+     * client and server. Both sides have to register the same classes in the
+     * same order.
+     */
+    public static void registerClasses(Kryo kryo) {
+        // messages
+        kryo.register(LoginMessage.class);
+        kryo.register(LogoutMessage.class);
+        kryo.register(GameWorldMessage.class);
+        kryo.register(ShootMessage.class);
+        kryo.register(PlayerDiedMessage.class);
+
+        kryo.register(WeaponChangeMessage.class);
+        kryo.register(WeaponInfoMessage.class);
+        kryo.register(AmmoUpdateMessage.class);
+        kryo.register(ReloadMessage.class);
+
+        kryo.register(PlaceSpikeMessage.class);
+        kryo.register(UndoSpikeMessage.class);
+        kryo.register(InventoryUpdateMessage.class);
+
+        // Team chat messages - Mediator pattern
+        kryo.register(ChatMessage.class);
+        kryo.register(TeamAssignmentMessage.class);
+
+        // primitive arrays
+        kryo.register(float[].class);
+
+        //memento rewind
+        kryo.register(RewindMessage.class);
+
+        // delta snapshots
+        kryo.register(int[].class);
+        kryo.register(SnapshotMessage.class, new SnapshotMessageSerializer());
+        kryo.register(SnapshotAckMessage.class);
+
+        // input commands
+        kryo.register(byte[].class);
+        kryo.register(InputCommandMessage.class);
+
+        // messages serialized once for many connections
+        kryo.register(SharedPayload.class, new SharedPayloadSerializer());
+    }
+}
@@ -38,6 +38,12 @@ public class GameWorldMessage {
      */
     private float[] powerUps;
 
+    /**
+     * Last input command of the receiving player the server applied, used to
+     * reconcile the predicted position.
+     */
+    private int lastInput;
+
     public float[] getEnemies() {
         return enemies;
     }
@@ -86,4 +92,11 @@ public class GameWorldMessage {
         this.powerUps = powerUps;
     }
 
+    public int getLastInput() {
+        return lastInput;
+    }
+
+    public void setLastInput(int lastInput) {
+        this.lastInput = lastInput;
+    }
 }
@@ -0,0 +1,61 @@
+package com.javakaian.network.messages;
+
+/**
+ * Movement input of a player, sent by the client once per frame, or a few
+ * times when a long frame took more commands than fit in one message.
+ * <p>
+ * Every input command covers {@link com.javakaian.shooter.PlayerMovement#STEP}
+ * seconds and has its own sequence number. A message repeats the latest few
+ * commands, so a lost packet costs nothing as long as the next one arrives.
+ * The server skips the commands it already has.
+ */
+public class InputCommandMessage {
+
+    private int playerId;
+    /**
+     * Sequence number of the first command in {@link #buttons}, the others
+     * follow in order.
+     */
+    private int firstSequence;
+    /**
+     * Movement keys of each command, see
+     * {@link com.javakaian.shooter.PlayerMovement}.
+     */
+    private byte[] buttons;
+    /**
+     * Aim direction when the newest command was taken, in radians.
+     */
+    private float aimAngle;
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(int playerId) {
+        this.playerId = playerId;
+    }
+
+    public int getFirstSequence() {
+        return firstSequence;
+    }
+
+    public void setFirstSequence(int firstSequence) {
+        this.firstSequence = firstSequence;
+    }
+
+    public byte[] getButtons() {
+        return buttons;
+    }
+
+    public void setButtons(byte[] buttons) {
+        this.buttons = buttons;
+    }
+
+    public float getAimAngle() {
+        return aimAngle;
+    }
+
+    public void setAimAngle(float aimAngle) {
+        this.aimAngle = aimAngle;
+    }
+}
@@ -23,6 +23,11 @@ public class LoginMessage {
      */
     private String selectedTeam;
 
+    /**
+     * Room to play in, null lets the server pick one
+     */
+    private String room;
+
     public int getPlayerId() {
         return playerId;
     }
@@ -55,4 +60,12 @@ public class LoginMessage {
         this.selectedTeam = selectedTeam;
     }
 
+    public String getRoom() {
+        return room;
+    }
+
+    public void setRoom(String room) {
+        this.room = room;
+    }
+
 }
@@ -0,0 +1,25 @@
+package com.javakaian.network.messages;
+
+/**
+ * Sent by clients for every snapshot they applied. The server uses the latest
+ * acknowledged snapshot as the baseline for the next ones.
+ */
+public class SnapshotAckMessage {
+
+    private int sequence;
+
+    public SnapshotAckMessage() {
+    }
+
+    public SnapshotAckMessage(int sequence) {
+        this.sequence = sequence;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
+}
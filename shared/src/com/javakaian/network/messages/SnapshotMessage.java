@@ -0,0 +1,77 @@
+package com.javakaian.network.messages;
+
+/**
+ * World state sent to a client every tick, encoded as a difference to a
+ * snapshot the client already acknowledged. See
+ * {@link com.javakaian.network.snapshot.SnapshotCodec} for the layout of the
+ * arrays.
+ */
+public class SnapshotMessage {
+
+    /**
+     * Sequence number of this snapshot, increases by one per snapshot.
+     */
+    private int sequence;
+    /**
+     * Sequence number of the snapshot this one is relative to, or -1 if this
+     * is a full snapshot.
+     */
+    private int baseline = -1;
+    /**
+     * Entities that are gone since the baseline.
+     */
+    private int[] removed;
+    /**
+     * Entities that are new or changed since the baseline.
+     */
+    private int[] changed;
+    /**
+     * Sequence number of the last input command of the receiving player the
+     * server applied before taking this snapshot, 0 if none.
+     */
+    private int lastInput;
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
+
+    public int getBaseline() {
+        return baseline;
+    }
+
+    public void setBaseline(int baseline) {
+        this.baseline = baseline;
+    }
+
+    public boolean isFull() {
+        return baseline < 0;
+    }
+
+    public int[] getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(int[] removed) {
+        this.removed = removed;
+    }
+
+    public int[] getChanged() {
+        return changed;
+    }
+
+    public void setChanged(int[] changed) {
+        this.changed = changed;
+    }
+
+    public int getLastInput() {
+        return lastInput;
+    }
+
+    public void setLastInput(int lastInput) {
+        this.lastInput = lastInput;
+    }
+}
@@ -0,0 +1,38 @@
+package com.javakaian.network.serialization;
+
+/**
+ * A message that was already serialized, class and all, so it can be sent to
+ * many connections without serializing it again for each of them.
+ * <p>
+ * {@link SharedPayloadSerializer} writes the bytes as they are, and reading
+ * them gives back the original message, so receivers never see this class.
+ */
+public class SharedPayload {
+
+    private byte[] bytes;
+    private int length;
+
+    public SharedPayload() {
+    }
+
+    public SharedPayload(byte[] bytes, int length) {
+        set(bytes, length);
+    }
+
+    /**
+     * Points the payload at already serialized bytes. The array is not
+     * copied, it must not change while the payload is being sent.
+     */
+    public void set(byte[] bytes, int length) {
+        this.bytes = bytes;
+        this.length = length;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public int getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,29 @@
+package com.javakaian.network.serialization;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Writes the bytes of a {@link SharedPayload} unchanged and reads them back as
+ * the message they were serialized from. Both sides must register the same
+ * classes in the same order, which they already have to for Kryo.
+ */
+public class SharedPayloadSerializer extends Serializer<Object> {
+
+    public SharedPayloadSerializer() {
+        setImmutable(true);
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output, Object object) {
+        SharedPayload payload = (SharedPayload) object;
+        output.writeBytes(payload.getBytes(), 0, payload.getLength());
+    }
+
+    @Override
+    public Object read(Kryo kryo, Input input, Class<?> type) {
+        return kryo.readClassAndObject(input);
+    }
+}
@@ -0,0 +1,303 @@
+package com.javakaian.network.serialization;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.javakaian.network.messages.SnapshotMessage;
+import com.javakaian.network.snapshot.Snapshot;
+
+/**
+ * Writes a {@link SnapshotMessage} in a compact binary form.
+ * <p>
+ * The default field serializer writes every int of the two section arrays as
+ * a signed variable length integer. This one knows their layout (see
+ * {@link com.javakaian.network.snapshot.SnapshotCodec}) and makes use of it:
+ * <ul>
+ * <li>sequence numbers, counts and id gaps are never negative, so they are
+ * written as unsigned varints, and the baseline as its distance to the
+ * sequence</li>
+ * <li>kinds take a single byte</li>
+ * <li>a changed section where many fields are zero, like players whose
+ * health and shield did not change or bullets that kept their size, starts
+ * with one bit per field, set if the field is not zero. Only those fields
+ * follow. Sections where nearly everything changes, like moving enemies, skip
+ * the bits.</li>
+ * </ul>
+ * Fields are written as signed varints. Positions are already fixed point
+ * (see {@link Snapshot#SCALE}), so within the current map a new entity's
+ * position takes two bytes and a delta mostly one.
+ * The length of each array is written up front so reading allocates it once.
+ * <p>
+ * Keeps no state, one instance can be shared by every connection.
+ */
+public class SnapshotMessageSerializer extends Serializer<SnapshotMessage> {
+
+    private static final int[] EMPTY = new int[0];
+    /**
+     * An entity takes at least a byte for its id gap and a bit per field, so a
+     * valid array never has more ints than this per byte of input.
+     */
+    private static final int MAX_INTS_PER_BYTE = 8;
+    /** Set in the kind byte of a changed section that carries field masks. */
+    private static final int MASKED = 0x40;
+    /** Longest varint of an int. */
+    private static final int VARINT = 5;
+    /** Class id, sequence, baseline, last input and the two array lengths. */
+    private static final int HEADER = 6 * VARINT;
+
+    public SnapshotMessageSerializer() {
+        setImmutable(true);
+    }
+
+    /**
+     * Most bytes a message can take, class id included, when neither its
+     * snapshot nor the baseline has more than {@code entities} entities.
+     */
+    public static int maxBytes(int entities) {
+        int widest = 0;
+        for (int kind = 0; kind < Snapshot.KINDS; kind++) {
+            widest = Math.max(widest, Snapshot.stride(kind));
+        }
+        // every baseline entity removed and every entity new, each array
+        // with a section of two ints per kind
+        int sections = 2 * Snapshot.KINDS;
+        return maxBytes(sections + entities, sections + entities * (1 + widest));
+    }
+
+    /**
+     * Most bytes the message can be written to, class id included, without
+     * writing it.
+     */
+    public static int maxBytes(SnapshotMessage m) {
+        return maxBytes(m.getRemoved() == null ? 0 : m.getRemoved().length,
+                m.getChanged() == null ? 0 : m.getChanged().length);
+    }
+
+    private static int maxBytes(int removed, int changed) {
+        // a varint per int, a mask bit per changed int and a partly used
+        // mask byte per section
+        return HEADER + (removed + changed) * VARINT + changed / 8 + Snapshot.KINDS;
+    }
+
+    /**
+     * Bytes the message is written to, class id not included, without
+     * writing it.
+     */
+    public static int size(SnapshotMessage m) {
+        int[] removed = m.getRemoved() == null ? EMPTY : m.getRemoved();
+        int[] changed = m.getChanged() == null ? EMPTY : m.getChanged();
+        int size = Output.varIntLength(m.getSequence(), true)
+                + Output.varIntLength(m.isFull() ? 0 : m.getSequence() - m.getBaseline(), true)
+                + Output.varIntLength(m.getLastInput(), true);
+
+        size += Output.varIntLength(removed.length, true);
+        int p = 0;
+        while (p < removed.length) {
+            int n = removed[p + 1];
+            size += 1 + Output.varIntLength(n, true);
+            p += 2;
+            for (int k = 0; k < n; k++) {
+                size += Output.varIntLength(removed[p++], true);
+            }
+        }
+
+        size += Output.varIntLength(changed.length, true);
+        p = 0;
+        while (p < changed.length) {
+            int n = changed[p + 1];
+            int stride = Snapshot.stride(changed[p]);
+            p += 2;
+            boolean masked = isMasked(changed, p, n, stride);
+            size += 1 + Output.varIntLength(n, true);
+            if (masked) {
+                size += (n * stride + 7) / 8;
+            }
+            for (int k = 0; k < n; k++) {
+                size += Output.varIntLength(changed[p++], true);
+                for (int f = 0; f < stride; f++) {
+                    if (!masked || changed[p + f] != 0) {
+                        size += Output.varIntLength(changed[p + f], false);
+                    }
+                }
+                p += stride;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output, SnapshotMessage m) {
+        output.writeVarInt(m.getSequence(), true);
+        // 0 marks a full snapshot, a baseline is always older than the snapshot
+        output.writeVarInt(m.isFull() ? 0 : m.getSequence() - m.getBaseline(), true);
+        output.writeVarInt(m.getLastInput(), true);
+        writeRemoved(output, m.getRemoved() == null ? EMPTY : m.getRemoved());
+        writeChanged(output, m.getChanged() == null ? EMPTY : m.getChanged());
+    }
+
+    @Override
+    public SnapshotMessage read(Kryo kryo, Input input, Class<? extends SnapshotMessage> type) {
+        SnapshotMessage m = new SnapshotMessage();
+        int sequence = input.readVarInt(true);
+        int distance = input.readVarInt(true);
+        m.setSequence(sequence);
+        m.setBaseline(distance == 0 ? -1 : sequence - distance);
+        m.setLastInput(input.readVarInt(true));
+        m.setRemoved(readRemoved(input));
+        m.setChanged(readChanged(input));
+        return m;
+    }
+
+    private static void writeRemoved(Output output, int[] removed) {
+        output.writeVarInt(removed.length, true);
+        int p = 0;
+        while (p < removed.length) {
+            int n = removed[p + 1];
+            output.writeByte(removed[p]);
+            output.writeVarInt(n, true);
+            p += 2;
+            for (int k = 0; k < n; k++) {
+                output.writeVarInt(removed[p++], true);
+            }
+        }
+    }
+
+    private static int[] readRemoved(Input input) {
+        int[] removed = new int[readLength(input)];
+        int p = 0;
+        while (p < removed.length) {
+            removed[p] = readKind(input);
+            int n = input.readVarInt(true);
+            removed[p + 1] = n;
+            p += 2;
+            checkRoom(removed, p, n);
+            for (int k = 0; k < n; k++) {
+                removed[p++] = input.readVarInt(true);
+            }
+        }
+        return removed;
+    }
+
+    private static void writeChanged(Output output, int[] changed) {
+        output.writeVarInt(changed.length, true);
+        int p = 0;
+        while (p < changed.length) {
+            int kind = changed[p];
+            int n = changed[p + 1];
+            int stride = Snapshot.stride(kind);
+            p += 2;
+            boolean masked = isMasked(changed, p, n, stride);
+
+            output.writeByte(masked ? kind | MASKED : kind);
+            output.writeVarInt(n, true);
+            if (masked) {
+                writeMasks(output, changed, p, n, stride);
+            }
+            for (int k = 0; k < n; k++) {
+                output.writeVarInt(changed[p++], true);
+                for (int f = 0; f < stride; f++) {
+                    if (!masked || changed[p + f] != 0) {
+                        output.writeVarInt(changed[p + f], false);
+                    }
+                }
+                p += stride;
+            }
+        }
+    }
+
+    /**
+     * Whether the section at {@code p} is written with field masks.
+     */
+    private static boolean isMasked(int[] changed, int p, int n, int stride) {
+        int zeros = 0;
+        for (int k = 0, o = p + 1; k < n; k++, o += 1 + stride) {
+            for (int f = 0; f < stride; f++) {
+                if (changed[o + f] == 0) {
+                    zeros++;
+                }
+            }
+        }
+        // a mask costs a bit per field and saves a byte per zero field
+        return zeros * 8 > n * stride;
+    }
+
+    /**
+     * Writes one bit per field of the section, set if the field is not zero.
+     */
+    private static void writeMasks(Output output, int[] changed, int p, int n, int stride) {
+        int bits = 0;
+        int used = 0;
+        for (int k = 0, o = p + 1; k < n; k++, o += 1 + stride) {
+            for (int f = 0; f < stride; f++) {
+                if (changed[o + f] != 0) {
+                    bits |= 1 << used;
+                }
+                if (++used == 8) {
+                    output.writeByte(bits);
+                    bits = 0;
+                    used = 0;
+                }
+            }
+        }
+        if (used > 0) {
+            output.writeByte(bits);
+        }
+    }
+
+    private static int[] readChanged(Input input) {
+        int[] changed = new int[readLength(input)];
+        int p = 0;
+        while (p < changed.length) {
+            int header = input.readByte();
+            boolean masked = (header & MASKED) != 0;
+            int kind = checkKind(header & ~MASKED);
+            int n = input.readVarInt(true);
+            int stride = Snapshot.stride(kind);
+            changed[p] = kind;
+            changed[p + 1] = n;
+            p += 2;
+            checkRoom(changed, p, (long) n * (1 + stride));
+
+            byte[] masks = masked ? input.readBytes((n * stride + 7) / 8) : null;
+            int bit = 0;
+            for (int k = 0; k < n; k++) {
+                changed[p++] = input.readVarInt(true);
+                for (int f = 0; f < stride; f++, bit++) {
+                    if (!masked || (masks[bit >> 3] & (1 << (bit & 7))) != 0) {
+                        changed[p] = input.readVarInt(false);
+                    }
+                    p++;
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static int readLength(Input input) {
+        int length = input.readVarInt(true);
+        // the length comes from the network, don't let it allocate arbitrary memory
+        if (length > input.limit() * MAX_INTS_PER_BYTE) {
+            throw new KryoException("Snapshot section too long: " + length);
+        }
+        return length;
+    }
+
+    private static int readKind(Input input) {
+        return checkKind(input.readByte());
+    }
+
+    private static int checkKind(int kind) {
+        if (kind < 0 || kind >= Snapshot.KINDS) {
+            throw new KryoException("Unknown entity kind: " + kind);
+        }
+        return kind;
+    }
+
+    private static void checkRoom(int[] array, int position, long needed) {
+        if (needed < 0 || position + needed > array.length) {
+            throw new KryoException("Snapshot section does not fit its length");
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.javakaian.network.snapshot;
+
+import java.util.Arrays;
+
+/**
+ * State of the world at one server tick, as sent over the network.
+ * <p>
+ * Entities are grouped by kind. Every entity has an id that is unique within
+ * its kind and stays the same for as long as the entity exists, and a fixed
+ * number of integer fields. Positions, sizes and rotations are quantized with
+ * {@link #quantize(float)}, so two snapshots can be compared exactly and a
+ * small movement becomes a small number.
+ * <p>
+ * After {@link #sortById()} the entities of every kind are ordered by id,
+ * which is what {@link SnapshotCodec} needs to diff two snapshots in one
+ * pass. Storage grows as needed and is reused when the snapshot is cleared.
+ */
+public class Snapshot {
+
+    public static final int ENEMY = 0;
+    public static final int PLAYER = 1;
+    public static final int BULLET = 2;
+    public static final int SPIKE = 3;
+    public static final int PLACED_SPIKE = 4;
+    public static final int POWER_UP = 5;
+    public static final int KINDS = 6;
+
+    /**
+     * Number of fields per entity of each kind.
+     * <ul>
+     * <li>enemy: x, y</li>
+     * <li>player: x, y, health, shield, shield health, team code</li>
+     * <li>bullet: x, y, size</li>
+     * <li>spike: x, y, size</li>
+     * <li>placed spike: x, y, size, rotation</li>
+     * <li>power up: x, y, size, type</li>
+     * </ul>
+     */
+    static final int[] STRIDE = {2, 6, 3, 3, 4, 4};
+
+    /** Quantization steps per world unit, a quarter unit is plenty on screen. */
+    public static final float SCALE = 4f;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int sequence = -1;
+    private final int[] counts = new int[KINDS];
+    private final int[][] ids = new int[KINDS][];
+    private final int[][] fields = new int[KINDS][];
+    // holds one entity while sorting, sized for the widest kind
+    private final int[] scratch = new int[6];
+
+    public Snapshot() {
+        for (int kind = 0; kind < KINDS; kind++) {
+            ids[kind] = new int[INITIAL_CAPACITY];
+            fields[kind] = new int[INITIAL_CAPACITY * STRIDE[kind]];
+        }
+    }
+
+    public static int quantize(float value) {
+        return Math.round(value * SCALE);
+    }
+
+    public static float dequantize(int value) {
+        return value / SCALE;
+    }
+
+    public static int stride(int kind) {
+        return STRIDE[kind];
+    }
+
+    /**
+     * Removes every entity and sets the sequence number.
+     */
+    public void clear(int sequence) {
+        this.sequence = sequence;
+        Arrays.fill(counts, 0);
+    }
+
+    public void copyFrom(Snapshot other) {
+        this.sequence = other.sequence;
+        for (int kind = 0; kind < KINDS; kind++) {
+            int n = other.counts[kind];
+            ensureCapacity(kind, n);
+            System.arraycopy(other.ids[kind], 0, ids[kind], 0, n);
+            System.arraycopy(other.fields[kind], 0, fields[kind], 0, n * STRIDE[kind]);
+            counts[kind] = n;
+        }
+    }
+
+    public void addEnemy(int id, float x, float y) {
+        int o = append(ENEMY, id);
+        int[] f = fields[ENEMY];
+        f[o] = quantize(x);
+        f[o + 1] = quantize(y);
+    }
+
+    public void addPlayer(int id, float x, float y, int health, boolean shield, int shieldHealth, int teamCode) {
+        int o = append(PLAYER, id);
+        int[] f = fields[PLAYER];
+        f[o] = quantize(x);
+        f[o + 1] = quantize(y);
+        f[o + 2] = health;
+        f[o + 3] = shield ? 1 : 0;
+        f[o + 4] = shieldHealth;
+        f[o + 5] = teamCode;
+    }
+
+    public void addBullet(int id, float x, float y, float size) {
+        int o = append(BULLET, id);
+        int[] f = fields[BULLET];
+        f[o] = quantize(x);
+        f[o + 1] = quantize(y);
+        f[o + 2] = quantize(size);
+    }
+
+    public void addSpike(int id, float x, float y, float size) {
+        int o = append(SPIKE, id);
+        int[] f = fields[SPIKE];
+        f[o] = quantize(x);
+        f[o + 1] = quantize(y);
+        f[o + 2] = quantize(size);
+    }
+
+    public void addPlacedSpike(int id, float x, float y, float size, float rotation) {
+        int o = append(PLACED_SPIKE, id);
+        int[] f = fields[PLACED_SPIKE];
+        f[o] = quantize(x);
+        f[o + 1] = quantize(y);
+        f[o + 2] = quantize(size);
+        f[o + 3] = quantize(rotation);
+    }
+
+    public void addPowerUp(int id, float x, float y, float size, int type) {
+        int o = append(POWER_UP, id);
+        int[] f = fields[POWER_UP];
+        f[o] = quantize(x);
+        f[o + 1] = quantize(y);
+        f[o + 2] = quantize(size);
+        f[o + 3] = type;
+    }
+
+    /**
+     * Copies one entity of another snapshot into this one.
+     */
+    public void addFrom(Snapshot source, int kind, int index) {
+        int stride = STRIDE[kind];
+        int o = append(kind, source.ids[kind][index]);
+        System.arraycopy(source.fields[kind], index * stride, fields[kind], o, stride);
+    }
+
+    /**
+     * Fills this snapshot with the entities of {@code to}, their positions
+     * moved from where they were in {@code from} towards where they are in
+     * {@code to}. A {@code t} of 0 gives the positions of {@code from}, 1 the
+     * ones of {@code to}, larger values extrapolate. Entities that are not in
+     * {@code from} are taken as they are in {@code to}, all other fields always
+     * come from {@code to}. Both snapshots must be sorted by id.
+     */
+    public void interpolate(Snapshot from, Snapshot to, float t) {
+        this.sequence = to.sequence;
+        for (int kind = 0; kind < KINDS; kind++) {
+            int stride = STRIDE[kind];
+            int n = to.counts[kind];
+            ensureCapacity(kind, n);
+            System.arraycopy(to.ids[kind], 0, ids[kind], 0, n);
+            System.arraycopy(to.fields[kind], 0, fields[kind], 0, n * stride);
+            counts[kind] = n;
+
+            int[] fromIds = from.ids[kind];
+            int[] fromFields = from.fields[kind];
+            int[] f = fields[kind];
+            int fn = from.counts[kind];
+            int i = 0;
+            for (int j = 0; j < n; j++) {
+                int id = ids[kind][j];
+                while (i < fn && fromIds[i] < id) {
+                    i++;
+                }
+                if (i < fn && fromIds[i] == id) {
+                    int o = j * stride;
+                    int fo = i * stride;
+                    // fields 0 and 1 are the position for every kind
+                    f[o] = Math.round(fromFields[fo] + (f[o] - fromFields[fo]) * t);
+                    f[o + 1] = Math.round(fromFields[fo + 1] + (f[o + 1] - fromFields[fo + 1]) * t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Index of the entity with the given id, or a negative value if there is
+     * none. Only valid after {@link #sortById()}.
+     */
+    public int indexOf(int kind, int id) {
+        return Arrays.binarySearch(ids[kind], 0, counts[kind], id);
+    }
+
+    /**
+     * Adds an entity of the given kind, the caller fills in its fields.
+     *
+     * @return offset of the entity's first field in {@link #fields(int)}
+     */
+    int append(int kind, int id) {
+        int n = counts[kind];
+        ensureCapacity(kind, n + 1);
+        ids[kind][n] = id;
+        counts[kind] = n + 1;
+        return n * STRIDE[kind];
+    }
+
+    /**
+     * Orders the entities of every kind by id. Entities are mostly added in id
+     * order already, so this is close to linear.
+     */
+    public void sortById() {
+        for (int kind = 0; kind < KINDS; kind++) {
+            insertionSort(kind);
+        }
+    }
+
+    private void insertionSort(int kind) {
+        int[] id = ids[kind];
+        int[] f = fields[kind];
+        int stride = STRIDE[kind];
+        int n = counts[kind];
+
+        for (int i = 1; i < n; i++) {
+            int key = id[i];
+            if (id[i - 1] <= key) {
+                continue;
+            }
+            System.arraycopy(f, i * stride, scratch, 0, stride);
+            int j = i - 1;
+            while (j >= 0 && id[j] > key) {
+                id[j + 1] = id[j];
+                System.arraycopy(f, j * stride, f, (j + 1) * stride, stride);
+                j--;
+            }
+            id[j + 1] = key;
+            System.arraycopy(scratch, 0, f, (j + 1) * stride, stride);
+        }
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
+
+    public int count(int kind) {
+        return counts[kind];
+    }
+
+    public int id(int kind, int index) {
+        return ids[kind][index];
+    }
+
+    public int field(int kind, int index, int field) {
+        return fields[kind][index * STRIDE[kind] + field];
+    }
+
+    int[] ids(int kind) {
+        return ids[kind];
+    }
+
+    int[] fields(int kind) {
+        return fields[kind];
+    }
+
+    private void ensureCapacity(int kind, int capacity) {
+        if (capacity <= ids[kind].length) {
+            return;
+        }
+        int size = Math.max(capacity, ids[kind].length * 2);
+        ids[kind] = Arrays.copyOf(ids[kind], size);
+        fields[kind] = Arrays.copyOf(fields[kind], size * STRIDE[kind]);
+    }
+}
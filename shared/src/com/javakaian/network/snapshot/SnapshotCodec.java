@@ -0,0 +1,265 @@
+package com.javakaian.network.snapshot;
+
+import com.javakaian.network.messages.SnapshotMessage;
+
+import java.util.Arrays;
+
+/**
+ * Encodes a {@link Snapshot} as the difference to an older one and decodes it
+ * again.
+ * <p>
+ * Both arrays of a {@link SnapshotMessage} are a list of sections, one per
+ * entity kind that has entries, in kind order. A section starts with the kind
+ * and the number of entries:
+ * <ul>
+ * <li>removed: {@code kind, n, id...}</li>
+ * <li>changed: {@code kind, n, (id, field...)...}</li>
+ * </ul>
+ * Ids are written as the gap to the previous id of the section, the first
+ * one relative to zero. A changed entity that exists in the baseline carries
+ * the difference of each field to the baseline, a new one carries its
+ * fields as they are. Both sides look the entity up in the same baseline, so
+ * no flag is needed. Unchanged entities are not written at all.
+ * <p>
+ * With small gaps and small differences almost every number is tiny, which
+ * Kryo's variable length integers turn into one or two bytes.
+ * <p>
+ * An encoder keeps its scratch buffers, so use one per thread.
+ */
+public class SnapshotCodec {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final IntList removed = new IntList();
+    private final IntList changed = new IntList();
+
+    /**
+     * Encodes {@code current} relative to {@code baseline}. A null baseline
+     * gives a full snapshot. Both snapshots must be sorted by id.
+     */
+    public SnapshotMessage encode(Snapshot baseline, Snapshot current) {
+        SnapshotMessage m = new SnapshotMessage();
+        encode(baseline, current, m);
+        return m;
+    }
+
+    public void encode(Snapshot baseline, Snapshot current, SnapshotMessage out) {
+        removed.clear();
+        changed.clear();
+
+        for (int kind = 0; kind < Snapshot.KINDS; kind++) {
+            encodeKind(baseline, current, kind);
+        }
+
+        out.setSequence(current.getSequence());
+        out.setBaseline(baseline == null ? -1 : baseline.getSequence());
+        out.setRemoved(removed.toArray());
+        out.setChanged(changed.toArray());
+    }
+
+    private void encodeKind(Snapshot baseline, Snapshot current, int kind) {
+        int stride = Snapshot.STRIDE[kind];
+        int[] cid = current.ids(kind);
+        int[] cf = current.fields(kind);
+        int cn = current.count(kind);
+        int[] bid = baseline == null ? EMPTY : baseline.ids(kind);
+        int[] bf = baseline == null ? EMPTY : baseline.fields(kind);
+        int bn = baseline == null ? 0 : baseline.count(kind);
+
+        int removedHeader = -1;
+        int removedCount = 0;
+        int lastRemoved = 0;
+        int changedHeader = -1;
+        int changedCount = 0;
+        int lastChanged = 0;
+
+        int i = 0;
+        int j = 0;
+        while (i < bn || j < cn) {
+            if (j >= cn || (i < bn && bid[i] < cid[j])) {
+                // gone since the baseline
+                if (removedHeader < 0) {
+                    removedHeader = header(removed, kind);
+                }
+                removed.add(bid[i] - lastRemoved);
+                lastRemoved = bid[i];
+                removedCount++;
+                i++;
+            } else if (i >= bn || cid[j] < bid[i]) {
+                // new since the baseline
+                if (changedHeader < 0) {
+                    changedHeader = header(changed, kind);
+                }
+                changed.add(cid[j] - lastChanged);
+                lastChanged = cid[j];
+                changed.add(cf, j * stride, stride);
+                changedCount++;
+                j++;
+            } else {
+                int co = j * stride;
+                int bo = i * stride;
+                if (!equal(cf, co, bf, bo, stride)) {
+                    if (changedHeader < 0) {
+                        changedHeader = header(changed, kind);
+                    }
+                    changed.add(cid[j] - lastChanged);
+                    lastChanged = cid[j];
+                    for (int f = 0; f < stride; f++) {
+                        changed.add(cf[co + f] - bf[bo + f]);
+                    }
+                    changedCount++;
+                }
+                i++;
+                j++;
+            }
+        }
+
+        if (removedHeader >= 0) {
+            removed.set(removedHeader, removedCount);
+        }
+        if (changedHeader >= 0) {
+            changed.set(changedHeader, changedCount);
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot described by {@code m} into {@code out}.
+     *
+     * @param baseline snapshot with the sequence number {@code m} refers to,
+     *                 ignored for full snapshots. Must not be {@code out}.
+     * @return false if the baseline does not match or the message is
+     * malformed. {@code out} is undefined then.
+     */
+    public static boolean decode(Snapshot baseline, SnapshotMessage m, Snapshot out) {
+        if (!m.isFull() && (baseline == null || baseline.getSequence() != m.getBaseline())) {
+            return false;
+        }
+        if (m.isFull()) {
+            baseline = null;
+        }
+
+        int[] rem = m.getRemoved() == null ? EMPTY : m.getRemoved();
+        int[] ch = m.getChanged() == null ? EMPTY : m.getChanged();
+
+        out.clear(m.getSequence());
+        try {
+            int rp = 0;
+            int cp = 0;
+            for (int kind = 0; kind < Snapshot.KINDS; kind++) {
+                int stride = Snapshot.STRIDE[kind];
+
+                int remCount = 0;
+                if (rp < rem.length && rem[rp] == kind) {
+                    remCount = rem[rp + 1];
+                    rp += 2;
+                }
+                int chCount = 0;
+                if (cp < ch.length && ch[cp] == kind) {
+                    chCount = ch[cp + 1];
+                    cp += 2;
+                }
+
+                int[] bid = baseline == null ? EMPTY : baseline.ids(kind);
+                int[] bf = baseline == null ? EMPTY : baseline.fields(kind);
+                int bn = baseline == null ? 0 : baseline.count(kind);
+
+                int r = 0;
+                int removedId = remCount > 0 ? rem[rp] : 0;
+                int c = 0;
+                int changedId = chCount > 0 ? ch[cp] : 0;
+                int i = 0;
+
+                while (i < bn || c < chCount) {
+                    if (c < chCount && (i >= bn || changedId < bid[i])) {
+                        int o = out.append(kind, changedId);
+                        System.arraycopy(ch, cp + 1, out.fields(kind), o, stride);
+                        cp += 1 + stride;
+                        if (++c < chCount) {
+                            changedId += ch[cp];
+                        }
+                    } else if (c < chCount && changedId == bid[i]) {
+                        int o = out.append(kind, changedId);
+                        int[] of = out.fields(kind);
+                        int bo = i * stride;
+                        for (int f = 0; f < stride; f++) {
+                            of[o + f] = bf[bo + f] + ch[cp + 1 + f];
+                        }
+                        cp += 1 + stride;
+                        if (++c < chCount) {
+                            changedId += ch[cp];
+                        }
+                        i++;
+                    } else {
+                        if (r < remCount && removedId == bid[i]) {
+                            if (++r < remCount) {
+                                removedId += rem[rp + r];
+                            }
+                        } else {
+                            int o = out.append(kind, bid[i]);
+                            System.arraycopy(bf, i * stride, out.fields(kind), o, stride);
+                        }
+                        i++;
+                    }
+                }
+                rp += remCount;
+            }
+            return rp == rem.length && cp == ch.length;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+
+    private static boolean equal(int[] a, int ao, int[] b, int bo, int length) {
+        for (int k = 0; k < length; k++) {
+            if (a[ao + k] != b[bo + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int header(IntList list, int kind) {
+        list.add(kind);
+        list.add(0);
+        return list.size() - 1;
+    }
+
+    /**
+     * Growable int array, reused between encodes.
+     */
+    private static final class IntList {
+        private int[] items = new int[256];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+
+        void add(int[] values, int offset, int length) {
+            if (size + length > items.length) {
+                items = Arrays.copyOf(items, Math.max(size + length, size * 2));
+            }
+            System.arraycopy(values, offset, items, size, length);
+            size += length;
+        }
+
+        void set(int index, int value) {
+            items[index] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return size == 0 ? EMPTY : Arrays.copyOf(items, size);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.javakaian.shooter;
+
+/**
+ * Player movement as both the server and the predicting client run it.
+ * <p>
+ * Movement is driven by input commands, one per {@link #STEP} seconds of
+ * play, each holding the movement keys pressed as a bit mask. Running the
+ * same commands from the same position gives the same result on both sides.
+ */
+public final class PlayerMovement {
+
+    public static final int UP = 1;
+    public static final int DOWN = 1 << 1;
+    public static final int LEFT = 1 << 2;
+    public static final int RIGHT = 1 << 3;
+
+    /** Time covered by one input command, in seconds. */
+    public static final float STEP = 1 / 60f;
+
+    /** World units per second without a speed boost. */
+    public static final float BASE_SPEED = 200f;
+
+    private PlayerMovement() {
+    }
+
+    /**
+     * Horizontal movement of one command.
+     */
+    public static float dx(int buttons, float speed) {
+        float d = speed * STEP;
+        return ((buttons & RIGHT) != 0 ? d : 0) - ((buttons & LEFT) != 0 ? d : 0);
+    }
+
+    /**
+     * Vertical movement of one command, y grows downwards.
+     */
+    public static float dy(int buttons, float speed) {
+        float d = speed * STEP;
+        return ((buttons & DOWN) != 0 ? d : 0) - ((buttons & UP) != 0 ? d : 0);
+    }
+}
@@ -0,0 +1,37 @@
+package com.javakaian.shooter;
+
+/**
+ * How much of the world a client can see. The client clamps its camera to
+ * these limits and the server uses them to decide which entities a client
+ * needs to be told about.
+ */
+public final class ViewLimits {
+
+    /** Size of the camera viewport at zoom 1, in world units. */
+    public static final int VIEW_WIDTH = 1000;
+    public static final int VIEW_HEIGHT = 1000;
+
+    public static final float MIN_ZOOM = 0.2f;
+    public static final float MAX_ZOOM = 2.0f;
+    public static final float ZOOM_STEP = 0.2f;
+
+    /**
+     * Extra room around the largest view. Covers entity sizes and the camera
+     * trailing behind the player.
+     */
+    public static final float INTEREST_MARGIN = 200f;
+
+    /** Half width of the area around a player that is sent to its client. */
+    public static final float INTEREST_HALF_WIDTH = VIEW_WIDTH * MAX_ZOOM / 2f + INTEREST_MARGIN;
+    public static final float INTEREST_HALF_HEIGHT = VIEW_HEIGHT * MAX_ZOOM / 2f + INTEREST_MARGIN;
+
+    /**
+     * Most entities a client is sent in one snapshot, besides its own player.
+     * Bounds the size of a snapshot, see
+     * {@link com.javakaian.network.NetworkRegistry#OBJECT_BUFFER}.
+     */
+    public static final int MAX_VIEW_ENTITIES = 512;
+
+    private ViewLimits() {
+    }
+}
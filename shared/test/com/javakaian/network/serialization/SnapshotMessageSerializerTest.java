@@ -0,0 +1,199 @@
+package com.javakaian.network.serialization;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.javakaian.network.NetworkRegistry;
+import com.javakaian.network.messages.SnapshotMessage;
+import com.javakaian.network.snapshot.Snapshot;
+import com.javakaian.network.snapshot.SnapshotCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotMessageSerializerTest {
+
+    private Kryo kryo;
+
+    @BeforeEach
+    void setUp() {
+        kryo = new Kryo();
+        NetworkRegistry.registerClasses(kryo);
+    }
+
+    @Test
+    void fullSnapshotRoundTrips() {
+        Snapshot world = new Snapshot();
+        world.clear(12);
+        for (int id = 1; id <= 20; id++) {
+            world.addEnemy(id, id * 10, id * 20);
+            world.addPlayer(100 + id, id * 3, id * 7, 100, id % 2 == 0, 25, 1);
+        }
+        world.addPowerUp(7, 70, 80, 10, 2);
+        world.sortById();
+        SnapshotMessage m = new SnapshotCodec().encode(null, world);
+        m.setLastInput(345);
+
+        SnapshotMessage read = roundTrip(m);
+
+        assertTrue(read.isFull());
+        assertEquals(12, read.getSequence());
+        assertEquals(345, read.getLastInput());
+        assertArrayEquals(m.getRemoved(), read.getRemoved());
+        assertArrayEquals(m.getChanged(), read.getChanged());
+    }
+
+    @Test
+    void sectionWithMostlyZeroFieldsIsMasked() {
+        // players that only moved sideways, five of six fields stay zero
+        Snapshot baseline = new Snapshot();
+        Snapshot current = new Snapshot();
+        baseline.clear(1);
+        current.clear(2);
+        int players = 40;
+        for (int id = 1; id <= players; id++) {
+            baseline.addPlayer(id, 100, 100, 100, false, 0, 1);
+            current.addPlayer(id, 101, 100, 100, false, 0, 1);
+        }
+        SnapshotMessage m = new SnapshotCodec().encode(baseline, current);
+
+        byte[] bytes = write(m);
+        SnapshotMessage read = read(bytes);
+
+        assertEquals(1, read.getBaseline());
+        assertArrayEquals(m.getChanged(), read.getChanged());
+        // unmasked every player takes at least a byte per field and its id
+        assertTrue(bytes.length < players * (1 + Snapshot.stride(Snapshot.PLAYER)),
+                "masked section takes " + bytes.length + " bytes");
+    }
+
+    @Test
+    void sectionWithChangedFieldsIsNotMasked() {
+        // enemies that moved on both axes, no field is zero
+        Snapshot baseline = new Snapshot();
+        Snapshot current = new Snapshot();
+        baseline.clear(1);
+        current.clear(2);
+        for (int id = 1; id <= 40; id++) {
+            baseline.addEnemy(id, 100, 100);
+            current.addEnemy(id, 101 + id % 3, 99 - id % 5);
+        }
+        current.addEnemy(41, 0, 0);
+        baseline.addBullet(3, 5, 5, 5);
+        SnapshotMessage m = new SnapshotCodec().encode(baseline, current);
+
+        SnapshotMessage read = roundTrip(m);
+
+        assertArrayEquals(m.getRemoved(), read.getRemoved());
+        assertArrayEquals(m.getChanged(), read.getChanged());
+    }
+
+    @Test
+    void sizeStaysWithinBound() {
+        Snapshot world = new Snapshot();
+        world.clear(1_000_000);
+        for (int id = 0; id < 300; id++) {
+            world.addPlacedSpike(id * 1000, -id * 5000, id * 5000, 100, 359);
+        }
+        SnapshotMessage m = new SnapshotCodec().encode(null, world);
+
+        int bytes = write(m).length;
+
+        assertTrue(bytes <= SnapshotMessageSerializer.maxBytes(m));
+        assertTrue(bytes <= SnapshotMessageSerializer.maxBytes(300));
+    }
+
+    @Test
+    void sizeIsWhatIsWritten() {
+        Random random = new Random(3);
+        Snapshot baseline = new Snapshot();
+        Snapshot current = new Snapshot();
+        for (int round = 0; round < 50; round++) {
+            baseline.clear(round);
+            current.clear(round + 1 + random.nextInt(100));
+            for (int id = 0; id < 100; id++) {
+                float x = random.nextFloat() * 4000 - 2000;
+                float y = random.nextFloat() * 4000 - 2000;
+                if (random.nextInt(4) > 0) {
+                    baseline.addPlayer(id, x, y, 100, false, 0, 1);
+                }
+                if (random.nextInt(4) > 0) {
+                    // most move a little, some get hurt or pick up a shield
+                    current.addPlayer(id, x + random.nextInt(3), y, 100 - random.nextInt(2) * 30,
+                            random.nextInt(8) == 0, 0, 1);
+                }
+                if (random.nextBoolean()) {
+                    current.addBullet(id * 7, x, y, 10);
+                }
+            }
+            SnapshotMessage delta = new SnapshotCodec().encode(baseline, current);
+            delta.setLastInput(random.nextInt(100_000));
+            SnapshotMessage full = new SnapshotCodec().encode(null, current);
+
+            assertEquals(write(delta).length, SnapshotMessageSerializer.size(delta));
+            assertEquals(write(full).length, SnapshotMessageSerializer.size(full));
+        }
+    }
+
+    @Test
+    void oversizedLengthIsRejected() {
+        Output output = new Output(64);
+        output.writeVarInt(5, true);
+        output.writeVarInt(0, true);
+        output.writeVarInt(0, true);
+        // a removed array far longer than the message
+        output.writeVarInt(1_000_000_000, true);
+
+        assertThrows(KryoException.class, () -> read(output.toBytes()));
+    }
+
+    @Test
+    void unknownKindIsRejected() {
+        Output output = new Output(64);
+        output.writeVarInt(5, true);
+        output.writeVarInt(0, true);
+        output.writeVarInt(0, true);
+        output.writeVarInt(3, true);
+        output.writeByte(Snapshot.KINDS);
+        output.writeVarInt(1, true);
+        output.writeVarInt(4, true);
+
+        assertThrows(KryoException.class, () -> read(output.toBytes()));
+    }
+
+    @Test
+    void countLargerThanItsArrayIsRejected() {
+        Output output = new Output(64);
+        output.writeVarInt(5, true);
+        output.writeVarInt(0, true);
+        output.writeVarInt(0, true);
+        output.writeVarInt(0, true);
+        // three ints, but a section of ten enemies
+        output.writeVarInt(3, true);
+        output.writeByte(Snapshot.ENEMY);
+        output.writeVarInt(10, true);
+        for (int i = 0; i < 30; i++) {
+            output.writeVarInt(1, false);
+        }
+
+        assertThrows(KryoException.class, () -> read(output.toBytes()));
+    }
+
+    private SnapshotMessage roundTrip(SnapshotMessage m) {
+        return read(write(m));
+    }
+
+    private byte[] write(SnapshotMessage m) {
+        Output output = new Output(1024, -1);
+        kryo.writeObject(output, m);
+        return output.toBytes();
+    }
+
+    private SnapshotMessage read(byte[] bytes) {
+        return kryo.readObject(new Input(bytes), SnapshotMessage.class);
+    }
+}
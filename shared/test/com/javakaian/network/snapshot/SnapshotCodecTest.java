@@ -0,0 +1,162 @@
+package com.javakaian.network.snapshot;
+
+import com.javakaian.network.messages.SnapshotMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotCodecTest {
+
+    private final SnapshotCodec codec = new SnapshotCodec();
+
+    @Test
+    void fullSnapshotRoundTrips() {
+        Snapshot current = world(7);
+
+        SnapshotMessage m = codec.encode(null, current);
+        assertTrue(m.isFull());
+
+        Snapshot decoded = new Snapshot();
+        assertTrue(SnapshotCodec.decode(null, m, decoded));
+        assertSameSnapshot(current, decoded);
+    }
+
+    @Test
+    void deltaRoundTripsAgainstItsBaseline() {
+        Snapshot baseline = world(3);
+        Snapshot current = new Snapshot();
+        current.clear(4);
+        // enemy 1 moved, enemy 2 is gone, enemy 5 is new, enemy 9 did not change
+        current.addEnemy(1, 12, 20);
+        current.addEnemy(5, 50, 50);
+        current.addEnemy(9, 90, 90);
+        current.addPlayer(4, 40, 40, 80, true, 30, 2);
+        current.addBullet(6, 61, 60, 5);
+        current.addPowerUp(8, 80, 80, 10, 1);
+        current.sortById();
+
+        SnapshotMessage m = codec.encode(baseline, current);
+        assertFalse(m.isFull());
+        assertEquals(3, m.getBaseline());
+
+        Snapshot decoded = new Snapshot();
+        assertTrue(SnapshotCodec.decode(baseline, m, decoded));
+        assertSameSnapshot(current, decoded);
+    }
+
+    @Test
+    void unchangedEntitiesAreNotWritten() {
+        Snapshot baseline = world(3);
+        Snapshot current = new Snapshot();
+        current.copyFrom(baseline);
+
+        SnapshotMessage m = codec.encode(baseline, current);
+
+        assertEquals(0, m.getRemoved().length);
+        assertEquals(0, m.getChanged().length);
+        Snapshot decoded = new Snapshot();
+        assertTrue(SnapshotCodec.decode(baseline, m, decoded));
+        assertSameSnapshot(current, decoded);
+    }
+
+    @Test
+    void deltaIsRejectedWithoutItsBaseline() {
+        Snapshot baseline = world(3);
+        Snapshot current = world(4);
+        SnapshotMessage m = codec.encode(baseline, current);
+
+        Snapshot decoded = new Snapshot();
+        assertFalse(SnapshotCodec.decode(null, m, decoded));
+        assertFalse(SnapshotCodec.decode(world(2), m, decoded));
+    }
+
+    @Test
+    void malformedMessageIsRejected() {
+        SnapshotMessage m = codec.encode(null, world(4));
+        // the last field went missing
+        m.setChanged(Arrays.copyOf(m.getChanged(), m.getChanged().length - 1));
+
+        assertFalse(SnapshotCodec.decode(null, m, new Snapshot()));
+    }
+
+    @Test
+    void randomWorldsRoundTripAgainstAckedBaselines() {
+        Random random = new Random(42);
+        Snapshot[] sent = new Snapshot[64];
+        Snapshot[] received = new Snapshot[64];
+        int acked = -1;
+
+        for (int sequence = 0; sequence < 200; sequence++) {
+            Snapshot current = randomWorld(random, sequence);
+            Snapshot baseline = acked < 0 ? null : sent[acked % 64];
+
+            SnapshotMessage m = codec.encode(baseline, current);
+            Snapshot decoded = new Snapshot();
+            assertTrue(SnapshotCodec.decode(acked < 0 ? null : received[acked % 64], m, decoded),
+                    "snapshot " + sequence);
+            assertSameSnapshot(current, decoded);
+
+            sent[sequence % 64] = current;
+            received[sequence % 64] = decoded;
+            // the client acks some snapshots, the others are lost
+            if (random.nextInt(3) > 0) {
+                acked = sequence;
+            }
+        }
+    }
+
+    private static Snapshot world(int sequence) {
+        Snapshot s = new Snapshot();
+        s.clear(sequence);
+        s.addEnemy(1, 10, 20);
+        s.addEnemy(2, 30, 40);
+        s.addEnemy(9, 90, 90);
+        s.addPlayer(4, 40, 40, 100, false, 0, 2);
+        s.addBullet(6, 60, 60, 5);
+        s.addSpike(7, 70, 70, 20);
+        s.addPlacedSpike(3, 33, 33, 20, 45);
+        s.addPowerUp(8, 80, 80, 10, 1);
+        s.sortById();
+        return s;
+    }
+
+    private static Snapshot randomWorld(Random random, int sequence) {
+        Snapshot s = new Snapshot();
+        s.clear(sequence);
+        // a small id range, so entities come and go between snapshots
+        for (int id = 0; id < 40; id++) {
+            if (random.nextInt(4) == 0) {
+                continue;
+            }
+            float x = random.nextInt(200) + (sequence % 7);
+            float y = random.nextInt(200) - (sequence % 5);
+            switch (id % 6) {
+                case 0 -> s.addEnemy(id, x, y);
+                case 1 -> s.addPlayer(id, x, y, random.nextInt(101), random.nextBoolean(), random.nextInt(50), 1);
+                case 2 -> s.addBullet(id, x, y, 5);
+                case 3 -> s.addSpike(id, x, y, 20);
+                case 4 -> s.addPlacedSpike(id, x, y, 20, random.nextInt(360));
+                default -> s.addPowerUp(id, x, y, 10, random.nextInt(3));
+            }
+        }
+        s.sortById();
+        return s;
+    }
+
+    static void assertSameSnapshot(Snapshot expected, Snapshot actual) {
+        assertEquals(expected.getSequence(), actual.getSequence());
+        for (int kind = 0; kind < Snapshot.KINDS; kind++) {
+            assertEquals(expected.count(kind), actual.count(kind), "count of kind " + kind);
+            for (int i = 0; i < expected.count(kind); i++) {
+                assertEquals(expected.id(kind, i), actual.id(kind, i));
+                for (int f = 0; f < Snapshot.stride(kind); f++) {
+                    assertEquals(expected.field(kind, i, f), actual.field(kind, i, f),
+                            "field " + f + " of entity " + expected.id(kind, i) + " of kind " + kind);
+                }
+            }
+        }
+    }
+}